@@ -31,6 +31,7 @@ import org.networkcalculus.dnc.bounds.Bounds;
 import org.networkcalculus.dnc.curves.CurveFactory_Affine;
 import org.networkcalculus.dnc.curves.CurveUtils;
 import org.networkcalculus.dnc.curves.LinearSegment;
+import org.networkcalculus.num.NumBackend;
 
 public interface AlgDncBackend {
 	MinPlus getMinPlus();
@@ -67,4 +68,14 @@ public interface AlgDncBackend {
 	default void checkDependencies() {
 		
 	}
+	
+	/**
+	 * Checks the dependencies of this backend, including its compatibility with the number backend.
+	 * 
+	 * @param num_backend	The number backend to use this backend with.
+	 * @throws IllegalArgumentException If this backend cannot be used with the number backend.
+	 */
+	default void checkDependencies(NumBackend num_backend) {
+		checkDependencies();
+	}
 }
@@ -31,6 +31,11 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
 
+import org.networkcalculus.dnc.linear_constraints.LinearProgramCache;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolver;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolver_CPLEX;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolver_Simplex;
+
 /**
  * This class contains configuration settings that are considered during the analysis,
  * e.g., the multiplexing behavior of servers and the arrival bounding methods to use.
@@ -78,10 +83,40 @@ public class AnalysisConfig {
     private boolean server_backlog_arrival_bound = false;
     public static String path_to_cplex ="";
     public static String path_to_lp_dir ="";
+    /**
+     * The solver for the linear programs of the LP-based analyses, null selects it by <code>path_to_cplex</code>, 
+     * see {@link #getLinearProgramSolver()}. {@link LinearProgramSolver_CPLEX} uses the CPLEX installation 
+     * at <code>path_to_cplex</code> and writes to <code>path_to_lp_dir</code>.
+     */
+    public static LinearProgramSolver lp_solver = null;
+    private static final LinearProgramSolver lp_solver_cplex = new LinearProgramSolver_CPLEX();
+    private static final LinearProgramSolver lp_solver_simplex = new LinearProgramSolver_Simplex();
+    /**
+     * Maximum number of linear programs solved concurrently by all analyses together, i.e., 
+     * solver threads or, for {@link LinearProgramSolver_CPLEX}, solver processes.
+     */
+    public static int lp_solver_parallelism = Runtime.getRuntime().availableProcessors();
+    /**
+     * Solutions of the linear programs, shared by all analyses such that 
+     * programs of the same canonical form are solved once. Null disables caching.
+     * See {@link LinearProgramCache#setPersistentCache} to reuse solutions across runs.
+     */
+    public static LinearProgramCache lp_cache = new LinearProgramCache(100000);
     
     public AnalysisConfig() {
     }
     
+    /**
+     * @return The solver set in <code>lp_solver</code>. If it is not set, CPLEX if <code>path_to_cplex</code> is set, 
+     *         as before the in-process solver was added, and the in-process simplex solver otherwise.
+     */
+    public static LinearProgramSolver getLinearProgramSolver() {
+        if (lp_solver != null) {
+            return lp_solver;
+        }
+        return path_to_cplex.isEmpty() ? lp_solver_simplex : lp_solver_cplex;
+    }
+
     // TODO If ArrivalBoundMethod.AGGR_PMOO is the only arrival bound method, then the server_backlog_arrival_bound cannot improve the results.
     //		It just causes more effort. Notify the user but do not spam the terminal output with too many messages.
     public AnalysisConfig(MultiplexingEnforcement multiplexing_enforcement, MaxScEnforcement enforce_max_sc, MaxScEnforcement enforce_max_sc_output_rate,
@@ -104,6 +139,13 @@ public class AnalysisConfig {
         return multiplexing_enforcement;
     }
 
+    /**
+     * The multiplexing enforcement of the configuration created or modified last. 
+     * Curve operations only fall back to it outside of analyses, 
+     * analyses bind their own enforcement, see {@link Calculator#withMultiplexingEnforcement(MultiplexingEnforcement)}.
+     *
+     * @return The multiplexing enforcement of the latest configuration.
+     */
     public static MultiplexingEnforcement enforceMultiplexingStatic() {
         return multiplexing_enforcement_static;
     }
@@ -26,7 +26,12 @@
 
 package org.networkcalculus.dnc;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
 import org.networkcalculus.dnc.algebra.MinPlus;
+import org.networkcalculus.dnc.algebra.MinPlus_Memoizing;
 import org.networkcalculus.dnc.curves.CurveFactory_Affine;
 import org.networkcalculus.dnc.curves.CurveUtils;
 import org.networkcalculus.num.NumBackend;
@@ -35,30 +40,206 @@ import org.networkcalculus.num.NumBackend;
  * This class contains configuration settings for the calculator 
  * that cannot be changed at runtime without risking to cause an exception.
  * For example, the different number and curve backends are incompatible with each other.
+ * 
+ * Besides the mutable global instance, immutable calculation contexts can be created with
+ * {@link #create(NumBackend, AlgDncBackend)}. Such a context is bound to the executing thread
+ * for the duration of {@link #call(Callable)}; within that scope, {@link #getInstance()} returns it.
+ * Thereby, analyses with different backends can run concurrently in the same JVM.
+ * 
+ * The multiplexing enforcement of an analysis' configuration changes the results of curve operations, e.g., 
+ * of the convolution. Analyses therefore bind the context derived by {@link #withMultiplexingEnforcement(MultiplexingEnforcement)}, 
+ * the curve operations read the enforcement from the bound context.
+ * 
+ * Optionally, the results of min-plus operations are cached, see {@link MinPlus_Memoizing}.
  */
 public final class Calculator {
 	private static Calculator instance = new Calculator();
 	
+	private static final ThreadLocal<Calculator> bound_instance = new ThreadLocal<Calculator>();
+	
 	private NumBackend NUM_BACKEND = NumBackend.REAL_DOUBLE_PRECISION;
 	
 	private AlgDncBackend DNC_BACKEND = AlgDncBackend_DNC_ConPwAffine.DISCO_CONPWAFFINE;
+	
+	// Null if min-plus operation results are not cached.
+	private MinPlus_Memoizing MINPLUS_MEMOIZING = null;
+	
+	private final boolean immutable;
+	
+	// Null if the context follows the latest configuration, see AnalysisConfig.enforceMultiplexingStatic().
+	private final MultiplexingEnforcement MULTIPLEXING_ENFORCEMENT;
+	
+	// The context this one was derived from, this context if it was not derived.
+	private final Calculator base;
+	
+	// Contexts derived from this one, indexed by the enforcement's ordinal.
+	// They are kept such that, e.g., the arrival bound caches per context are shared by all analyses.
+	private final AtomicReferenceArray<Calculator> derived_contexts = 
+			new AtomicReferenceArray<Calculator>(MultiplexingEnforcement.values().length);
 
 	protected Calculator() {
+		immutable = false;
+		MULTIPLEXING_ENFORCEMENT = null;
+		base = this;
+	}
+	
+	private Calculator(NumBackend num_backend, AlgDncBackend alg_dnc_backend, MinPlus_Memoizing minplus_memoizing) {
+		NUM_BACKEND = num_backend;
+		DNC_BACKEND = alg_dnc_backend;
+		MINPLUS_MEMOIZING = minplus_memoizing;
+		immutable = true;
+		MULTIPLEXING_ENFORCEMENT = null;
+		base = this;
+	}
+	
+	private Calculator(Calculator base, MultiplexingEnforcement multiplexing_enforcement) {
+		NUM_BACKEND = base.NUM_BACKEND;
+		DNC_BACKEND = base.DNC_BACKEND;
+		MINPLUS_MEMOIZING = base.MINPLUS_MEMOIZING;
+		immutable = true;
+		MULTIPLEXING_ENFORCEMENT = multiplexing_enforcement;
+		this.base = base;
 	}
 
+	/**
+	 * @return The calculation context bound to the current thread, 
+	 * 			the global one if no context is bound.
+	 */
 	public static Calculator getInstance() {
+		Calculator bound = bound_instance.get();
+		if (bound != null) {
+			return bound;
+		}
 		return instance;
 	}
+	
+	/**
+	 * Creates an immutable calculation context.
+	 * 
+	 * @param num_backend		The number backend.
+	 * @param alg_dnc_backend	The curve and algebra backend.
+	 * @return An immutable calculation context.
+	 */
+	public static Calculator create(NumBackend num_backend, AlgDncBackend alg_dnc_backend) {
+		checkBackends(num_backend, alg_dnc_backend);
+		return new Calculator(num_backend, alg_dnc_backend, null);
+	}
+	
+	/**
+	 * Creates an immutable calculation context that caches the results of min-plus operations.
+	 * 
+	 * @param num_backend			The number backend.
+	 * @param alg_dnc_backend		The curve and algebra backend.
+	 * @param minplus_max_results	Maximum number of cached min-plus operation results.
+	 * @return An immutable calculation context.
+	 */
+	public static Calculator create(NumBackend num_backend, AlgDncBackend alg_dnc_backend, int minplus_max_results) {
+		checkBackends(num_backend, alg_dnc_backend);
+		// The cache is passed to the constructor, an immutable context is never modified after its creation.
+		return new Calculator(num_backend, alg_dnc_backend, 
+				new MinPlus_Memoizing(alg_dnc_backend.getMinPlus(), minplus_max_results));
+	}
+	
+	private static void checkBackends(NumBackend num_backend, AlgDncBackend alg_dnc_backend) {
+		if (num_backend == null || alg_dnc_backend == null) {
+			throw new IllegalArgumentException("Calculation contexts require a number backend and a DNC backend.");
+		}
+		alg_dnc_backend.checkDependencies(num_backend);
+	}
+	
+	/**
+	 * @return An immutable snapshot of this calculation context.
+	 */
+	public Calculator snapshot() {
+		if (immutable) {
+			return this;
+		}
+		return new Calculator(NUM_BACKEND, DNC_BACKEND, MINPLUS_MEMOIZING);
+	}
+	
+	public boolean isImmutable() {
+		return immutable;
+	}
+	
+	/**
+	 * Derives an immutable context with the same backends and min-plus cache that enforces the given multiplexing. 
+	 * Repeated calls return the same context, changing the backends of the global instance discards the derived ones.
+	 * 
+	 * @param multiplexing_enforcement	The multiplexing enforcement of an analysis' configuration.
+	 * @return The derived calculation context.
+	 */
+	public Calculator withMultiplexingEnforcement(MultiplexingEnforcement multiplexing_enforcement) {
+		if (multiplexing_enforcement == null) {
+			throw new IllegalArgumentException("Derived calculation contexts require a multiplexing enforcement.");
+		}
+		if (multiplexing_enforcement == MULTIPLEXING_ENFORCEMENT) {
+			return this;
+		}
+		if (base != this) {
+			return base.withMultiplexingEnforcement(multiplexing_enforcement);
+		}
+		
+		int i = multiplexing_enforcement.ordinal();
+		Calculator derived_context = derived_contexts.get(i);
+		if (derived_context == null) {
+			derived_contexts.compareAndSet(i, null, new Calculator(this, multiplexing_enforcement));
+			derived_context = derived_contexts.get(i);
+		}
+		return derived_context;
+	}
+	
+	/**
+	 * @return The multiplexing enforcement of this context, 
+	 * 			the one of the latest configuration if this context was not derived for an enforcement.
+	 */
+	public MultiplexingEnforcement getMultiplexingEnforcement() {
+		if (MULTIPLEXING_ENFORCEMENT != null) {
+			return MULTIPLEXING_ENFORCEMENT;
+		}
+		return AnalysisConfig.enforceMultiplexingStatic();
+	}
+	
+	/**
+	 * Executes the given task with this calculation context bound to the current thread.
+	 * The previously bound context is restored afterwards.
+	 * 
+	 * @param task	The task to execute.
+	 * @return The task's result.
+	 * @throws Exception Any exception thrown by the task.
+	 */
+	public <T> T call(Callable<T> task) throws Exception {
+		Calculator previous = bound_instance.get();
+		if (previous == this) {
+			return task.call();
+		}
+		
+		bound_instance.set(this);
+		try {
+			return task.call();
+		} finally {
+			if (previous == null) {
+				bound_instance.remove();
+			} else {
+				bound_instance.set(previous);
+			}
+		}
+	}
 
 	public NumBackend getNumBackend() {
 		return NUM_BACKEND;
 	}
 
 	public boolean setNumBackend(NumBackend num_backend) {
+		checkMutable();
+		// The DNC backend may not support the number backend.
+		DNC_BACKEND.checkDependencies(num_backend);
+		
 		if (NUM_BACKEND == num_backend) {
 			return false;
 		} else {
 			NUM_BACKEND = num_backend;
+			resetMinPlusCache();
+			resetDerivedContexts();
 			return true;
 		}
 	}
@@ -76,20 +257,67 @@ public final class Calculator {
 	}
 	
 	public MinPlus getMinPlus() {
+		MinPlus_Memoizing minplus_memoizing = MINPLUS_MEMOIZING;
+		if (minplus_memoizing != null) {
+			return minplus_memoizing;
+		}
 		return DNC_BACKEND.getMinPlus();
 	}
+	
+	/**
+	 * @return The cache of min-plus operation results, e.g., to retrieve its statistics. 
+	 * 			Null if results are not cached.
+	 */
+	public MinPlus_Memoizing getMinPlusCache() {
+		return MINPLUS_MEMOIZING;
+	}
+	
+	/**
+	 * Enables or disables caching the results of min-plus operations.
+	 * 
+	 * @param max_results	Maximum number of cached results, a value below 1 disables the cache.
+	 */
+	public void setMinPlusCache(int max_results) {
+		checkMutable();
+		
+		if (max_results < 1) {
+			MINPLUS_MEMOIZING = null;
+		} else {
+			MINPLUS_MEMOIZING = new MinPlus_Memoizing(DNC_BACKEND.getMinPlus(), max_results);
+		}
+		resetDerivedContexts();
+	}
+	
+	// Cached results become invalid if the backends change.
+	private void resetMinPlusCache() {
+		if (MINPLUS_MEMOIZING != null) {
+			MINPLUS_MEMOIZING = new MinPlus_Memoizing(DNC_BACKEND.getMinPlus(), MINPLUS_MEMOIZING.getMaxResults());
+		}
+	}
 
-	private void checkDependencies() {
-		DNC_BACKEND.checkDependencies();
+	// Derived contexts copied the backends.
+	private void resetDerivedContexts() {
+		for (int i = 0; i < derived_contexts.length(); i++) {
+			derived_contexts.set(i, null);
+		}
+	}
+
+	private void checkMutable() {
+		if (immutable) {
+			throw new UnsupportedOperationException("Backends of a calculation context cannot be changed.");
+		}
 	}
 	
 	public boolean setCurveBackend(AlgDncBackend alg_dnc_backend) {
-		checkDependencies();
+		checkMutable();
+		alg_dnc_backend.checkDependencies(NUM_BACKEND);
 
 		if (DNC_BACKEND == alg_dnc_backend) {
 			return false;
 		}
 		DNC_BACKEND = alg_dnc_backend;
+		resetMinPlusCache();
+		resetDerivedContexts();
 		return true;
 	}
 
@@ -0,0 +1,361 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package org.networkcalculus.dnc.algebra;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
+import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.curves.ArrivalCurve;
+import org.networkcalculus.dnc.curves.Curve;
+import org.networkcalculus.dnc.curves.MaxServiceCurve;
+import org.networkcalculus.dnc.curves.ServiceCurve;
+
+/**
+ * Decorator for a {@link MinPlus} implementation that caches operation results.
+ * 
+ * Operands are interned by their structure, i.e., their string representation: 
+ * structurally equal curves are mapped to the same ID such that cache keys are compact arrays of IDs. 
+ * Sets of operands are keyed independent of their iteration order.
+ * Results also depend on the multiplexing enforcement of the bound calculation context, e.g., the convolution's, 
+ * it is therefore part of the key, see {@link Calculator#getMultiplexingEnforcement()}.
+ * 
+ * Callers may modify operands and results, the cache therefore stores and returns copies.
+ * The cache is bounded by the number of results, least recently used results are evicted first. 
+ * Interned curves are dropped together with all results if there are too many.
+ */
+public class MinPlus_Memoizing implements MinPlus {
+	private enum Operation {
+		CONVOLVE_SC_SC, CONVOLVE_SCS_SCS, CONVOLVE_AC_AC, CONVOLVE_ACS, CONVOLVE_MSC_MSC, 
+		CONVOLVE_ACS_MSC, CONVOLVE_ACS_MSC_RATE, 
+		DECONVOLVE_ACS_SC, DECONVOLVE_ACS_SCS, DECONVOLVE_AC_SC, DECONVOLVE_CS_SCS
+	}
+	
+	// Interned curves per result.
+	private static final int INTERNED_CURVES_PER_RESULT = 4;
+	
+	private final MinPlus minplus;
+	private final int max_results;
+	
+	private final Object lock = new Object();
+	private final Map<String,Integer> map__curve_str__id = new HashMap<String,Integer>();
+	private final LinkedHashMap<OperationKey,Object> results;
+	// Incremented whenever IDs are reassigned, keys of older generations are outdated.
+	private int generation = 0;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * @param minplus		The decorated implementation.
+	 * @param max_results	Maximum number of cached results, at least 1.
+	 */
+	public MinPlus_Memoizing(MinPlus minplus, int max_results) {
+		if (max_results < 1) {
+			throw new IllegalArgumentException("The cache must be able to hold at least one result.");
+		}
+		this.minplus = minplus;
+		this.max_results = max_results;
+		
+		results = new LinkedHashMap<OperationKey,Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<OperationKey,Object> eldest) {
+				if (size() > MinPlus_Memoizing.this.max_results) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	public MinPlus getDecorated() {
+		return minplus;
+	}
+	
+	public int getMaxResults() {
+		return max_results;
+	}
+	
+	public int size() {
+		synchronized (lock) {
+			return results.size();
+		}
+	}
+	
+	public long getHitCount() {
+		return hits.sum();
+	}
+	
+	public long getMissCount() {
+		return misses.sum();
+	}
+	
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * @return The ratio of operations answered from the cache, 0 if there were no operations yet.
+	 */
+	public double getHitRate() {
+		long hit_count = hits.sum();
+		long operation_count = hit_count + misses.sum();
+		return operation_count == 0 ? 0.0 : (double) hit_count / operation_count;
+	}
+	
+	public void clear() {
+		synchronized (lock) {
+			results.clear();
+			map__curve_str__id.clear();
+			generation++;
+		}
+	}
+	
+	// ------------------------------------------------------------
+	// Convolution
+	// ------------------------------------------------------------
+	
+	@Override
+	public ServiceCurve convolve(ServiceCurve service_curve_1, ServiceCurve service_curve_2) throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_SC_SC, service_curve_1, service_curve_2),
+				() -> minplus.convolve(service_curve_1, service_curve_2).copy()));
+	}
+
+	@Override
+	public Set<ServiceCurve> convolve(Set<ServiceCurve> service_curves_1, Set<ServiceCurve> service_curves_2)
+			throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_SCS_SCS, service_curves_1, service_curves_2),
+				() -> copy(minplus.convolve(service_curves_1, service_curves_2))));
+	}
+
+	@Override
+	public ArrivalCurve convolve(ArrivalCurve arrival_curve_1, ArrivalCurve arrival_curve_2) throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_AC_AC, arrival_curve_1, arrival_curve_2),
+				() -> minplus.convolve(arrival_curve_1, arrival_curve_2).copy()));
+	}
+
+	@Override
+	public ArrivalCurve convolve(Set<ArrivalCurve> arrival_curves) throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_ACS, arrival_curves),
+				() -> minplus.convolve(arrival_curves).copy()));
+	}
+
+	@Override
+	public MaxServiceCurve convolve(MaxServiceCurve max_service_curve_1, MaxServiceCurve max_service_curve_2) throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_MSC_MSC, max_service_curve_1, max_service_curve_2),
+				() -> minplus.convolve(max_service_curve_1, max_service_curve_2).copy()));
+	}
+
+	@Override
+	public Set<Curve> convolve_ACs_MaxSC(Set<ArrivalCurve> arrival_curves, MaxServiceCurve maximum_service_curve)
+			throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_ACS_MSC, arrival_curves, maximum_service_curve),
+				() -> copy(minplus.convolve_ACs_MaxSC(arrival_curves, maximum_service_curve))));
+	}
+
+	@Override
+	public Set<ArrivalCurve> convolve_ACs_MaxScRate(Set<ArrivalCurve> arrival_curves, MaxServiceCurve extra_gamma_curve)
+			throws Exception {
+		return copy(memoize(key(Operation.CONVOLVE_ACS_MSC_RATE, arrival_curves, extra_gamma_curve),
+				() -> copy(minplus.convolve_ACs_MaxScRate(arrival_curves, extra_gamma_curve))));
+	}
+	
+	// ------------------------------------------------------------
+	// Deconvolution
+	// ------------------------------------------------------------
+
+	@Override
+	public Set<ArrivalCurve> deconvolve(Set<ArrivalCurve> arrival_curves, ServiceCurve service_curve) throws Exception {
+		return copy(memoize(key(Operation.DECONVOLVE_ACS_SC, arrival_curves, service_curve),
+				() -> copy(minplus.deconvolve(arrival_curves, service_curve))));
+	}
+
+	@Override
+	public Set<ArrivalCurve> deconvolve(Set<ArrivalCurve> arrival_curves, Set<ServiceCurve> service_curves) throws Exception {
+		return copy(memoize(key(Operation.DECONVOLVE_ACS_SCS, arrival_curves, service_curves),
+				() -> copy(minplus.deconvolve(arrival_curves, service_curves))));
+	}
+
+	@Override
+	public ArrivalCurve deconvolve(ArrivalCurve arrival_curve, ServiceCurve service_curve) throws Exception {
+		return copy(memoize(key(Operation.DECONVOLVE_AC_SC, arrival_curve, service_curve),
+				() -> minplus.deconvolve(arrival_curve, service_curve).copy()));
+	}
+
+	@Override
+	public Set<ArrivalCurve> deconvolve_almostConcCs_SCs(Set<Curve> curves, Set<ServiceCurve> service_curves)
+			throws Exception {
+		return copy(memoize(key(Operation.DECONVOLVE_CS_SCS, curves, service_curves),
+				() -> copy(minplus.deconvolve_almostConcCs_SCs(curves, service_curves))));
+	}
+	
+	// ------------------------------------------------------------
+	// Caching
+	// ------------------------------------------------------------
+	
+	/**
+	 * Builds the key of an operation on the given operands, 
+	 * each operand is either a curve or a set of curves.
+	 */
+	private OperationKey key(Operation operation, Object... operands) {
+		// Get the string representations outside of the lock.
+		String[][] operands_strs = new String[operands.length][];
+		for (int i = 0; i < operands.length; i++) {
+			if (operands[i] instanceof Set) {
+				Set<?> curves = (Set<?>) operands[i];
+				operands_strs[i] = new String[curves.size()];
+				int j = 0;
+				for (Object curve : curves) {
+					operands_strs[i][j++] = curve.toString();
+				}
+			} else {
+				operands_strs[i] = new String[] { operands[i].toString() };
+			}
+		}
+		
+		int[][] operands_ids = new int[operands.length][];
+		int key_generation;
+		synchronized (lock) {
+			if (map__curve_str__id.size() > INTERNED_CURVES_PER_RESULT * max_results) {
+				// IDs are only valid as long as the results using them.
+				evictions.add(results.size());
+				results.clear();
+				map__curve_str__id.clear();
+				generation++;
+			}
+			
+			for (int i = 0; i < operands.length; i++) {
+				operands_ids[i] = new int[operands_strs[i].length];
+				for (int j = 0; j < operands_strs[i].length; j++) {
+					Integer id = map__curve_str__id.get(operands_strs[i][j]);
+					if (id == null) {
+						id = map__curve_str__id.size();
+						map__curve_str__id.put(operands_strs[i][j], id);
+					}
+					operands_ids[i][j] = id;
+				}
+				if (operands[i] instanceof Set) {
+					// Sets of curves do not have an order.
+					Arrays.sort(operands_ids[i]);
+				}
+			}
+			key_generation = generation;
+		}
+		
+		return new OperationKey(operation, Calculator.getInstance().getMultiplexingEnforcement(), operands_ids, key_generation);
+	}
+	
+	/**
+	 * The operation is executed outside of the lock. 
+	 * Concurrent misses on the same key compute the result redundantly, the results are equal.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T memoize(OperationKey key, Callable<T> operation) throws Exception {
+		Object result;
+		synchronized (lock) {
+			result = results.get(key);
+		}
+		if (result != null) {
+			hits.increment();
+			return (T) result;
+		}
+		
+		misses.increment();
+		result = operation.call();
+		synchronized (lock) {
+			if (key.generation == generation) {
+				results.put(key, result);
+			}
+		}
+		return (T) result;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <C extends Curve> C copy(C curve) {
+		return (C) curve.copy();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <C extends Curve> Set<C> copy(Set<C> curves) {
+		Set<C> curves_copy = new HashSet<C>();
+		for (C curve : curves) {
+			curves_copy.add((C) curve.copy());
+		}
+		return curves_copy;
+	}
+	
+	@Override
+	public String toString() {
+		return "MinPlus_Memoizing(" + minplus + ", results: " + size() + ", hits: " + getHitCount() 
+				+ ", misses: " + getMissCount() + ", evictions: " + getEvictionCount() + ")";
+	}
+	
+	private static final class OperationKey {
+		private final Operation operation;
+		private final MultiplexingEnforcement multiplexing_enforcement;
+		private final int[][] operands_ids;
+		private final int generation;
+		private final int hash;
+		
+		private OperationKey(Operation operation, MultiplexingEnforcement multiplexing_enforcement, int[][] operands_ids, int generation) {
+			this.operation = operation;
+			this.multiplexing_enforcement = multiplexing_enforcement;
+			this.operands_ids = operands_ids;
+			this.generation = generation;
+			this.hash = 31 * (31 * operation.ordinal() + multiplexing_enforcement.ordinal()) + Arrays.deepHashCode(operands_ids);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof OperationKey)) {
+				return false;
+			}
+			OperationKey other = (OperationKey) obj;
+			return hash == other.hash 
+					&& operation == other.operation 
+					&& multiplexing_enforcement == other.multiplexing_enforcement 
+					&& generation == other.generation 
+					&& Arrays.deepEquals(operands_ids, other.operands_ids);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -51,7 +51,7 @@ public abstract class Convolution_Disco_PwAffine {
 
     public static ServiceCurve convolve(ServiceCurve service_curve_1, ServiceCurve service_curve_2)
     {
-        if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+        if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
         {
             return convolveFIFO(service_curve_1, service_curve_2);
         }
@@ -38,7 +38,6 @@ import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
 import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.curves.*;
 import org.networkcalculus.dnc.curves.disco.LinearSegment_Disco;
-import org.networkcalculus.dnc.curves.disco.pw_affine.Curve_Disco_PwAffine;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.num.Num;
 
@@ -69,7 +68,7 @@ public final class LeftOverService_Disco_PwAffine {
             ServiceCurve sc = service_curve;
             Num burst = ac.getBurst();
 
-            Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+            Curve curve = sc;
 
             Num theta_curr_lb = curve.f_inv(burst);
             ServiceCurve leftover_sc = LeftOverService_Disco_PwAffine.fifoMux(sc, ac, theta_curr_lb);
@@ -87,7 +86,7 @@ public final class LeftOverService_Disco_PwAffine {
             ServiceCurve sc = service_curve;
             Num burst = ac.getBurst();
 
-            Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+            Curve curve = sc;
 
             Num theta_curr_lb = curve.f_inv(burst);
             ServiceCurve leftover_sc = LeftOverService_Disco_PwAffine.fifoMux(sc, ac, theta_curr_lb);
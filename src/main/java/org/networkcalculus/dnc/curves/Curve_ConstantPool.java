@@ -25,11 +25,12 @@
 
 package org.networkcalculus.dnc.curves;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.networkcalculus.dnc.AlgDncBackend;
 import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.num.NumBackend;
 
 /**
  * Constant pool for {@link Curve}. Stores constants based on {@link NumBackend} 
@@ -71,26 +72,29 @@ public enum Curve_ConstantPool {
         }
     };
     
-    private final Map<String, Curve> pool = new HashMap<>();
+    private final Map<NumBackend, Map<AlgDncBackend, Curve>> pool = new ConcurrentHashMap<>();
 
     /**
      * Returns the value of the constant from the pool.
+     * The pool is safe to be accessed concurrently by analyses with different calculation contexts.
      * @return T the constant casted to type T
      */
     @SuppressWarnings("unchecked")
     public <T extends Curve> T get() {
-        final String key = getKey();
-        Curve result = pool.get(key);
+        final Calculator calculator = Calculator.getInstance();
+        final Map<AlgDncBackend, Curve> backend_pool = pool.computeIfAbsent(calculator.getNumBackend(),
+                num_backend -> new ConcurrentHashMap<>());
+
+        Curve result = backend_pool.get(calculator.getDncBackend());
         if (result == null) {
+            // Not created inside computeIfAbsent as curve creation may itself access the pool. 
             result = createCurve();
-            pool.put(key, result);
-         }
-       return (T) result;
-     }
-
-    private static String getKey() {
-        return Calculator.getInstance().getNumBackend().toString()
-                + Calculator.getInstance().getDncBackend().toString();
+            Curve present = backend_pool.putIfAbsent(calculator.getDncBackend(), result);
+            if (present != null) {
+                result = present;
+            }
+        }
+        return (T) result;
     }
 
     protected abstract Curve createCurve();
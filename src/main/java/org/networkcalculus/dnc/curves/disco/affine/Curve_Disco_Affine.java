@@ -982,7 +982,7 @@ public class Curve_Disco_Affine implements Curve_Affine, CurveFactory_Affine {
 	}
 
 	public Num f_inv(Num y, boolean rightmost) {
-		if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+		if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
 		{
 			return f_invFIFO(y, rightmost);
 		}
@@ -1077,7 +1077,7 @@ public class Curve_Disco_Affine implements Curve_Affine, CurveFactory_Affine {
 
 
 	private int getSegmentFirstAtValue(Num y) {
-		if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+		if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
 		{
 			return getSegmentFirstAtValueFIFO(y);
 		}
@@ -139,7 +139,7 @@ public class CurveUtils_Disco_PwAffine implements CurveUtils {
     }
 
     public void beautify(Curve c) {
-     if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+     if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
      {
          beautifyFIFO(c);
      }
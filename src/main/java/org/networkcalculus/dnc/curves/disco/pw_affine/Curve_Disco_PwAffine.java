@@ -66,11 +66,13 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 	protected boolean is_delayed_infinite_burst = false;
 
 	protected boolean is_rate_latency = false;
-	protected boolean has_rate_latency_meta_info = false;
+	// Meta info is derived lazily, also on curves shared by concurrent analyses.
+	// Volatile flags make sure the derived lists are published completely.
+	protected volatile boolean has_rate_latency_meta_info = false;
 	protected List<Curve_Disco_PwAffine> rate_latencies = new LinkedList<Curve_Disco_PwAffine>();
 
 	protected boolean is_token_bucket = false;
-	protected boolean has_token_bucket_meta_info = false;
+	protected volatile boolean has_token_bucket_meta_info = false;
 	protected List<Curve_Disco_PwAffine> token_buckets = new LinkedList<Curve_Disco_PwAffine>();
 
 	/**
@@ -760,7 +762,7 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 
 
 	public Num f_inv(Num y, boolean rightmost) {
-		if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+		if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
 		{
 			return f_invFIFO(y, rightmost);
 		}
@@ -853,7 +855,7 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 	}
 
 	private int getSegmentFirstAtValue(Num y) {
-		if(AnalysisConfig.enforceMultiplexingStatic() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
+		if(Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO)
 		{
 			return getSegmentFirstAtValueFIFO(y);
 		}
@@ -1077,16 +1079,17 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 			return;
 		}
 
+		List<Curve_Disco_PwAffine> rate_latencies_tmp;
 		if (Curves_Disco_Configuration.getInstance().exec_service_curve_checks() && !this.isConvex()) {
 			if (this.equals(this.createZeroDelayInfiniteBurst())) {
-				rate_latencies = new ArrayList<Curve_Disco_PwAffine>();
-				rate_latencies.add(this.createRateLatency(Num.getFactory(Calculator.getInstance().getNumBackend()).createPositiveInfinity(),
+				rate_latencies_tmp = new ArrayList<Curve_Disco_PwAffine>();
+				rate_latencies_tmp.add(this.createRateLatency(Num.getFactory(Calculator.getInstance().getNumBackend()).createPositiveInfinity(),
 						Num.getFactory(Calculator.getInstance().getNumBackend()).createZero()));
 			} else {
 				throw new RuntimeException("Can only decompose convex service curves into rate latency curves.");
 			}
 		} else {
-			rate_latencies = new ArrayList<Curve_Disco_PwAffine>();
+			rate_latencies_tmp = new ArrayList<Curve_Disco_PwAffine>();
 			for (int i = 0; i < segments.length; i++) {
 				if (segments[i].getY().eq(0.0) && segments[i].getGrad().eq(0.0)) {
 					continue;
@@ -1097,11 +1100,12 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 				if (latency.ltZero()) {
 					continue;
 				}
-				rate_latencies.add(this.createRateLatency(rate, latency));
+				rate_latencies_tmp.add(this.createRateLatency(rate, latency));
 			}
 		}
 
-		is_rate_latency = rate_latencies.size() == 1;
+		rate_latencies = rate_latencies_tmp;
+		is_rate_latency = rate_latencies_tmp.size() == 1;
 
 		has_rate_latency_meta_info = true;
 	}
@@ -1147,7 +1151,7 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 			throw new RuntimeException("Can only decompose concave arrival curves into token buckets.");
 		}
 
-		token_buckets = new ArrayList<Curve_Disco_PwAffine>();
+		List<Curve_Disco_PwAffine> token_buckets_tmp = new ArrayList<Curve_Disco_PwAffine>();
 		for (int i = 0; i < segments.length; i++) {
 			if (isDiscontinuity(i)) {
 				continue;
@@ -1155,10 +1159,11 @@ public class Curve_Disco_PwAffine implements Curve_PwAffine, CurveFactory_Affine
 			Num rate = segments[i].getGrad();
 			Num burst = Num.getUtils(Calculator.getInstance().getNumBackend()).sub(segments[i].getY(),
 					Num.getUtils(Calculator.getInstance().getNumBackend()).mult(segments[i].getX(), segments[i].getGrad()));
-			token_buckets.add(this.createTokenBucket(rate, burst));
+			token_buckets_tmp.add(this.createTokenBucket(rate, burst));
 		}
 
-		is_token_bucket = token_buckets.size() == 1;
+		token_buckets = token_buckets_tmp;
+		is_token_bucket = token_buckets_tmp.size() == 1;
 
 		has_token_bucket_meta_info = true;
 	}
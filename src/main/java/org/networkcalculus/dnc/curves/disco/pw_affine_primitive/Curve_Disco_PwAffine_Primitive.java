@@ -0,0 +1,1561 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.curves.disco.pw_affine_primitive;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.networkcalculus.dnc.AnalysisConfig;
+import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.curves.Curve;
+import org.networkcalculus.dnc.curves.CurveFactory_Affine;
+import org.networkcalculus.dnc.curves.CurveUtils;
+import org.networkcalculus.dnc.curves.Curve_Affine;
+import org.networkcalculus.dnc.curves.Curve_PwAffine;
+import org.networkcalculus.dnc.curves.LinearSegment;
+import org.networkcalculus.dnc.curves.disco.Curves_Disco_Configuration;
+import org.networkcalculus.dnc.curves.disco.LinearSegment_Disco;
+import org.networkcalculus.dnc.curves.disco.pw_affine.CurveUtils_Disco_PwAffine;
+import org.networkcalculus.num.Num;
+
+/**
+ * Class representing a piecewise linear curve, defined on [0,inf).<br>
+ * Semantically equivalent to <code>Curve_Disco_PwAffine</code>, yet the curve is not stored 
+ * as an array of <code>LinearSegment</code> objects but as parallel arrays of primitives: 
+ * one array per segment property x, y, gradient and left-openness. 
+ * Function values and segment lookups thereby operate on primitives without pointer chasing.
+ * <code>Num</code> objects are only created at the interface.<br>
+ * Values are stored as doubles, i.e., number backends with a higher precision lose it.<br>
+ * <code>getSegment</code> returns a view on the segment, the same one on every call. 
+ * Modifying the view modifies the curve. Like a <code>LinearSegment_Disco</code> taken from a curve, 
+ * the view stays with its segment when segments are added or removed, a removed segment's view keeps its values.<br>
+ * All arithmetic operations on a curve return a new instance of class
+ * <code>Curve</code>.<br>
+ */
+public class Curve_Disco_PwAffine_Primitive implements Curve_PwAffine, CurveFactory_Affine {
+	private static Curve_Disco_PwAffine_Primitive instance = new Curve_Disco_PwAffine_Primitive();
+	private static CurveUtils utils = CurveUtils_Disco_PwAffine.getInstance();
+
+	// Segments, the arrays' capacity may exceed the segment count.
+	protected int segment_count;
+	protected double[] x;
+	protected double[] y;
+	protected double[] grad;
+	protected boolean[] leftopen;
+	// Views returned by getSegment, indexed like the segments and at least as long. Null until the first call.
+	private volatile AtomicReferenceArray<SegmentView> segment_views;
+
+	protected boolean is_delayed_infinite_burst = false;
+
+	protected boolean is_rate_latency = false;
+	// Meta info is derived lazily, also on curves shared by concurrent analyses.
+	// Volatile flags make sure the derived lists are published completely.
+	protected volatile boolean has_rate_latency_meta_info = false;
+	protected List<Curve_Disco_PwAffine_Primitive> rate_latencies = new LinkedList<Curve_Disco_PwAffine_Primitive>();
+
+	protected boolean is_token_bucket = false;
+	protected volatile boolean has_token_bucket_meta_info = false;
+	protected List<Curve_Disco_PwAffine_Primitive> token_buckets = new LinkedList<Curve_Disco_PwAffine_Primitive>();
+
+	/**
+	 * Creates a curve with a single segment on the x-axis.
+	 */
+	protected Curve_Disco_PwAffine_Primitive() {
+		createZeroSegmentsCurve(1);
+	}
+
+	protected Curve_Disco_PwAffine_Primitive(Curve curve) {
+		copy(curve);
+	}
+
+	/**
+	 * Creates a curve with <code>segment_count</code> segments on the x-axis.
+	 *
+	 * @param segment_count
+	 *            the number of segments
+	 */
+	protected Curve_Disco_PwAffine_Primitive(int segment_count) {
+		createZeroSegmentsCurve(segment_count);
+	}
+
+	public static CurveFactory_Affine getFactory() {
+		return instance;
+	}
+
+	private static Num num(double value) {
+		return Num.getFactory(Calculator.getInstance().getNumBackend()).create(value);
+	}
+
+	// --------------------------------------------------------------------------------------------------------------
+	// Interface Implementations
+	// --------------------------------------------------------------------------------------------------------------
+
+	public boolean isRateLatency() {
+		decomposeIntoRateLatencies();
+		return is_rate_latency;
+	}
+
+	public boolean isTokenBucket() {
+		decomposeIntoTokenBuckets();
+		return is_token_bucket;
+	}
+
+	public boolean hasRateLatencyMetaInfo() {
+		return has_rate_latency_meta_info;
+	}
+
+	public void setRL_MetaInfo(boolean has_rate_latency_meta_info) {
+		this.has_rate_latency_meta_info = has_rate_latency_meta_info;
+	}
+
+	public List<Curve_Affine> getRL_Components() {
+		List<Curve_Affine> tmp = new LinkedList<>();
+		if (this.is_rate_latency) {
+			tmp.add(this.copy());
+		} else {
+			tmp.addAll(rate_latencies);
+		}
+		return tmp;
+	}
+
+	public void setRL_Components(List<Curve> rate_latencies) {
+		List<Curve_Disco_PwAffine_Primitive> tmp = new LinkedList<>();
+		for (Curve rate_latency : rate_latencies) {
+			tmp.add((Curve_Disco_PwAffine_Primitive) rate_latency);
+		}
+		this.rate_latencies = tmp;
+	}
+
+	public boolean hasTokenBucketMetaInfo() {
+		return has_token_bucket_meta_info;
+	}
+
+	public void setTB_MetaInfo(boolean has_token_bucket_meta_info) {
+		this.has_token_bucket_meta_info = has_token_bucket_meta_info;
+	}
+
+	public List<Curve_Affine> getTB_Components() {
+		return new LinkedList<>(token_buckets);
+	}
+
+	public void setTB_Components(List<Curve> token_buckets) {
+		List<Curve_Disco_PwAffine_Primitive> tmp = new LinkedList<>();
+		for (Curve token_bucket : token_buckets) {
+			tmp.add((Curve_Disco_PwAffine_Primitive) token_bucket);
+		}
+		this.token_buckets = tmp;
+	}
+
+	private void createZeroSegmentsCurve(int segment_count) {
+		allocate(segment_count);
+		for (int i = 1; i < segment_count; i++) {
+			leftopen[i] = true;
+		}
+	}
+
+	private void allocate(int segment_count) {
+		detachSegmentViews();
+		this.segment_count = segment_count;
+		x = new double[segment_count];
+		y = new double[segment_count];
+		grad = new double[segment_count];
+		leftopen = new boolean[segment_count];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= x.length) {
+			return;
+		}
+		int capacity_new = Math.max(capacity, 2 * x.length);
+		x = Arrays.copyOf(x, capacity_new);
+		y = Arrays.copyOf(y, capacity_new);
+		grad = Arrays.copyOf(grad, capacity_new);
+		leftopen = Arrays.copyOf(leftopen, capacity_new);
+	}
+
+	// Accepts string representations of Curve, ArrivalCurve, ServiceCurve, and
+	// MaxServiceCurve
+	protected void initializeCurve(String curve_str) throws Exception {
+		if (curve_str.substring(0, 2).equals("AC") || curve_str.substring(0, 2).equals("SC")) {
+			curve_str = curve_str.substring(2);
+		} else {
+			if (curve_str.substring(0, 3).equals("MSC")) {
+				curve_str = curve_str.substring(3);
+			}
+		}
+
+		// Must to be a string representation of a "raw" curve object at this location.
+		if (curve_str.charAt(0) != '{' || curve_str.charAt(curve_str.length() - 1) != '}') {
+			throw new RuntimeException("Invalid string representation of a curve.");
+		}
+
+		// Remove enclosing curly brackets
+		String curve_str_internal = curve_str.substring(1, curve_str.length() - 1);
+
+		String[] segments_to_parse = curve_str_internal.split(";");
+		allocate(segments_to_parse.length);
+		for (int i = 0; i < segments_to_parse.length; i++) {
+			set(i, new LinearSegment_Disco(segments_to_parse[i]));
+		}
+		utils.beautify(this);
+	}
+
+	protected void forceThroughOrigin() {
+		if (y[0] > 0.0) {
+			insert(0, 0.0, 0.0, 0.0, false);
+			leftopen[1] = true;
+		}
+	}
+
+	private void clearMetaInfo() {
+		has_token_bucket_meta_info = false;
+		is_token_bucket = false;
+		token_buckets = new LinkedList<Curve_Disco_PwAffine_Primitive>();
+
+		has_rate_latency_meta_info = false;
+		is_rate_latency = false;
+		rate_latencies = new LinkedList<Curve_Disco_PwAffine_Primitive>();
+	}
+
+	/**
+	 * Returns a copy of this instance.
+	 *
+	 * @return a copy of this instance.
+	 */
+	@Override
+	public Curve_Disco_PwAffine_Primitive copy() {
+		Curve_Disco_PwAffine_Primitive c_copy = new Curve_Disco_PwAffine_Primitive();
+		c_copy.copy(this);
+		return c_copy;
+	}
+
+	@Override
+	public void copy(Curve curve) {
+		if (curve instanceof Curve_Disco_PwAffine_Primitive) {
+			Curve_Disco_PwAffine_Primitive c_prim = (Curve_Disco_PwAffine_Primitive) curve;
+			
+			detachSegmentViews();
+			segment_count = c_prim.segment_count;
+			x = Arrays.copyOf(c_prim.x, segment_count);
+			y = Arrays.copyOf(c_prim.y, segment_count);
+			grad = Arrays.copyOf(c_prim.grad, segment_count);
+			leftopen = Arrays.copyOf(c_prim.leftopen, segment_count);
+			clearMetaInfo();
+
+			this.has_rate_latency_meta_info = c_prim.has_rate_latency_meta_info;
+			this.rate_latencies.addAll(c_prim.rate_latencies);
+
+			this.has_token_bucket_meta_info = c_prim.has_token_bucket_meta_info;
+			this.token_buckets.addAll(c_prim.token_buckets);
+
+			this.is_delayed_infinite_burst = c_prim.isDelayedInfiniteBurst();
+			this.is_rate_latency = c_prim.isRateLatency();
+			this.is_token_bucket = c_prim.isTokenBucket();
+		} else {
+			allocate(curve.getSegmentCount());
+			for (int i = 0; i < segment_count; i++) {
+				set(i, curve.getSegment(i));
+			}
+			clearMetaInfo();
+		}
+	}
+
+	/**
+	 * Starting at 0.
+	 */
+	public LinearSegment getSegment(int pos) {
+		if (pos < 0 || pos > segment_count - 1) {
+			throw new IndexOutOfBoundsException("Index out of bounds (pos=" + pos + ", segments.length=" + segment_count + ")!");
+		}
+		AtomicReferenceArray<SegmentView> views = segment_views;
+		SegmentView view = views == null ? null : views.get(pos);
+		if (view != null) {
+			return view;
+		}
+		return createSegmentView(pos);
+	}
+
+	// Curves may be shared by concurrent analyses, the creation of views is synchronized.
+	private synchronized SegmentView createSegmentView(int pos) {
+		if (segment_views == null) {
+			segment_views = new AtomicReferenceArray<SegmentView>(x.length);
+		}
+		SegmentView view = segment_views.get(pos);
+		if (view == null) {
+			view = new SegmentView(this, pos);
+			segment_views.set(pos, view);
+		}
+		return view;
+	}
+
+	// The segments are replaced, views created so far keep the values of their segment.
+	private void detachSegmentViews() {
+		if (segment_views == null) {
+			return;
+		}
+		for (int i = 0; i < segment_count; i++) {
+			SegmentView view = segment_views.get(i);
+			if (view != null) {
+				view.detach();
+			}
+		}
+		segment_views = null;
+	}
+
+	/**
+	 * Returns the number of segments in this curve.
+	 *
+	 * @return the number of segments
+	 */
+	public int getSegmentCount() {
+		return segment_count;
+	}
+
+	// ------------------------------------------------------------
+	// Curve's segments
+	// ------------------------------------------------------------
+
+	/**
+	 * Returns the number of the segment that defines the function value at
+	 * x-coordinate <code>x</code>. The number of the segment is usually the same as
+	 * the one returned by <code>getSegmentLimitRight(x)</code>, except for if a
+	 * segment starts at <code>x</code> and is left-open. In this case the function
+	 * returns the previous segment, rather than the current segment, as the
+	 * previous segment defines <code>x</code>.
+	 *
+	 * @param x
+	 *            the x-coordinate
+	 * @return the index of the segment into the array.
+	 */
+	public int getSegmentDefining(Num x) {
+		return getSegmentDefining(x.doubleValue());
+	}
+
+	private int getSegmentDefining(double x_value) {
+		for (int i = segment_count - 1; i >= 0; i--) {
+			if (leftopen[i] ? x[i] < x_value : x[i] <= x_value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the number of the segment that defines the value of the function when
+	 * computing the limit to the right of the function at x-coordinate
+	 * <code>x</code>. The number of the segment is usually the same as the one
+	 * returned by <code>getSegmentDefining(x)</code>, except for if a segment
+	 * starts at <code>x</code> and is left-open. In this case the function returns
+	 * the current segment, rather than the previous segment.
+	 *
+	 * @param x
+	 *            the x-coordinate
+	 * @return the index of the segment into the array.
+	 */
+	public int getSegmentLimitRight(Num x) {
+		return getSegmentLimitRight(x.doubleValue());
+	}
+
+	private int getSegmentLimitRight(double x_value) {
+		if (x_value == Double.POSITIVE_INFINITY) {
+			return segment_count;
+		}
+
+		for (int i = segment_count - 1; i >= 0; i--) {
+			if (x[i] <= x_value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public void setSegment(int pos, LinearSegment s) {
+		if (pos < 0 || pos >= segment_count) {
+			throw new IndexOutOfBoundsException("Index out of bounds (pos=" + pos + ")!");
+		}
+		if (s == null) {
+			throw new IllegalArgumentException("Tried to insert null!");
+		}
+
+		set(pos, s);
+		clearMetaInfo();
+	}
+
+	private void set(int pos, LinearSegment s) {
+		if (s instanceof SegmentView) {
+			SegmentView s_view = (SegmentView) s;
+			set(pos, s_view.curve.x[s_view.pos], s_view.curve.y[s_view.pos], s_view.curve.grad[s_view.pos], s_view.curve.leftopen[s_view.pos]);
+		} else {
+			set(pos, s.getX().doubleValue(), s.getY().doubleValue(), s.getGrad().doubleValue(), s.isLeftopen());
+		}
+	}
+
+	private void set(int pos, double x_value, double y_value, double grad_value, boolean leftopen_value) {
+		x[pos] = x_value;
+		y[pos] = y_value;
+		grad[pos] = grad_value;
+		leftopen[pos] = leftopen_value;
+	}
+
+	private static void moveSegmentView(SegmentView view, AtomicReferenceArray<SegmentView> views, int pos) {
+		if (view != null) {
+			view.pos = pos;
+		}
+		views.set(pos, view);
+	}
+
+	private void setSegments(double[] x, double[] y, double[] grad, boolean[] leftopen) {
+		detachSegmentViews();
+		this.segment_count = x.length;
+		this.x = x;
+		this.y = y;
+		this.grad = grad;
+		this.leftopen = leftopen;
+		clearMetaInfo();
+	}
+
+	/**
+	 * Adds a <code>LinearSegment</code> to the end of the curve.<br>
+	 * Note: It is the user's responsibility to add segments in the order of
+	 * increasing x-coordinates.
+	 *
+	 * @param s
+	 *            the segment to be added.
+	 */
+	public void addSegment(LinearSegment s) {
+		addSegment(segment_count, s);
+	}
+
+	/**
+	 * Adds a <code>LinearSegment</code> at the location <code>pos</code> of the
+	 * curve.<br>
+	 * Note1; Segments after pos will be pushed back by one position.<br>
+	 * Note2: It is the user's responsibility to add segments in the order of
+	 * increasing x-coordinates.
+	 *
+	 * @param pos
+	 *            the index into the segment array to add the new segment.
+	 * @param s
+	 *            the segment to be added.
+	 */
+	public void addSegment(int pos, LinearSegment s) {
+		if (pos < 0 || pos > segment_count) {
+			throw new IndexOutOfBoundsException("Index out of bounds (pos=" + pos + ")!");
+		}
+		if (s == null) {
+			throw new IllegalArgumentException("Tried to insert null!");
+		}
+
+		// Read the segment first, it may be a view on this curve.
+		if (s instanceof SegmentView) {
+			SegmentView s_view = (SegmentView) s;
+			insert(pos, s_view.curve.x[s_view.pos], s_view.curve.y[s_view.pos], s_view.curve.grad[s_view.pos], s_view.curve.leftopen[s_view.pos]);
+		} else {
+			insert(pos, s.getX().doubleValue(), s.getY().doubleValue(), s.getGrad().doubleValue(), s.isLeftopen());
+		}
+	}
+
+	private void insert(int pos, double x_value, double y_value, double grad_value, boolean leftopen_value) {
+		ensureCapacity(segment_count + 1);
+		if (pos < segment_count) {
+			System.arraycopy(x, pos, x, pos + 1, segment_count - pos);
+			System.arraycopy(y, pos, y, pos + 1, segment_count - pos);
+			System.arraycopy(grad, pos, grad, pos + 1, segment_count - pos);
+			System.arraycopy(leftopen, pos, leftopen, pos + 1, segment_count - pos);
+		}
+		if (segment_views != null) {
+			// Grown along with the segment arrays.
+			AtomicReferenceArray<SegmentView> views = segment_views;
+			if (views.length() < x.length) {
+				views = new AtomicReferenceArray<SegmentView>(x.length);
+				for (int i = 0; i < pos; i++) {
+					views.set(i, segment_views.get(i));
+				}
+			}
+			for (int i = segment_count; i > pos; i--) {
+				moveSegmentView(segment_views.get(i - 1), views, i);
+			}
+			views.set(pos, null);
+			segment_views = views;
+		}
+		segment_count++;
+		set(pos, x_value, y_value, grad_value, leftopen_value);
+
+		clearMetaInfo();
+	}
+
+	/**
+	 * Removes the segment at position <code>pos</code>.
+	 *
+	 * @param pos
+	 *            the index of the segment to be removed.
+	 */
+	public void removeSegment(int pos) {
+		if (pos < 0 || pos >= segment_count) {
+			throw new IndexOutOfBoundsException("Index out of bounds (pos=" + pos + ")!");
+		}
+		if (segment_views != null) {
+			if (segment_views.get(pos) != null) {
+				segment_views.get(pos).detach();
+			}
+			for (int i = pos; i < segment_count - 1; i++) {
+				moveSegmentView(segment_views.get(i + 1), segment_views, i);
+			}
+			segment_views.set(segment_count - 1, null);
+		}
+		System.arraycopy(x, pos + 1, x, pos, segment_count - pos - 1);
+		System.arraycopy(y, pos + 1, y, pos, segment_count - pos - 1);
+		System.arraycopy(grad, pos + 1, grad, pos, segment_count - pos - 1);
+		System.arraycopy(leftopen, pos + 1, leftopen, pos, segment_count - pos - 1);
+		segment_count--;
+
+		clearMetaInfo();
+	}
+
+	// ------------------------------------------------------------
+	// Curve properties
+	// ------------------------------------------------------------
+
+	/**
+	 * Returns whether the inflection point is a (real or unreal) discontinuity.
+	 *
+	 * @param pos
+	 *            the index of the IP
+	 * @return <code>true</code> if the IP is a discontinuity, <code>false</code> if
+	 *         not.
+	 */
+	public boolean isDiscontinuity(int pos) {
+		return (pos + 1 < segment_count && x[pos + 1] == x[pos]);
+	}
+
+	/**
+	 * Returns whether the inflection point is a real discontinuity, i.e. the y0 of
+	 * the leftopen segment differs from the previous one.
+	 *
+	 * @param pos
+	 *            the index of the IP
+	 * @return <code>true</code> if the IP is a real discontinuity,
+	 *         <code>false</code> if not.
+	 */
+	public boolean isRealDiscontinuity(int pos) {
+		return (isDiscontinuity(pos) && y[pos + 1] != y[pos]);
+	}
+
+	/**
+	 * Returns whether the inflection point is an unreal discontinuity, i.e. the y0
+	 * of the leftopen segment is coincident with the y0 of the previous segment and
+	 * therefore the unreal discontinuity may safely be removed.
+	 *
+	 * @param pos
+	 *            the index of the IP
+	 * @return <code>true</code> if the IP is an unreal discontinuity,
+	 *         <code>false</code> if not.
+	 */
+	public boolean isUnrealDiscontinuity(int pos) {
+		return (isDiscontinuity(pos) && y[pos + 1] == y[pos]);
+	}
+
+	/**
+	 * Tests whether the curve is wide-sense increasing.
+	 *
+	 * @return whether the curve is wide-sense increasing.
+	 */
+	public boolean isWideSenseIncreasing() {
+		double y_prev = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < segment_count; i++) {
+			if (y[i] < y_prev || grad[i] < 0.0) {
+				return false;
+			}
+			y_prev = y[i];
+		}
+		return true;
+	}
+
+	/**
+	 * Tests whether the curve is convex.
+	 *
+	 * @return whether the curve is convex.
+	 */
+	public boolean isConvex() {
+		return isConvexIn(0.0, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Tests whether the curve is convex in [a,b].
+	 *
+	 * @param a
+	 *            the lower bound of the test interval.
+	 * @param b
+	 *            the upper bound of the test interval.
+	 * @return whether the curve is convex
+	 */
+	public boolean isConvexIn(Num a, Num b) {
+		return isConvexIn(a.doubleValue(), b.doubleValue());
+	}
+
+	private boolean isConvexIn(double a, double b) {
+		double last_gradient = Double.NEGATIVE_INFINITY;
+
+		int i_start = getSegmentDefining(a);
+		int i_end = getSegmentDefining(b);
+		if (i_start < 0) {
+			return true;
+		}
+		for (int i = i_start; i <= i_end; i++) {
+			double gradient = gradientTowardsNext(i);
+			if (gradient < last_gradient) {
+				return false;
+			}
+			last_gradient = gradient;
+		}
+		return true;
+	}
+
+	/**
+	 * Tests whether the curve is concave.
+	 *
+	 * @return whether the curve is concave.
+	 */
+	public boolean isConcave() {
+		return isConcaveIn(0.0, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Tests whether the curve is concave in [a,b].
+	 *
+	 * @param a
+	 *            the lower bound of the test interval.
+	 * @param b
+	 *            the upper bound of the test interval.
+	 * @return whether the curve is concave.
+	 */
+	public boolean isConcaveIn(Num a, Num b) {
+		return isConcaveIn(a.doubleValue(), b.doubleValue());
+	}
+
+	private boolean isConcaveIn(double a, double b) {
+		double last_gradient = Double.POSITIVE_INFINITY;
+
+		int i_start = getSegmentDefining(a);
+		int i_end = getSegmentDefining(b);
+		for (int i = i_start; i <= i_end; i++) {
+			double gradient = gradientTowardsNext(i);
+			if (gradient > last_gradient) {
+				return false;
+			}
+			last_gradient = gradient;
+		}
+		return true;
+	}
+
+	/**
+	 * Tests whether the curve is almost concave, i.e. it is concave once its
+	 * function value is larger than 0.
+	 *
+	 * @return whether the curve is almost concave.
+	 */
+	public boolean isAlmostConcave() {
+		double last_gradient = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < segment_count; i++) {
+			// Skip the horizontal part at the beginning
+			if (last_gradient == Double.POSITIVE_INFINITY && grad[i] == 0.0) {
+				continue;
+			}
+
+			double gradient = gradientTowardsNext(i);
+			if (gradient > last_gradient) {
+				return false;
+			}
+			last_gradient = gradient;
+		}
+		return true;
+	}
+
+	// The gradient between the starting points of segment i and i+1, 
+	// i.e., discontinuities are taken into account.
+	private double gradientTowardsNext(int i) {
+		if (i < segment_count - 1) {
+			return (y[i + 1] - y[i]) / (x[i + 1] - x[i]);
+		} else {
+			return grad[i];
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == null || !(obj instanceof Curve_Disco_PwAffine_Primitive)) {
+			return false;
+		}
+
+		Curve_Disco_PwAffine_Primitive this_cpy = this.copy();
+		Curve_Disco_PwAffine_Primitive other_cpy = ((Curve_Disco_PwAffine_Primitive) obj).copy();
+
+		utils.beautify(this_cpy);
+		utils.beautify(other_cpy);
+
+		if (this_cpy.segment_count != other_cpy.segment_count) {
+			return false;
+		}
+
+		for (int i = 0; i < this_cpy.segment_count; i++) {
+			if (this_cpy.x[i] != other_cpy.x[i] || this_cpy.y[i] != other_cpy.y[i]
+					|| this_cpy.grad[i] != other_cpy.grad[i] || this_cpy.leftopen[i] != other_cpy.leftopen[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (int i = 0; i < segment_count; i++) {
+			// Adding 0.0 maps -0.0 to 0.0, both are equal.
+			hash = 31 * hash + Objects.hash(x[i] + 0.0, y[i] + 0.0, grad[i] + 0.0, leftopen[i]);
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns a string representation of this curve.
+	 *
+	 * @return the curve represented as a string.
+	 */
+	@Override
+	public String toString() {
+		StringBuffer result = new StringBuffer("{");
+		for (int i = 0; i < segment_count; i++) {
+			if (i > 0) {
+				result.append(";");
+			}
+			result.append(segmentToString(i));
+		}
+		result.append("}");
+		return result.toString();
+	}
+
+	// Same format as LinearSegment_Disco.
+	private String segmentToString(int i) {
+		String result = "";
+		if (leftopen[i]) {
+			result = "!";
+		}
+		result += "(" + num(x[i]).toString() + "," + num(y[i]).toString() + ")," + num(grad[i]).toString();
+		return result;
+	}
+
+	/**
+	 * Returns the function value at x-coordinate <code>x</code>, if
+	 * <code>x&gt;=0</code>, and <code>NaN</code> if not.
+	 *
+	 * @param x
+	 *            the x-coordinate
+	 * @return the function value
+	 */
+	public Num f(Num x) {
+		double x_value = x.doubleValue();
+		int i = getSegmentDefining(x_value);
+		if (i < 0) {
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createNaN();
+		}
+		return num((x_value - this.x[i]) * grad[i] + y[i]);
+	}
+
+	/**
+	 * Returns the limit to the right of the function value at x-coordinate
+	 * <code>x</code>, if <code>x&gt;=0</code>, and <code>NaN</code> if not.
+	 *
+	 * @param x
+	 *            the x-coordinate
+	 * @return the function value
+	 */
+	public Num fLimitRight(Num x) {
+		double x_value = x.doubleValue();
+		int i = getSegmentLimitRight(x_value);
+		if (i < 0) {
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createNaN();
+		}
+		return num((x_value - this.x[i]) * grad[i] + y[i]);
+	}
+
+	// ------------------------------------------------------------
+	// Curve function values
+	// ------------------------------------------------------------
+
+	/**
+	 * Returns the smallest x value at which the function value is equal to
+	 * <code>y</code>.
+	 *
+	 * @param y
+	 *            the y-coordinate
+	 * @return the smallest x value
+	 */
+	public Num f_inv(Num y) {
+		return f_inv(y, false);
+	}
+
+	public Num f_inv(Num y, boolean rightmost) {
+		if (Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO) {
+			return f_invFIFO(y, rightmost);
+		} else {
+			return f_invARB(y, rightmost);
+		}
+	}
+
+	/**
+	 * Returns the x value at which the function value is equal to <code>y</code>.
+	 * If <code>rightmost</code> is <code>true</code>, returns the rightmost
+	 * x-coordinate, otherwise the leftmost coordinate.
+	 * If <code>y</code> lies within a jump, the jump's x-coordinate is returned.
+	 *
+	 * @param y
+	 *            The y-coordinate.
+	 * @param rightmost
+	 *            Return the rightmost x coordinate instaed of the leftmost one
+	 *            (default).
+	 * @return The smallest x value.
+	 */
+	public Num f_invFIFO(Num y, boolean rightmost) {
+		double y_value = y.doubleValue();
+		int i = getSegmentFirstAtValue(y_value);
+		if (i < 0) {
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createNaN();
+		}
+
+		if (y_value < this.y[i]) {
+			return num(x[i]);
+		}
+
+		return num(xAtValue(i, y_value, rightmost));
+	}
+
+	/**
+	 * Returns the x value at which the function value is equal to <code>y</code>.
+	 * If <code>rightmost</code> is <code>true</code>, returns the rightmost
+	 * x-coordinate, otherwise the leftmost coordinate.
+	 *
+	 * @param y
+	 *            The y-coordinate.
+	 * @param rightmost
+	 *            Return the rightmost x coordinate instaed of the leftmost one
+	 *            (default).
+	 * @return The smallest x value.
+	 */
+	public Num f_invARB(Num y, boolean rightmost) {
+		double y_value = y.doubleValue();
+		int i = getSegmentFirstAtValue(y_value);
+		if (i < 0) {
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createNaN();
+		}
+		return num(xAtValue(i, y_value, rightmost));
+	}
+
+	private double xAtValue(int i, double y_value, boolean rightmost) {
+		if (rightmost) {
+			while (i < segment_count && grad[i] == 0.0) {
+				i++;
+			}
+			if (i >= segment_count) {
+				return Double.POSITIVE_INFINITY;
+			}
+		}
+		if (grad[i] != 0.0) {
+			return x[i] + (y_value - y[i]) / grad[i];
+		} else {
+			return x[i];
+		}
+	}
+
+	private int getSegmentFirstAtValue(double y_value) {
+		if (Calculator.getInstance().getMultiplexingEnforcement() == AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO) {
+			return getSegmentFirstAtValueFIFO(y_value);
+		} else {
+			return getSegmentFirstAtValueARB(y_value);
+		}
+	}
+
+	/**
+	 * Returns the first segment at which the function reaches the value
+	 * <code>y</code>. If there is a jump and <code>y</code> happens to
+	 * be between the "end" of the y-values of segment i and "start" of
+	 * segment i+1, then it returns i+1.
+	 * It returns -1 if the curve never reaches this value.
+	 *
+	 * @param y
+	 *            the y-coordinate
+	 * @return the segment number
+	 */
+	private int getSegmentFirstAtValueFIFO(double y_value) {
+		if (segment_count == 0 || y[0] > y_value) {
+			return -1;
+		}
+		for (int i = 0; i < segment_count; i++) {
+			if (i < segment_count - 1) {
+				if (y[i + 1] >= y_value) {
+					// have to check for a jump
+					double v = (x[i + 1] - x[i]) * grad[i] + y[i];
+					return v < y_value ? i + 1 : i;
+				}
+			} else {
+				// i is the last segment
+				if (segment_count > 1) {
+					if (grad[i] > 0.0) {
+						return i;
+					}
+				} else {
+					// this curve has only one segment
+					if (y[i] >= y_value || grad[i] > 0.0) {
+						return i;
+					} else {
+						return -1;
+					}
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the first segment at which the function reaches the value
+	 * <code>y</code>. It returns -1 if the curve never reaches this value.
+	 *
+	 * @param y
+	 *            the y-coordinate
+	 * @return the segment number
+	 */
+	private int getSegmentFirstAtValueARB(double y_value) {
+		if (segment_count == 0 || y[0] > y_value) {
+			return -1;
+		}
+		for (int i = 0; i < segment_count; i++) {
+			if (i < segment_count - 1) {
+				if (y[i + 1] >= y_value) {
+					return i;
+				}
+			} else {
+				if (grad[i] > 0.0) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the x-coordinate of the inflection point after which the function
+	 * values are greater than zero.
+	 *
+	 * @return the latency of this curve.
+	 */
+	public Num getLatency() {
+		if (isRateLatency()) {
+			if (segment_count == 2) { // Rate latency other than a simple rate function
+				return num(x[1]);
+			} else { // Single-segment rate functions have latency 0
+				return Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
+			}
+		} else {
+			utils.beautify(this);
+			if (y[0] > 0.0) {
+				return Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
+			}
+			for (int i = 0; i < segment_count; i++) {
+				double y0 = Math.max(y[i], 0.0);
+				if (y0 > 0.0 || grad[i] > 0.0) {
+					return num(x[i]);
+				}
+				if (grad[i] < 0.0) {
+					throw new RuntimeException("Should have avoided neg. gradients elsewhere... (" + this.toString() + ")");
+				}
+			}
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createPositiveInfinity();
+		}
+	}
+
+	/**
+	 * @return the burstiness
+	 */
+	public Num getBurst() {
+		if (isTokenBucket()) {
+			if (segment_count == 2) { // Token buckets with spot in the origin
+				return num(y[1]);
+			} else { // Single-segment peak rate functions have burstiness 0
+				return Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
+			}
+		} else {
+			return fLimitRight(Num.getFactory(Calculator.getInstance().getNumBackend()).getZero());
+		}
+	}
+
+	/**
+	 * Returns the gradient to the right of the function value at x-coordinate
+	 * <code>x</code>, if <code>x&gt;=0</code>, and <code>NaN</code> if not.
+	 *
+	 * @param x
+	 *            the x-coordinate
+	 * @return the function value
+	 */
+	public Num getGradientLimitRight(Num x) {
+		int i = getSegmentLimitRight(x.doubleValue());
+		if (i < 0) {
+			return Num.getFactory(Calculator.getInstance().getNumBackend()).createNaN();
+		}
+		return num(grad[i]);
+	}
+
+	/**
+	 * Returns the gradient of the last segment.
+	 *
+	 * @return the rate of the ultimately affine part.
+	 */
+	public Num getUltAffineRate() {
+		return num(grad[segment_count - 1]);
+	}
+
+	// ------------------------------------------------------------
+	// Specific curve shapes
+	// ------------------------------------------------------------
+	// Burst delay
+	public boolean isDelayedInfiniteBurst() {
+		return is_delayed_infinite_burst;
+	}
+
+	// Rate latency
+	public boolean getRL_Property() {
+		decomposeIntoRateLatencies();
+		return is_rate_latency;
+	}
+
+	public void setRateLateny(boolean is_rate_latency) {
+		this.is_rate_latency = is_rate_latency;
+	}
+
+	/**
+	 * Returns the number of rate latency curves the curve can be decomposed into.
+	 *
+	 * @return the number of rate latency curves
+	 */
+	public int getRL_ComponentCount() {
+		decomposeIntoRateLatencies();
+		return rate_latencies.size();
+	}
+
+	/**
+	 * Returns the <code>i</code>the rate latency curve that this curve can be
+	 * decomposed into.
+	 *
+	 * @param i
+	 *            the number of the rate latency curve
+	 * @return the rate latency curve
+	 */
+	public Curve_Disco_PwAffine_Primitive getRL_Component(int i) {
+		decomposeIntoRateLatencies();
+		return rate_latencies.get(i);
+	}
+
+	/**
+	 * Decomposes this curve into a list of rate latency curves and stores this list
+	 * in the curve's <code>rate_latencies</code> field.<br>
+	 * Note: Curve must be convex.
+	 */
+	private void decomposeIntoRateLatencies() {
+		if (has_rate_latency_meta_info == true) {
+			return;
+		}
+
+		List<Curve_Disco_PwAffine_Primitive> rate_latencies_tmp = new ArrayList<Curve_Disco_PwAffine_Primitive>();
+		if (Curves_Disco_Configuration.getInstance().exec_service_curve_checks() && !this.isConvex()) {
+			if (this.equals(this.createZeroDelayInfiniteBurst())) {
+				rate_latencies_tmp.add(this.createRateLatency(Num.getFactory(Calculator.getInstance().getNumBackend()).createPositiveInfinity(),
+						Num.getFactory(Calculator.getInstance().getNumBackend()).createZero()));
+			} else {
+				throw new RuntimeException("Can only decompose convex service curves into rate latency curves.");
+			}
+		} else {
+			for (int i = 0; i < segment_count; i++) {
+				if (y[i] == 0.0 && grad[i] == 0.0) {
+					continue;
+				}
+				double latency = x[i] - y[i] / grad[i];
+				if (latency < 0.0) {
+					continue;
+				}
+				rate_latencies_tmp.add(this.createRateLatency(num(grad[i]), num(latency)));
+			}
+		}
+
+		rate_latencies = rate_latencies_tmp;
+		is_rate_latency = rate_latencies_tmp.size() == 1;
+
+		has_rate_latency_meta_info = true;
+	}
+
+	public void setTokenBucket(boolean is_token_bucket) {
+		this.is_token_bucket = is_token_bucket;
+	}
+
+	/**
+	 * Returns the number of token buckets the curve can be decomposed into.
+	 *
+	 * @return the number of token buckets
+	 */
+	public int getTB_ComponentCount() {
+		decomposeIntoTokenBuckets();
+		return token_buckets.size();
+	}
+
+	/**
+	 * Returns the <code>i</code>the token bucket curve that this curve can be
+	 * decomposed into.
+	 *
+	 * @param i
+	 *            the number of the token bucket
+	 * @return the token bucket
+	 */
+	public Curve_Disco_PwAffine_Primitive getTB_Component(int i) {
+		decomposeIntoTokenBuckets();
+		return token_buckets.get(i);
+	}
+
+	/**
+	 * Decomposes this curve into a list of token bucket curves and stores this list
+	 * in the curve's <code>token_buckets</code> field.<br>
+	 * Note: Curve must be concave.
+	 */
+	private void decomposeIntoTokenBuckets() {
+		if (has_token_bucket_meta_info == true) {
+			return;
+		}
+
+		if (Curves_Disco_Configuration.getInstance().exec_arrival_curve_checks() && !this.isConcave()) {
+			throw new RuntimeException("Can only decompose concave arrival curves into token buckets.");
+		}
+
+		List<Curve_Disco_PwAffine_Primitive> token_buckets_tmp = new ArrayList<Curve_Disco_PwAffine_Primitive>();
+		for (int i = 0; i < segment_count; i++) {
+			if (isDiscontinuity(i)) {
+				continue;
+			}
+			double burst = y[i] - x[i] * grad[i];
+			token_buckets_tmp.add(this.createTokenBucket(num(grad[i]), num(burst)));
+		}
+
+		token_buckets = token_buckets_tmp;
+		is_token_bucket = token_buckets_tmp.size() == 1;
+
+		has_token_bucket_meta_info = true;
+	}
+
+	// --------------------------------------------------------------------------------------------------------------
+	// Segment View
+	// --------------------------------------------------------------------------------------------------------------
+
+	/**
+	 * View on a segment of a curve, reads and writes go to the curve's arrays. 
+	 * The curve updates the position when segments are added or removed, 
+	 * and moves the segment to a curve of its own when it is removed. 
+	 * Like modifying a <code>LinearSegment_Disco</code> taken from a curve, 
+	 * modifying a view does not reset the curve's meta info.
+	 */
+	private static final class SegmentView implements LinearSegment {
+		private Curve_Disco_PwAffine_Primitive curve;
+		private int pos;
+
+		// The Num objects returned last, reused as long as the values are unchanged.
+		private Num x_num;
+		private Num y_num;
+		private Num grad_num;
+
+		private SegmentView(Curve_Disco_PwAffine_Primitive curve, int pos) {
+			this.curve = curve;
+			this.pos = pos;
+		}
+
+		private void detach() {
+			Curve_Disco_PwAffine_Primitive curve_detached = new Curve_Disco_PwAffine_Primitive(1);
+			curve_detached.set(0, curve.x[pos], curve.y[pos], curve.grad[pos], curve.leftopen[pos]);
+			curve = curve_detached;
+			pos = 0;
+		}
+
+		private static Num num(Num num_last, double value) {
+			if (num_last != null && Double.doubleToRawLongBits(num_last.doubleValue()) == Double.doubleToRawLongBits(value)) {
+				return num_last;
+			}
+			return Curve_Disco_PwAffine_Primitive.num(value);
+		}
+
+		public Num f(Num x) {
+			return Curve_Disco_PwAffine_Primitive.num((x.doubleValue() - curve.x[pos]) * curve.grad[pos] + curve.y[pos]);
+		}
+
+		public Num getX() {
+			x_num = num(x_num, curve.x[pos]);
+			return x_num;
+		}
+
+		public void setX(Num x) {
+			curve.x[pos] = x.doubleValue();
+		}
+
+		public Num getY() {
+			y_num = num(y_num, curve.y[pos]);
+			return y_num;
+		}
+
+		public void setY(Num y) {
+			curve.y[pos] = y.doubleValue();
+		}
+
+		public Num getGrad() {
+			grad_num = num(grad_num, curve.grad[pos]);
+			return grad_num;
+		}
+
+		public void setGrad(Num grad) {
+			curve.grad[pos] = grad.doubleValue();
+		}
+
+		public boolean isLeftopen() {
+			return curve.leftopen[pos];
+		}
+
+		public void setLeftopen(boolean leftopen) {
+			curve.leftopen[pos] = leftopen;
+		}
+
+		public Num getXIntersectionWith(LinearSegment other) {
+			double y1 = curve.y[pos] - curve.x[pos] * curve.grad[pos];
+			double other_grad = other.getGrad().doubleValue();
+			double y2 = other.getY().doubleValue() - other.getX().doubleValue() * other_grad;
+
+			// returns NaN if lines are parallel
+			return Curve_Disco_PwAffine_Primitive.num((y2 - y1) / (curve.grad[pos] - other_grad));
+		}
+
+		/**
+		 * @return A copy that is detached from the curve.
+		 */
+		public LinearSegment copy() {
+			return new LinearSegment_Disco(getX(), getY(), getGrad(), isLeftopen());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == null || !(obj instanceof LinearSegment)) {
+				return false;
+			}
+
+			LinearSegment other = (LinearSegment) obj;
+			return curve.x[pos] == other.getX().doubleValue()
+					&& curve.y[pos] == other.getY().doubleValue()
+					&& curve.grad[pos] == other.getGrad().doubleValue()
+					&& curve.leftopen[pos] == other.isLeftopen();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(curve.x[pos] + 0.0, curve.y[pos] + 0.0, curve.grad[pos] + 0.0, curve.leftopen[pos]);
+		}
+
+		@Override
+		public String toString() {
+			return curve.segmentToString(pos);
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------------------------
+	// Factory Implementation
+	// --------------------------------------------------------------------------------------------------------------
+
+	// ------------------------------------------------------------------------------
+	// Curve Constructors
+	// ------------------------------------------------------------------------------
+
+	// ------------------------------------------------------------
+	// DNC compliance
+	// ------------------------------------------------------------
+	public Curve_Disco_PwAffine_Primitive createCurve(List<LinearSegment> segments) {
+		Curve_Disco_PwAffine_Primitive c_prim = new Curve_Disco_PwAffine_Primitive(segments.size());
+		for (int i = 0; i < segments.size(); i++) {
+			c_prim.setSegment(i, segments.get(i));
+		}
+		utils.beautify(c_prim);
+		return c_prim;
+	}
+
+	public Curve_Disco_PwAffine_Primitive createZeroCurve() {
+		return new Curve_Disco_PwAffine_Primitive(); // Constructor's default behavior
+	}
+
+	/**
+	 * Creates a horizontal curve.
+	 *
+	 * @param y
+	 *            the y-intercept of the curve
+	 * @return a <code>Curve</code> instance
+	 */
+	public Curve_Disco_PwAffine_Primitive createHorizontal(Num y) {
+		Curve_Disco_PwAffine_Primitive c_prim = new Curve_Disco_PwAffine_Primitive();
+		makeHorizontal(c_prim, y.doubleValue());
+		return c_prim;
+	}
+
+	// ------------------------------------------------------------------------------
+	// Service Curve Constructors
+	// ------------------------------------------------------------------------------
+
+	// ------------------------------------------------------------
+	// DNC compliance
+	// ------------------------------------------------------------
+	public ServiceCurve_Disco_PwAffine_Primitive createServiceCurve() {
+		return new ServiceCurve_Disco_PwAffine_Primitive();
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createServiceCurve(int segment_count) {
+		return new ServiceCurve_Disco_PwAffine_Primitive(segment_count);
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createServiceCurve(String service_curve_str) throws Exception {
+		return new ServiceCurve_Disco_PwAffine_Primitive(service_curve_str);
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createServiceCurve(Curve curve) {
+		return new ServiceCurve_Disco_PwAffine_Primitive(curve);
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createZeroService() {
+		return new ServiceCurve_Disco_PwAffine_Primitive(); // Constructor's default behavior
+	}
+
+	/**
+	 * Creates an infinite burst curve with zero delay.
+	 *
+	 * @return a <code>ServiceCurve</code> instance
+	 */
+	public ServiceCurve_Disco_PwAffine_Primitive createZeroDelayInfiniteBurst() {
+		return createDelayedInfiniteBurst(0.0);
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createDelayedInfiniteBurst(double delay) {
+		ServiceCurve_Disco_PwAffine_Primitive sc_prim = new ServiceCurve_Disco_PwAffine_Primitive();
+		makeDelayedInfiniteBurst(sc_prim, delay);
+		return sc_prim;
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createDelayedInfiniteBurst(Num delay) {
+		return createDelayedInfiniteBurst(delay.doubleValue());
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createRateLatency(double rate, double latency) {
+		ServiceCurve_Disco_PwAffine_Primitive sc_prim = new ServiceCurve_Disco_PwAffine_Primitive();
+		makeRateLatency(sc_prim, rate, latency);
+		return sc_prim;
+	}
+
+	public ServiceCurve_Disco_PwAffine_Primitive createRateLatency(Num rate, Num latency) {
+		return createRateLatency(rate.doubleValue(), latency.doubleValue());
+	}
+
+	// ------------------------------------------------------------------------------
+	// Arrival Curve Constructors
+	// ------------------------------------------------------------------------------
+
+	// ------------------------------------------------------------
+	// DNC compliance
+	// ------------------------------------------------------------
+	public ArrivalCurve_Disco_PwAffine_Primitive createArrivalCurve() {
+		return new ArrivalCurve_Disco_PwAffine_Primitive();
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createArrivalCurve(int segment_count) {
+		return new ArrivalCurve_Disco_PwAffine_Primitive(segment_count);
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createArrivalCurve(String arrival_curve_str) throws Exception {
+		return new ArrivalCurve_Disco_PwAffine_Primitive(arrival_curve_str);
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createArrivalCurve(Curve curve) {
+		return new ArrivalCurve_Disco_PwAffine_Primitive(curve);
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createArrivalCurve(Curve curve, boolean remove_latency) {
+		return createArrivalCurve(utils.removeLatency(curve));
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createZeroArrivals() {
+		return new ArrivalCurve_Disco_PwAffine_Primitive(); // Constructor's default behavior
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createInfiniteArrivals() {
+		ArrivalCurve_Disco_PwAffine_Primitive ac_prim = new ArrivalCurve_Disco_PwAffine_Primitive();
+		makeDelayedInfiniteBurst(ac_prim, 0.0);
+		return ac_prim;
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createPeakArrivalRate(double rate) {
+		ArrivalCurve_Disco_PwAffine_Primitive ac_prim = new ArrivalCurve_Disco_PwAffine_Primitive();
+		makePeakRate(ac_prim, rate);
+		return ac_prim;
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createPeakArrivalRate(Num rate) {
+		return createPeakArrivalRate(rate.doubleValue());
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createTokenBucket(double rate, double burst) {
+		ArrivalCurve_Disco_PwAffine_Primitive ac_prim = new ArrivalCurve_Disco_PwAffine_Primitive();
+		makeTokenBucket(ac_prim, rate, burst);
+		return ac_prim;
+	}
+
+	public ArrivalCurve_Disco_PwAffine_Primitive createTokenBucket(Num rate, Num burst) {
+		return createTokenBucket(rate.doubleValue(), burst.doubleValue());
+	}
+
+	// ------------------------------------------------------------------------------
+	// Maximum Service Curve Constructors
+	// ------------------------------------------------------------------------------
+
+	// ------------------------------------------------------------
+	// DNC compliance
+	// ------------------------------------------------------------
+	public MaxServiceCurve_Disco_PwAffine_Primitive createMaxServiceCurve() {
+		return new MaxServiceCurve_Disco_PwAffine_Primitive();
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createMaxServiceCurve(int segment_count) {
+		return new MaxServiceCurve_Disco_PwAffine_Primitive(segment_count);
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createMaxServiceCurve(String max_service_curve_str) throws Exception {
+		return new MaxServiceCurve_Disco_PwAffine_Primitive(max_service_curve_str);
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createMaxServiceCurve(Curve curve) {
+		return new MaxServiceCurve_Disco_PwAffine_Primitive(curve);
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createZeroDelayInfiniteBurstMSC() {
+		return createDelayedInfiniteBurstMSC(0.0);
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createDelayedInfiniteBurstMSC(double delay) {
+		MaxServiceCurve_Disco_PwAffine_Primitive msc_prim = new MaxServiceCurve_Disco_PwAffine_Primitive();
+		makeDelayedInfiniteBurst(msc_prim, delay);
+		return msc_prim;
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createDelayedInfiniteBurstMSC(Num delay) {
+		return createDelayedInfiniteBurstMSC(delay.doubleValue());
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createRateLatencyMSC(double rate, double latency) {
+		MaxServiceCurve_Disco_PwAffine_Primitive msc_prim = new MaxServiceCurve_Disco_PwAffine_Primitive();
+		makeRateLatency(msc_prim, rate, latency);
+		return msc_prim;
+	}
+
+	public MaxServiceCurve_Disco_PwAffine_Primitive createRateLatencyMSC(Num rate, Num latency) {
+		return createRateLatencyMSC(rate.doubleValue(), latency.doubleValue());
+	}
+
+	// ------------------------------------------------------------------------------
+	// Curve assembly
+	// ------------------------------------------------------------------------------
+	private void makeHorizontal(Curve_Disco_PwAffine_Primitive c_prim, double y) {
+		c_prim.setSegments(new double[] { 0.0 }, new double[] { y }, new double[] { 0.0 }, new boolean[] { false });
+	}
+
+	private void makeDelayedInfiniteBurst(Curve_Disco_PwAffine_Primitive c_prim, double delay) {
+		if (delay < 0.0) {
+			throw new IllegalArgumentException("Delayed infinite burst curve must have delay >= 0.0");
+		}
+
+		c_prim.setSegments(new double[] { 0.0, delay }, new double[] { 0.0, Double.POSITIVE_INFINITY },
+				new double[] { 0.0, 0.0 }, new boolean[] { false, true });
+		c_prim.is_delayed_infinite_burst = true;
+	}
+
+	private void makePeakRate(Curve_Disco_PwAffine_Primitive c_prim, double rate) {
+		if (rate == Double.POSITIVE_INFINITY) {
+			throw new IllegalArgumentException(
+					"Peak rate with rate infinity equals a delayed infinite burst curve with delay < 0.0");
+		}
+		if (rate == 0.0) {
+			makeHorizontal(c_prim, 0.0);
+			return;
+		}
+
+		c_prim.setSegments(new double[] { 0.0 }, new double[] { 0.0 }, new double[] { rate }, new boolean[] { false });
+		c_prim.is_rate_latency = true; // with latency 0
+		c_prim.is_token_bucket = true; // with burstiness 0
+	}
+
+	private void makeRateLatency(Curve_Disco_PwAffine_Primitive c_prim, double rate, double latency) {
+		if (rate == Double.POSITIVE_INFINITY) {
+			makeDelayedInfiniteBurst(c_prim, latency);
+			return;
+		}
+		if (rate == 0.0 || latency == Double.POSITIVE_INFINITY) {
+			makeHorizontal(c_prim, 0.0);
+			return;
+		}
+		if (latency <= 0.0) {
+			makePeakRate(c_prim, rate);
+			return;
+		}
+
+		c_prim.setSegments(new double[] { 0.0, latency }, new double[] { 0.0, 0.0 }, 
+				new double[] { 0.0, rate }, new boolean[] { false, true });
+		c_prim.is_rate_latency = true;
+	}
+
+	private void makeTokenBucket(Curve_Disco_PwAffine_Primitive c_prim, double rate, double burst) {
+		if (rate == Double.POSITIVE_INFINITY || burst == Double.POSITIVE_INFINITY) {
+			makeDelayedInfiniteBurst(c_prim, 0.0);
+			return;
+		}
+		if (rate == 0.0) { // burst is finite
+			makeHorizontal(c_prim, burst);
+			return;
+		}
+		if (burst == 0.0) {
+			makePeakRate(c_prim, rate);
+			return;
+		}
+
+		c_prim.setSegments(new double[] { 0.0, 0.0 }, new double[] { 0.0, burst }, 
+				new double[] { 0.0, rate }, new boolean[] { false, true });
+		c_prim.is_token_bucket = true;
+	}
+}
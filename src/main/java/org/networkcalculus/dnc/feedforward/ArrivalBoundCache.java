@@ -23,307 +23,593 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
  *
  */
-
 package org.networkcalculus.dnc.feedforward;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.networkcalculus.dnc.AnalysisConfig;
-import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.AnalysisConfig.MaxScEnforcement;
+import org.networkcalculus.dnc.AnalysisConfig.Multiplexing;
+import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
+import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Server;
+import org.networkcalculus.dnc.network.server_graph.ServerGraph;
 import org.networkcalculus.dnc.network.server_graph.Turn;
 
+/**
+ * Thread-safe cache for arrival bounds. 
+ * 
+ * Concurrent requests for the same arrival bound are collapsed into a single computation: 
+ * the first request computes the bound, all others wait for its result.
+ * Arrival bounding in feed-forward networks only recurses towards upstream servers, 
+ * so a computation never waits for its own result.
+ * 
+ * Cached arrival bounds are returned as unmodifiable sets of shared curves. 
+ * The curves must not be modified, copy them before doing so.
+ * 
+ * If the configuration leaves multiplexing or maximum service curve usage to the servers, 
+ * the key includes these server-local settings of all servers upstream of the arrival bound's location. 
+ * These are the servers whose settings can influence the arrival bound via recursive arrival bounding. 
+ * 
+ * The cache size can be limited by the number of entries and by the number of 
+ * linear segments of all cached curves. Least recently used entries are evicted first.
+ * 
+ * Optionally, a {@link PersistentCurveCache} is consulted before deriving arrival bounds 
+ * that are not cached in memory, e.g., to reuse arrival bounds of a previous run.
+ * 
+ * Every entry depends on the servers upstream of its location, including the location's server, 
+ * and records their state versions (see {@link Server#getStateVersion()}) at the time of its derivation. 
+ * Modifications of the server graph, e.g., adding a flow or changing a service curve, change the 
+ * state versions of the affected servers. Entries downstream of them are outdated, 
+ * they are rederived on their next request or removed by {@link #removeOutdated()}. 
+ * All other entries remain valid, i.e., the cache need not be cleared after modifications.
+ * The upstream servers' versions are only compared if the state of any server changed since the last check, 
+ * see {@link Server#getAllServersStateVersion()}. Without modifications, a lookup does not depend on the network size.
+ */
 public class ArrivalBoundCache {
-	private Map<Server,Set<CacheEntryServer>> map__server__entries = new HashMap<Server,Set<CacheEntryServer>>();
-	private Map<Turn,Set<CacheEntryTurn>> map__turn__entries = new HashMap<Turn,Set<CacheEntryTurn>>();
-
-	protected ArrivalBoundCache() {};
+	private Map<CacheKey<?>,CacheEntry> entries = new ConcurrentHashMap<CacheKey<?>,CacheEntry>();
+	// Servers upstream of a server, including it, ordered by ID. 
+	// Recomputed if the state of one of them changed, this includes changes of their inturns.
+	private Map<Server,UpstreamServers> map__server__upstream_servers = new ConcurrentHashMap<Server,UpstreamServers>();
+
+	// Capacity, a limit below 1 is not enforced. 
+	// If exceeded, the least recently used entries are evicted until 
+	// the cache is filled up to EVICTION_TARGET_FILL_RATIO of the capacity.
+	private static final double EVICTION_TARGET_FILL_RATIO = 0.9;
+	private volatile int max_entries;
+	private volatile long max_segments;
+
+	private final AtomicLong access_clock = new AtomicLong();
+	private final AtomicLong segments = new AtomicLong();
+	private final Object eviction_lock = new Object();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	// Optional second level that persists arrival bounds across runs.
+	private volatile PersistentCurveCache persistent_cache;
+
+	protected ArrivalBoundCache() {
+		this( 0, 0 );
+	};
+
+	protected ArrivalBoundCache( int max_entries, long max_segments ) {
+		this.max_entries = max_entries;
+		this.max_segments = max_segments;
+	};
 
 	protected void clearCache() {
-		map__server__entries = new HashMap<Server,Set<CacheEntryServer>>();
-		map__turn__entries = new HashMap<Turn,Set<CacheEntryTurn>>();
+		synchronized( eviction_lock ) {
+			entries.clear();
+			map__server__upstream_servers.clear();
+			segments.set( 0 );
+		}
 	}
 
 	/**
-	 *
-	 * The cache content is generally overwritten!
-	 * If there is an entry for this arrival bound
-	 * and the arrival bounds are not convolved into a single one,
-	 * then the cache just replaces any existing cache entry.
-	 *
-	 * @param configuration
-	 * @param server
-	 * @param bounded_flows
-	 * @param flow_of_interest
-	 * @param arrival_bounds
-	 * @return
-	 * @throws Exception
+	 * Limits the cache size. Limits below 1 are not enforced.
+	 * 
+	 * @param max_entries	Maximum number of cache entries.
+	 * @param max_segments	Maximum number of linear segments of all cached curves.
 	 */
-	protected void addArrivalBounds( AnalysisConfig configuration,
-												  Server server,
-												  Set<Flow> bounded_flows,
-												  Flow flow_of_interest,
-												  Set<ArrivalCurve> arrival_bounds ) throws Exception {
-		if( bounded_flows.contains( flow_of_interest )
-				|| bounded_flows.isEmpty()
-				|| arrival_bounds.isEmpty() ) {
-			return;
-		}
+	public void setCapacity( int max_entries, long max_segments ) {
+		this.max_entries = max_entries;
+		this.max_segments = max_segments;
+		evictIfFull();
+	}
 
-		// Remove possible old entry
-		CacheEntryServer entry = getCacheEntry( configuration, server, bounded_flows, flow_of_interest );
-		if ( entry != null ) {
-			// get(...) cannot return null as the entry was already confirmed to exist.
-			map__server__entries.get( server ).remove( entry );
-		}
+	/**
+	 * Sets a persistent cache to be consulted before deriving arrival bounds that are not cached in memory.
+	 * Newly derived arrival bounds are stored in it.
+	 * 
+	 * @param persistent_cache	The persistent cache, null to disable it.
+	 */
+	public void setPersistentCache( PersistentCurveCache persistent_cache ) {
+		this.persistent_cache = persistent_cache;
+	}
 
-		Set<ArrivalCurve> arrival_bounds_stored;
+	public PersistentCurveCache getPersistentCache() {
+		return persistent_cache;
+	}
 
-		// Create arrival bound to store
-		if( configuration.convolveAlternativeArrivalBounds() ) {	// Convolve given bounds into one.
-			arrival_bounds_stored = Collections.singleton( Calculator.getInstance().getMinPlus().convolve( arrival_bounds ) );
-		} else { 													// Take them as they are.
-			arrival_bounds_stored = new HashSet<ArrivalCurve>( arrival_bounds );
-		}
-		entry = new CacheEntryServer( configuration.copy(), server, new HashSet<Flow>( bounded_flows ), flow_of_interest, arrival_bounds_stored );
+	public int getMaxEntries() {
+		return max_entries;
+	}
+
+	public long getMaxSegments() {
+		return max_segments;
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getSegmentCount() {
+		return segments.get();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
 
-		// No need to check if the maps has entries for the server or the flow of interest.
-		// If missing they were created by the call to getCacheEntry(...) above.
-		map__server__entries.get( server ).add( entry );
+	public long getEvictionCount() {
+		return evictions.sum();
 	}
 
-	protected Set<ArrivalCurve> getArrivalBounds( AnalysisConfig configuration, Server server, Set<Flow> bounded_flows, Flow flow_of_interest ) {
-		CacheEntryServer entry = getCacheEntry( configuration, server, bounded_flows, flow_of_interest );
-		if ( entry == null ) {
-			return new HashSet<ArrivalCurve>();
-		} else {
-			return new HashSet<ArrivalCurve>( entry.arrival_bounds );
+	/**
+	 * @return The number of entries removed because they were outdated by modifications of the server graph.
+	 */
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * Removes all entries outdated by modifications of the server graph. 
+	 * Outdated entries are never returned, yet, they occupy memory until they are requested or evicted.
+	 * 
+	 * @return The number of removed entries.
+	 */
+	public int removeOutdated() {
+		int removed = 0;
+		for( Map.Entry<CacheKey<?>,CacheEntry> entry : entries.entrySet() ) {
+			if( entry.getValue().isOutdated() && invalidate( entry.getKey(), entry.getValue() ) ) {
+				removed++;
+			}
 		}
+		map__server__upstream_servers.values().removeIf( upstream_servers -> !upstream_servers.isCurrent() );
+		return removed;
 	}
 
 	/**
+	 * Returns the cached arrival bounds for the given parameters. 
+	 * If there is no cache entry yet, the arrival bounds are derived by <code>computation</code> and cached.
+	 * If another thread is already deriving these arrival bounds, this call waits for its result.
 	 *
-	 * Returns the cache entry for the given parameters if there is one.
-	 *
-	 * If not, it returns null.
-	 *
-	 * In addition, if there's no entry, the internal mappings will be created as a subsequent adding of an according entry is expected.
-	 *
-	 * @param server
-	 * @param bounded_flows
-	 * @param flow_of_interest
-	 * @return
+	 * @param server_graph		The server graph.
+	 * @param configuration		The analysis configuration.
+	 * @param server			The server seeing the arrival bound.
+	 * @param bounded_flows		The flows to be bounded.
+	 * @param flow_of_interest	The flow of interest to get a lower priority.
+	 * @param computation		Derives the arrival bounds if they are not cached.
+	 * @return The cached arrival bounds, unmodifiable.
+	 * @throws Exception Potential exception raised by <code>computation</code>.
 	 */
-	protected CacheEntryServer getCacheEntry( AnalysisConfig configuration, Server server, Set<Flow> bounded_flows, Flow flow_of_interest ) {
-		// Most important feature is an efficient search
-		Set<CacheEntryServer> entries_s = map__server__entries.get( server );
-		if ( entries_s == null ) {
-			map__server__entries.put( server, new HashSet<CacheEntryServer>() );
-			return null;
-		}
+	protected Set<ArrivalCurve> computeArrivalBoundsIfAbsent( ServerGraph server_graph,
+															  AnalysisConfig configuration,
+															  Server server,
+															  Set<Flow> bounded_flows,
+															  Flow flow_of_interest,
+															  Callable<Set<ArrivalCurve>> computation ) throws Exception {
+		UpstreamServers dependencies = getUpstreamServers( server_graph, server );
+		CacheKey<Server> key = new CacheKey<Server>( configuration, server, bounded_flows, flow_of_interest,
+				serverLocalSettings( dependencies, configuration, server, false ) );
+		return computeIfAbsent( key, dependencies, persisted( server_graph, configuration, key, dependencies, computation ) );
+	}
 
+	protected Set<ArrivalCurve> computeArrivalBoundsIfAbsent( ServerGraph server_graph,
+															  AnalysisConfig configuration,
+															  Turn turn,
+															  Set<Flow> bounded_flows,
+															  Flow flow_of_interest,
+															  Callable<Set<ArrivalCurve>> computation ) throws Exception {
+		UpstreamServers dependencies = getUpstreamServers( server_graph, turn.getSource() );
+		CacheKey<Turn> key = new CacheKey<Turn>( configuration, turn, bounded_flows, flow_of_interest,
+				serverLocalSettings( dependencies, configuration, turn.getSource(), true ) );
+		return computeIfAbsent( key, dependencies, persisted( server_graph, configuration, key, dependencies, computation ) );
+	}
 
-		Set<CacheEntryServer> candidates = new HashSet<CacheEntryServer>( entries_s );
+	/**
+	 * @return The cached arrival bounds, unmodifiable. An empty set if there are none (yet).
+	 */
+	protected Set<ArrivalCurve> getArrivalBounds( ServerGraph server_graph, AnalysisConfig configuration, Server server, Set<Flow> bounded_flows, Flow flow_of_interest ) {
+		return getIfPresent( new CacheKey<Server>( configuration, server, bounded_flows, flow_of_interest,
+				serverLocalSettings( getUpstreamServers( server_graph, server ), configuration, server, false ) ) );
+	}
 
-		for ( CacheEntryServer entry : candidates ) {
-			if( entry.configuration.enforceMultiplexing() == configuration.enforceMultiplexing()
-				&& entry.configuration.enforceMaxSC() == configuration.enforceMaxSC()
-				&& entry.configuration.enforceMaxScOutputRate() == configuration.enforceMaxScOutputRate()
-				&& entry.bounded_flows.size() == bounded_flows.size()
-				&& entry.flow_of_interest.getId() == flow_of_interest.getId()
-				&& entry.bounded_flows.containsAll( bounded_flows ) // should be the most expensive operation so do it last
-			) {
-				return entry;
-			}
-		}
-		return null;
+	protected Set<ArrivalCurve> getArrivalBounds( ServerGraph server_graph, AnalysisConfig configuration, Turn turn, Set<Flow> bounded_flows, Flow flow_of_interest ) {
+		return getIfPresent( new CacheKey<Turn>( configuration, turn, bounded_flows, flow_of_interest,
+				serverLocalSettings( getUpstreamServers( server_graph, turn.getSource() ), configuration, turn.getSource(), true ) ) );
 	}
 
 	/**
+	 * Encodes the server-local settings that the configuration does not override 
+	 * for all servers upstream of <code>server</code>, one value per server: 
+	 * the server ID followed by the multiplexing and maximum service curve flags.
+	 * 
+	 * The settings are part of the servers' state, i.e., they are stored with the upstream servers 
+	 * and only encoded once per combination of overridden settings.
 	 *
-	 * The cache content is generally overwritten!
-	 * If there is an entry for this arrival bound
-	 * and the arrival bounds are not convolved into a single one,
-	 * then the cache just replaces any existing cache entry.
-	 *
-	 * @param configuration
-	 * @param server
-	 * @param bounded_flows
-	 * @param flow_of_interest
-	 * @param arrival_bounds
-	 * @return
-	 * @throws Exception
+	 * @return The server-local settings, null if the configuration overrides all of them.
 	 */
-	protected void addArrivalBounds( AnalysisConfig configuration,
-												  Turn turn,
-												  Set<Flow> bounded_flows,
-												  Flow flow_of_interest,
-												  Set<ArrivalCurve> arrival_bounds ) throws Exception {
-		if( bounded_flows.contains( flow_of_interest )
-				|| bounded_flows.isEmpty()
-				|| arrival_bounds.isEmpty() ) {
-			return;
+	private long[] serverLocalSettings( UpstreamServers upstream_servers, AnalysisConfig configuration, Server server, boolean include_server ) {
+		boolean local_multiplexing = configuration.enforceMultiplexing() == MultiplexingEnforcement.SERVER_LOCAL;
+		boolean local_max_sc = configuration.enforceMaxSC() == MaxScEnforcement.SERVER_LOCAL;
+		boolean local_max_sc_rate = configuration.enforceMaxScOutputRate() == MaxScEnforcement.SERVER_LOCAL;
+		if( !local_multiplexing && !local_max_sc && !local_max_sc_rate ) {
+			return null;
 		}
 
-		// Remove possible old entry
-		CacheEntryTurn entry = getCacheEntry( configuration, turn, bounded_flows, flow_of_interest );
-		if ( entry != null ) {
-			// get(...) cannot return null as the entry was already confirmed to exist.
-			map__turn__entries.get( turn ).remove( entry );
+		int settings_index = ( local_multiplexing ? 8 : 0 ) | ( local_max_sc ? 4 : 0 ) | ( local_max_sc_rate ? 2 : 0 ) | ( include_server ? 1 : 0 );
+		long[] settings = upstream_servers.server_local_settings.get( settings_index );
+		if( settings != null ) {
+			return settings;
 		}
 
-		Set<ArrivalCurve> arrival_bounds_stored;
+		settings = new long[upstream_servers.servers.length];
+		int settings_count = 0;
+		for( Server upstream_server : upstream_servers.servers ) {
+			if( !include_server && upstream_server == server ) {
+				continue;
+			}
+			long server_settings = upstream_server.getId();
+			server_settings = ( server_settings << 1 ) | ( local_multiplexing && upstream_server.multiplexing() == Multiplexing.FIFO ? 1 : 0 );
+			server_settings = ( server_settings << 1 ) | ( local_max_sc && upstream_server.useMaxSC() ? 1 : 0 );
+			server_settings = ( server_settings << 1 ) | ( local_max_sc_rate && upstream_server.useMaxScRate() ? 1 : 0 );
+			settings[settings_count++] = server_settings;
+		}
+		settings = Arrays.copyOf( settings, settings_count );
+		// Concurrent requests encode equal settings, either one is kept.
+		upstream_servers.server_local_settings.compareAndSet( settings_index, null, settings );
+		return upstream_servers.server_local_settings.get( settings_index );
+	}
 
-		// Create arrival bound to store
-		if( configuration.convolveAlternativeArrivalBounds() ) {	// Convolve given bounds into one.
-			arrival_bounds_stored = Collections.singleton( Calculator.getInstance().getMinPlus().convolve( arrival_bounds ) );
-		} else { 													// Take them as they are.
-			arrival_bounds_stored = new HashSet<ArrivalCurve>( arrival_bounds );
+	/**
+	 * Extends <code>computation</code> to first consult the persistent cache, if there is one, 
+	 * and to store the derived arrival bounds in it. 
+	 * The persistent cache's entry is identified by the sub-network upstream of <code>server</code>, including it.
+	 */
+	private Callable<Set<ArrivalCurve>> persisted( ServerGraph server_graph, AnalysisConfig configuration, CacheKey<?> key, UpstreamServers upstream_servers,
+													Callable<Set<ArrivalCurve>> computation ) {
+		PersistentCurveCache persistent_cache_current = persistent_cache;
+		if( persistent_cache_current == null ) {
+			return computation;
 		}
-		entry = new CacheEntryTurn(configuration, turn, new HashSet<Flow>( bounded_flows ), flow_of_interest, arrival_bounds_stored );
 
-		map__turn__entries.get( turn ).add( entry );
+		return () -> {
+			String content = PersistentCurveCache.subNetworkContent( server_graph, upstream_servers.servers, 
+					configuration, key.toString() );
+			
+			Set<ArrivalCurve> arrival_bounds = persistent_cache_current.loadArrivalCurves( content );
+			if( arrival_bounds == null ) {
+				arrival_bounds = computation.call();
+				persistent_cache_current.storeArrivalCurves( content, arrival_bounds );
+			}
+			return arrival_bounds;
+		};
 	}
 
-	protected Set<ArrivalCurve> getArrivalBounds( AnalysisConfig configuration, Turn turn, Set<Flow> bounded_flows, Flow flow_of_interest ) {
-		CacheEntryTurn entry = getCacheEntry( configuration, turn, bounded_flows, flow_of_interest );
-		if ( entry == null ) {
-			return new HashSet<ArrivalCurve>();
-		} else {
-			return new HashSet<ArrivalCurve>( entry.arrival_bounds );
+	private UpstreamServers getUpstreamServers( ServerGraph server_graph, Server server ) {
+		UpstreamServers upstream_servers = map__server__upstream_servers.get( server );
+		if( upstream_servers == null || !upstream_servers.isCurrent() ) {
+			upstream_servers = new UpstreamServers( upstreamServers( server_graph, server ) );
+			map__server__upstream_servers.put( server, upstream_servers );
 		}
+		return upstream_servers;
 	}
 
-	protected CacheEntryTurn getCacheEntry( AnalysisConfig configuration, Turn turn, Set<Flow> bounded_flows, Flow flow_of_interest ) {
-		// Most important feature is an efficient search
-		Set<CacheEntryTurn> entries_l = map__turn__entries.get( turn );
-		if ( entries_l == null ) {
-			map__turn__entries.put( turn, new HashSet<CacheEntryTurn>() );
-			return null;
+	private static Server[] upstreamServers( ServerGraph server_graph, Server server ) {
+		Set<Server> upstream_servers = new HashSet<Server>();
+		LinkedList<Server> servers_to_visit = new LinkedList<Server>();
+		upstream_servers.add( server );
+		servers_to_visit.add( server );
+
+		while( !servers_to_visit.isEmpty() ) {
+			for( Turn in_turn : server_graph.getInTurnSet( servers_to_visit.poll() ) ) {
+				if( upstream_servers.add( in_turn.getSource() ) ) {
+					servers_to_visit.add( in_turn.getSource() );
+				}
+			}
 		}
 
+		Server[] upstream_servers_sorted = upstream_servers.toArray( new Server[upstream_servers.size()] );
+		Arrays.sort( upstream_servers_sorted, Comparator.comparingInt( Server::getId ) );
+		return upstream_servers_sorted;
+	}
 
-		Set<CacheEntryTurn> candidates = new HashSet<CacheEntryTurn>( entries_l );
+	private Set<ArrivalCurve> computeIfAbsent( CacheKey<?> key, UpstreamServers dependencies, Callable<Set<ArrivalCurve>> computation ) throws Exception {
+		CacheEntry entry = entries.get( key );
+		if( entry != null && entry.isOutdated() ) {
+			invalidate( key, entry );
+			entry = entries.get( key );
+		}
+		if( entry == null ) {
+			// Register the pending computation before starting it, such that concurrent requests wait for it.
+			CacheEntry entry_new = new CacheEntry( dependencies );
+			entry = entries.putIfAbsent( key, entry_new );
+			
+			if( entry == null ) {
+				misses.increment();
+				
+				// The computation runs outside of the map's locks as it recursively accesses the cache.
+				try {
+					Set<ArrivalCurve> arrival_bounds = storedArrivalBounds( computation.call() );
+					entry_new.complete( arrival_bounds, access_clock.incrementAndGet() );
+					segments.addAndGet( entry_new.segments );
+					evictIfFull();
+					return arrival_bounds;
+				} catch ( Exception e ) {
+					// Do not cache failures. Waiting requests get the exception, later ones retry.
+					entries.remove( key, entry_new );
+					entry_new.arrival_bounds.completeExceptionally( e );
+					throw e;
+				}
+			}
+		}
 
-		for ( CacheEntryTurn entry : candidates ) {
-			if( entry.configuration.enforceMultiplexing() == configuration.enforceMultiplexing()
-				&& entry.configuration.enforceMaxSC() == configuration.enforceMaxSC()
-				&& entry.configuration.enforceMaxScOutputRate() == configuration.enforceMaxScOutputRate()
-				&& entry.bounded_flows.size() == bounded_flows.size()
-				&& entry.flow_of_interest.getId() == flow_of_interest.getId()
-				&& entry.bounded_flows.containsAll( bounded_flows ) // should be the most expensive operation so do it last
-			) {
-				return entry;
+		hits.increment();
+		entry.last_access = access_clock.incrementAndGet();
+		try {
+			return entry.arrival_bounds.get();
+		} catch ( ExecutionException e ) {
+			if( e.getCause() instanceof Exception ) {
+				throw (Exception) e.getCause();
 			}
+			throw e;
 		}
-		return null;
 	}
 
-	// Cache entry types
-	class CacheEntry {
-		protected AnalysisConfig configuration;
-		protected Set<Flow> bounded_flows;
-		protected Flow flow_of_interest;
-		protected Set<ArrivalCurve> arrival_bounds;
-
-		protected CacheEntry( AnalysisConfig configuration,
-							  Set<Flow> bounded_flows,
-							  Flow flow_of_interest,
-							  Set<ArrivalCurve> arrival_bounds ) {
-			this.configuration = configuration;
-			this.bounded_flows = bounded_flows;
-			this.flow_of_interest = flow_of_interest;
-			this.arrival_bounds = arrival_bounds;
+	private Set<ArrivalCurve> getIfPresent( CacheKey<?> key ) {
+		CacheEntry entry = entries.get( key );
+		if( entry != null && entry.isOutdated() ) {
+			invalidate( key, entry );
+			entry = null;
+		}
+		if( entry == null || !entry.arrival_bounds.isDone() || entry.arrival_bounds.isCompletedExceptionally() ) {
+			misses.increment();
+			return Collections.emptySet();
 		}
+		hits.increment();
+		entry.last_access = access_clock.incrementAndGet();
+		return entry.arrival_bounds.join();
+	}
 
-		@Override
-		public String toString() {
-			String result = "CacheEntry(";
+	private boolean invalidate( CacheKey<?> key, CacheEntry entry ) {
+		synchronized( eviction_lock ) {
+			if( entries.remove( key, entry ) ) {
+				segments.addAndGet( -entry.segments );
+				invalidations.increment();
+				return true;
+			}
+			return false;
+		}
+	}
 
-			result += ";\n";
-			if ( bounded_flows != null ) {
-				result += bounded_flows.toString();
-			} else {
-				result += "null_flows";
+	private boolean isFull( double fill_ratio ) {
+		int max_entries_current = max_entries;
+		long max_segments_current = max_segments;
+		return ( max_entries_current > 0 && entries.size() > max_entries_current * fill_ratio )
+				|| ( max_segments_current > 0 && segments.get() > max_segments_current * fill_ratio );
+	}
+
+	/**
+	 * Evicts the least recently used entries in a batch. 
+	 * Only completed entries are evicted, pending computations remain. 
+	 */
+	private void evictIfFull() {
+		if( !isFull( 1.0 ) ) {
+			return;
+		}
+		
+		synchronized( eviction_lock ) {
+			if( !isFull( 1.0 ) ) {
+				return; // Another thread evicted in the meantime.
 			}
-			result += ";\n";
-			if ( flow_of_interest != null ) {
-				result += flow_of_interest.toString();
-			} else {
-				result += "null_foi";
+			
+			List<Map.Entry<CacheKey<?>,CacheEntry>> candidates = new ArrayList<Map.Entry<CacheKey<?>,CacheEntry>>();
+			for( Map.Entry<CacheKey<?>,CacheEntry> entry : entries.entrySet() ) {
+				if( entry.getValue().arrival_bounds.isDone() ) {
+					candidates.add( entry );
+				}
 			}
-			result += ";\n";
-			if ( arrival_bounds != null ) {
-				result += arrival_bounds.toString();
-			} else {
-				result += "null_arrival_curve";
+			candidates.sort( Comparator.comparingLong( entry -> entry.getValue().last_access ) );
+			
+			Iterator<Map.Entry<CacheKey<?>,CacheEntry>> candidates_iter = candidates.iterator();
+			while( isFull( EVICTION_TARGET_FILL_RATIO ) && candidates_iter.hasNext() ) {
+				Map.Entry<CacheKey<?>,CacheEntry> candidate = candidates_iter.next();
+				if( entries.remove( candidate.getKey(), candidate.getValue() ) ) {
+					segments.addAndGet( -candidate.getValue().segments );
+					evictions.increment();
+				}
 			}
-
-			return result += ";\n" + configuration.arrivalBoundMethods().toString() + "; "
-					+ configuration.enforceMultiplexing() + "; "
-					+ configuration.enforceMaxSC() + "; "
-					+ configuration.enforceMaxScOutputRate() + ")";
 		}
 	}
 
-	class CacheEntryServer extends CacheEntry {
-		protected Server server;
+	@Override
+	public String toString() {
+		return "ArrivalBoundCache(entries: " + size() + ", segments: " + getSegmentCount() 
+				+ ", hits: " + getHitCount() + ", misses: " + getMissCount() + ", evictions: " + getEvictionCount() 
+				+ ", invalidations: " + getInvalidationCount() + ")";
+	}
 
-		protected CacheEntryServer( AnalysisConfig configuration,
-									Server server,
-									Set<Flow> bounded_flows,
-									Flow flow_of_interest,
-									Set<ArrivalCurve> arrival_bounds ) {
-			super( configuration, bounded_flows, flow_of_interest, arrival_bounds );
-			this.server = server;
+	/**
+	 * Cache entries are shared by all requests, also concurrent ones. 
+	 * They are therefore private copies in their final, beautified form 
+	 * such that no request has a reason to modify them.
+	 */
+	private static Set<ArrivalCurve> storedArrivalBounds( Set<ArrivalCurve> arrival_bounds ) {
+		Set<ArrivalCurve> arrival_bounds_stored = new HashSet<ArrivalCurve>();
+		for( ArrivalCurve arrival_bound : arrival_bounds ) {
+			ArrivalCurve arrival_bound_stored = arrival_bound.copy();
+			Curve.getUtils().beautify( arrival_bound_stored );
+			arrival_bounds_stored.add( arrival_bound_stored );
 		}
+		return Collections.unmodifiableSet( arrival_bounds_stored );
+	}
 
-		@Override
-		public String toString() {
-			String superclass = super.toString();
-								// length of CacheEntry( is 11
-			superclass.substring( 11, superclass.length() );
-
-			String result = "CacheEntryServer(";
-			if ( server != null ) {
-				result += server.toString();
-			} else {
-				result += "null_server";
+	// Servers upstream of a server, including it, and their state versions when they were collected.
+	// The server-local settings derived from them are stored, see serverLocalSettings.
+	private static final class UpstreamServers {
+		private final Server[] servers;
+		private final long[] state_versions;
+		// Version of all servers' states when the servers' versions were last found unchanged.
+		private volatile long all_servers_state_version;
+		// Indexed by the combination of overridden settings, see serverLocalSettings.
+		private final AtomicReferenceArray<long[]> server_local_settings = new AtomicReferenceArray<long[]>( 16 );
+
+		private UpstreamServers( Server[] servers ) {
+			// Read before the servers' versions, a change in between is detected by the next check.
+			this.all_servers_state_version = Server.getAllServersStateVersion();
+			this.servers = servers;
+			this.state_versions = new long[servers.length];
+			for( int i = 0; i < servers.length; i++ ) {
+				state_versions[i] = servers[i].getStateVersion();
 			}
+		}
 
-			return result + superclass;
+		private boolean isCurrent() {
+			long all_servers_state_version_current = Server.getAllServersStateVersion();
+			if( all_servers_state_version_current == all_servers_state_version ) {
+				return true;
+			}
+			
+			for( int i = 0; i < servers.length; i++ ) {
+				if( servers[i].getStateVersion() != state_versions[i] ) {
+					return false;
+				}
+			}
+			all_servers_state_version = all_servers_state_version_current;
+			return true;
 		}
 	}
 
-	class CacheEntryTurn extends CacheEntry {
-		protected Turn turn;
+	// Cache entry. 
+	// The arrival bounds are pending until their computation is completed.
+	// Completed entries are outdated once a server they depend on changed.
+	private static final class CacheEntry {
+		private final CompletableFuture<Set<ArrivalCurve>> arrival_bounds = new CompletableFuture<Set<ArrivalCurve>>();
+		private final UpstreamServers dependencies;
+		private volatile long last_access;
+		private long segments;
+
+		private CacheEntry( UpstreamServers dependencies ) {
+			this.dependencies = dependencies;
+		}
 
-		protected CacheEntryTurn( AnalysisConfig configuration, Turn turn, Set<Flow> bounded_flows, Flow flow_of_interest, Set<ArrivalCurve> arrival_bounds ) {
-			super( configuration, bounded_flows, flow_of_interest, arrival_bounds );
-			this.turn = turn;
+		private boolean isOutdated() {
+			return arrival_bounds.isDone() && !dependencies.isCurrent();
 		}
 
-		@Override
-		public String toString() {
-			String superclass = super.toString();
-								// length of CacheEntry( is 11
-			superclass.substring( 11, superclass.length() );
+		private void complete( Set<ArrivalCurve> arrival_bounds, long access ) {
+			for( ArrivalCurve arrival_bound : arrival_bounds ) {
+				segments += arrival_bound.getSegmentCount();
+			}
+			last_access = access;
+			this.arrival_bounds.complete( arrival_bounds );
+		}
+	}
 
-			String result = "CacheEntry(";
+	// Cache key. 
+	// Comprises all parameters the arrival bounds depend on, except for the arrival bounding methods. 
+	// There is a separate cache per set of arrival bounding methods.
+	// The configuration is reduced to a fingerprint and the bounded flows to a bit set of their IDs 
+	// such that hashing and comparing keys does not need to iterate over flow sets.
+	private static final class CacheKey<L> {
+		private final L location;
+		private final int configuration_fingerprint;
+		private final BitSet bounded_flows_ids;
+		private final int flow_of_interest_id;
+		private final long[] server_local_settings;
+		private final int hash;
+
+		private CacheKey( AnalysisConfig configuration, L location, Set<Flow> bounded_flows, Flow flow_of_interest, long[] server_local_settings ) {
+			this.location = location;
+			this.configuration_fingerprint = fingerprint( configuration );
+			this.bounded_flows_ids = new BitSet();
+			for( Flow flow : bounded_flows ) {
+				// Shifted by one to also cover Flow.NULL_FLOW's ID -1.
+				bounded_flows_ids.set( flow.getId() + 1 );
+			}
+			this.flow_of_interest_id = flow_of_interest.getId();
+			this.server_local_settings = server_local_settings;
+			
+			int hash_tmp = location.hashCode();
+			hash_tmp = 31 * hash_tmp + configuration_fingerprint;
+			hash_tmp = 31 * hash_tmp + bounded_flows_ids.hashCode();
+			hash_tmp = 31 * hash_tmp + Arrays.hashCode( server_local_settings );
+			this.hash = 31 * hash_tmp + flow_of_interest_id;
+		}
+
+		private static int fingerprint( AnalysisConfig configuration ) {
+			int fingerprint = configuration.enforceMultiplexing().ordinal();
+			fingerprint = fingerprint * 8 + configuration.enforceMaxSC().ordinal();
+			fingerprint = fingerprint * 8 + configuration.enforceMaxScOutputRate().ordinal();
+			return fingerprint * 2 + (configuration.convolveAlternativeArrivalBounds() ? 1 : 0);
+		}
 
-			if ( turn != null ) {
-				result += turn.toString();
-			} else {
-				result += "null_server";
+		@Override
+		public boolean equals( Object obj ) {
+			if ( this == obj ) {
+				return true;
+			}
+			if ( !(obj instanceof CacheKey) ) {
+				return false;
 			}
+			CacheKey<?> other = (CacheKey<?>) obj;
+			return hash == other.hash
+					&& configuration_fingerprint == other.configuration_fingerprint
+					&& flow_of_interest_id == other.flow_of_interest_id
+					&& location.equals( other.location )
+					&& bounded_flows_ids.equals( other.bounded_flows_ids )
+					&& Arrays.equals( server_local_settings, other.server_local_settings );
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
 
-			return result + superclass;
+		@Override
+		public String toString() {
+			return "CacheKey(" + location + ";\n"
+					+ bounded_flows_ids + ";\n"
+					+ flow_of_interest_id + ";\n"
+					+ configuration_fingerprint + ";\n"
+					+ Arrays.toString( server_local_settings ) + ")";
 		}
 	}
 }
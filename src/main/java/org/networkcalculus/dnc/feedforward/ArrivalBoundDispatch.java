@@ -27,12 +27,11 @@
 package org.networkcalculus.dnc.feedforward;
 
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.networkcalculus.dnc.AnalysisConfig;
 import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.AnalysisConfig.ArrivalBoundMethod;
-import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.Curve_ConstantPool;
@@ -54,27 +53,109 @@ public abstract class ArrivalBoundDispatch {
 	// --------------------------------------------------------------------------------------------------------------
 	// Arrival Bound Cache
 	// --------------------------------------------------------------------------------------------------------------
-	protected static Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> ab_caches = new HashMap<Set<ArrivalBoundMethod>,ArrivalBoundCache>();
+	// Caches are kept per calculation context as cached curves depend on its backends.
+	protected static Map<Calculator,Map<Set<ArrivalBoundMethod>,ArrivalBoundCache>> ab_caches = Collections.synchronizedMap( new WeakHashMap<Calculator,Map<Set<ArrivalBoundMethod>,ArrivalBoundCache>>() );
+	
+	// Capacity of each cache, limits below 1 are not enforced.
+	private static volatile int cache_max_entries = 0;
+	private static volatile long cache_max_segments = 0;
+	
+	// Optional persistent cache shared by all caches, null if disabled.
+	private static volatile PersistentCurveCache persistent_cache = null;
 	
 	private static ArrivalBoundCache getCache( Set<ArrivalBoundMethod> ab_methods ) {
-		for ( Entry<Set<ArrivalBoundMethod>,ArrivalBoundCache> cache_entry : ab_caches.entrySet() ) {
-			if( cache_entry.getKey().size() == ab_methods.size()
-					&& cache_entry.getKey().containsAll( ab_methods ) ) {
-				return cache_entry.getValue();
+		Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> calculator_ab_caches = ab_caches.computeIfAbsent( Calculator.getInstance(),
+				calculator -> new ConcurrentHashMap<Set<ArrivalBoundMethod>,ArrivalBoundCache>() );
+		
+		// Sets are equal if they contain the same elements, independent of the implementation. 
+		// Copy the key as the configuration's set may still be modified.
+		ArrivalBoundCache ab_cache = calculator_ab_caches.get( ab_methods );
+		if( ab_cache == null ) {
+			ab_cache = calculator_ab_caches.computeIfAbsent( new HashSet<ArrivalBoundMethod>( ab_methods ), 
+					ab_methods_key -> {
+						ArrivalBoundCache ab_cache_new = new ArrivalBoundCache( cache_max_entries, cache_max_segments );
+						ab_cache_new.setPersistentCache( persistent_cache );
+						return ab_cache_new;
+					} );
+		}
+		return ab_cache;
+	}
+	
+	public static void clearAllCaches() {
+		ab_caches.clear();
+	}
+	
+	/**
+	 * Cached arrival bounds outdated by modifications of the server graph are never returned, 
+	 * clearing the caches is not required. This removes them from all caches to free memory.
+	 * 
+	 * @return The number of removed entries.
+	 */
+	public static int removeOutdatedCacheEntries() {
+		int removed = 0;
+		synchronized( ab_caches ) {
+			for( Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> calculator_ab_caches : ab_caches.values() ) {
+				for( ArrivalBoundCache ab_cache : calculator_ab_caches.values() ) {
+					removed += ab_cache.removeOutdated();
+				}
 			}
 		}
+		return removed;
+	}
+	
+	/**
+	 * Limits the size of every arrival bound cache, existing ones as well as future ones.
+	 * Limits below 1 are not enforced.
+	 * 
+	 * @param max_entries	Maximum number of entries per cache.
+	 * @param max_segments	Maximum number of linear segments of all curves per cache.
+	 */
+	public static void setCacheCapacity( int max_entries, long max_segments ) {
+		cache_max_entries = max_entries;
+		cache_max_segments = max_segments;
 		
-		// Reaching this code here means that there is
-		// no cache for this set of ab_methods in the set of caches yet.
-		// So we create one, add it to the map and return it.
-		ArrivalBoundCache new_ab_cache = new ArrivalBoundCache();
-		ab_caches.put( ab_methods, new_ab_cache );
+		synchronized( ab_caches ) {
+			for( Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> calculator_ab_caches : ab_caches.values() ) {
+				for( ArrivalBoundCache ab_cache : calculator_ab_caches.values() ) {
+					ab_cache.setCapacity( max_entries, max_segments );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Sets a persistent cache for all arrival bound caches, existing ones as well as future ones. 
+	 * It is only consulted if the analysis configuration enables the arrival bound cache. 
+	 * Left-over service curves of the separate flow analysis are persisted in it as well.
+	 * 
+	 * @param persistent_cache	The persistent cache, null to disable it.
+	 */
+	public static void setPersistentCache( PersistentCurveCache persistent_cache ) {
+		ArrivalBoundDispatch.persistent_cache = persistent_cache;
 		
-		return new_ab_cache;
+		synchronized( ab_caches ) {
+			for( Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> calculator_ab_caches : ab_caches.values() ) {
+				for( ArrivalBoundCache ab_cache : calculator_ab_caches.values() ) {
+					ab_cache.setPersistentCache( persistent_cache );
+				}
+			}
+		}
 	}
 	
-	public static void clearAllCaches() {
-		ab_caches.clear();
+	public static PersistentCurveCache getPersistentCache() {
+		return persistent_cache;
+	}
+	
+	/**
+	 * @return The arrival bound caches of the current calculation context per set of arrival bounding methods, 
+	 * 			e.g., to retrieve their statistics.
+	 */
+	public static Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> getCaches() {
+		Map<Set<ArrivalBoundMethod>,ArrivalBoundCache> calculator_ab_caches = ab_caches.get( Calculator.getInstance() );
+		if( calculator_ab_caches == null ) {
+			return Collections.emptyMap();
+		}
+		return Collections.unmodifiableMap( calculator_ab_caches );
 	}
 	
 	// --------------------------------------------------------------------------------------------------------------
@@ -83,7 +164,7 @@ public abstract class ArrivalBoundDispatch {
 
 	public static Set<ArrivalCurve> computeArrivalBounds(ServerGraph server_graph, AnalysisConfig configuration, Server server)
 			throws Exception {
-		return computeArrivalBounds(server_graph, configuration, server, server_graph.getFlows(server), Flow.NULL_FLOW);
+		return computeArrivalBounds(server_graph, configuration, server, server_graph.getFlowSet(server).copy(), Flow.NULL_FLOW);
 	}
 
 	/**
@@ -101,7 +182,8 @@ public abstract class ArrivalBoundDispatch {
 	 *            The flows to be bounded.
 	 * @param flow_of_interest
 	 *            The flow of interest to get a lower priority.
-	 * @return The arrival bound.
+	 * @return The arrival bound. Unmodifiable and shared with other callers if taken from the cache, 
+	 *            i.e., the curves must be copied before modifying them.
 	 * @throws Exception
 	 *             Potential exception raised in the called function
 	 *             computeArrivalBounds.
@@ -115,26 +197,28 @@ public abstract class ArrivalBoundDispatch {
 			return arrival_bounds;
 		}
 
-		Set<Flow> f_server = server_graph.getFlows(server);
+		Set<Flow> f_server = server_graph.getFlowSet(server);
 		Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_server, flows_to_bound);
 		if (f_xfcaller_server.isEmpty()) {
 			return arrival_bounds;
 		}
 		
-		if( configuration.useArrivalBoundsCache() 
-				&& configuration.enforceMultiplexing() != MultiplexingEnforcement.SERVER_LOCAL ) { // Do not cache in that case. Too many variables, the cache does not check all of them.
-			ArrivalBoundCache.CacheEntryServer entry = getCache( configuration.arrivalBoundMethods() ).getCacheEntry( configuration, server, flows_to_bound, flow_of_interest );
-			if( entry != null && !entry.arrival_bounds.isEmpty()
-					&& !(entry.arrival_bounds.size() > 1 && configuration.convolveAlternativeArrivalBounds()) // Inconsistency between current cache content and current setting.
-					) {
-				// Be cautious here! By using the original cache entry instead of the getArrivalBounds function, we need to repack the result in a new set manually!
-				return new HashSet<ArrivalCurve>( entry.arrival_bounds );
-			}
+		if( configuration.useArrivalBoundsCache() ) {
+			return getCache( configuration.arrivalBoundMethods() ).computeArrivalBoundsIfAbsent( server_graph, configuration, server, flows_to_bound, flow_of_interest,
+					() -> deriveArrivalBounds( server_graph, configuration, server, f_xfcaller_server, flow_of_interest ) );
 		}
+		
+		return beautify( deriveArrivalBounds( server_graph, configuration, server, f_xfcaller_server, flow_of_interest ) );
+	}
+
+	private static Set<ArrivalCurve> deriveArrivalBounds(ServerGraph server_graph, AnalysisConfig configuration, Server server,
+															Set<Flow> f_xfcaller_server, Flow flow_of_interest) throws Exception {
+		Set<ArrivalCurve> arrival_bounds = new HashSet<ArrivalCurve>(
+				Collections.singleton(Curve_ConstantPool.ZERO_ARRIVAL_CURVE.get()));
 
 		// Get cross-traffic originating in server
 		Set<Flow> f_xfcaller_sourceflows_server = SetUtils.getIntersection(f_xfcaller_server,
-				server_graph.getSourceFlows(server));
+				server_graph.getSourceFlowSet(server));
 		if( !f_xfcaller_sourceflows_server.isEmpty() ) {
 			f_xfcaller_sourceflows_server.remove(flow_of_interest);
 			ArrivalCurve alpha_xfcaller_sourceflows_server = server_graph.getSourceFlowArrivalCurve(server,f_xfcaller_sourceflows_server); // Will at least be a zeroArrivalCurve
@@ -150,11 +234,11 @@ public abstract class ArrivalBoundDispatch {
 		Set<ArrivalCurve> arrival_bounds_turn;
 		Set<ArrivalCurve> arrival_bounds_turn_permutations = new HashSet<ArrivalCurve>();
 
-		Iterator<Turn> in_turn_iter = server_graph.getInTurns(server).iterator();
+		Iterator<Turn> in_turn_iter = server_graph.getInTurnSet(server).iterator();
 		while (in_turn_iter.hasNext()) {
 
 			Turn in_l = in_turn_iter.next();
-			Set<Flow> f_xfcaller_in_l = SetUtils.getIntersection(server_graph.getFlows(in_l), f_xfcaller_server);
+			Set<Flow> f_xfcaller_in_l = SetUtils.getIntersection(server_graph.getFlowSet(in_l), f_xfcaller_server);
 			f_xfcaller_in_l.remove(flow_of_interest);
 
 			if (f_xfcaller_in_l.isEmpty()) { // Do not check turns without flows of interest
@@ -169,8 +253,6 @@ public abstract class ArrivalBoundDispatch {
 			// * Care about the configuration.convolveAlternativeArrivalBounds()-flag later.
 			boolean haveEncounteredFiniteAB=false;
 			for (ArrivalCurve arrival_bound_turn : arrival_bounds_turn) {
-				Curve.getUtils().beautify(arrival_bound_turn);
-
 				for (ArrivalCurve arrival_bound_existing : arrival_bounds) {
 
 					if(!arrival_bound_turn.isDelayedInfiniteBurst())
@@ -195,13 +277,6 @@ public abstract class ArrivalBoundDispatch {
 			arrival_bounds = new HashSet<ArrivalCurve>( Collections.singleton( Calculator.getInstance().getMinPlus().convolve( arrival_bounds ) ) );
 		} 
 		
-		if( configuration.useArrivalBoundsCache() 
-				&& configuration.enforceMultiplexing() != MultiplexingEnforcement.SERVER_LOCAL ) { // Do not cache in that case. Too many variables, the cache does not check all of them.
-			
-			// As we checked for an existing cache entry at the beginning (and returned it of present), we do not hav to care about the potential overwriting of a cache entry here. 
-			getCache( configuration.arrivalBoundMethods() ).addArrivalBounds( configuration, server, flows_to_bound, flow_of_interest, arrival_bounds );
-		}
-
 		return new HashSet<ArrivalCurve>( arrival_bounds );
 	}
 
@@ -212,16 +287,16 @@ public abstract class ArrivalBoundDispatch {
 			return new HashSet<ArrivalCurve>(Collections.singleton(Curve_ConstantPool.ZERO_ARRIVAL_CURVE.get()));
 		}
 		
-		if( configuration.useArrivalBoundsCache() && configuration.enforceMultiplexing() != MultiplexingEnforcement.SERVER_LOCAL ) { // Do not cache in that case. Too many variables.
-			ArrivalBoundCache.CacheEntryTurn entry = getCache( configuration.arrivalBoundMethods() ).getCacheEntry( configuration, turn, flows_to_bound, flow_of_interest );
-			if( entry != null && !entry.arrival_bounds.isEmpty()
-					&& !(entry.arrival_bounds.size() > 1 && configuration.convolveAlternativeArrivalBounds()) // Inconsistency between current cache content and current setting.
-					) {
-				// Be cautious here! By using the original cache entry instead of the getArrivalBounds function, we need to repack the result in a new set manually!
-				return new HashSet<ArrivalCurve>( entry.arrival_bounds );
-			}
+		if( configuration.useArrivalBoundsCache() ) {
+			return getCache( configuration.arrivalBoundMethods() ).computeArrivalBoundsIfAbsent( server_graph, configuration, turn, flows_to_bound, flow_of_interest,
+					() -> deriveArrivalBounds( server_graph, configuration, turn, flows_to_bound, flow_of_interest ) );
 		}
+		
+		return beautify( deriveArrivalBounds( server_graph, configuration, turn, flows_to_bound, flow_of_interest ) );
+	}
 
+	private static Set<ArrivalCurve> deriveArrivalBounds(ServerGraph server_graph, AnalysisConfig configuration, Turn turn,
+			Set<Flow> flows_to_bound, Flow flow_of_interest) throws Exception {
 		Set<ArrivalCurve> arrival_bounds_xfcaller = new HashSet<ArrivalCurve>();
 		
 		for (AnalysisConfig.ArrivalBoundMethod arrival_bound_method : configuration.arrivalBoundMethods()) {
@@ -229,23 +304,17 @@ public abstract class ArrivalBoundDispatch {
 
 			switch (arrival_bound_method) {
 			case AGGR_PBOO_PER_SERVER:
-				AggregatePboo_PerServer aggr_pboo_per_server = AggregatePboo_PerServer.getInstance();
-				aggr_pboo_per_server.setServerGraph(server_graph);
-				aggr_pboo_per_server.setConfiguration(configuration);
+				AggregatePboo_PerServer aggr_pboo_per_server = new AggregatePboo_PerServer(server_graph, configuration);
 				arrival_bounds_tmp = aggr_pboo_per_server.computeArrivalBound(turn, flows_to_bound, flow_of_interest);
 				break;
 
 			case AGGR_PBOO_CONCATENATION:
-				AggregatePboo_Concatenation aggr_pboo_concatenation = AggregatePboo_Concatenation.getInstance();
-				aggr_pboo_concatenation.setServerGraph(server_graph);
-				aggr_pboo_concatenation.setConfiguration(configuration);
+				AggregatePboo_Concatenation aggr_pboo_concatenation = new AggregatePboo_Concatenation(server_graph, configuration);
 				arrival_bounds_tmp = aggr_pboo_concatenation.computeArrivalBound(turn, flows_to_bound, flow_of_interest);
 				break;
 
 			case AGGR_PMOO:
-				AggregatePmoo aggr_pmoo = AggregatePmoo.getInstance();
-				aggr_pmoo.setServerGraph(server_graph);
-				aggr_pmoo.setConfiguration(configuration);
+				AggregatePmoo aggr_pmoo = new AggregatePmoo(server_graph, configuration);
 				arrival_bounds_tmp = aggr_pmoo.computeArrivalBound(turn, flows_to_bound, flow_of_interest);
 				break;
 
@@ -255,9 +324,7 @@ public abstract class ArrivalBoundDispatch {
 			 */
 				
 			case AGGR_TM:
-				AggregateTandemMatching aggr_tm = AggregateTandemMatching.getInstance();
-				aggr_tm.setServerGraph(server_graph);
-				aggr_tm.setConfiguration(configuration);
+				AggregateTandemMatching aggr_tm = new AggregateTandemMatching(server_graph, configuration);
 				arrival_bounds_tmp = aggr_tm.computeArrivalBound(turn, flows_to_bound, flow_of_interest);
 				break;
 
@@ -313,16 +380,20 @@ public abstract class ArrivalBoundDispatch {
 			arrival_bounds_xfcaller = new HashSet<ArrivalCurve>( Collections.singleton( Calculator.getInstance().getMinPlus().convolve( arrival_bounds_xfcaller ) ) );
 		}
 
-		if( configuration.useArrivalBoundsCache() 
-				&& configuration.enforceMultiplexing() != MultiplexingEnforcement.SERVER_LOCAL ) { // Do not cache in that case. Too many variables, the cache does not check all of them.
-			
-			// As we checked for an existing cache entry before the for-loop (and returned it of present), we do not hav to care about the potential overwriting of a cache entry here. 
-			getCache( configuration.arrivalBoundMethods() ).addArrivalBounds( configuration, turn, flows_to_bound, flow_of_interest, arrival_bounds_xfcaller );
-		}
-		
 		return arrival_bounds_xfcaller;
 	}
 
+	/**
+	 * Arrival bounds are handed out in beautified form. 
+	 * Cached ones are beautified by the cache, uncached ones by this method.
+	 */
+	private static Set<ArrivalCurve> beautify(Set<ArrivalCurve> arrival_bounds) {
+		for (ArrivalCurve arrival_bound : arrival_bounds) {
+			Curve.getUtils().beautify(arrival_bound);
+		}
+		return arrival_bounds;
+	}
+
 	private static Set<ArrivalCurve> singleFlowABs(AnalysisConfig configuration, ArrivalCurve alpha,
 			Set<ServiceCurve> betas_lo) throws Exception {
 		Set<ArrivalCurve> arrival_bounds_f = new HashSet<ArrivalCurve>();
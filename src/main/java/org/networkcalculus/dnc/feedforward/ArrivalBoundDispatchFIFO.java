@@ -36,16 +36,16 @@ public class ArrivalBoundDispatchFIFO {
         ArrivalCurve ag_ac = Curve_ConstantPool.ZERO_ARRIVAL_CURVE.get();
 
         // Identify the subset of flows from flows_to_bound that start at server
-        Set<Flow> subset_from_ftb_start_at_server = SetUtils.getIntersection(flows_to_bound, server_graph.getSourceFlows(server));
+        Set<Flow> subset_from_ftb_start_at_server = SetUtils.getIntersection(flows_to_bound, server_graph.getSourceFlowSet(server));
         for (Flow flow: subset_from_ftb_start_at_server)
         {
             ag_ac = Curve.getUtils().add(ag_ac, flow.getArrivalCurve());
         }
 
-        for(Turn current_turn : server_graph.getInTurns(server))
+        for(Turn current_turn : server_graph.getInTurnSet(server))
         {
             Server pred_current_turn = current_turn.getSource();
-            Set<Flow> subset_from_ftb_through_current_turn = SetUtils.getIntersection(flows_to_bound, server_graph.getFlows(current_turn));
+            Set<Flow> subset_from_ftb_through_current_turn = SetUtils.getIntersection(flows_to_bound, server_graph.getFlowSet(current_turn));
             if(!subset_from_ftb_through_current_turn.isEmpty())
             {
                 Pair<Server, Path> splitting_server_and_path = server_graph.findSplittingServerAndPathFIFO(pred_current_turn, subset_from_ftb_through_current_turn);
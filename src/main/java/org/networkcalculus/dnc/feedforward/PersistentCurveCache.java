@@ -0,0 +1,403 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+package org.networkcalculus.dnc.feedforward;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.networkcalculus.dnc.AnalysisConfig;
+import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.curves.ArrivalCurve;
+import org.networkcalculus.dnc.curves.Curve;
+import org.networkcalculus.dnc.curves.ServiceCurve;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolution;
+import org.networkcalculus.dnc.network.server_graph.Flow;
+import org.networkcalculus.dnc.network.server_graph.Server;
+import org.networkcalculus.dnc.network.server_graph.ServerGraph;
+import org.networkcalculus.dnc.network.server_graph.Turn;
+
+/**
+ * Persistent cache for arrival bounds and left-over service curves as well as for solutions of linear programs. 
+ * It allows to reuse curves across runs, e.g., when the same network is analyzed repeatedly with small changes.
+ * 
+ * Entries are stored in a directory, one file per entry, and addressed by the SHA-256 hash of a textual 
+ * description of everything the curves depend on: the calculation context, the analysis configuration, 
+ * and the relevant part of the network with its servers' curves and the flows' arrival curves and paths. 
+ * Changing any of these results in a different hash, i.e., entries for modified parts of the network 
+ * are not found anymore while entries for unchanged parts can still be loaded. 
+ * Outdated entries are not removed automatically, see {@link #clear()}.
+ * 
+ * Curves are persisted in their string representation, linear program solutions with their exact values. 
+ * Files are written atomically such that 
+ * concurrent analyses, also in different JVMs, can share a directory. 
+ * Entries that cannot be read are treated as missing.
+ */
+public class PersistentCurveCache {
+	private static final String ARRIVAL_CURVES_SUFFIX = ".ac";
+	private static final String SERVICE_CURVES_SUFFIX = ".sc";
+	private static final String LP_SOLUTION_SUFFIX = ".lps";
+
+	private final File directory;
+
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder stores = new LongAdder();
+
+	public PersistentCurveCache( String directory_path ) throws IOException {
+		directory = new File( directory_path );
+		Files.createDirectories( directory.toPath() );
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public long getLoadCount() {
+		return loads.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getStoreCount() {
+		return stores.sum();
+	}
+
+	/**
+	 * Deletes all entries.
+	 */
+	public void clear() {
+		File[] files = directory.listFiles( ( dir, name ) -> name.endsWith( ARRIVAL_CURVES_SUFFIX ) || name.endsWith( SERVICE_CURVES_SUFFIX ) 
+															|| name.endsWith( LP_SOLUTION_SUFFIX ) );
+		if( files == null ) {
+			return;
+		}
+		for( File file : files ) {
+			file.delete();
+		}
+	}
+
+	/**
+	 * @param content	Description of everything the arrival curves depend on.
+	 * @return The persisted arrival curves, null if there are none.
+	 */
+	public Set<ArrivalCurve> loadArrivalCurves( String content ) {
+		List<String> curve_strs = load( content, ARRIVAL_CURVES_SUFFIX );
+		if( curve_strs == null ) {
+			return null;
+		}
+
+		Set<ArrivalCurve> arrival_curves = new HashSet<ArrivalCurve>();
+		try {
+			for( String curve_str : curve_strs ) {
+				arrival_curves.add( Curve.getFactory().createArrivalCurve( curve_str ) );
+			}
+		} catch ( Exception e ) {
+			misses.increment();
+			return null;
+		}
+		loads.increment();
+		return arrival_curves;
+	}
+
+	public boolean storeArrivalCurves( String content, Set<ArrivalCurve> arrival_curves ) {
+		return store( content, ARRIVAL_CURVES_SUFFIX, curveStrings( arrival_curves ) );
+	}
+
+	/**
+	 * @param content	Description of everything the service curves depend on.
+	 * @return The persisted service curves, null if there are none.
+	 */
+	public Set<ServiceCurve> loadServiceCurves( String content ) {
+		List<String> curve_strs = load( content, SERVICE_CURVES_SUFFIX );
+		if( curve_strs == null ) {
+			return null;
+		}
+
+		Set<ServiceCurve> service_curves = new HashSet<ServiceCurve>();
+		try {
+			for( String curve_str : curve_strs ) {
+				service_curves.add( Curve.getFactory().createServiceCurve( curve_str ) );
+			}
+		} catch ( Exception e ) {
+			misses.increment();
+			return null;
+		}
+		loads.increment();
+		return service_curves;
+	}
+
+	public boolean storeServiceCurves( String content, Set<ServiceCurve> service_curves ) {
+		return store( content, SERVICE_CURVES_SUFFIX, curveStrings( service_curves ) );
+	}
+
+	/**
+	 * @param content	Description of the linear program and the solver.
+	 * @return The persisted solution, null if there is none.
+	 */
+	public LinearProgramSolution loadLinearProgramSolution( String content ) {
+		List<String> solution_strs = load( content, LP_SOLUTION_SUFFIX );
+		if( solution_strs == null ) {
+			return null;
+		}
+
+		LinearProgramSolution solution;
+		try {
+			LinearProgramSolution.Status status = LinearProgramSolution.Status.valueOf( solution_strs.get( 0 ) );
+			if( status == LinearProgramSolution.Status.OPTIMAL ) {
+				double[] values = new double[solution_strs.size() - 2];
+				for( int i = 0; i < values.length; i++ ) {
+					values[i] = Double.parseDouble( solution_strs.get( i + 2 ) );
+				}
+				solution = new LinearProgramSolution( Double.parseDouble( solution_strs.get( 1 ) ), values );
+			} else {
+				solution = new LinearProgramSolution( status );
+			}
+		} catch ( Exception e ) {
+			misses.increment();
+			return null;
+		}
+		loads.increment();
+		return solution;
+	}
+
+	public boolean storeLinearProgramSolution( String content, LinearProgramSolution solution ) {
+		List<String> solution_strs = new ArrayList<String>();
+		solution_strs.add( solution.getStatus().name() );
+		if( solution.isOptimal() ) {
+			// Double.toString is exact, i.e., the loaded solution equals the stored one.
+			solution_strs.add( Double.toString( solution.getObjectiveValue() ) );
+			for( int i = 0; i < solution.getNumValues(); i++ ) {
+				solution_strs.add( Double.toString( solution.getValue( i ) ) );
+			}
+		}
+		return store( content, LP_SOLUTION_SUFFIX, solution_strs );
+	}
+
+	private static List<String> curveStrings( Set<? extends Curve> curves ) {
+		List<String> curve_strs = new ArrayList<String>();
+		for( Curve curve : curves ) {
+			curve_strs.add( curve.toString() );
+		}
+		return curve_strs;
+	}
+
+	private List<String> load( String content, String suffix ) {
+		File file = new File( directory, contentHash( content ) + suffix );
+		if( !file.isFile() ) {
+			misses.increment();
+			return null;
+		}
+
+		List<String> curve_strs = new ArrayList<String>();
+		try ( BufferedReader reader = Files.newBufferedReader( file.toPath(), StandardCharsets.UTF_8 ) ) {
+			String line;
+			while( ( line = reader.readLine() ) != null ) {
+				if( !line.isEmpty() ) {
+					curve_strs.add( line );
+				}
+			}
+		} catch ( IOException e ) {
+			misses.increment();
+			return null;
+		}
+		
+		if( curve_strs.isEmpty() ) {
+			misses.increment();
+			return null;
+		}
+		return curve_strs;
+	}
+
+	private boolean store( String content, String suffix, List<String> lines ) {
+		File file = new File( directory, contentHash( content ) + suffix );
+		File file_tmp = null;
+		try {
+			// Write to a temporary file first, concurrent readers must never see a partial entry.
+			file_tmp = File.createTempFile( "entry", ".tmp", directory );
+			try ( BufferedWriter writer = Files.newBufferedWriter( file_tmp.toPath(), StandardCharsets.UTF_8 ) ) {
+				for( String line : lines ) {
+					writer.write( line );
+					writer.newLine();
+				}
+			}
+			Files.move( file_tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch ( IOException e ) {
+			// The cache is optional, the entry has been computed nevertheless.
+			if( file_tmp != null ) {
+				file_tmp.delete();
+			}
+			return false;
+		}
+		stores.increment();
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "PersistentCurveCache(" + directory + ", loads: " + getLoadCount() 
+				+ ", misses: " + getMissCount() + ", stores: " + getStoreCount() + ")";
+	}
+
+	// --------------------------------------------------------------------------------------------------------------
+	// Content Descriptions
+	// --------------------------------------------------------------------------------------------------------------
+
+	public static String contentHash( String content ) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance( "SHA-256" );
+		} catch ( NoSuchAlgorithmException e ) {
+			// Every Java platform is required to support SHA-256.
+			throw new RuntimeException( e );
+		}
+
+		byte[] hash = digest.digest( content.getBytes( StandardCharsets.UTF_8 ) );
+		StringBuffer hash_str = new StringBuffer();
+		for( byte b : hash ) {
+			hash_str.append( String.format( "%02x", b ) );
+		}
+		return hash_str.toString();
+	}
+
+	/**
+	 * Describes the context all persisted curves depend on: 
+	 * the calculator's backends and the analysis configuration.
+	 * 
+	 * The description has to be the same in every run. The configuration's settings are therefore written one by one, 
+	 * its arrival bounding methods in the order of their declaration rather than in the hash set's order.
+	 */
+	private static StringBuffer contextDescription( AnalysisConfig configuration ) {
+		StringBuffer content = new StringBuffer();
+		content.append( Calculator.getInstance().toString() );
+		content.append( "\n" );
+		content.append( configuration.enforceMultiplexing().name() );
+		content.append( " MaxSC " );
+		content.append( configuration.enforceMaxSC() );
+		content.append( " MaxSC_output_rate " );
+		content.append( configuration.enforceMaxScOutputRate() );
+		content.append( " AB" );
+		for( AnalysisConfig.ArrivalBoundMethod ab_method : new TreeSet<AnalysisConfig.ArrivalBoundMethod>( configuration.arrivalBoundMethods() ) ) {
+			content.append( " " );
+			content.append( ab_method.name() );
+		}
+		content.append( " cap_AB_by_backlog_bound " );
+		content.append( configuration.serverBacklogArrivalBound() );
+		content.append( " convolve_ABs " );
+		content.append( configuration.convolveAlternativeArrivalBounds() );
+		content.append( " flow_prolongation " );
+		content.append( configuration.useFlowProlongation() );
+		content.append( "\n" );
+		return content;
+	}
+
+	/**
+	 * Describes a sub-network: the given servers with their curves, settings and incoming turns 
+	 * as well as all flows crossing them with their arrival curves and paths.
+	 * 
+	 * @param server_graph	The server graph.
+	 * @param servers		The sub-network's servers, closed under predecessors for arrival bounding.
+	 * @param configuration	The analysis configuration.
+	 * @param location		The location of the persisted curves within the sub-network.
+	 * @return The sub-network's description.
+	 */
+	public static String subNetworkContent( ServerGraph server_graph, Server[] servers, AnalysisConfig configuration, String location ) {
+		StringBuffer content = contextDescription( configuration );
+		content.append( location );
+		content.append( "\n" );
+
+		Set<Flow> flows = new TreeSet<Flow>( Comparator.comparingInt( Flow::getId ) );
+		for( Server server : servers ) {
+			content.append( server.toExtendedString() );
+			content.append( " <-" );
+			
+			TreeSet<Integer> in_turn_sources = new TreeSet<Integer>();
+			for( Turn in_turn : server_graph.getInTurnSet( server ) ) {
+				in_turn_sources.add( in_turn.getSource().getId() );
+			}
+			content.append( in_turn_sources.toString() );
+			content.append( "\n" );
+			
+			flows.addAll( server_graph.getFlowSet( server ) );
+		}
+
+		// The entire paths are included as flow prolongation can take servers beyond the sub-network into account.
+		for( Flow flow : flows ) {
+			content.append( flow.getId() );
+			content.append( ", " );
+			content.append( flow.getArrivalCurve().toString() );
+			content.append( ", " );
+			for( Server server : flow.getPath().getServers() ) {
+				content.append( server.getId() );
+				content.append( " " );
+			}
+			content.append( "\n" );
+		}
+
+		return content.toString();
+	}
+
+	/**
+	 * Describes a server's left-over service computation.
+	 * 
+	 * @param configuration		The analysis configuration.
+	 * @param server			The server.
+	 * @param arrival_curves	The arrival curves of the cross-traffic.
+	 * @return The left-over service computation's description.
+	 */
+	public static String leftOverServiceContent( AnalysisConfig configuration, Server server, Set<ArrivalCurve> arrival_curves ) {
+		StringBuffer content = contextDescription( configuration );
+		content.append( server.toExtendedString() );
+		content.append( "\n" );
+
+		// The description must not depend on the set's iteration order.
+		List<String> arrival_curve_strs = new ArrayList<String>();
+		for( ArrivalCurve arrival_curve : arrival_curves ) {
+			arrival_curve_strs.add( arrival_curve.toString() );
+		}
+		Collections.sort( arrival_curve_strs );
+		for( String arrival_curve_str : arrival_curve_strs ) {
+			content.append( arrival_curve_str );
+			content.append( "\n" );
+		}
+
+		return content.toString();
+	}
+}
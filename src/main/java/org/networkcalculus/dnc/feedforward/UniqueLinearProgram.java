@@ -44,9 +44,12 @@ import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
 
+import org.networkcalculus.dnc.AnalysisConfig;
 import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.linear_constraints.FlowLocationTime;
+import org.networkcalculus.dnc.linear_constraints.LinearProgram;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolver;
 import org.networkcalculus.dnc.linear_constraints.LogicalConstraint;
 import org.networkcalculus.dnc.linear_constraints.NumericalConstraint;
 import org.networkcalculus.dnc.linear_constraints.NumericalTerm;
@@ -77,7 +80,7 @@ import org.networkcalculus.num.Num;
  * 
  * This code will create an internal representation of the optimization formulation.
  * It can then be written to the file system, either in the LpSolve format or the
- * CPLEX format. Performance of both optimization tools can be found in
+ * CPLEX format, or be solved in memory, see {@link #solveDelayLP()}. Performance of both optimization tools can be found in
  * 
  * 		Quality and Cost of Deterministic Network Calculus – Design and Evaluation of an Accurate and Fast Analysis.
  * 		Steffen Bondorf, Paul Nikolaus, and Jens B. Schmitt,
@@ -368,8 +371,8 @@ public class UniqueLinearProgram {
 			}
 			
 			flows_to_trace_next = new HashSet<Flow>();
-			for( Turn inlink : SetUtils.getDifference( server_graph.getInTurns( current_server ), new HashSet<Turn>( flow_to_trace.getTurnsOnPath() ) ) ) {
-				Iterator<Flow> flow_iter = server_graph.getFlows( inlink ).iterator();
+			for( Turn inlink : SetUtils.getDifference( server_graph.getInTurnSet( current_server ), new HashSet<Turn>( flow_to_trace.getTurnsOnPath() ) ) ) {
+				Iterator<Flow> flow_iter = server_graph.getFlowSet( inlink ).iterator();
 				if( flow_iter.hasNext() ) {
 					flows_to_trace_next.add( flow_iter.next() );
 				}
@@ -567,7 +570,7 @@ public class UniqueLinearProgram {
 	}
 	
 	private void s2cConstraints() {
-		for( Server server_j : server_graph.getServers() ) {
+		for( Server server_j : server_graph.getServerSet() ) {
 			HashSet<Pair<Path,Path>> set_pair_jpi_pi = map__j__pair_jpi_pi.get( server_j );
 			if( set_pair_jpi_pi == null ) {
 				continue;
@@ -581,7 +584,7 @@ public class UniqueLinearProgram {
 				HashSet<Pair<Operator,FlowLocationTime>> left_side = new HashSet<Pair<Operator,FlowLocationTime>>();
 				Pair<Operator,FlowLocationTime> flow_shape_term;
 				
-				for( Flow flow : server_graph.getFlows( server_j ) ) {
+				for( Flow flow : server_graph.getFlowSet( server_j ) ) {
 					flow_shape_term = new Pair<Operator,FlowLocationTime>( Operator.PLUS, new FlowLocationTime( flow, server_j, pair_jpi_pi.getSecond() ) );
 					left_side.add( flow_shape_term );
 					
@@ -678,7 +681,7 @@ public class UniqueLinearProgram {
 						HashSet<Pair<Operator,FlowLocationTime>> left_side = new HashSet<Pair<Operator,FlowLocationTime>>();
 						Pair<Operator,FlowLocationTime> flow_shape_term;
 						
-						for( Flow flow : server_graph.getFlows( server_j ) ) {
+						for( Flow flow : server_graph.getFlowSet( server_j ) ) {
 							flow_shape_term = new Pair<Operator,FlowLocationTime>( Operator.PLUS, new FlowLocationTime( flow, server_j, path1 ) );
 							left_side.add( flow_shape_term );
 							
@@ -713,13 +716,13 @@ public class UniqueLinearProgram {
 	}
 	
 	private void backloggedPeriodsConstraints() {
-		for( Server server_j : server_graph.getServers() ) {
+		for( Server server_j : server_graph.getServerSet() ) {
 			HashSet<Path> set_jpi = map__j__jpi.get( server_j );
 			if( set_jpi == null ) {
 				continue;
 			}
 			for( Path jpi : set_jpi ) {
-				for( Flow flow : server_graph.getFlows( server_j ) ) {
+				for( Flow flow : server_graph.getFlowSet( server_j ) ) {
 					Server prec_j;
 					try {
 						prec_j = flow.getPrecedingServer( server_j );
@@ -944,303 +947,155 @@ public class UniqueLinearProgram {
 	 * The LP file created by this function can be read by LpSolve.
 	 */
 	public void saveDelayLPv1( String output_path ) throws Exception {
+		saveLP( output_path, createDelayLP().toLpSolveString() );
+	}
+	
+	/**
+	 * Backlog at the flow of interest's sink.
+	 * The LP file created by this function can be read by LpSolve.
+	 */
+	public void saveBacklogLPv1( String output_path ) throws Exception {
+		saveLP( output_path, createBacklogLP().toLpSolveString() );
+	}
+
+	/**
+	 * The LP file created by this function can be read by CPLEX and by Gurobi.
+	 */
+	public void saveDelayLPv2( String output_path ) throws Exception {
+		saveLP( output_path, createDelayLP().toCPLEXstring() );
+	}
+	
+	private static void saveLP( String output_path, String lp_str ) throws Exception {
  		File file = new File( output_path );
  		Writer w = new OutputStreamWriter( new FileOutputStream(file), "UTF-8" );
  		PrintWriter pw = new PrintWriter(w);
  		
- 		String foi_str = flow_of_interest.getAlias();
-		String foi_expl_src_str = explicit_src.getAlias();
-		String foi_snk_str = flow_of_interest.getSink().getAlias();
+ 		pw.print( lp_str );
+ 		
+ 		pw.close();
+	}
+	
+	/**
+	 * Creates the LP maximizing the end-to-end delay of the flow of interest.
+	 * Identical constraints derived from the server graph are only contained once.
+	 */
+	public LinearProgram createDelayLP() {
+		LinearProgram lp = new LinearProgram( true );
 		
-		StringBuffer foi_path_strWr = new StringBuffer();
-		for( Server server : flow_of_interest.getPath().getServers() ) {
-			foi_path_strWr.append( server.getAlias() );
-		}
-		String foi_path_str = foi_path_strWr.toString();
+		// The flow of interest's arrival at its explicit source is at time u, its departure at the sink at t{}.
+		int t_empty = lp.getVariable( empty_path );
+		int t_foi_path = lp.getVariable( flow_of_interest.getPath() );
+		int u = lp.getVariable( "u" );
+		int foi_src_u = lp.getVariable( flow_of_interest.getAlias() + "_" + explicit_src.getAlias() + "_u" );
+		int foi_src_t_empty = lp.getVariable( new FlowLocationTime( flow_of_interest, explicit_src, empty_path ) );
+		int foi_src_t_foi_path = lp.getVariable( new FlowLocationTime( flow_of_interest, explicit_src, flow_of_interest.getPath() ) );
+		int foi_snk_t_empty = lp.getVariable( new FlowLocationTime( flow_of_interest, sink_of_interest, empty_path ) );
 		
 		ArrivalCurve alpha_foi = flow_of_interest.getArrivalCurve();
+		double alpha_foi_rate = alpha_foi.getUltAffineRate().doubleValue();
+		double alpha_foi_burst = alpha_foi.getBurst().doubleValue();
 		
-		StringBuffer objective = new StringBuffer();
+		// Objective: Worst end-to-end delay for the flow of interest
+		lp.addObjectiveTerm( t_empty, 1.0 );
+		lp.addObjectiveTerm( u, -1.0 );
 		
-		objective.append( "/* Objective: Worst end-to-end delay for flow " + foi_str + " */ \n" );
-		objective.append( "max: t{} - u;" );
-		objective.append( "\n\n" );
+		// Position
+		lp.addConstraint( new int[]{ t_foi_path, u }, new double[]{ 1.0, -1.0 }, Relation.LE, 0.0 );
+		lp.addConstraint( new int[]{ u, t_empty }, new double[]{ 1.0, -1.0 }, Relation.LE, 0.0 );
 		
-		objective.append( "/* Insertion */ \n" );
-		objective.append( "/* first(" + foi_str + ")-1 = " + foi_expl_src_str + " */ \n" );
-		objective.append( "/* end(" + foi_str + ") = " + foi_snk_str  + " */ \n" );
-		objective.append( "/* path from first to end: " + foi_path_str + " */ \n\n" );
+		// Monotony
+		lp.addConstraint( new int[]{ foi_src_u, foi_snk_t_empty }, new double[]{ 1.0, -1.0 }, Relation.GE, 0.0 );
 		
-		objective.append( "/* Position */ \n" );
-		objective.append( "t{" + foi_path_str + "} <= u;" );
-		objective.append( "\n" );
-		objective.append( "u <= t{}; ");
-		objective.append( "\n\n" );
-
-		objective.append( "/* Monotony */ \n" );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " >= " );
-		objective.append( foi_str + "_" + foi_snk_str + "_t{};" );
-		objective.append( "\n\n" );
-
-		objective.append( "/* Arrival curve constraints */ \n" );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " - " );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_t{" + foi_path_str + "}" );
-		objective.append( " <= " );
-		objective.append( alpha_foi.getBurst().toString() );
-		objective.append( " + " );
-		objective.append( alpha_foi.getUltAffineRate() + " u" );
-		objective.append( " - " );
-		objective.append( alpha_foi.getUltAffineRate() + " t{" + foi_path_str + "};\n" );
+		// Arrival curve constraints
+		lp.addConstraint( new int[]{ foi_src_u, foi_src_t_foi_path, u, t_foi_path }, 
+							new double[]{ 1.0, -1.0, -alpha_foi_rate, alpha_foi_rate }, 
+							Relation.LE, alpha_foi_burst );
+		lp.addConstraint( new int[]{ foi_src_t_empty, foi_src_u, t_empty, u }, 
+							new double[]{ 1.0, -1.0, -alpha_foi_rate, alpha_foi_rate }, 
+							Relation.LE, alpha_foi_burst );
 		
-		objective.append( foi_str + "_" + foi_expl_src_str + "_t{}" );
-		objective.append( " - " );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " <= " );
-		objective.append( alpha_foi.getBurst().toString() );
-		objective.append( " + " );
-		objective.append( alpha_foi.getUltAffineRate() + "t{}" );
-		objective.append( " - " );
-		objective.append( alpha_foi.getUltAffineRate() + " u;" );
-
- 		pw.println( objective.toString() );
- 		pw.println( "\n" );
- 		pw.print( lpSolveConstraintsString() );
- 		
- 		pw.close();
+		addConstraints( lp );
+		
+		return lp;
 	}
 	
 	/**
-	 * Backlog at the flow of interest's sink.
-	 * The LP file created by this function can be read by LpSolve.
+	 * Creates the LP maximizing the backlog at the flow of interest's sink.
+	 * Identical constraints derived from the server graph are only contained once.
 	 */
-	public void saveBacklogLPv1( String output_path ) throws Exception {
-		File file = new File( output_path );
- 		Writer w = new OutputStreamWriter( new FileOutputStream(file), "UTF-8" );
- 		PrintWriter pw = new PrintWriter(w);
- 		
- 		Server foi_snk = flow_of_interest.getSink();
-		String foi_snk_str = flow_of_interest.getSink().getAlias();
-		
-		StringBuffer foi_path_strWr = new StringBuffer();
-		for( Server server : flow_of_interest.getPath().getServers() ) {
-			foi_path_strWr.append( server.getAlias() );
-		}
-		
-		StringBuffer objective = new StringBuffer();
-		
-		objective.append( "/* Objective: Backlog bound at server " + foi_snk_str + " */ \n" );
-		objective.append( "max: ");
+	public LinearProgram createBacklogLP() {
+		LinearProgram lp = new LinearProgram( true );
 		
 		Server prec_i_s;
-		for( Flow f : server_graph.getFlows( foi_snk ) ) {
+		for( Flow f : server_graph.getFlowSet( sink_of_interest ) ) {
 			try{
-				prec_i_s = f.getPrecedingServer( foi_snk );
-			} catch (Exception e) { // foi_snk is this flow's source 
+				prec_i_s = f.getPrecedingServer( sink_of_interest );
+			} catch (Exception e) { // sink_of_interest is this flow's source 
 				prec_i_s = explicit_src;
 			}
-			objective.append( " + " + f.getAlias() + "_" + prec_i_s.getAlias() + "_t{}" );
-			objective.append( " - " + f.getAlias() + "_" + foi_snk.getAlias() + "_t{}" );
+			lp.addObjectiveTerm( lp.getVariable( new FlowLocationTime( f, prec_i_s, empty_path ) ), 1.0 );
+			lp.addObjectiveTerm( lp.getVariable( new FlowLocationTime( f, sink_of_interest, empty_path ) ), -1.0 );
 		}
-		objective.append( ";\n" );
-
- 		pw.println( objective.toString() );
- 		pw.print( lpSolveConstraintsString() );
- 		
- 		pw.close();
+		
+		addConstraints( lp );
+		
+		return lp;
 	}
 	
-	private String lpSolveConstraintsString() {
-		StringBuffer result = new StringBuffer();
- 		
- 		result.append( "/* Temporal constraints */\n" );
- 		for( TemporalConstraint temp_constr : temp_constraints ) {
- 	 		result.append( temp_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		result.append( "\n/* Strict service constraints */\n" );
- 		for( NumericalConstraint s2c_constr : s2c_constraints ) {
- 	 		result.append( s2c_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		result.append( "\n/* Starts of backlogged periods */\n" );
- 		for( LogicalConstraint startBP_constr : startBP_constraints ) {
- 	 		result.append( startBP_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		if( flow_constr_hdr ) {
- 	 		result.append( "\n/* Flow constraints HDR*/\n" );
- 	 		for( LogicalConstraint flow_constr : flow_constraints_hdr ) {
- 	 	 		result.append( flow_constr.toString() );
- 	 	 		result.append( ";\n");
- 	 		}
- 		} else {
- 	 		result.append( "\n/* Flow constraints */\n" );
- 	 		for( LogicalConstraint flow_constr : flow_constraints ) {
- 	 	 		result.append( flow_constr.toString() );
- 	 	 		result.append( ";\n");
- 	 		}
- 		}
-
- 		result.append( "\n/* Non-decreasing functions */\n" );
- 		for( LogicalConstraint nonDecr_constr : nonDecreasing_constraints ) {
- 	 		result.append( nonDecr_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		result.append( "\n/* Non-decreasing functions at sources*/\n" );
- 		for( LogicalConstraint nonDecr_constr : nonDecreasingAtSource_constraints ) {
- 	 		result.append( nonDecr_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		result.append( "\n/* Arrival constraints */\n" );
- 		for( NumericalConstraint arrival_constr : arrival_constraints ) {
- 	 		result.append( arrival_constr.toString() );
- 	 		result.append( ";\n");
- 		}
-
- 		return result.toString();
+	private void addConstraints( LinearProgram lp ) {
+		for( TemporalConstraint temp_constr : temp_constraints ) {
+			temp_constr.addTo( lp );
+		}
+		for( NumericalConstraint s2c_constr : s2c_constraints ) {
+			s2c_constr.addTo( lp );
+		}
+		for( LogicalConstraint startBP_constr : startBP_constraints ) {
+			startBP_constr.addTo( lp );
+		}
+		for( LogicalConstraint flow_constr : flow_constr_hdr ? flow_constraints_hdr : flow_constraints ) {
+			flow_constr.addTo( lp );
+		}
+		for( LogicalConstraint nonDecr_constr : nonDecreasing_constraints ) {
+			nonDecr_constr.addTo( lp );
+		}
+		for( LogicalConstraint nonDecr_constr : nonDecreasingAtSource_constraints ) {
+			nonDecr_constr.addTo( lp );
+		}
+		for( NumericalConstraint arrival_constr : arrival_constraints ) {
+			arrival_constr.addTo( lp );
+		}
 	}
-
+	
 	/**
-	 * The LP file created by this function can be read by CPLEX and by Gurobi.
+	 * @return The delay bound of the flow of interest computed by the LP solver set in {@link AnalysisConfig#getLinearProgramSolver()}, 
+	 * 			NaN if the LP has no optimum.
 	 */
-	public void saveDelayLPv2( String output_path ) throws Exception {
- 		
- 		File file = new File( output_path );
- 		Writer w = new OutputStreamWriter( new FileOutputStream(file), "UTF-8" );
- 		PrintWriter pw = new PrintWriter(w);
- 		
- 		String foi_str = flow_of_interest.getAlias();
-		String foi_expl_src_str = explicit_src.getAlias();
-		String foi_snk_str = flow_of_interest.getSink().getAlias();
-		
-		StringBuffer foi_path_strWr = new StringBuffer();
-		for( Server server : flow_of_interest.getPath().getServers() ) {
-			foi_path_strWr.append( server.getAlias() );
-		}
-		String foi_path_str = foi_path_strWr.toString();
-		
-		ArrivalCurve alpha_foi = flow_of_interest.getArrivalCurve();
-		
-		StringBuffer objective = new StringBuffer();
-		
-		objective.append( "\\ Objective: Worst end-to-end delay for flow " + foi_str + "\n" );
-		objective.append( "Maximize\n" );
-		objective.append( "t{} - u" );
-		objective.append( "\n\n" );
-		
-		objective.append( "Subject To" );
-		objective.append( "\n\n" );
-		
-		objective.append( "\\ Insertion\n" );
-		objective.append( "\\ first(" + foi_str + ")-1 = " + foi_expl_src_str + "\n" );
-		objective.append( "\\ end(" + foi_str + ") = " + foi_snk_str  + "\n" );
-		objective.append( "\\ path from first to end: " + foi_path_str + "\n\n" );
-		
-		objective.append( "\\ Position\n" );
-		objective.append( "t{" + foi_path_str + "} - u <= 0" );
-		objective.append( "\n" );
-		objective.append( "u -t{} <= 0 ");
-		objective.append( "\n\n" );
-
-		objective.append( "\\ Monotony\n" );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " - " );
-		objective.append( foi_str + "_" + foi_snk_str + "_t{}" );
-		objective.append( " >= " );
-		objective.append( "0" );
-		objective.append( "\n\n" );
-
-		objective.append( "\\ Arrival curve constraints\n" );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " - " );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_t{" + foi_path_str + "}" );
-		objective.append( " - " );
-		objective.append( alpha_foi.getUltAffineRate() + " u" );
-		objective.append( " + " );
-		objective.append( alpha_foi.getUltAffineRate() + " t{" + foi_path_str + "}" );
-		objective.append( " <= " );
-		objective.append( alpha_foi.getBurst().toString() );
-		objective.append( "\n" );
-		
-		objective.append( foi_str + "_" + foi_expl_src_str + "_t{}" );
-		objective.append( " - " );
-		objective.append( foi_str + "_" + foi_expl_src_str + "_u" );
-		objective.append( " - " );
-		objective.append( alpha_foi.getUltAffineRate() + "t{}" );
-		objective.append( " + " );
-		objective.append( alpha_foi.getUltAffineRate() + " u" );
-		objective.append( " <= " );
-		objective.append( alpha_foi.getBurst().toString() );
-
- 		pw.println( objective.toString() );
- 		pw.println( "\n" );
- 		pw.flush();
- 		
- 		pw.println( "\\ Temporal constraints" );
- 		for( TemporalConstraint temp_constr : temp_constraints ) {
- 	 		pw.println( temp_constr.toCPLEXstring() );
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		pw.println( "\\ Strict service constraints" );
- 		for( NumericalConstraint s2c_constr : s2c_constraints ) {
- 	 		pw.println( s2c_constr.toCPLEXstring() );
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		pw.println( "\\ Starts of backlogged periods" );
- 		for( LogicalConstraint startBP_constr : startBP_constraints ) {
- 	 		pw.println( startBP_constr.toCPLEXstring() );
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		if( flow_constr_hdr ) {
- 	 		pw.println( "\\ Flow constraints HDR*/" );
- 	 		for( LogicalConstraint flow_constr : flow_constraints_hdr ) {
- 	 	 		pw.println( flow_constr.toCPLEXstring() );
- 	 		}
- 		} else {
- 	 		pw.println( "\\ Flow constraints" );
- 	 		for( LogicalConstraint flow_constr : flow_constraints ) {
- 	 	 		pw.println( flow_constr.toCPLEXstring() );
- 	 		}
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		pw.println( "\\ Non-decreasing functions" );
- 		for( LogicalConstraint nonDecr_constr : nonDecreasing_constraints ) {
- 	 		pw.println( nonDecr_constr.toCPLEXstring() );
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		pw.println( "\\ Non-decreasing functions at sources" );
- 		for( LogicalConstraint nonDecr_constr : nonDecreasingAtSource_constraints ) {
- 	 		pw.println( nonDecr_constr.toCPLEXstring() );
- 		}
- 		pw.println();
- 		pw.flush();
-
- 		pw.println( "\\ Arrival constraints" );
- 		for( NumericalConstraint arrival_constr : arrival_constraints ) {
- 	 		pw.println( arrival_constr.toCPLEXstring() );
- 		}
- 		pw.println();
-
- 		pw.println( "End" );
- 		
- 		pw.close();
+	public double solveDelayLP() throws Exception {
+		return solveDelayLP( AnalysisConfig.getLinearProgramSolver() );
+	}
+	
+	/**
+	 * @param solver	The LP solver.
+	 * @return The delay bound of the flow of interest, NaN if the LP has no optimum.
+	 */
+	public double solveDelayLP( LinearProgramSolver solver ) throws Exception {
+		return solver.solve( createDelayLP() ).getObjectiveValue();
+	}
+	
+	/**
+	 * @return The backlog bound at the flow of interest's sink computed by the LP solver set in {@link AnalysisConfig#getLinearProgramSolver()}, 
+	 * 			NaN if the LP has no optimum.
+	 */
+	public double solveBacklogLP() throws Exception {
+		return solveBacklogLP( AnalysisConfig.getLinearProgramSolver() );
+	}
+	
+	/**
+	 * @param solver	The LP solver.
+	 * @return The backlog bound at the flow of interest's sink, NaN if the LP has no optimum.
+	 */
+	public double solveBacklogLP( LinearProgramSolver solver ) throws Exception {
+		return solver.solve( createBacklogLP() ).getObjectiveValue();
 	}
 	
 	public static double cplexDelay( InputStream inputStream ) throws IOException {
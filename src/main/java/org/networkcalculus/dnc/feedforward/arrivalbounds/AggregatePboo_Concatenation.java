@@ -65,7 +65,7 @@ public class AggregatePboo_Concatenation extends AbstractArrivalBound implements
 	}
 
 	public Set<ArrivalCurve> computeArrivalBound(Turn turn, Flow flow_of_interest) throws Exception {
-		return computeArrivalBound(turn, server_graph.getFlows(turn), flow_of_interest);
+		return computeArrivalBound(turn, server_graph.getFlowSet(turn).copy(), flow_of_interest);
 	}
 
 	public Set<ArrivalCurve> computeArrivalBound(Turn turn, Set<Flow> f_xfcaller, Flow flow_of_interest)
@@ -79,7 +79,7 @@ public class AggregatePboo_Concatenation extends AbstractArrivalBound implements
 		// Get the servers on common sub-path of f_xfcaller flows crossing turn
 		// loi == location of interference
 		Server loi = turn.getDest();
-		Set<Flow> f_loi = server_graph.getFlows(loi);
+		Set<Flow> f_loi = server_graph.getFlowSet(loi);
 		Set<Flow> f_xfcaller_loi = SetUtils.getIntersection(f_loi, f_xfcaller);
 		f_xfcaller_loi.remove(flow_of_interest);
 		if (f_xfcaller_loi.size() == 0) {
@@ -109,12 +109,12 @@ public class AggregatePboo_Concatenation extends AbstractArrivalBound implements
 				turn_from_prev_s = null; // reset to null
 			}
 
-			Set<Flow> f_xxfcaller_server = server_graph.getFlows(server);
+			Set<Flow> f_xxfcaller_server = server_graph.getFlowSet(server).copy();
 			f_xxfcaller_server.removeAll(f_xfcaller);
 			f_xxfcaller_server.remove(flow_of_interest);
 
 			Set<Flow> f_xxfcaller_server_path = SetUtils.getIntersection(f_xxfcaller_server,
-					server_graph.getFlows(turn_from_prev_s));
+					server_graph.getFlowSet(turn_from_prev_s));
 
 			// Convert f_xfoi_server to f_xfoi_server_offpath
 			f_xxfcaller_server.removeAll(f_xxfcaller_server_path);
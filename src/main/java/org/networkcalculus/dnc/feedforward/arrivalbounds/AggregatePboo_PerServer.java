@@ -65,7 +65,7 @@ public class AggregatePboo_PerServer extends AbstractArrivalBound implements Arr
 	}
 
 	public Set<ArrivalCurve> computeArrivalBound(Turn turn, Flow flow_of_interest) throws Exception {
-		return computeArrivalBound(turn, server_graph.getFlows(turn), flow_of_interest);
+		return computeArrivalBound(turn, server_graph.getFlowSet(turn).copy(), flow_of_interest);
 	}
 
 	public Set<ArrivalCurve> computeArrivalBound(Turn turn, Set<Flow> f_xfcaller, Flow flow_of_interest)
@@ -79,7 +79,7 @@ public class AggregatePboo_PerServer extends AbstractArrivalBound implements Arr
 		// Get the servers on common sub-path of f_xfcaller flows crossing turn
 		// loi == location of interference
 		Server loi = turn.getDest();
-		Set<Flow> f_loi = server_graph.getFlows(loi);
+		Set<Flow> f_loi = server_graph.getFlowSet(loi);
 		Set<Flow> f_xfcaller_loi = SetUtils.getIntersection(f_loi, f_xfcaller);
 		f_xfcaller_loi.remove(flow_of_interest);
 		if (f_xfcaller_loi.size() == 0) {
@@ -112,12 +112,12 @@ public class AggregatePboo_PerServer extends AbstractArrivalBound implements Arr
 
 			Set<ServiceCurve> betas_lo_s;
 
-			Set<Flow> f_xxfcaller_server = server_graph.getFlows(server);
+			Set<Flow> f_xxfcaller_server = server_graph.getFlowSet(server).copy();
 			f_xxfcaller_server.removeAll(f_xfcaller);
 			f_xxfcaller_server.remove(flow_of_interest);
 
 			Set<Flow> f_xxfcaller_server_path = SetUtils.getIntersection(f_xxfcaller_server,
-					server_graph.getFlows(turn_from_prev_s));
+					server_graph.getFlowSet(turn_from_prev_s));
 
 			// Convert f_xfoi_server to f_xfoi_server_offpath
 			f_xxfcaller_server.removeAll(f_xxfcaller_server_path);
@@ -144,7 +144,7 @@ public class AggregatePboo_PerServer extends AbstractArrivalBound implements Arr
 			if (betas_lo_s.size() == 1
 					&& betas_lo_s.iterator().next().equals(Curve_ConstantPool.ZERO_SERVICE_CURVE.get())) {
 				System.out.println("No service left over during PBOO arrival bounding!");
-				alphas_xfcaller.clear();
+				alphas_xfcaller = new HashSet<ArrivalCurve>();
 				alphas_xfcaller.add(Curve.getFactory()
 						.createArrivalCurve((Curve)Curve_ConstantPool.INFINITE_SERVICE_CURVE.get()));
 				return alphas_xfcaller;
@@ -67,7 +67,7 @@ public class AggregateTandemMatching extends AbstractArrivalBound implements Arr
 	}
 	
 	public Set<ArrivalCurve> computeArrivalBound( Turn turn, Flow flow_of_interest ) throws Exception {
-		return computeArrivalBound( turn, server_graph.getFlows( turn ), flow_of_interest );
+		return computeArrivalBound( turn, server_graph.getFlowSet( turn ).copy(), flow_of_interest );
 	}
 	
 	public Set<ArrivalCurve> computeArrivalBound(Turn turn, Set<Flow> f_xfcaller, Flow flow_of_interest)
@@ -79,7 +79,7 @@ public class AggregateTandemMatching extends AbstractArrivalBound implements Arr
 		// Get the common sub-path of f_xfcaller flows crossing the given turn
 		// soi == server of interference
 		Server soi = turn.getDest();
-		Set<Flow> f_soi = server_graph.getFlows(soi);
+		Set<Flow> f_soi = server_graph.getFlowSet(soi);
 		Set<Flow> f_xfcaller_soi = SetUtils.getIntersection(f_soi, f_xfcaller);
 		f_xfcaller_soi.remove(flow_of_interest);
 		if (f_xfcaller_soi.isEmpty()) {
@@ -102,7 +102,7 @@ public class AggregateTandemMatching extends AbstractArrivalBound implements Arr
 		if (common_subpath.numServers() == 1) {
 			common_subpath = new Path(common_subpath_src);
 
-			Set<Flow> f_xxfcaller = server_graph.getFlows(common_subpath_src);
+			Set<Flow> f_xxfcaller = server_graph.getFlowSet(common_subpath_src).copy();
 			f_xxfcaller.removeAll(f_xfcaller_soi);
 			f_xxfcaller.remove(flow_of_interest);
 			Set<ArrivalCurve> alphas_xxfcaller = ArrivalBoundDispatch.computeArrivalBounds(server_graph, configuration,
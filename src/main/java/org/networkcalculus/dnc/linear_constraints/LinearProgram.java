@@ -0,0 +1,493 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.networkcalculus.dnc.network.server_graph.Path;
+
+/**
+ * Sparse in-memory representation of a linear program.
+ * 
+ * Variables are identified by typed keys, e.g., a {@link Path} for the time instant t{path} or 
+ * a {@link FlowLocationTime} for a flow's shape, and addressed by the dense index returned by 
+ * {@link #getVariable(Object)}. Their names are only derived when the program is serialized.
+ * Unless set otherwise, variables are bounded to [0, +inf), just like in the CPLEX LP format.
+ * 
+ * Constraints are stored with sorted variable and coefficient arrays in the canonical form
+ * <code>sum <= rhs</code> or <code>sum = rhs</code>. Thereby, identical constraints are
+ * detected and only added once. Strict relations are treated like their non-strict counterparts.
+ */
+public class LinearProgram {
+	private final ArrayList<Object> variable_keys = new ArrayList<Object>();
+	private final HashMap<Object,Integer> map__key__variable = new HashMap<Object,Integer>();
+	private double[] lower_bounds = new double[16];
+	private double[] upper_bounds = new double[16];
+	
+	private final boolean maximize;
+	private double[] objective = new double[16];
+	private double objective_constant = 0.0;
+	
+	private final ArrayList<Constraint> constraints = new ArrayList<Constraint>();
+	private final HashSet<Constraint> constraints_set = new HashSet<Constraint>();
+	private int duplicate_constraints = 0;
+	private boolean trivially_infeasible = false;
+	
+	public static class Constraint {
+		private final int[] variables;
+		private final double[] coefficients;
+		private final Relation relation;
+		private final double rhs;
+		
+		private final int hash;
+		
+		private Constraint( int[] variables, double[] coefficients, Relation relation, double rhs ) {
+			this.variables = variables;
+			this.coefficients = coefficients;
+			this.relation = relation;
+			this.rhs = rhs;
+			
+			hash = 31 * ( 31 * ( 31 * Arrays.hashCode( variables ) + Arrays.hashCode( coefficients ) ) 
+							+ relation.hashCode() ) + Double.hashCode( rhs );
+		}
+		
+		public int getNumTerms() {
+			return variables.length;
+		}
+		
+		/**
+		 * @param i	The term's position, terms are sorted by variable.
+		 * @return The term's variable.
+		 */
+		public int getVariable( int i ) {
+			return variables[i];
+		}
+		
+		/**
+		 * @param i	The term's position, terms are sorted by variable.
+		 * @return The term's non-zero coefficient.
+		 */
+		public double getCoefficient( int i ) {
+			return coefficients[i];
+		}
+		
+		/**
+		 * @return Either {@link Relation#LE} or {@link Relation#E}.
+		 */
+		public Relation getRelation() {
+			return relation;
+		}
+		
+		public double getRhs() {
+			return rhs;
+		}
+		
+		@Override
+		public boolean equals( Object obj ) {
+			if ( obj == null || !( obj instanceof Constraint ) ) {
+				return false;
+			}
+			
+			Constraint constraint = (Constraint) obj;
+			return hash == constraint.hash
+					&& relation == constraint.relation
+					&& Double.compare( rhs, constraint.rhs ) == 0
+					&& Arrays.equals( variables, constraint.variables )
+					&& Arrays.equals( coefficients, constraint.coefficients );
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+	
+	/**
+	 * @param maximize	Maximize the objective if true, minimize it otherwise.
+	 */
+	public LinearProgram( boolean maximize ) {
+		this.maximize = maximize;
+	}
+	
+	/**
+	 * @param key	The variable's key.
+	 * @return The variable's index, a new variable is created if there is none with the given key.
+	 */
+	public int getVariable( Object key ) {
+		Integer variable = map__key__variable.get( key );
+		if( variable == null ) {
+			variable = variable_keys.size();
+			variable_keys.add( key );
+			map__key__variable.put( key, variable );
+			
+			if( variable == objective.length ) {
+				int capacity = 2 * objective.length;
+				objective = Arrays.copyOf( objective, capacity );
+				lower_bounds = Arrays.copyOf( lower_bounds, capacity );
+				upper_bounds = Arrays.copyOf( upper_bounds, capacity );
+			}
+			lower_bounds[variable] = 0.0;
+			upper_bounds[variable] = Double.POSITIVE_INFINITY;
+		}
+		return variable;
+	}
+	
+	/**
+	 * @param key	The variable's key.
+	 * @return The variable's index, -1 if there is no variable with the given key.
+	 */
+	public int findVariable( Object key ) {
+		Integer variable = map__key__variable.get( key );
+		return variable == null ? -1 : variable;
+	}
+	
+	public Object getVariableKey( int variable ) {
+		return variable_keys.get( variable );
+	}
+	
+	/**
+	 * @param variable	The variable.
+	 * @return The variable's name in the LP formats, t{path} for paths and the key's string representation otherwise.
+	 */
+	public String getVariableName( int variable ) {
+		Object key = variable_keys.get( variable );
+		if( key instanceof Path ) {
+			return TemporalConstraint.toTimeVariableString( (Path) key );
+		}
+		return key.toString();
+	}
+	
+	public int getNumVariables() {
+		return variable_keys.size();
+	}
+	
+	public void setBounds( int variable, double lower_bound, double upper_bound ) {
+		checkVariable( variable );
+		if( lower_bound > upper_bound ) {
+			throw new IllegalArgumentException( "The lower bound of variable " + getVariableName( variable ) + " exceeds its upper bound." );
+		}
+		lower_bounds[variable] = lower_bound;
+		upper_bounds[variable] = upper_bound;
+	}
+	
+	public double getLowerBound( int variable ) {
+		checkVariable( variable );
+		return lower_bounds[variable];
+	}
+	
+	public double getUpperBound( int variable ) {
+		checkVariable( variable );
+		return upper_bounds[variable];
+	}
+	
+	private void checkVariable( int variable ) {
+		if( variable < 0 || variable >= variable_keys.size() ) {
+			throw new IllegalArgumentException( "Unknown variable " + variable + "." );
+		}
+	}
+	
+	public boolean isMaximization() {
+		return maximize;
+	}
+	
+	public void addObjectiveTerm( int variable, double coefficient ) {
+		checkVariable( variable );
+		objective[variable] += coefficient;
+	}
+	
+	public void setObjectiveConstant( double constant ) {
+		objective_constant = constant;
+	}
+	
+	public double getObjectiveCoefficient( int variable ) {
+		checkVariable( variable );
+		return objective[variable];
+	}
+	
+	public double getObjectiveConstant() {
+		return objective_constant;
+	}
+	
+	/**
+	 * Adds the constraint <code>sum_i coefficients[i] * variables[i] relation rhs</code>.
+	 * 
+	 * Terms of the same variable are merged and zero coefficients are dropped.
+	 * A constraint without variables is only kept if it is violated, i.e., it makes the program infeasible.
+	 * 
+	 * @param variables		The left side's variables, may contain a variable multiple times.
+	 * @param coefficients	The left side's coefficients.
+	 * @param relation		The relation between the left and the right side.
+	 * @param rhs			The right side's constant.
+	 * @return False if the constraint is redundant, i.e., it was added before or has no variables and is satisfied.
+	 */
+	public boolean addConstraint( int[] variables, double[] coefficients, Relation relation, double rhs ) {
+		if( variables.length != coefficients.length ) {
+			throw new IllegalArgumentException( "Every variable of a constraint requires a coefficient." );
+		}
+		
+		for( int variable : variables ) {
+			checkVariable( variable );
+		}
+		
+		// Sort the terms by variable (few terms per constraint, thus, insertion sort) and merge them.
+		int[] variables_sorted = Arrays.copyOf( variables, variables.length );
+		double[] coefficients_sorted = Arrays.copyOf( coefficients, coefficients.length );
+		for( int i = 1; i < variables_sorted.length; i++ ) {
+			int variable = variables_sorted[i];
+			double coefficient = coefficients_sorted[i];
+			
+			int j = i - 1;
+			while( j >= 0 && variables_sorted[j] > variable ) {
+				variables_sorted[j + 1] = variables_sorted[j];
+				coefficients_sorted[j + 1] = coefficients_sorted[j];
+				j--;
+			}
+			variables_sorted[j + 1] = variable;
+			coefficients_sorted[j + 1] = coefficient;
+		}
+		
+		// Non-strict canonical form: sum <= rhs or sum = rhs.
+		double sign = 1.0;
+		switch( relation ) {
+			case L:
+			case LE:
+			default:
+				relation = Relation.LE;
+				break;
+			case E:
+				break;
+			case GE:
+			case G:
+				relation = Relation.LE;
+				sign = -1.0;
+				break;
+		}
+		
+		int num_terms = 0;
+		for( int i = 0; i < variables_sorted.length; i++ ) {
+			if( num_terms > 0 && variables_sorted[num_terms - 1] == variables_sorted[i] ) {
+				coefficients_sorted[num_terms - 1] += sign * coefficients_sorted[i];
+			} else {
+				variables_sorted[num_terms] = variables_sorted[i];
+				coefficients_sorted[num_terms] = sign * coefficients_sorted[i];
+				num_terms++;
+			}
+		}
+		int num_non_zero = 0;
+		for( int i = 0; i < num_terms; i++ ) {
+			if( coefficients_sorted[i] != 0.0 ) {
+				variables_sorted[num_non_zero] = variables_sorted[i];
+				coefficients_sorted[num_non_zero] = coefficients_sorted[i];
+				num_non_zero++;
+			}
+		}
+		rhs = sign * rhs + 0.0; // + 0.0 turns -0.0 into 0.0
+		
+		if( relation == Relation.E && num_non_zero > 0 && coefficients_sorted[0] < 0 ) {
+			for( int i = 0; i < num_non_zero; i++ ) {
+				coefficients_sorted[i] = -coefficients_sorted[i];
+			}
+			rhs = -rhs + 0.0;
+		}
+		
+		if( num_non_zero == 0 ) {
+			if( relation == Relation.LE ? 0.0 <= rhs : 0.0 == rhs ) {
+				return false;
+			}
+			trivially_infeasible = true;
+		}
+		
+		Constraint constraint = new Constraint( Arrays.copyOf( variables_sorted, num_non_zero ), 
+												Arrays.copyOf( coefficients_sorted, num_non_zero ), 
+												relation, rhs );
+		if( !constraints_set.add( constraint ) ) {
+			duplicate_constraints++;
+			return false;
+		}
+		constraints.add( constraint );
+		return true;
+	}
+	
+	public int getNumConstraints() {
+		return constraints.size();
+	}
+	
+	public Constraint getConstraint( int i ) {
+		return constraints.get( i );
+	}
+	
+	public List<Constraint> getConstraints() {
+		return Collections.unmodifiableList( constraints );
+	}
+	
+	/**
+	 * @return The number of identical constraints that were not added again.
+	 */
+	public int getNumDuplicateConstraints() {
+		return duplicate_constraints;
+	}
+	
+	/**
+	 * @return True if a constraint without variables is violated.
+	 */
+	public boolean isTriviallyInfeasible() {
+		return trivially_infeasible;
+	}
+	
+	/**
+	 * @return The linear program in the CPLEX LP format.
+	 */
+	public String toCPLEXstring() {
+		StringBuffer lp_str = new StringBuffer();
+		
+		lp_str.append( maximize ? "Maximize\n" : "Minimize\n" );
+		lp_str.append( "obj: " );
+		appendObjective( lp_str );
+		lp_str.append( "\n" );
+		
+		lp_str.append( "Subject To\n" );
+		// Constraints without variables use the pseudo-variable c_0 that is bounded to 0.
+		for( int i = 0; i < constraints.size(); i++ ) {
+			lp_str.append( "c" + ( i + 1 ) + ": " );
+			appendConstraint( lp_str, constraints.get( i ) );
+			lp_str.append( "\n" );
+		}
+		
+		StringBuffer bounds_str = new StringBuffer();
+		for( int variable = 0; variable < variable_keys.size(); variable++ ) {
+			if( lower_bounds[variable] == 0.0 && upper_bounds[variable] == Double.POSITIVE_INFINITY ) {
+				continue;
+			}
+			if( lower_bounds[variable] == Double.NEGATIVE_INFINITY && upper_bounds[variable] == Double.POSITIVE_INFINITY ) {
+				bounds_str.append( getVariableName( variable ) + " free\n" );
+			} else {
+				bounds_str.append( toBoundString( lower_bounds[variable], "inf" ) + " <= " + getVariableName( variable ) 
+									+ " <= " + toBoundString( upper_bounds[variable], "inf" ) + "\n" );
+			}
+		}
+		if( trivially_infeasible ) {
+			bounds_str.append( "0 <= c_0 <= 0\n" );
+		}
+		if( bounds_str.length() > 0 ) {
+			lp_str.append( "Bounds\n" );
+			lp_str.append( bounds_str );
+		}
+		lp_str.append( "End\n" );
+		
+		return lp_str.toString();
+	}
+	
+	/**
+	 * @return The linear program in the LpSolve format.
+	 */
+	public String toLpSolveString() {
+		StringBuffer lp_str = new StringBuffer();
+		
+		lp_str.append( maximize ? "max: " : "min: " );
+		appendObjective( lp_str );
+		lp_str.append( ";\n\n" );
+		
+		for( int i = 0; i < constraints.size(); i++ ) {
+			lp_str.append( "c" + ( i + 1 ) + ": " );
+			appendConstraint( lp_str, constraints.get( i ) );
+			lp_str.append( ";\n" );
+		}
+		lp_str.append( "\n" );
+		
+		for( int variable = 0; variable < variable_keys.size(); variable++ ) {
+			if( lower_bounds[variable] != 0.0 ) {
+				lp_str.append( getVariableName( variable ) + " >= " + toBoundString( lower_bounds[variable], "1e30" ) + ";\n" );
+			}
+			if( upper_bounds[variable] != Double.POSITIVE_INFINITY ) {
+				lp_str.append( getVariableName( variable ) + " <= " + toBoundString( upper_bounds[variable], "1e30" ) + ";\n" );
+			}
+		}
+		if( trivially_infeasible ) {
+			lp_str.append( "c_0 = 0;\n" );
+		}
+		
+		return lp_str.toString();
+	}
+	
+	private void appendObjective( StringBuffer lp_str ) {
+		boolean first = true;
+		for( int variable = 0; variable < variable_keys.size(); variable++ ) {
+			if( objective[variable] == 0.0 ) {
+				continue;
+			}
+			appendCoefficient( lp_str, objective[variable], first );
+			lp_str.append( " " );
+			lp_str.append( getVariableName( variable ) );
+			first = false;
+		}
+		// The constant term has to come last in the LP format.
+		if( objective_constant != 0.0 || first ) {
+			appendCoefficient( lp_str, objective_constant, first );
+		}
+	}
+	
+	private void appendConstraint( StringBuffer lp_str, Constraint constraint ) {
+		if( constraint.variables.length == 0 ) {
+			lp_str.append( "c_0" );
+		}
+		for( int i = 0; i < constraint.variables.length; i++ ) {
+			appendCoefficient( lp_str, constraint.coefficients[i], i == 0 );
+			lp_str.append( " " );
+			lp_str.append( getVariableName( constraint.variables[i] ) );
+		}
+		lp_str.append( constraint.relation == Relation.E ? " = " : " <= " );
+		lp_str.append( Double.toString( constraint.rhs ) );
+	}
+	
+	private static void appendCoefficient( StringBuffer lp_str, double coefficient, boolean first ) {
+		if( coefficient < 0 ) {
+			lp_str.append( first ? "- " : " - " );
+			lp_str.append( Double.toString( -coefficient ) );
+		} else {
+			lp_str.append( first ? "" : " + " );
+			lp_str.append( Double.toString( coefficient ) );
+		}
+	}
+	
+	private static String toBoundString( double bound, String infinity ) {
+		if( bound == Double.POSITIVE_INFINITY ) {
+			return "+" + infinity;
+		}
+		if( bound == Double.NEGATIVE_INFINITY ) {
+			return "-" + infinity;
+		}
+		return Double.toString( bound );
+	}
+	
+	@Override
+	public String toString() {
+		return toCPLEXstring();
+	}
+}
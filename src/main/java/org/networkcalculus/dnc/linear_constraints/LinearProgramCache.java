@@ -0,0 +1,412 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.networkcalculus.dnc.feedforward.PersistentCurveCache;
+
+/**
+ * Caches the solutions of linear programs by their canonical form.
+ * 
+ * Linear programs that only differ in the numbering of their variables or the order of their constraints 
+ * share the canonical form: variables are ordered by their occurrences in the objective, bounds and constraints, 
+ * the constraints are renumbered accordingly and sorted. 
+ * Variables with equal occurrences keep their relative order, thus, some equivalent programs are not detected.
+ * A cached solution is only reused for a program of exactly the same canonical form and solver.
+ * 
+ * Equivalent programs can have different optimal solutions. Therefore, the canonical program is solved 
+ * rather than the one that caused the miss: a program's solution only depends on its canonical form and the solver, 
+ * not on which programs were solved and cached before, e.g., by other analyses. 
+ * 
+ * The cache is bounded by the number of solutions, least recently used solutions are evicted first.
+ * Optionally, solutions not cached in memory are looked up in a {@link PersistentCurveCache}, 
+ * e.g., to reuse them across runs.
+ */
+public class LinearProgramCache {
+	/**
+	 * The canonical form of a linear program, the solver to solve it with, 
+	 * and the mapping of its variables to the program's.
+	 */
+	static class CanonicalForm {
+		private final String solver;
+		private final long[] key;
+		private final int hash;
+		// Canonical variable index -> the program's variable index.
+		private final int[] variables;
+		
+		private CanonicalForm( String solver, long[] key, int[] variables ) {
+			this.solver = solver;
+			this.key = key;
+			this.hash = 31 * Arrays.hashCode( key ) + solver.hashCode();
+			this.variables = variables;
+		}
+		
+		/**
+		 * @return The canonical program, its variables are numbered as in the canonical form.
+		 */
+		LinearProgram toLinearProgram() {
+			int pos = 0;
+			LinearProgram lp = new LinearProgram( key[pos++] == 1 );
+			lp.setObjectiveConstant( Double.longBitsToDouble( key[pos++] ) );
+			
+			int num_variables = (int) key[pos++];
+			for( int i = 0; i < num_variables; i++ ) {
+				int variable = lp.getVariable( "x" + i );
+				lp.addObjectiveTerm( variable, Double.longBitsToDouble( key[pos++] ) );
+				double lower_bound = Double.longBitsToDouble( key[pos++] );
+				double upper_bound = Double.longBitsToDouble( key[pos++] );
+				lp.setBounds( variable, lower_bound, upper_bound );
+			}
+			
+			while( pos < key.length ) {
+				Relation relation = Relation.values()[(int) key[pos++]];
+				double rhs = Double.longBitsToDouble( key[pos++] );
+				int num_terms = (int) key[pos++];
+				int[] variables = new int[num_terms];
+				double[] coefficients = new double[num_terms];
+				for( int i = 0; i < num_terms; i++ ) {
+					variables[i] = (int) key[pos++];
+					coefficients[i] = Double.longBitsToDouble( key[pos++] );
+				}
+				lp.addConstraint( variables, coefficients, relation, rhs );
+			}
+			return lp;
+		}
+		
+		/**
+		 * @return Description of the canonical program and the solver for the persistent cache.
+		 */
+		private String toContent() {
+			StringBuffer content = new StringBuffer();
+			content.append( "LinearProgram " );
+			content.append( solver );
+			content.append( "\n" );
+			for( long key_element : key ) {
+				content.append( Long.toHexString( key_element ) );
+				content.append( " " );
+			}
+			return content.toString();
+		}
+		
+		LinearProgramSolution fromCanonical( LinearProgramSolution solution ) {
+			if( !solution.isOptimal() ) {
+				return solution;
+			}
+			double[] values = new double[variables.length];
+			for( int i = 0; i < variables.length; i++ ) {
+				values[variables[i]] = solution.getValue( i );
+			}
+			return new LinearProgramSolution( solution.getObjectiveValue(), values );
+		}
+		
+		@Override
+		public boolean equals( Object obj ) {
+			if ( obj == null || !( obj instanceof CanonicalForm ) ) {
+				return false;
+			}
+			
+			CanonicalForm canonical_form = (CanonicalForm) obj;
+			return hash == canonical_form.hash && Arrays.equals( key, canonical_form.key ) && solver.equals( canonical_form.solver );
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+	
+	private final int max_solutions;
+	private final LinkedHashMap<CanonicalForm,LinearProgramSolution> solutions;
+	
+	// Null if disabled.
+	private volatile PersistentCurveCache persistent_cache = null;
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * @param max_solutions	Maximum number of cached solutions, at least 1.
+	 */
+	public LinearProgramCache( int max_solutions ) {
+		if( max_solutions < 1 ) {
+			throw new IllegalArgumentException( "The cache must be able to hold at least one solution." );
+		}
+		this.max_solutions = max_solutions;
+		
+		solutions = new LinkedHashMap<CanonicalForm,LinearProgramSolution>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<CanonicalForm,LinearProgramSolution> eldest ) {
+				if( size() > LinearProgramCache.this.max_solutions ) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Sets a persistent cache to be consulted for solutions that are not cached in memory. 
+	 * Solutions are persisted when they are added to this cache.
+	 * 
+	 * @param persistent_cache	The persistent cache, null to disable it.
+	 */
+	public void setPersistentCache( PersistentCurveCache persistent_cache ) {
+		this.persistent_cache = persistent_cache;
+	}
+	
+	public PersistentCurveCache getPersistentCache() {
+		return persistent_cache;
+	}
+	
+	public int getMaxSolutions() {
+		return max_solutions;
+	}
+	
+	public int size() {
+		synchronized( solutions ) {
+			return solutions.size();
+		}
+	}
+	
+	public long getHitCount() {
+		return hits.sum();
+	}
+	
+	public long getMissCount() {
+		return misses.sum();
+	}
+	
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+	
+	/**
+	 * @return The ratio of linear programs answered from the cache, 0 if there were no lookups yet.
+	 */
+	public double getHitRate() {
+		long hit_count = hits.sum();
+		long lookup_count = hit_count + misses.sum();
+		return lookup_count == 0 ? 0.0 : (double) hit_count / lookup_count;
+	}
+	
+	public void clear() {
+		synchronized( solutions ) {
+			solutions.clear();
+		}
+	}
+	
+	/**
+	 * @param canonical_form	The canonical form of a linear program.
+	 * @return The cached solution in terms of the canonical variables, null if there is none.
+	 */
+	LinearProgramSolution getCanonical( CanonicalForm canonical_form ) {
+		LinearProgramSolution canonical_solution;
+		synchronized( solutions ) {
+			canonical_solution = solutions.get( canonical_form );
+		}
+		
+		PersistentCurveCache persistent_cache = this.persistent_cache;
+		if( canonical_solution == null && persistent_cache != null ) {
+			canonical_solution = persistent_cache.loadLinearProgramSolution( canonical_form.toContent() );
+			if( canonical_solution != null ) {
+				synchronized( solutions ) {
+					solutions.put( canonical_form, canonical_solution );
+				}
+			}
+		}
+		
+		if( canonical_solution == null ) {
+			misses.increment();
+		} else {
+			hits.increment();
+		}
+		return canonical_solution;
+	}
+	
+	// Linear programs answered without a lookup, e.g., duplicates within a batch.
+	void countHits( int count ) {
+		hits.add( count );
+	}
+	
+	/**
+	 * @param canonical_form		The canonical form of a linear program.
+	 * @param canonical_solution	The program's solution in terms of the canonical variables.
+	 */
+	void putCanonical( CanonicalForm canonical_form, LinearProgramSolution canonical_solution ) {
+		// Solutions without a definite status may be different when solving again.
+		if( canonical_solution.getStatus() == LinearProgramSolution.Status.UNKNOWN ) {
+			return;
+		}
+		synchronized( solutions ) {
+			solutions.put( canonical_form, canonical_solution );
+		}
+		
+		PersistentCurveCache persistent_cache = this.persistent_cache;
+		if( persistent_cache != null ) {
+			persistent_cache.storeLinearProgramSolution( canonical_form.toContent(), canonical_solution );
+		}
+	}
+	
+	/**
+	 * @param lp		The linear program.
+	 * @param solver	The solver to solve the canonical program with.
+	 * @return The linear program's canonical form.
+	 */
+	static CanonicalForm canonicalize( LinearProgram lp, LinearProgramSolver solver ) {
+		int num_variables = lp.getNumVariables();
+		int num_constraints = lp.getNumConstraints();
+		
+		// Order the variables by their occurrences, i.e., the occurrences' descriptors in ascending order.
+		long[][] variable_occurrences = new long[num_variables][];
+		int[] num_occurrences = new int[num_variables];
+		for( LinearProgram.Constraint constraint : lp.getConstraints() ) {
+			for( int i = 0; i < constraint.getNumTerms(); i++ ) {
+				num_occurrences[constraint.getVariable( i )]++;
+			}
+		}
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			variable_occurrences[variable] = new long[3 + num_occurrences[variable]];
+			variable_occurrences[variable][0] = bits( lp.getObjectiveCoefficient( variable ) );
+			variable_occurrences[variable][1] = bits( lp.getLowerBound( variable ) );
+			variable_occurrences[variable][2] = bits( lp.getUpperBound( variable ) );
+			num_occurrences[variable] = 3;
+		}
+		for( LinearProgram.Constraint constraint : lp.getConstraints() ) {
+			long constraint_descriptor = 31 * ( 31 * bits( constraint.getRhs() ) + constraint.getRelation().ordinal() ) + constraint.getNumTerms();
+			for( int i = 0; i < constraint.getNumTerms(); i++ ) {
+				int variable = constraint.getVariable( i );
+				variable_occurrences[variable][num_occurrences[variable]++] = 31 * constraint_descriptor + bits( constraint.getCoefficient( i ) );
+			}
+		}
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			Arrays.sort( variable_occurrences[variable], 3, variable_occurrences[variable].length );
+		}
+		
+		Integer[] variables_ordered = new Integer[num_variables];
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			variables_ordered[variable] = variable;
+		}
+		// Stable sort, equal variables keep their order.
+		Arrays.sort( variables_ordered, Comparator.comparing( variable -> variable_occurrences[variable], LinearProgramCache::compare ) );
+		
+		int[] variables = new int[num_variables];
+		int[] map__variable__canonical_variable = new int[num_variables];
+		for( int i = 0; i < num_variables; i++ ) {
+			variables[i] = variables_ordered[i];
+			map__variable__canonical_variable[variables_ordered[i]] = i;
+		}
+		
+		// Renumber the constraints, each one is encoded as: relation, rhs, number of terms, (variable, coefficient)*.
+		long[][] constraints = new long[num_constraints][];
+		for( int c = 0; c < num_constraints; c++ ) {
+			LinearProgram.Constraint constraint = lp.getConstraint( c );
+			int num_terms = constraint.getNumTerms();
+			
+			long[] terms = new long[num_terms];
+			for( int i = 0; i < num_terms; i++ ) {
+				// The term's position in the constraint is restored after sorting.
+				terms[i] = ( (long) map__variable__canonical_variable[constraint.getVariable( i )] << 32 ) | i;
+			}
+			Arrays.sort( terms );
+			
+			// Equalities are normalized to a positive first coefficient, see LinearProgram.addConstraint.
+			double sign = 1.0;
+			if( constraint.getRelation() == Relation.E && num_terms > 0 
+					&& constraint.getCoefficient( (int) terms[0] ) < 0 ) {
+				sign = -1.0;
+			}
+			
+			long[] encoded = new long[3 + 2 * num_terms];
+			encoded[0] = constraint.getRelation().ordinal();
+			encoded[1] = bits( sign * constraint.getRhs() );
+			encoded[2] = num_terms;
+			for( int i = 0; i < num_terms; i++ ) {
+				encoded[3 + 2 * i] = terms[i] >>> 32;
+				encoded[4 + 2 * i] = bits( sign * constraint.getCoefficient( (int) terms[i] ) );
+			}
+			constraints[c] = encoded;
+		}
+		Arrays.sort( constraints, LinearProgramCache::compare );
+		
+		// Key: maximize, objective constant, number of variables, (objective coefficient, lower bound, upper bound)*, constraints.
+		int key_length = 3 + 3 * num_variables;
+		for( long[] constraint : constraints ) {
+			key_length += constraint.length;
+		}
+		long[] key = new long[key_length];
+		int pos = 0;
+		key[pos++] = lp.isMaximization() ? 1 : 0;
+		key[pos++] = bits( lp.getObjectiveConstant() );
+		key[pos++] = num_variables;
+		for( int variable : variables ) {
+			System.arraycopy( variable_occurrences[variable], 0, key, pos, 3 );
+			pos += 3;
+		}
+		for( long[] constraint : constraints ) {
+			System.arraycopy( constraint, 0, key, pos, constraint.length );
+			pos += constraint.length;
+		}
+		
+		return new CanonicalForm( solver.toString(), key, variables );
+	}
+	
+	private static long bits( double value ) {
+		return Double.doubleToLongBits( value + 0.0 ); // + 0.0 turns -0.0 into 0.0
+	}
+	
+	private static int compare( long[] array_1, long[] array_2 ) {
+		int length = Math.min( array_1.length, array_2.length );
+		for( int i = 0; i < length; i++ ) {
+			int comparison = Long.compare( array_1[i], array_2[i] );
+			if( comparison != 0 ) {
+				return comparison;
+			}
+		}
+		return Integer.compare( array_1.length, array_2.length );
+	}
+	
+	@Override
+	public String toString() {
+		StringBuffer cache_str = new StringBuffer();
+		cache_str.append( "LP cache: " );
+		cache_str.append( size() );
+		cache_str.append( "/" );
+		cache_str.append( max_solutions );
+		cache_str.append( " solutions, hits: " );
+		cache_str.append( getHitCount() );
+		cache_str.append( ", misses: " );
+		cache_str.append( getMissCount() );
+		return cache_str.toString();
+	}
+}
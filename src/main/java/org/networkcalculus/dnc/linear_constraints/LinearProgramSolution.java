@@ -0,0 +1,100 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+/**
+ * The result of solving a {@link LinearProgram}.
+ */
+public class LinearProgramSolution {
+	public enum Status {
+		OPTIMAL,
+		INFEASIBLE,
+		UNBOUNDED,
+		UNKNOWN
+	}
+	
+	private final Status status;
+	private final double objective_value;
+	private final double[] values;
+	
+	public LinearProgramSolution( double objective_value, double[] values ) {
+		this.status = Status.OPTIMAL;
+		this.objective_value = objective_value;
+		this.values = values;
+	}
+	
+	public LinearProgramSolution( Status status ) {
+		if( status == Status.OPTIMAL ) {
+			throw new IllegalArgumentException( "An optimal solution requires an objective value and the variables' values." );
+		}
+		this.status = status;
+		this.objective_value = Double.NaN;
+		this.values = new double[0];
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	public boolean isOptimal() {
+		return status == Status.OPTIMAL;
+	}
+	
+	/**
+	 * @return The optimal objective value including the objective's constant, NaN if no optimum was found.
+	 */
+	public double getObjectiveValue() {
+		return objective_value;
+	}
+	
+	/**
+	 * @return The number of variables with a value, 0 if no optimum was found.
+	 */
+	public int getNumValues() {
+		return values.length;
+	}
+	
+	/**
+	 * @param variable	The variable's index in the solved linear program.
+	 * @return The variable's value in the optimum.
+	 */
+	public double getValue( int variable ) {
+		if( !isOptimal() ) {
+			throw new IllegalStateException( "There are no variable values without an optimal solution, status: " + status );
+		}
+		return values[variable];
+	}
+	
+	@Override
+	public String toString() {
+		StringBuffer solution_str = new StringBuffer();
+		solution_str.append( status );
+		if( isOptimal() ) {
+			solution_str.append( ", objective = " );
+			solution_str.append( objective_value );
+		}
+		return solution_str.toString();
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+/**
+ * Solves linear programs given in memory. The solver to use by the analyses is set in 
+ * {@link org.networkcalculus.dnc.AnalysisConfig#lp_solver}.
+ */
+public interface LinearProgramSolver {
+	/**
+	 * @param lp	The linear program.
+	 * @return The solution, its status tells whether an optimum was found.
+	 * @throws Exception Solving failed for reasons other than infeasibility or unboundedness.
+	 */
+	LinearProgramSolution solve( LinearProgram lp ) throws Exception;
+}
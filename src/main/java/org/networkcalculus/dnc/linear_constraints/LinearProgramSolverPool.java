@@ -0,0 +1,290 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves batches of independent linear programs concurrently with a bounded number of threads.
+ * Optionally, solutions are looked up in and added to a {@link LinearProgramCache}. 
+ * Programs of a batch that share their canonical form are only solved once.
+ * 
+ * Pools are created per analysis and count the programs solved for it. 
+ * Pools of the same parallelism share their worker threads and solver slots, i.e., 
+ * the parallelism bounds the number of linear programs solved at the same time by all of them together, 
+ * no matter how many analyses run concurrently. 
+ * For solvers relying on external processes, it bounds the number of concurrently running processes.
+ * 
+ * The worker threads are daemons that terminate when idle, thus, a pool does not need to be shut down.
+ * The time spent solving is accumulated across threads, time spent waiting for a solver slot is not.
+ */
+public class LinearProgramSolverPool {
+	private static final AtomicInteger pool_id = new AtomicInteger();
+	
+	private static final Map<Integer,SharedSolvers> map__parallelism__shared_solvers = new ConcurrentHashMap<Integer,SharedSolvers>();
+	
+	// Worker threads and solver slots shared by all pools of the same parallelism.
+	private static class SharedSolvers {
+		private final int parallelism;
+		// Held by every thread while solving, including the threads calling the pools.
+		private final Semaphore slots;
+		
+		// Created on first concurrent use.
+		private ThreadPoolExecutor executor = null;
+		
+		private SharedSolvers( int parallelism ) {
+			this.parallelism = parallelism;
+			this.slots = new Semaphore( parallelism, true );
+		}
+		
+		private synchronized ThreadPoolExecutor getExecutor() {
+			if( executor == null ) {
+				String thread_name_prefix = "lp-solver-" + pool_id.incrementAndGet() + "-";
+				AtomicInteger thread_id = new AtomicInteger();
+				
+				// Threads waiting for a slot do not solve, the slots bound the number of solving threads.
+				executor = new ThreadPoolExecutor( parallelism, parallelism, 
+													1, TimeUnit.SECONDS, 
+													new LinkedBlockingQueue<Runnable>(), 
+													runnable -> {
+														Thread thread = new Thread( runnable, thread_name_prefix + thread_id.incrementAndGet() );
+														thread.setDaemon( true );
+														return thread;
+													} );
+				executor.allowCoreThreadTimeOut( true );
+			}
+			return executor;
+		}
+	}
+	
+	private final LinearProgramSolver solver;
+	private final int parallelism;
+	// Null if solutions are not cached.
+	private final LinearProgramCache cache;
+	
+	private final SharedSolvers shared_solvers;
+	
+	private final LongAdder solved = new LongAdder();
+	private final LongAdder solving_time = new LongAdder();
+	
+	/**
+	 * @param solver		The solver, it needs to support concurrent calls if <code>parallelism</code> is larger than 1.
+	 * @param parallelism	Maximum number of linear programs solved at the same time by all pools of this parallelism.
+	 */
+	public LinearProgramSolverPool( LinearProgramSolver solver, int parallelism ) {
+		this( solver, parallelism, null );
+	}
+	
+	/**
+	 * @param solver		The solver, it needs to support concurrent calls if <code>parallelism</code> is larger than 1.
+	 * @param parallelism	Maximum number of linear programs solved at the same time by all pools of this parallelism.
+	 * @param cache			The cache of solutions, may be shared by pools. Null disables caching.
+	 */
+	public LinearProgramSolverPool( LinearProgramSolver solver, int parallelism, LinearProgramCache cache ) {
+		if( parallelism < 1 ) {
+			throw new IllegalArgumentException( "Parallelism must be at least 1." );
+		}
+		this.solver = solver;
+		this.parallelism = parallelism;
+		this.cache = cache;
+		this.shared_solvers = map__parallelism__shared_solvers.computeIfAbsent( parallelism, SharedSolvers::new );
+	}
+	
+	public LinearProgramSolver getSolver() {
+		return solver;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @return The cache of solutions, null if solutions are not cached.
+	 */
+	public LinearProgramCache getCache() {
+		return cache;
+	}
+	
+	public LinearProgramSolution solve( LinearProgram lp ) throws Exception {
+		if( cache == null ) {
+			return solveUncached( lp );
+		}
+		
+		LinearProgramCache.CanonicalForm canonical_form = LinearProgramCache.canonicalize( lp, solver );
+		LinearProgramSolution canonical_solution = cache.getCanonical( canonical_form );
+		if( canonical_solution == null ) {
+			// The canonical program is solved instead of the given one, 
+			// thus, the solution does not depend on which programs were cached before.
+			canonical_solution = solveUncached( canonical_form.toLinearProgram() );
+			cache.putCanonical( canonical_form, canonical_solution );
+		}
+		return canonical_form.fromCanonical( canonical_solution );
+	}
+	
+	private LinearProgramSolution solveUncached( LinearProgram lp ) throws Exception {
+		shared_solvers.slots.acquire();
+		long start = System.nanoTime();
+		try {
+			return solver.solve( lp );
+		} finally {
+			solving_time.add( System.nanoTime() - start );
+			solved.increment();
+			shared_solvers.slots.release();
+		}
+	}
+	
+	/**
+	 * @param lps	Independent linear programs.
+	 * @return The solutions in the order of the given linear programs.
+	 * @throws Exception The exception of the first linear program that could not be solved.
+	 */
+	public List<LinearProgramSolution> solveAll( List<LinearProgram> lps ) throws Exception {
+		if( cache == null ) {
+			return solveAllUncached( lps );
+		}
+		
+		LinearProgramSolution[] solutions = new LinearProgramSolution[lps.size()];
+		
+		// Look up every canonical form once, the remaining programs are solved once per canonical form.
+		LinearProgramCache.CanonicalForm[] canonical_forms = new LinearProgramCache.CanonicalForm[lps.size()];
+		Map<LinearProgramCache.CanonicalForm,List<Integer>> map__canonical_form__lp_indices = new HashMap<LinearProgramCache.CanonicalForm,List<Integer>>();
+		for( int i = 0; i < lps.size(); i++ ) {
+			canonical_forms[i] = LinearProgramCache.canonicalize( lps.get( i ), solver );
+			List<Integer> lp_indices = map__canonical_form__lp_indices.get( canonical_forms[i] );
+			if( lp_indices == null ) {
+				lp_indices = new ArrayList<Integer>();
+				map__canonical_form__lp_indices.put( canonical_forms[i], lp_indices );
+			} else {
+				cache.countHits( 1 );
+			}
+			lp_indices.add( i );
+		}
+		
+		List<List<Integer>> lp_indices_to_solve = new ArrayList<List<Integer>>();
+		List<LinearProgram> lps_to_solve = new ArrayList<LinearProgram>();
+		for( List<Integer> lp_indices : map__canonical_form__lp_indices.values() ) {
+			LinearProgramSolution canonical_solution = cache.getCanonical( canonical_forms[lp_indices.get( 0 )] );
+			if( canonical_solution == null ) {
+				lp_indices_to_solve.add( lp_indices );
+				lps_to_solve.add( canonical_forms[lp_indices.get( 0 )].toLinearProgram() );
+			} else {
+				for( int i : lp_indices ) {
+					solutions[i] = canonical_forms[i].fromCanonical( canonical_solution );
+				}
+			}
+		}
+		
+		// The canonical programs are solved, see solve.
+		List<LinearProgramSolution> solutions_solved = solveAllUncached( lps_to_solve );
+		for( int j = 0; j < lps_to_solve.size(); j++ ) {
+			List<Integer> lp_indices = lp_indices_to_solve.get( j );
+			LinearProgramSolution canonical_solution = solutions_solved.get( j );
+			cache.putCanonical( canonical_forms[lp_indices.get( 0 )], canonical_solution );
+			
+			// Programs of the same canonical form may number their variables differently.
+			for( int i : lp_indices ) {
+				solutions[i] = canonical_forms[i].fromCanonical( canonical_solution );
+			}
+		}
+		
+		return Arrays.asList( solutions );
+	}
+	
+	private List<LinearProgramSolution> solveAllUncached( List<LinearProgram> lps ) throws Exception {
+		List<LinearProgramSolution> solutions = new ArrayList<LinearProgramSolution>( lps.size() );
+		if( parallelism == 1 || lps.size() < 2 ) {
+			for( LinearProgram lp : lps ) {
+				solutions.add( solveUncached( lp ) );
+			}
+			return solutions;
+		}
+		
+		// The calling thread solves the first linear program itself instead of idling.
+		ThreadPoolExecutor executor = shared_solvers.getExecutor();
+		List<Future<LinearProgramSolution>> futures = new ArrayList<Future<LinearProgramSolution>>( lps.size() - 1 );
+		try {
+			for( LinearProgram lp : lps.subList( 1, lps.size() ) ) {
+				futures.add( executor.submit( () -> solveUncached( lp ) ) );
+			}
+			solutions.add( solveUncached( lps.get( 0 ) ) );
+			for( Future<LinearProgramSolution> future : futures ) {
+				try {
+					solutions.add( future.get() );
+				} catch ( ExecutionException e ) {
+					if( e.getCause() instanceof Exception ) {
+						throw (Exception) e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			for( Future<LinearProgramSolution> future : futures ) {
+				future.cancel( true );
+			}
+		}
+		return solutions;
+	}
+	
+	/**
+	 * @return The number of solved linear programs.
+	 */
+	public long getNumSolved() {
+		return solved.sum();
+	}
+	
+	/**
+	 * @return The time spent solving in nanoseconds, summed over all threads.
+	 */
+	public long getSolvingTime() {
+		return solving_time.sum();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuffer pool_str = new StringBuffer();
+		pool_str.append( solver );
+		pool_str.append( " x" );
+		pool_str.append( parallelism );
+		pool_str.append( ", solved: " );
+		pool_str.append( getNumSolved() );
+		pool_str.append( ", solving time: " );
+		pool_str.append( getSolvingTime() / 1000000 );
+		pool_str.append( "ms" );
+		return pool_str.toString();
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import org.networkcalculus.dnc.AnalysisConfig;
+
+/**
+ * Solves linear programs with an external CPLEX executable.
+ * 
+ * The linear program is written to a uniquely named file in {@link AnalysisConfig#path_to_lp_dir} 
+ * in the CPLEX LP format and CPLEX is started from {@link AnalysisConfig#path_to_cplex}.
+ */
+public class LinearProgramSolver_CPLEX implements LinearProgramSolver {
+	private boolean keep_lp_files = false;
+	
+	public LinearProgramSolver_CPLEX() {
+	}
+	
+	/**
+	 * @param keep_lp_files	Do not delete the LP files after solving them.
+	 */
+	public LinearProgramSolver_CPLEX( boolean keep_lp_files ) {
+		this.keep_lp_files = keep_lp_files;
+	}
+	
+	/**
+	 * Concurrent calls are supported, every linear program is written to a file with a unique name.
+	 */
+	@Override
+	public LinearProgramSolution solve( LinearProgram lp ) throws Exception {
+		if( lp.isTriviallyInfeasible() ) {
+			return new LinearProgramSolution( LinearProgramSolution.Status.INFEASIBLE );
+		}
+		
+		File lp_dir = AnalysisConfig.path_to_lp_dir.isEmpty() ? new File( "." ) : new File( AnalysisConfig.path_to_lp_dir );
+		File file_lp = File.createTempFile( "lp_", ".lp", lp_dir );
+		
+		try {
+			Writer w_lp = new OutputStreamWriter( new FileOutputStream( file_lp ), StandardCharsets.UTF_8 );
+			PrintWriter pw_lp = new PrintWriter( w_lp );
+			pw_lp.print( lp.toCPLEXstring() );
+			pw_lp.flush();
+			pw_lp.close();
+			
+			// CPLEX runs in its own directory, thus, the LP file is referenced by its absolute path.
+			ProcessBuilder pb_cplex = new ProcessBuilder( "./cplex", "-c", "read", file_lp.getAbsolutePath(), "lp", "optimize", "Display solution variables -", "quit" );
+			pb_cplex.directory( new File( AnalysisConfig.path_to_cplex ) );
+			pb_cplex.redirectErrorStream( true );
+			Process process_cplex = pb_cplex.start();
+			
+			try {
+				LinearProgramSolution solution = parseSolution( lp, process_cplex.getInputStream() );
+				process_cplex.waitFor();
+				return solution;
+			} finally {
+				process_cplex.destroy();
+			}
+		} finally {
+			if( !keep_lp_files ) {
+				file_lp.delete();
+			}
+		}
+	}
+	
+	/**
+	 * CPLEX outputs only the variables with a non-zero value in the optimum,
+	 * all other variables remain 0.
+	 */
+	private static LinearProgramSolution parseSolution( LinearProgram lp, InputStream inputStream ) throws IOException {
+		double objective_value = Double.NaN;
+		double[] values = new double[lp.getNumVariables()];
+		
+		HashMap<String,Integer> map__name__variable = new HashMap<String,Integer>();
+		for( int variable = 0; variable < lp.getNumVariables(); variable++ ) {
+			map__name__variable.put( lp.getVariableName( variable ), variable );
+		}
+		
+		BufferedReader br = new BufferedReader( new InputStreamReader( inputStream ) );
+		try {
+			String line = null;
+			while( ( line = br.readLine() ) != null ) {
+				if( line.contains( "Infeasible" ) ) {
+					return new LinearProgramSolution( LinearProgramSolution.Status.INFEASIBLE );
+				}
+				if( line.contains( "Unbounded" ) ) {
+					return new LinearProgramSolution( LinearProgramSolution.Status.UNBOUNDED );
+				}
+				
+				if( line.contains( "Objective = " ) ) {
+					try {
+						objective_value = Double.parseDouble( line.substring( line.indexOf( "Objective =" ) + 12 ).trim() );
+					} catch ( Exception e ) {
+						e.printStackTrace();
+						objective_value = Double.NaN;
+					}
+					continue;
+				}
+				
+				String[] splitted = line.trim().split( "\\s+" );
+				if( splitted.length < 2 ) {
+					continue;
+				}
+				Integer variable = map__name__variable.get( splitted[0] );
+				if( variable != null ) {
+					try {
+						values[variable] = Double.parseDouble( splitted[1] );
+					} catch ( NumberFormatException e ) {
+						// Not a line of the solution output.
+					}
+				}
+			}
+		} finally {
+			br.close();
+		}
+		
+		if( Double.isNaN( objective_value ) ) {
+			return new LinearProgramSolution( LinearProgramSolution.Status.UNKNOWN );
+		}
+		return new LinearProgramSolution( objective_value, values );
+	}
+	
+	@Override
+	public String toString() {
+		return "CPLEX";
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.linear_constraints;
+
+import java.util.ArrayList;
+
+import org.apache.commons.math3.optim.MaxIter;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.apache.commons.math3.optim.linear.LinearConstraintSet;
+import org.apache.commons.math3.optim.linear.LinearObjectiveFunction;
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+import org.apache.commons.math3.optim.linear.NonNegativeConstraint;
+import org.apache.commons.math3.optim.linear.Relationship;
+import org.apache.commons.math3.optim.linear.SimplexSolver;
+import org.apache.commons.math3.optim.linear.UnboundedSolutionException;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+
+/**
+ * Solves linear programs in-process with the simplex solver of Apache Commons Math.
+ * Neither files nor external processes are involved.
+ */
+public class LinearProgramSolver_Simplex implements LinearProgramSolver {
+	@Override
+	public LinearProgramSolution solve( LinearProgram lp ) {
+		if( lp.isTriviallyInfeasible() ) {
+			return new LinearProgramSolution( LinearProgramSolution.Status.INFEASIBLE );
+		}
+		
+		int num_variables = lp.getNumVariables();
+		
+		// The simplex tableau requires at least one variable, without variables there are no constraints left.
+		if( num_variables == 0 ) {
+			return new LinearProgramSolution( lp.getObjectiveConstant(), new double[0] );
+		}
+		
+		double[] objective_coefficients = new double[num_variables];
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			objective_coefficients[variable] = lp.getObjectiveCoefficient( variable );
+		}
+		LinearObjectiveFunction objective = new LinearObjectiveFunction( objective_coefficients, lp.getObjectiveConstant() );
+		
+		ArrayList<LinearConstraint> constraints = new ArrayList<LinearConstraint>( lp.getNumConstraints() );
+		for( LinearProgram.Constraint constraint : lp.getConstraints() ) {
+			double[] coefficients = new double[num_variables];
+			for( int i = 0; i < constraint.getNumTerms(); i++ ) {
+				coefficients[constraint.getVariable( i )] = constraint.getCoefficient( i );
+			}
+			constraints.add( new LinearConstraint( coefficients, 
+													constraint.getRelation() == Relation.E ? Relationship.EQ : Relationship.LEQ, 
+													constraint.getRhs() ) );
+		}
+		
+		// The solver knows non-negativity only, other bounds become constraints.
+		boolean non_negative = true;
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			if( lp.getLowerBound( variable ) < 0.0 ) {
+				non_negative = false;
+				break;
+			}
+		}
+		for( int variable = 0; variable < num_variables; variable++ ) {
+			double lower_bound = lp.getLowerBound( variable );
+			if( lower_bound != Double.NEGATIVE_INFINITY && ( lower_bound != 0.0 || !non_negative ) ) {
+				constraints.add( new LinearConstraint( unitVector( variable, num_variables ), Relationship.GEQ, lower_bound ) );
+			}
+			double upper_bound = lp.getUpperBound( variable );
+			if( upper_bound != Double.POSITIVE_INFINITY ) {
+				constraints.add( new LinearConstraint( unitVector( variable, num_variables ), Relationship.LEQ, upper_bound ) );
+			}
+		}
+		
+		PointValuePair optimum;
+		try {
+			optimum = new SimplexSolver().optimize( MaxIter.unlimited(), 
+													objective, 
+													new LinearConstraintSet( constraints ), 
+													lp.isMaximization() ? GoalType.MAXIMIZE : GoalType.MINIMIZE, 
+													new NonNegativeConstraint( non_negative ) );
+		} catch ( NoFeasibleSolutionException e ) {
+			return new LinearProgramSolution( LinearProgramSolution.Status.INFEASIBLE );
+		} catch ( UnboundedSolutionException e ) {
+			return new LinearProgramSolution( LinearProgramSolution.Status.UNBOUNDED );
+		}
+		
+		return new LinearProgramSolution( optimum.getValue(), optimum.getPoint() );
+	}
+	
+	private static double[] unitVector( int variable, int num_variables ) {
+		double[] coefficients = new double[num_variables];
+		coefficients[variable] = 1.0;
+		return coefficients;
+	}
+	
+	@Override
+	public String toString() {
+		return "Simplex";
+	}
+}
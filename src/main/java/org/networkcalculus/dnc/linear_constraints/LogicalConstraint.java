@@ -86,37 +86,11 @@ public class LogicalConstraint {
 		return result_str.toString();
 	}
 	
-	public String toCPLEXstring() {
-		StringBuffer result_str = new StringBuffer();
-		
-		result_str.append( flow_shape_1.toString() );
-		
-		result_str.append( " - " );
-		
-		result_str.append( flow_shape_2.toString() );
-		
-		switch( relation ) {
-			case L:
-				result_str.append( " < " );
-				break;
-			case LE:
-			default:
-				result_str.append( " <= " );
-				break;
-			case E:
-				result_str.append( " = " );
-				break;
-			case GE:
-				result_str.append( " >= " );
-				break;
-			case G:
-				result_str.append( " > " );
-				break;
-		}
-		
-		result_str.append( "0" );
-		
-		return result_str.toString();
+	/**
+	 * Adds this constraint to the in-memory linear program.
+	 */
+	public void addTo( LinearProgram lp ) {
+		lp.addConstraint( new int[]{ lp.getVariable( flow_shape_1 ), lp.getVariable( flow_shape_2 ) }, new double[]{ 1.0, -1.0 }, relation, 0.0 );
 	}
 	
 	@Override
@@ -26,8 +26,8 @@
 
 package org.networkcalculus.dnc.linear_constraints;
 
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.Set;
 
 import org.apache.commons.math3.util.Pair;
@@ -101,66 +101,33 @@ public class NumericalConstraint {
 		return result_str.toString();
 	}
 	
-	public String toCPLEXstring() {
-		StringBuffer result_str = new StringBuffer();
+	/**
+	 * Adds this constraint to the in-memory linear program.
+	 * The terms t{path} are moved to the left side, the pure numbers are summed up on the right side.
+	 */
+	public void addTo( LinearProgram lp ) {
+		int[] variables = new int[flow_shape_terms.size() + num_terms.size()];
+		double[] coefficients = new double[variables.length];
+		int num_variables = 0;
 		
 		for( Pair<Operator,FlowLocationTime> flow_term : flow_shape_terms ) {
-			switch( flow_term.getFirst() ) {
-				case PLUS:
-				default:
-					result_str.append( " + " );
-					break;
-				case MINUS:
-					result_str.append( " - " );
-					break;
-			}
-			
-			result_str.append( flow_term.getSecond().toString() );
+			variables[num_variables] = lp.getVariable( flow_term.getSecond() );
+			coefficients[num_variables] = flow_term.getFirst() == Operator.MINUS ? -1.0 : 1.0;
+			num_variables++;
 		}
-
-		// num_terms include a + or - 
-		LinkedList<NumericalTerm> pure_numbers = new LinkedList<NumericalTerm>();
+		
+		double rhs = 0;
 		for( NumericalTerm term : num_terms ) {
+			double value = term.operator == Operator.MINUS ? -term.value.doubleValue() : term.value.doubleValue();
 			if( term.path == null ) {
-				pure_numbers.add( term );
+				rhs += value;
 			} else {
-				result_str.append( term.toInversedString() );
-			}
-		}
-		
-		switch( relation ) {
-			case L:
-				result_str.append( " < " );
-				break;
-			case LE:
-			default:
-				result_str.append( " <= " );
-				break;
-			case E:
-				result_str.append( " = " );
-				break;
-			case GE:
-				result_str.append( " >= " );
-				break;
-			case G:
-				result_str.append( " > " );
-				break;
-		}
-		
-		double result = 0;
-		for( NumericalTerm term : pure_numbers ) {
-			switch( term.operator ) {
-			case PLUS:
-				result += term.value.doubleValue();
-				break;
-			case MINUS:
-				result -= term.value.doubleValue();
-				break;
+				variables[num_variables] = lp.getVariable( term.path );
+				coefficients[num_variables] = -value;
+				num_variables++;
 			}
 		}
-
-		result_str.append( Double.toString( result ) );
 		
-		return result_str.toString();
+		lp.addConstraint( Arrays.copyOf( variables, num_variables ), Arrays.copyOf( coefficients, num_variables ), relation, rhs );
 	}
-}
\ No newline at end of file
+}
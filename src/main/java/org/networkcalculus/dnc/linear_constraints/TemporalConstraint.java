@@ -92,47 +92,27 @@ public class TemporalConstraint {
 		return result_str.toString();
 	}
 
-	public String toCPLEXstring() {
+	/**
+	 * Adds this constraint to the in-memory linear program.
+	 */
+	public void addTo( LinearProgram lp ) {
+		lp.addConstraint( new int[]{ lp.getVariable( path1 ), lp.getVariable( path2 ) }, new double[]{ 1.0, -1.0 }, relation, 0.0 );
+	}
+	
+	/**
+	 * @param path	The path determining the time instant.
+	 * @return The name of the time instant's variable t{path}.
+	 */
+	public static String toTimeVariableString( Path path ) {
 		StringBuffer result_str = new StringBuffer();
 
 		result_str.append( "t" );
 		result_str.append( "{" );
-		for( Server server : path1.getServers() ) {
-			result_str.append( server.getAlias() );
-		}
-		result_str.append( "}" );
-
-		result_str.append( " - " );
-
-		result_str.append( "t" );
-		result_str.append( "{" );
-		for( Server server : path2.getServers() ) {
+		for( Server server : path.getServers() ) {
 			result_str.append( server.getAlias() );
 		}
 		result_str.append( "}" );
 		
-		
-		switch( relation ) {
-			case L:
-				result_str.append( " < " );
-				break;
-			case LE:
-			default:
-				result_str.append( " <= " );
-				break;
-			case E:
-				result_str.append( " = " );
-				break;
-			case GE:
-				result_str.append( " >= " );
-				break;
-			case G:
-				result_str.append( " > " );
-				break;
-		}
-
-		result_str.append( " 0 " );
-		
 		return result_str.toString();
 	}
 	
@@ -0,0 +1,154 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.network;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.networkcalculus.dnc.AnalysisConfig;
+import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.network.server_graph.Flow;
+import org.networkcalculus.dnc.network.server_graph.ServerGraph;
+import org.networkcalculus.dnc.tandem.TandemAnalysis;
+import org.networkcalculus.dnc.tandem.analyses.PmooAnalysis;
+import org.networkcalculus.dnc.tandem.analyses.SeparateFlowAnalysis;
+import org.networkcalculus.dnc.tandem.analyses.TandemMatchingAnalysis;
+import org.networkcalculus.dnc.tandem.analyses.TotalFlowAnalysis;
+
+/**
+ * Analyzes all flows of a server graph, each one with its own tandem analysis instance.
+ * The per-flow analyses are executed concurrently on a fork-join pool.
+ * <p>
+ * All analyses share the calculation context and thus the arrival bound cache of this context.
+ * Whether the cache is used at all is still decided by the given configuration.
+ */
+public class NetworkAnalysis {
+    private ServerGraph server_graph;
+    private AnalysisConfig configuration;
+    private TandemAnalysis.Analyses analysis;
+    private Calculator calculator;
+    private int parallelism;
+
+    @SuppressWarnings("unused")
+    private NetworkAnalysis() {
+    }
+
+    public NetworkAnalysis(ServerGraph server_graph, AnalysisConfig configuration, TandemAnalysis.Analyses analysis) {
+        this(server_graph, configuration, analysis, Calculator.getInstance(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public NetworkAnalysis(ServerGraph server_graph, AnalysisConfig configuration, TandemAnalysis.Analyses analysis,
+                           Calculator calculator, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+
+        this.server_graph = server_graph;
+        this.configuration = configuration;
+        this.analysis = analysis;
+        this.calculator = calculator;
+        this.parallelism = parallelism;
+    }
+
+    public ServerGraph getServerGraph() {
+        return server_graph;
+    }
+
+    public Calculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Analyzes all flows of the server graph.
+     *
+     * @return Mapping from each flow to the analysis that derived its bounds.
+     * @throws Exception The exception of the first failed per-flow analysis.
+     */
+    public Map<Flow, TandemAnalysis> performAnalysis() throws Exception {
+        return performAnalysis(server_graph.getFlows());
+    }
+
+    /**
+     * Analyzes the given flows of the server graph.
+     *
+     * @param flows The flows to analyze.
+     * @return Mapping from each flow to the analysis that derived its bounds.
+     * @throws Exception The exception of the first failed per-flow analysis.
+     */
+    public Map<Flow, TandemAnalysis> performAnalysis(Collection<Flow> flows) throws Exception {
+        Map<Flow, TandemAnalysis> map__flow__analysis = new ConcurrentHashMap<Flow, TandemAnalysis>();
+
+        List<Callable<Void>> flow_analyses = new LinkedList<Callable<Void>>();
+        for (Flow flow : flows) {
+            flow_analyses.add(() -> {
+                TandemAnalysis flow_analysis = createTandemAnalysis();
+                flow_analysis.performAnalysis(flow);
+                map__flow__analysis.put(flow, flow_analysis);
+                return null;
+            });
+        }
+
+        // A dedicated pool also executes the parallel streams nested in the per-flow analyses.
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> flow_analysis : pool.invokeAll(flow_analyses)) {
+                try {
+                    flow_analysis.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        return map__flow__analysis;
+    }
+
+    private TandemAnalysis createTandemAnalysis() {
+        switch (analysis) {
+            case TFA:
+                return new TotalFlowAnalysis(server_graph, configuration, calculator);
+            case SFA:
+                return new SeparateFlowAnalysis(server_graph, configuration, calculator);
+            case PMOO:
+                return new PmooAnalysis(server_graph, configuration, calculator);
+            case TMA:
+                return new TandemMatchingAnalysis(server_graph, configuration, calculator);
+            default:
+                throw new IllegalArgumentException("Unknown analysis " + analysis);
+        }
+    }
+}
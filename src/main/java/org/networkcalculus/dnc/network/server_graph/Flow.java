@@ -93,6 +93,11 @@ public class Flow {
 
     public boolean setArrivalCurve(ArrivalCurve arrival_curve) {
         this.arrival_curve = arrival_curve;
+        if (path != null) {
+            for (int i = 0; i < path.numServers(); i++) {
+                path.getServer(i).stateChanged();
+            }
+        }
         return true;
     }
 
@@ -0,0 +1,267 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.network.server_graph;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of flows of a single server graph, stored as a bit set indexed by the flows' ids.
+ * <p>
+ * Union, intersection and difference of two flow sets of the same server graph
+ * are word-wise bit operations. Other collections are supported,
+ * yet operations with them test their members one by one.
+ * <p>
+ * Only flows of the server graph can be added, neither flows of other server graphs 
+ * nor dummy flows such as Flow.NULL_FLOW. 
+ * Trying to remove or to look up such a flow is not an error, though.
+ * <p>
+ * ServerGraph hands out read-only flow sets that reflect later changes of the server graph, 
+ * see {@link ServerGraph#getFlowSet(Server)}.
+ */
+public final class FlowSet extends AbstractSet<Flow> {
+	private final ServerGraph server_graph;
+	private final BitSet flow_ids;
+	private final boolean read_only;
+	
+	// Created once, the server graph hands it out on every query.
+	private FlowSet read_only_view;
+
+	protected FlowSet(ServerGraph server_graph) {
+		this(server_graph, new BitSet(), false);
+	}
+
+	private FlowSet(ServerGraph server_graph, BitSet flow_ids, boolean read_only) {
+		this.server_graph = server_graph;
+		this.flow_ids = flow_ids;
+		this.read_only = read_only;
+	}
+
+	/**
+	 * @return A modifiable copy of this set.
+	 */
+	public FlowSet copy() {
+		return new FlowSet(server_graph, (BitSet) flow_ids.clone(), false);
+	}
+
+	/**
+	 * @return A read-only view on this set, it reflects changes of this set.
+	 */
+	public FlowSet readOnly() {
+		if (read_only) {
+			return this;
+		}
+		if (read_only_view == null) {
+			read_only_view = new FlowSet(server_graph, flow_ids, true);
+		}
+		return read_only_view;
+	}
+
+	public boolean isReadOnly() {
+		return read_only;
+	}
+
+	public ServerGraph getServerGraph() {
+		return server_graph;
+	}
+
+	/**
+	 * @param other	Another flow set of the same server graph.
+	 * @return Whether both sets share at least one flow.
+	 */
+	public boolean intersects(FlowSet other) {
+		checkSameServerGraph(other);
+		return flow_ids.intersects(other.flow_ids);
+	}
+
+	private boolean isCompatible(Collection<?> c) {
+		return c instanceof FlowSet && ((FlowSet) c).server_graph == server_graph;
+	}
+
+	private void checkSameServerGraph(FlowSet other) {
+		if (other.server_graph != server_graph) {
+			throw new IllegalArgumentException("Flow sets belong to different server graphs.");
+		}
+	}
+
+	private void checkModifiable() {
+		if (read_only) {
+			throw new UnsupportedOperationException("Flow set is read-only.");
+		}
+	}
+
+	private boolean isMember(Object o) {
+		if (!(o instanceof Flow)) {
+			return false;
+		}
+		int id = ((Flow) o).getId();
+		return id >= 0 && server_graph.getFlowById(id) == o;
+	}
+
+	@Override
+	public int size() {
+		return flow_ids.cardinality();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return flow_ids.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return isMember(o) && flow_ids.get(((Flow) o).getId());
+	}
+
+	@Override
+	public boolean add(Flow f) {
+		checkModifiable();
+		if (!isMember(f)) {
+			throw new IllegalArgumentException("Flow " + f + " is not part of the flow set's server graph.");
+		}
+		if (flow_ids.get(f.getId())) {
+			return false;
+		}
+		flow_ids.set(f.getId());
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		checkModifiable();
+		if (!contains(o)) {
+			return false;
+		}
+		flow_ids.clear(((Flow) o).getId());
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		checkModifiable();
+		flow_ids.clear();
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		if (!isCompatible(c)) {
+			return super.containsAll(c);
+		}
+		BitSet other_ids = ((FlowSet) c).flow_ids;
+		for (int id = other_ids.nextSetBit(0); id >= 0; id = other_ids.nextSetBit(id + 1)) {
+			if (!flow_ids.get(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends Flow> c) {
+		checkModifiable();
+		if (!isCompatible(c)) {
+			return super.addAll(c);
+		}
+		int size_old = flow_ids.cardinality();
+		flow_ids.or(((FlowSet) c).flow_ids);
+		return flow_ids.cardinality() != size_old;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		checkModifiable();
+		int size_old = flow_ids.cardinality();
+		if (isCompatible(c)) {
+			flow_ids.and(((FlowSet) c).flow_ids);
+		} else {
+			for (int id = flow_ids.nextSetBit(0); id >= 0; id = flow_ids.nextSetBit(id + 1)) {
+				if (!c.contains(server_graph.getFlowById(id))) {
+					flow_ids.clear(id);
+				}
+			}
+		}
+		return flow_ids.cardinality() != size_old;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		checkModifiable();
+		int size_old = flow_ids.cardinality();
+		if (isCompatible(c)) {
+			flow_ids.andNot(((FlowSet) c).flow_ids);
+		} else {
+			for (Object o : c) {
+				if (contains(o)) {
+					flow_ids.clear(((Flow) o).getId());
+				}
+			}
+		}
+		return flow_ids.cardinality() != size_old;
+	}
+
+	@Override
+	public Iterator<Flow> iterator() {
+		return new Iterator<Flow>() {
+			private int id_next = flow_ids.nextSetBit(0);
+			private int id_last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return id_next >= 0;
+			}
+
+			@Override
+			public Flow next() {
+				if (id_next < 0) {
+					throw new NoSuchElementException();
+				}
+				id_last = id_next;
+				id_next = flow_ids.nextSetBit(id_next + 1);
+				return server_graph.getFlowById(id_last);
+			}
+
+			@Override
+			public void remove() {
+				checkModifiable();
+				if (id_last < 0) {
+					throw new IllegalStateException();
+				}
+				flow_ids.clear(id_last);
+				id_last = -1;
+			}
+		};
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof FlowSet && ((FlowSet) obj).server_graph == server_graph) {
+			return flow_ids.equals(((FlowSet) obj).flow_ids);
+		}
+		return super.equals(obj);
+	}
+}
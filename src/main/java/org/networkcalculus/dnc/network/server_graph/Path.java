@@ -23,17 +23,15 @@
  * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
  *
  */
-
 package org.networkcalculus.dnc.network.server_graph;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
-import org.networkcalculus.dnc.Calculator;
-import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.MaxServiceCurve;
 import org.networkcalculus.dnc.curves.ServiceCurve;
 
@@ -45,34 +43,50 @@ import org.networkcalculus.dnc.curves.ServiceCurve;
  * buffer of its sink. Therefore a flow's path should not contain a turn to it.
  * Otherwise the flow interference pattern of the network will be too
  * pessimistic, yet, the results remain valid.
+ * <p>
+ * Paths are immutable. Sub-paths are slices of the array-backed path they were derived from,
+ * i.e., creating them does not copy servers or turns.
  */
 public class Path {
-    private LinkedList<Server> path_servers;
-    private LinkedList<Turn> path_turns;
+    private static final PathData EMPTY_PATH_DATA = new PathData(new Server[0], new Turn[0]);
+
+    private final PathData data;
+    // This path's servers are data.servers[server_from, server_from + server_count)
+    private final int server_from;
+    private final int server_count;
+    // This path's turns are data.turns[turn_from, turn_from + turn_count)
+    private final int turn_from;
+    private final int turn_count;
 
     private Path() {
-        path_servers = new LinkedList<Server>();
-        path_turns = new LinkedList<Turn>();
+        this(EMPTY_PATH_DATA);
     }
 
     protected Path(List<Server> path_servers, List<Turn> path_turns) {
         // Sanity check should have been done by the server graph
-        this.path_servers = new LinkedList<Server>(path_servers);
-        this.path_turns = new LinkedList<Turn>(path_turns);
+        this(new PathData(path_servers.toArray(new Server[path_servers.size()]), path_turns.toArray(new Turn[path_turns.size()])));
     }
 
     public Path(Path path) {
-        this.path_servers = path.getServers();
-        this.path_turns = path.getTurns();
+        this(path.data, path.server_from, path.server_count, path.turn_from, path.turn_count);
     }
 
     // Can be visible.
     // There's no way to create a single hop path not possible to take in a network.
     public Path(Server single_hop) {
-        path_servers = new LinkedList<Server>();
-        path_servers.add(single_hop);
-        
-        path_turns = new LinkedList<Turn>();
+        this(new PathData(new Server[] { single_hop }, new Turn[0]));
+    }
+
+    private Path(PathData data) {
+        this(data, 0, data.servers.length, 0, data.turns.length);
+    }
+
+    private Path(PathData data, int server_from, int server_count, int turn_from, int turn_count) {
+        this.data = data;
+        this.server_from = server_from;
+        this.server_count = server_count;
+        this.turn_from = turn_from;
+        this.turn_count = turn_count;
     }
 
     public static Path createEmptyPath() {
@@ -80,31 +94,79 @@ public class Path {
     }
 
     public Server getSource() {
-        return path_servers.get(0);
+        return getServer(0);
     }
     
     public boolean isSource(Server s) {
-    	return path_servers.indexOf(s) == 0;
+    	return indexOf(s) == 0;
     }
 
     public Server getSink() {
-        return path_servers.get(path_servers.size() - 1);
+        return getServer(server_count - 1);
     }
 
     public int numServers() {
-        return path_servers.size();
+        return server_count;
     }
 
     public int numTurns() {
-        return path_turns.size();
+        return turn_count;
+    }
+
+    /**
+     * @param index Position on the path, starting at 0.
+     * @return The server at the position.
+     */
+    public Server getServer(int index) {
+        if (index < 0 || index >= server_count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + server_count);
+        }
+        return data.servers[server_from + index];
+    }
+
+    /**
+     * @param index Position on the path, starting at 0.
+     * @return The turn at the position.
+     */
+    public Turn getTurn(int index) {
+        if (index < 0 || index >= turn_count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + turn_count);
+        }
+        return data.turns[turn_from + index];
+    }
+
+    /**
+     * @param s A server.
+     * @return The server's first position on the path, -1 if it is not on the path.
+     */
+    public int indexOf(Server s) {
+        if (data.servers_unique) {
+            Integer index = data.map__server__index.get(s);
+            if (index == null) {
+                return -1;
+            }
+            int index_local = index.intValue() - server_from;
+            return index_local >= 0 && index_local < server_count ? index_local : -1;
+        }
+
+        for (int i = 0; i < server_count; i++) {
+            if (Objects.equals(data.servers[server_from + i], s)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(Server s) {
+        return indexOf(s) >= 0;
     }
 
     public LinkedList<Turn> getTurns() {
-        return new LinkedList<Turn>(path_turns);
+        return new LinkedList<Turn>(Arrays.asList(data.turns).subList(turn_from, turn_from + turn_count));
     }
 
     public LinkedList<Server> getServers() {
-        return new LinkedList<Server>(path_servers);
+        return new LinkedList<Server>(Arrays.asList(data.servers).subList(server_from, server_from + server_count));
     }
 
     /**
@@ -115,53 +177,70 @@ public class Path {
      */
     public Path getSubPath(Server from, Server to) throws Exception {
         // All other sanity check should have been passed when this object was created
-        if (!path_servers.contains(from)) {
+        int from_index = indexOf(from);
+        if (from_index < 0) {
             throw new Exception("Cannot create a subpath if source is not in it.");
         }
-        if (!path_servers.contains(to)) {
+        int to_index = indexOf(to);
+        if (to_index < 0) {
             throw new Exception("Cannot create a subpath if sink is not in it.");
         }
 
         if (from == to) {
-            return new Path(new LinkedList<Server>(Collections.singleton(from)), new LinkedList<Turn>());
+            return new Path(data, server_from + from_index, 1, turn_from, 0);
         }
 
-        int from_index = path_servers.indexOf(from);
-        int to_index = path_servers.indexOf(to);
         if (from_index >= to_index) {
             throw new Exception("Cannot create sub-path from " + from.toString() + " to " + to.toString());
         }
-        // subList: 'from' is inclusive but 'to' is exclusive
-        LinkedList<Server> subpath_servers = new LinkedList<Server>(path_servers.subList(from_index, to_index));
-        subpath_servers.add(to);
 
+        if (data.turns_aligned) {
+            // Turn i connects server i and server i+1.
+            return new Path(data, server_from + from_index, to_index - from_index + 1,
+                    server_from + from_index, to_index - from_index);
+        }
+
+        // Turns do not follow the servers, keep those connecting servers of the subpath.
+        List<Server> subpath_servers = Arrays.asList(data.servers).subList(server_from + from_index, server_from + to_index + 1);
         List<Turn> subpath_turns = new LinkedList<Turn>();
-        if (subpath_servers.size() > 1) {
-            for (Turn l : path_turns) {
-                Server src_l = l.getSource();
-                Server snk_l = l.getDest();
-                if (subpath_servers.contains(src_l) && subpath_servers.contains(snk_l)) {
-                    subpath_turns.add(l);
-                }
+        for (int i = 0; i < turn_count; i++) {
+            Turn l = data.turns[turn_from + i];
+            if (subpath_servers.contains(l.getSource()) && subpath_servers.contains(l.getDest())) {
+                subpath_turns.add(l);
             }
         }
-
         return new Path(subpath_servers, subpath_turns);
     }
 
     public Turn getPrecedingTurn(Server s) throws Exception {
-        for (Turn l : path_turns) {
-            if (l.getDest().equals(s)) {
-                return l;
+        if (data.turns_aligned) {
+            int index = indexOf(s);
+            if (index > 0) {
+                return data.turns[server_from + index - 1];
+            }
+        } else {
+            for (int i = 0; i < turn_count; i++) {
+                Turn l = data.turns[turn_from + i];
+                if (l.getDest().equals(s)) {
+                    return l;
+                }
             }
         }
         throw new Exception("No preceding turn on the path found");
     }
 
     public Turn getSucceedingTurn(Server s) throws Exception {
-        for (Turn l : path_turns) {
-            if (l.getSource().equals(s)) {
-                return l;
+        if (data.turns_aligned) {
+            int index = indexOf(s);
+            if (index >= 0 && index < server_count - 1) {
+                return data.turns[server_from + index];
+            }
+        } else {
+            for (int i = 0; i < turn_count; i++) {
+                Turn l = data.turns[turn_from + i];
+                if (l.getSource().equals(s)) {
+                    return l;
+                }
             }
         }
         throw new Exception("No succeeding turn on the path found");
@@ -183,24 +262,22 @@ public class Path {
         }
     }
 
+    private ServiceCurve getConvolution(PathServiceCurves.CurveType type) throws Exception {
+        return data.getServiceCurveTable().get(type, server_from, server_from + server_count - 1);
+    }
+
     /**
      * Just convolves the service curves on the path and returns the result.
+     * <p>
+     * Convolutions are stored and shared with the sub-paths of this path, 
+     * separately per multiplexing enforcement of the calculation context. 
+     * They are derived again once a server on the path changes its curves.
      *
      * @return The convolved curve
      * @throws Exception
      */
     public ServiceCurve getServiceCurve() throws Exception {
-        Collection<Server> servers = getServers();
-        return getServiceCurve(servers);
-    }
-
-    private ServiceCurve getServiceCurve(Collection<Server> servers) throws Exception {
-        ServiceCurve service_curve_total = Curve.getFactory().createZeroDelayInfiniteBurstMSC();
-        for (Server s : servers) {
-            service_curve_total = Calculator.getInstance().getMinPlus().convolve(service_curve_total, s.getServiceCurve());
-        }
-
-        return service_curve_total;
+        return getConvolution(PathServiceCurves.CurveType.SERVICE_CURVE);
     }
 
     /**
@@ -214,31 +291,11 @@ public class Path {
      * @throws Exception
      */
     public MaxServiceCurve getMaxServiceCurve() throws Exception {
-        Collection<Server> servers = getServers();
-        return getMaxServiceCurve(servers);
-    }
-
-    private MaxServiceCurve getMaxServiceCurve(Collection<Server> servers) throws Exception {
-        MaxServiceCurve max_sc_path = Curve.getFactory().createZeroDelayInfiniteBurstMSC();
-        for (Server s : servers) {
-            max_sc_path = Calculator.getInstance().getMinPlus().convolve(max_sc_path, s.getMaxServiceCurve());
-        }
-
-        return max_sc_path;
+        return (MaxServiceCurve) getConvolution(PathServiceCurves.CurveType.MAX_SERVICE_CURVE);
     }
 
     public MaxServiceCurve getStoredMaxSC() throws Exception {
-        Collection<Server> servers = getServers();
-        return getStoredMaxSC(servers);
-    }
-
-    private MaxServiceCurve getStoredMaxSC(Collection<Server> servers) throws Exception {
-        MaxServiceCurve max_sc_path = Curve.getFactory().createZeroDelayInfiniteBurstMSC();
-        for (Server s : servers) {
-            max_sc_path = Calculator.getInstance().getMinPlus().convolve(max_sc_path, s.getStoredMaxSC());
-        }
-
-        return max_sc_path;
+        return (MaxServiceCurve) getConvolution(PathServiceCurves.CurveType.STORED_MAX_SC);
     }
 
     /**
@@ -252,33 +309,12 @@ public class Path {
      * @throws Exception
      */
     public MaxServiceCurve getMaxScRate() throws Exception {
-        Collection<Server> servers = getServers();
-        return getMaxScRate(servers);
-    }
-
-    private MaxServiceCurve getMaxScRate(Collection<Server> servers) throws Exception {
-        MaxServiceCurve max_sc_rate_path = Curve.getFactory().createZeroDelayInfiniteBurstMSC();
-        for (Server s : servers) {
-            max_sc_rate_path = Calculator.getInstance().getMinPlus().convolve(max_sc_rate_path, s.getMaxScRate());
-        }
-        // max_sc_rate_path.removeLatency(); // Already done by s.getMaxScRate()
-
-        return max_sc_rate_path;
+        // Latencies are already removed by s.getMaxScRate()
+        return (MaxServiceCurve) getConvolution(PathServiceCurves.CurveType.MAX_SC_RATE);
     }
     
     public MaxServiceCurve getStoredMaxScRate() throws Exception {
-        Collection<Server> servers = getServers();
-        return getStoredMaxScRate(servers);
-    }
-
-    private MaxServiceCurve getStoredMaxScRate(Collection<Server> servers) throws Exception {
-        MaxServiceCurve max_sc_rate_path = Curve.getFactory().createZeroDelayInfiniteBurstMSC();
-        for (Server s : servers) {
-            max_sc_rate_path = Calculator.getInstance().getMinPlus().convolve(max_sc_rate_path, s.getStoredMaxScRate());
-        }
-        // max_sc_rate_path.removeLatency(); // Already done by s.getStoredMaxScRate()
-
-        return max_sc_rate_path;
+        return (MaxServiceCurve) getConvolution(PathServiceCurves.CurveType.STORED_MAX_SC_RATE);
     }
     
     @Override
@@ -288,14 +324,121 @@ public class Path {
         }
 
         Path p = (Path) obj;
-        return path_servers.equals(p.getServers()) && path_turns.equals(p.getTurns());
+        if (server_count != p.server_count || turn_count != p.turn_count) {
+            return false;
+        }
+        if (data == p.data && server_from == p.server_from && turn_from == p.turn_from) {
+            return true;
+        }
+        if (hashCode() != p.hashCode()) {
+            return false;
+        }
+        for (int i = 0; i < server_count; i++) {
+            if (!Objects.equals(data.servers[server_from + i], p.data.servers[p.server_from + i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < turn_count; i++) {
+            if (!Objects.equals(data.turns[turn_from + i], p.data.turns[p.turn_from + i])) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * Same as hashing the lists of servers and turns, i.e., Objects.hash(servers, turns).
+     * Derived from the prefix hashes of the path this one is a slice of.
+     */
     @Override
     public int hashCode() {
-    	return Objects.hash(path_servers, path_turns);
+    	return 31 * (31 + PathData.sliceHash(data.server_hash_prefixes, server_from, server_count))
+    			+ PathData.sliceHash(data.turn_hash_prefixes, turn_from, turn_count);
     }
     
+    /**
+     * The arrays shared by a path and its sub-paths.
+     */
+    private static final class PathData {
+        private final Server[] servers;
+        private final Turn[] turns;
+
+        // Only valid if servers_unique holds.
+        private final Map<Server, Integer> map__server__index;
+        private final boolean servers_unique;
+        // Turn i connects server i and server i+1, requires unique servers.
+        private final boolean turns_aligned;
+
+        // List hash codes of the first i elements, see List.hashCode().
+        private final int[] server_hash_prefixes;
+        private final int[] turn_hash_prefixes;
+
+        private volatile PathServiceCurves service_curves;
+
+        private PathData(Server[] servers, Turn[] turns) {
+            this.servers = servers;
+            this.turns = turns;
+
+            map__server__index = new HashMap<Server, Integer>();
+            for (int i = 0; i < servers.length; i++) {
+                map__server__index.putIfAbsent(servers[i], Integer.valueOf(i));
+            }
+            servers_unique = map__server__index.size() == servers.length;
+
+            boolean aligned = servers_unique && turns.length == Math.max(servers.length - 1, 0);
+            for (int i = 0; aligned && i < turns.length; i++) {
+                aligned = turns[i] != null && turns[i].getSource() == servers[i] && turns[i].getDest() == servers[i + 1];
+            }
+            turns_aligned = aligned;
+
+            server_hash_prefixes = hashPrefixes(servers);
+            turn_hash_prefixes = hashPrefixes(turns);
+        }
+
+        private static int[] hashPrefixes(Object[] elements) {
+            int[] prefixes = new int[elements.length + 1];
+            prefixes[0] = 1;
+            for (int i = 0; i < elements.length; i++) {
+                prefixes[i + 1] = 31 * prefixes[i] + Objects.hashCode(elements[i]);
+            }
+            return prefixes;
+        }
+
+        // With int overflow, the list hash of elements [from, from+count) is
+        // 31^count + prefix(from+count) - 31^count * prefix(from).
+        private static int sliceHash(int[] prefixes, int from, int count) {
+            int pow = pow31(count);
+            return pow + prefixes[from + count] - pow * prefixes[from];
+        }
+
+        private static int pow31(int exponent) {
+            int result = 1;
+            int base = 31;
+            while (exponent > 0) {
+                if ((exponent & 1) == 1) {
+                    result *= base;
+                }
+                base *= base;
+                exponent >>= 1;
+            }
+            return result;
+        }
+
+        private PathServiceCurves getServiceCurveTable() {
+            PathServiceCurves table = service_curves;
+            if (table == null) {
+                synchronized (this) {
+                    table = service_curves;
+                    if (table == null) {
+                        table = new PathServiceCurves(Arrays.asList(servers));
+                        service_curves = table;
+                    }
+                }
+            }
+            return table;
+        }
+    }
+
     // --------------------------------------------------------------------------------------------------------------
     // String Conversions
     // --------------------------------------------------------------------------------------------------------------
@@ -306,15 +449,15 @@ public class Path {
      * @return String representation of the path.
      */
     public String toShortString() {
-        if (path_servers.isEmpty()) {
+        if (server_count == 0) {
             return "{}";
         }
         
     	StringBuffer path_str = new StringBuffer();
 
     	path_str.append("{");
-    	for (Server s : path_servers) {
-    		path_str.append(s.toShortString());
+    	for (int i = 0; i < server_count; i++) {
+    		path_str.append(data.servers[server_from + i].toShortString());
         	path_str.append(",");
         }
     	
@@ -331,15 +474,15 @@ public class Path {
      */
     @Override
     public String toString() {
-        if (path_turns.isEmpty()) {
+        if (turn_count == 0) {
         	return toShortString();
         }
         
         StringBuffer path_str = new StringBuffer();
 
     	path_str.append("{");
-        for (Turn l : path_turns) {
-        	path_str.append(l.toString());
+        for (int i = 0; i < turn_count; i++) {
+        	path_str.append(data.turns[turn_from + i].toString());
         	path_str.append(",");
         }
         
@@ -356,15 +499,15 @@ public class Path {
      * @return String representation of the path.
      */
     public String toExtendedString() {
-        if (path_turns.isEmpty()) {
+        if (turn_count == 0) {
         	return toShortString();
         }
         
         StringBuffer path_str = new StringBuffer();
 
     	path_str.append("{");
-        for (Turn l : path_turns) {
-        	path_str.append(l.toExtendedString());
+        for (int i = 0; i < turn_count; i++) {
+        	path_str.append(data.turns[turn_from + i].toExtendedString());
         	path_str.append(",");
         }
         
@@ -0,0 +1,211 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.network.server_graph;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.networkcalculus.dnc.AlgDncBackend;
+import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
+import org.networkcalculus.dnc.Calculator;
+import org.networkcalculus.dnc.curves.Curve;
+import org.networkcalculus.dnc.curves.MaxServiceCurve;
+import org.networkcalculus.dnc.curves.ServiceCurve;
+import org.networkcalculus.num.NumBackend;
+
+/**
+ * Convolutions of the servers' curves on a path, shared by the path and all its sub-paths.
+ * <p>
+ * For each curve type, the table holds the prefix convolutions, i.e., from the path's source 
+ * to each server, and the suffix convolutions, i.e., from each server to the path's sink.
+ * Sub-paths starting at the source or ending at the sink are thus taken from the tables,
+ * other sub-paths are convolved once and memorized.
+ * <p>
+ * Entries are derived lazily. They are dropped once a server's curves change
+ * (see Server's curve version) or once they are requested with a different calculator backend.
+ * The convolution depends on the multiplexing enforcement of the calculation context, 
+ * there are separate tables per enforcement.
+ */
+final class PathServiceCurves {
+    protected enum CurveType {
+        SERVICE_CURVE, MAX_SERVICE_CURVE, MAX_SC_RATE, STORED_MAX_SC, STORED_MAX_SC_RATE
+    }
+
+    private final Server[] servers;
+
+    // Guarded by this.
+    private final long[] server_versions;
+    private NumBackend num_backend;
+    private AlgDncBackend dnc_backend;
+    private final Map<MultiplexingEnforcement, Tables> map__enforcement__tables = 
+            new EnumMap<MultiplexingEnforcement, Tables>(MultiplexingEnforcement.class);
+
+    private static final class Tables {
+        private final Map<CurveType, ServiceCurve[]> map__type__prefixes = new HashMap<CurveType, ServiceCurve[]>();
+        private final Map<CurveType, ServiceCurve[]> map__type__suffixes = new HashMap<CurveType, ServiceCurve[]>();
+        private final Map<CurveType, Map<Integer, ServiceCurve>> map__type__subpaths = new HashMap<CurveType, Map<Integer, ServiceCurve>>();
+    }
+
+    protected PathServiceCurves(List<Server> servers) {
+        this.servers = servers.toArray(new Server[servers.size()]);
+        this.server_versions = new long[this.servers.length];
+        for (int i = 0; i < this.servers.length; i++) {
+            server_versions[i] = this.servers[i].getCurveVersion();
+        }
+    }
+
+    protected int numServers() {
+        return servers.length;
+    }
+
+    /**
+     * @param type  The type of curve to convolve.
+     * @param from  Index of the first server, inclusive.
+     * @param to    Index of the last server, inclusive.
+     * @return A copy of the convolution.
+     */
+    protected synchronized ServiceCurve get(CurveType type, int from, int to) throws Exception {
+        validate();
+
+        MultiplexingEnforcement multiplexing_enforcement = Calculator.getInstance().getMultiplexingEnforcement();
+        Tables tables = map__enforcement__tables.get(multiplexing_enforcement);
+        if (tables == null) {
+            tables = new Tables();
+            map__enforcement__tables.put(multiplexing_enforcement, tables);
+        }
+
+        ServiceCurve curve;
+        if (from > to) {
+            curve = identity();
+        } else if (from == 0) {
+            curve = getPrefix(tables, type, to);
+        } else if (to == servers.length - 1) {
+            curve = getSuffix(tables, type, from);
+        } else {
+            Map<Integer, ServiceCurve> subpaths = tables.map__type__subpaths.get(type);
+            if (subpaths == null) {
+                subpaths = new HashMap<Integer, ServiceCurve>();
+                tables.map__type__subpaths.put(type, subpaths);
+            }
+            Integer key = Integer.valueOf(from * servers.length + to);
+            curve = subpaths.get(key);
+            if (curve == null) {
+                curve = identity();
+                for (int i = from; i <= to; i++) {
+                    curve = convolve(type, curve, servers[i]);
+                }
+                subpaths.put(key, curve);
+            }
+        }
+        return curve.copy();
+    }
+
+    private ServiceCurve getPrefix(Tables tables, CurveType type, int to) throws Exception {
+        ServiceCurve[] prefixes = tables.map__type__prefixes.get(type);
+        if (prefixes == null) {
+            prefixes = new ServiceCurve[servers.length];
+            tables.map__type__prefixes.put(type, prefixes);
+        }
+
+        // Extend the table from the longest prefix derived so far.
+        int i = to;
+        while (i >= 0 && prefixes[i] == null) {
+            i--;
+        }
+        for (i = i + 1; i <= to; i++) {
+            ServiceCurve previous = i == 0 ? identity() : prefixes[i - 1];
+            prefixes[i] = convolve(type, previous, servers[i]);
+        }
+        return prefixes[to];
+    }
+
+    private ServiceCurve getSuffix(Tables tables, CurveType type, int from) throws Exception {
+        ServiceCurve[] suffixes = tables.map__type__suffixes.get(type);
+        if (suffixes == null) {
+            suffixes = new ServiceCurve[servers.length];
+            tables.map__type__suffixes.put(type, suffixes);
+        }
+
+        // Extend the table from the longest suffix derived so far.
+        int i = from;
+        while (i < servers.length && suffixes[i] == null) {
+            i++;
+        }
+        for (i = i - 1; i >= from; i--) {
+            ServiceCurve next = i == servers.length - 1 ? identity() : suffixes[i + 1];
+            suffixes[i] = convolve(type, next, servers[i]);
+        }
+        return suffixes[from];
+    }
+
+    // The neutral element of the convolution.
+    private static MaxServiceCurve identity() {
+        return Curve.getFactory().createZeroDelayInfiniteBurstMSC();
+    }
+
+    // Same overloads as the path's former direct convolution, 
+    // i.e., maximum service curves stay maximum service curves.
+    private static ServiceCurve convolve(CurveType type, ServiceCurve curve, Server server) throws Exception {
+        if (type == CurveType.SERVICE_CURVE) {
+            return Calculator.getInstance().getMinPlus().convolve(curve, server.getServiceCurve());
+        }
+        return Calculator.getInstance().getMinPlus().convolve((MaxServiceCurve) curve, getMaxCurve(type, server));
+    }
+
+    private static MaxServiceCurve getMaxCurve(CurveType type, Server server) {
+        switch (type) {
+            case MAX_SERVICE_CURVE:
+                return server.getMaxServiceCurve();
+            case MAX_SC_RATE:
+                return server.getMaxScRate();
+            case STORED_MAX_SC:
+                return server.getStoredMaxSC();
+            case STORED_MAX_SC_RATE:
+                return server.getStoredMaxScRate();
+            default:
+                throw new IllegalArgumentException("Unknown curve type " + type);
+        }
+    }
+
+    private void validate() {
+        boolean valid = Calculator.getInstance().getNumBackend() == num_backend
+                && Calculator.getInstance().getDncBackend() == dnc_backend;
+        for (int i = 0; i < servers.length; i++) {
+            long version = servers[i].getCurveVersion();
+            if (version != server_versions[i]) {
+                server_versions[i] = version;
+                valid = false;
+            }
+        }
+
+        if (!valid) {
+            num_backend = Calculator.getInstance().getNumBackend();
+            dnc_backend = Calculator.getInstance().getDncBackend();
+            map__enforcement__tables.clear();
+        }
+    }
+}
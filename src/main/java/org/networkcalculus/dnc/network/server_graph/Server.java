@@ -26,6 +26,8 @@
 
 package org.networkcalculus.dnc.network.server_graph;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.networkcalculus.dnc.AnalysisConfig.Multiplexing;
 import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.Curve_ConstantPool;
@@ -59,6 +61,23 @@ public class Server {
 
     private Multiplexing multiplexing = Multiplexing.ARBITRARY;
 
+    /**
+     * Incremented on every change of the curves or of the flags selecting them.
+     * Paths use it to invalidate the convolutions they store.
+     */
+    private volatile long curve_version = 0;
+
+    /**
+     * Incremented on other changes that can influence bounds at this server:
+     * its multiplexing, the flows crossing it and their arrival curves as well as its inturns.
+     */
+    private volatile long state_version = 0;
+
+    /**
+     * Incremented after the state version of any server changed.
+     */
+    private static final AtomicLong all_servers_state_version = new AtomicLong();
+
     private Server() {
     }
 
@@ -129,6 +148,7 @@ public class Server {
 
     public boolean setServiceCurve(ServiceCurve service_curve) {
         this.service_curve = service_curve;
+        curveChanged();
         return true;
     }
 
@@ -155,6 +175,7 @@ public class Server {
         max_service_curve_flag = true;
         this.use_max_sc = use_max_sc;
         this.use_max_sc_output_rate = use_max_sc_output_rate;
+        curveChanged();
 
         return true;
     }
@@ -165,6 +186,7 @@ public class Server {
         max_service_curve_flag = false;
         use_max_sc = false;
         use_max_sc_output_rate = false;
+        curveChanged();
 
         return true;
     }
@@ -216,6 +238,7 @@ public class Server {
 
     public void useMaxSC(boolean use_max_sc) {
         this.use_max_sc = use_max_sc;
+        curveChanged();
     }
 
     public boolean useMaxScRate() {
@@ -224,6 +247,42 @@ public class Server {
 
     public void useMaxScRate(boolean use_max_sc_output_rate) {
         this.use_max_sc_output_rate = use_max_sc_output_rate;
+        curveChanged();
+    }
+
+    protected long getCurveVersion() {
+        return curve_version;
+    }
+
+    private void curveChanged() {
+        curve_version++;
+        all_servers_state_version.incrementAndGet();
+    }
+
+    protected void stateChanged() {
+        state_version++;
+        all_servers_state_version.incrementAndGet();
+    }
+
+    /**
+     * Changes whenever the state version of any server changes, it is incremented after the server's one. 
+     * Results depending on several servers need not check each of them as long as it did not change.
+     *
+     * @return The version of the states of all servers.
+     */
+    public static long getAllServersStateVersion() {
+        return all_servers_state_version.get();
+    }
+
+    /**
+     * Bounds at a server depend on the state of the server and of the servers upstream of it.
+     * Results derived for an unchanged state version remain valid.
+     *
+     * @return The version of the server's state, changes on every modification
+     *          that can influence bounds at this server.
+     */
+    public long getStateVersion() {
+        return curve_version + state_version;
     }
 
     public Multiplexing multiplexing() {
@@ -232,6 +291,7 @@ public class Server {
 
     public void setMultiplexing(Multiplexing multiplexing) {
         this.multiplexing = multiplexing;
+        stateChanged();
     }
 
     public String getAlias() {
@@ -27,9 +27,12 @@
 package org.networkcalculus.dnc.network.server_graph;
 
 import java.io.File;
+import java.lang.ref.SoftReference;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -77,11 +80,19 @@ public class ServerGraph {
 
 	private Map<Server, Set<Turn>> map__server__in_turns;
 	private Map<Server, Set<Turn>> map__server__out_turns;
+	
+	// Read-only views handed out by the queries that do not copy.
+	private Set<Server> servers_view;
+	private Set<Turn> turns_view;
+	private Set<Flow> flows_view;
+	private FlowSet empty_flows_view;
+	private Map<Server, Set<Turn>> map__server__in_turns_view;
+	private Map<Server, Set<Turn>> map__server__out_turns_view;
 
-	private Map<Server, Set<Flow>> map__server__flows;
-	private Map<Server, Set<Flow>> map__server__source_flows;
+	private Map<Server, FlowSet> map__server__flows;
+	private Map<Server, FlowSet> map__server__source_flows;
 
-	private Map<Turn, Set<Flow>> map__turn__flows;
+	private Map<Turn, FlowSet> map__turn__flows;
 
 	private String server_default_name_prefix = "s";
 	private int server_id_counter = 0;
@@ -93,6 +104,14 @@ public class ServerGraph {
 	private String flow_default_name_prefix = "f";
 	private int flow_id_counter = 0;
 	private Map<Integer, Flow> map__id__flow;
+	// Indexed by the flow id, removed flows are kept as ids are not reused.
+	// Resolves the ids stored in flow sets.
+	private List<Flow> list__id__flow;
+
+	// Incremented on every structural modification, i.e., adding or removing servers, turns or flows.
+	private long version = 0;
+	// Only softly reachable, the index is an addition to the maps above and can be recreated.
+	private SoftReference<ServerGraphIndex> index_ref = new SoftReference<ServerGraphIndex>(null);
 
 	public ServerGraph() {
 		servers = new HashSet<Server>();
@@ -101,17 +120,27 @@ public class ServerGraph {
 
 		map__id__server = new HashMap<Integer, Server>();
 		map__id__flow = new HashMap<Integer, Flow>();
+		list__id__flow = new ArrayList<Flow>();
 
 		map__server__in_turns = new HashMap<Server, Set<Turn>>();
 		map__server__out_turns = new HashMap<Server, Set<Turn>>();
 
-		map__server__flows = new HashMap<Server, Set<Flow>>();
-		map__server__source_flows = new HashMap<Server, Set<Flow>>();
+		map__server__flows = new HashMap<Server, FlowSet>();
+		map__server__source_flows = new HashMap<Server, FlowSet>();
 
-		map__turn__flows = new HashMap<Turn, Set<Flow>>();
+		map__turn__flows = new HashMap<Turn, FlowSet>();
+		
+		servers_view = Collections.unmodifiableSet(servers);
+		turns_view = Collections.unmodifiableSet(turns);
+		flows_view = Collections.unmodifiableSet(flows);
+		empty_flows_view = new FlowSet(this).readOnly();
+		map__server__in_turns_view = new HashMap<Server, Set<Turn>>();
+		map__server__out_turns_view = new HashMap<Server, Set<Turn>>();
 	}
 
 	private void remove(Set<Server> servers_to_remove, Set<Turn> turns_to_remove, Set<Flow> flows_to_remove) {
+		version++;
+
 		// Make sure that you do not remove a map's key before the according entries:
 		// (flows before servers and turns) & (turns before servers)
 
@@ -128,6 +157,7 @@ public class ServerGraph {
 
 			for (Server s : f.getPath().getServers()) {
 				map__server__flows.get(s).remove(f);
+				s.stateChanged();
 			}
 
 			map__server__source_flows.get(f.getSource()).remove(f);
@@ -141,6 +171,7 @@ public class ServerGraph {
 
 			map__turn__flows.remove(t);
 			map__server__in_turns.get(t.getDest()).remove(t);
+			t.getDest().stateChanged();
 			map__server__out_turns.get(t.getSource()).remove(t);
 		}
 
@@ -156,6 +187,8 @@ public class ServerGraph {
 
 			map__server__in_turns.remove(s);
 			map__server__out_turns.remove(s);
+			map__server__in_turns_view.remove(s);
+			map__server__out_turns_view.remove(s);
 			map__server__source_flows.remove(s);
 		}
 	}
@@ -248,11 +281,17 @@ public class ServerGraph {
 	}
 
 	private void updateServerAdditionInternally(Server new_server) {
-		map__server__in_turns.put(new_server, new HashSet<Turn>());
-		map__server__out_turns.put(new_server, new HashSet<Turn>());
+		version++;
+
+		Set<Turn> in_turns = new HashSet<Turn>();
+		Set<Turn> out_turns = new HashSet<Turn>();
+		map__server__in_turns.put(new_server, in_turns);
+		map__server__out_turns.put(new_server, out_turns);
+		map__server__in_turns_view.put(new_server, Collections.unmodifiableSet(in_turns));
+		map__server__out_turns_view.put(new_server, Collections.unmodifiableSet(out_turns));
 
-		map__server__flows.put(new_server, new HashSet<Flow>());
-		map__server__source_flows.put(new_server, new HashSet<Flow>());
+		map__server__flows.put(new_server, new FlowSet(this));
+		map__server__source_flows.put(new_server, new FlowSet(this));
 
 		servers.add(new_server);
 
@@ -274,6 +313,22 @@ public class ServerGraph {
 		return new HashSet<Flow>(map__server__source_flows.get(source));
 	}
 
+	/**
+	 * Does not copy the flows, see {@link #getFlowSet(Server)}.
+	 *
+	 * @param source
+	 *            The server the flows originate in.
+	 * @return Read-only set of the flows originating in the server.
+	 */
+	public FlowSet getSourceFlowSet(Server source) {
+		FlowSet flows = map__server__source_flows.get(source);
+		if (flows != null) {
+			return flows.readOnly();
+		} else {
+			return empty_flows_view;
+		}
+	}
+
 	public Server getServer(int id) throws Exception {
 		if (id < 0 || id > map__id__server.size() - 1) {
 			throw new Exception("No server with id " + Integer.toString(id) + " found");
@@ -292,6 +347,15 @@ public class ServerGraph {
 		return new HashSet<Server>(servers);
 	}
 
+	/**
+	 * Does not copy the servers, see {@link #getFlowSet(Server)}.
+	 *
+	 * @return Read-only set of the servers.
+	 */
+	public Set<Server> getServerSet() {
+		return servers_view;
+	}
+
 	public int numServers() {
 		return servers.size();
 	}
@@ -350,11 +414,11 @@ public class ServerGraph {
 	}
 
 	public int inDegree(Server s) {
-		return getInTurns(s).size();
+		return getInTurnSet(s).size();
 	}
 
 	public int outDegree(Server s) {
-		return getOutTurns(s).size();
+		return getOutTurnSet(s).size();
 	}
 
 	/**
@@ -389,6 +453,38 @@ public class ServerGraph {
 		}
 	}
 
+	/**
+	 * Does not copy the turns, see {@link #getFlowSet(Server)}.
+	 *
+	 * @param s
+	 *            The server whose inturns are returned.
+	 * @return Read-only set of the incoming turns of s.
+	 */
+	public Set<Turn> getInTurnSet(Server s) {
+		Set<Turn> in_turns = map__server__in_turns_view.get(s);
+		if (in_turns == null) {
+			return Collections.emptySet();
+		} else {
+			return in_turns;
+		}
+	}
+
+	/**
+	 * Does not copy the turns, see {@link #getFlowSet(Server)}.
+	 *
+	 * @param s
+	 *            The server whose outturns are returned.
+	 * @return Read-only set of the outgoing turns of s.
+	 */
+	public Set<Turn> getOutTurnSet(Server s) {
+		Set<Turn> out_turns = map__server__out_turns_view.get(s);
+		if (out_turns == null) {
+			return Collections.emptySet();
+		} else {
+			return out_turns;
+		}
+	}
+
 	/**
 	 * Returns a new set consisting of references to the turns.
 	 *
@@ -397,7 +493,7 @@ public class ServerGraph {
 	 * @return The incident turns.
 	 */
 	public Set<Turn> getIncidentTurns(Server s) {
-		return SetUtils.getUnion(getInTurns(s), getOutTurns(s));
+		return SetUtils.getUnion(getInTurnSet(s), getOutTurnSet(s));
 	}
 
 	/**
@@ -421,7 +517,7 @@ public class ServerGraph {
 	 */
 	public Set<Server> getPredecessors(Server s) {
 		Set<Server> predecessors = new HashSet<Server>();
-		for (Turn t : getInTurns(s)) {
+		for (Turn t : getInTurnSet(s)) {
 			predecessors.add(t.getSource());
 		}
 		return predecessors;
@@ -436,7 +532,7 @@ public class ServerGraph {
 	 */
 	public Set<Server> getSuccessors(Server s) {
 		Set<Server> successors = new HashSet<Server>();
-		for (Turn t : getOutTurns(s)) {
+		for (Turn t : getOutTurnSet(s)) {
 			successors.add(t.getDest());
 		}
 		return successors;
@@ -467,11 +563,13 @@ public class ServerGraph {
 		} catch (Exception e) {
 			Turn new_turn = new Turn(turn_id_counter, alias, source, destination);
 			turn_id_counter++;
+			version++;
 
-			map__turn__flows.put(new_turn, new HashSet<Flow>());
+			map__turn__flows.put(new_turn, new FlowSet(this));
 
 			map__server__in_turns.get(destination).add(new_turn);
 			map__server__out_turns.get(source).add(new_turn);
+			destination.stateChanged();
 
 			turns.add(new_turn);
 			return new_turn;
@@ -490,6 +588,15 @@ public class ServerGraph {
 		return new HashSet<Turn>(turns);
 	}
 
+	/**
+	 * Does not copy the turns, see {@link #getFlowSet(Server)}.
+	 *
+	 * @return Read-only set of the turns.
+	 */
+	public Set<Turn> getTurnSet() {
+		return turns_view;
+	}
+
 	public int numTurns() {
 		return turns.size();
 	}
@@ -504,16 +611,19 @@ public class ServerGraph {
 	 *             No turn from src to snk found in this server graph.
 	 */
 	public Turn findTurn(Server src, Server dest) throws Exception {
-		Set<Turn> connecting_turn_as_set = SetUtils.getIntersection(getInTurns(dest), getOutTurns(src));
-		if (connecting_turn_as_set.isEmpty()) {
-			throw new Exception("No turn between " + src.toString() + " and " + dest.toString() + " found.");
-		} else {
-			if (connecting_turn_as_set.size() > 1) {
-				throw new Exception("Too many turns between " + src.toString() + " and " + dest.toString() + " found.");
-			} else {
-				return connecting_turn_as_set.iterator().next();
+		Turn connecting_turn = null;
+		for (Turn t : getOutTurnSet(src)) {
+			if (t.getDest().equals(dest)) {
+				if (connecting_turn != null) {
+					throw new Exception("Too many turns between " + src.toString() + " and " + dest.toString() + " found.");
+				}
+				connecting_turn = t;
 			}
 		}
+		if (connecting_turn == null) {
+			throw new Exception("No turn between " + src.toString() + " and " + dest.toString() + " found.");
+		}
+		return connecting_turn;
 	}
 
 	// ---------------------------------------------------------------------------------------------
@@ -652,8 +762,10 @@ public class ServerGraph {
 		}
 
 		Flow new_flow = new Flow(flow_id_counter, alias, arrival_curve.copy(), path);
+		version++;
 		flows.add(new_flow);
 		map__id__flow.put(Integer.valueOf(flow_id_counter), new_flow);
+		list__id__flow.add(new_flow);
 		flow_id_counter++;
 		
 		map__server__source_flows.get(path.getSource()).add(new_flow);
@@ -663,6 +775,7 @@ public class ServerGraph {
 		}
 		for (Server s : path.getServers()) {
 			map__server__flows.get(s).add(new_flow);
+			s.stateChanged();
 		}
 
 		return new_flow;
@@ -688,6 +801,15 @@ public class ServerGraph {
 		return new HashSet<Flow>(flows);
 	}
 
+	/**
+	 * Does not copy the flows, see {@link #getFlowSet(Server)}.
+	 *
+	 * @return Read-only set of the flows.
+	 */
+	public Set<Flow> getFlowSet() {
+		return flows_view;
+	}
+
 	public int numFlows() {
 		return flows.size();
 	}
@@ -719,6 +841,25 @@ public class ServerGraph {
 		}
 	}
 
+	/**
+	 * Does not copy the flows, see {@link #getFlowSet(Server)}.
+	 *
+	 * @param t
+	 *            The turn.
+	 * @return Read-only set of the flows crossing the turn.
+	 */
+	public FlowSet getFlowSet(Turn t) {
+		FlowSet flows = null;
+		if (t != null) {
+			flows = map__turn__flows.get(t);
+		}
+		if (flows != null) {
+			return flows.readOnly();
+		} else {
+			return empty_flows_view;
+		}
+	}
+
 	public Set<Flow> getFlows(Set<Turn> turns) {
 		HashSet<Flow> flows = new HashSet<Flow>();
 
@@ -742,6 +883,78 @@ public class ServerGraph {
 		}
 	}
 
+	/**
+	 * In contrast to {@link #getFlows(Server)}, the flows are not copied. 
+	 * The returned set is a read-only view on the server graph's internal one, 
+	 * i.e., it reflects later changes of the server graph. 
+	 * Use {@link FlowSet#copy()} or SetUtils to derive modifiable sets. 
+	 * Intersections, unions and differences with other flow sets of this server graph are
+	 * bit operations.
+	 *
+	 * @param s
+	 *            The server.
+	 * @return Read-only set of the flows crossing the server.
+	 */
+	public FlowSet getFlowSet(Server s) {
+		FlowSet flows = null;
+		if (s != null) {
+			flows = map__server__flows.get(s);
+		}
+		if (flows != null) {
+			return flows.readOnly();
+		} else {
+			return empty_flows_view;
+		}
+	}
+
+	/**
+	 * @return An empty, modifiable set for flows of this server graph.
+	 */
+	public FlowSet createFlowSet() {
+		return new FlowSet(this);
+	}
+
+	/**
+	 * @param flows
+	 *            Flows of this server graph.
+	 * @return A modifiable set containing the given flows.
+	 */
+	public FlowSet createFlowSet(Collection<Flow> flows) {
+		FlowSet flow_set = new FlowSet(this);
+		flow_set.addAll(flows);
+		return flow_set;
+	}
+
+	protected long getVersion() {
+		return version;
+	}
+
+	/**
+	 * The index is created on the first call and recreated on calls after modifications 
+	 * of the server graph, i.e., an index obtained before does not reflect them.
+	 * The server graph does not keep the index alive, it is recreated if it was garbage collected.
+	 *
+	 * @return The compact index of this server graph.
+	 */
+	public synchronized ServerGraphIndex getIndex() {
+		ServerGraphIndex index = index_ref.get();
+		if (index == null || !index.isCurrent()) {
+			index = new ServerGraphIndex(this, version);
+			index_ref = new SoftReference<ServerGraphIndex>(index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return The flow with the given ID, null if there is none, e.g., for flows of other server graphs.
+	 */
+	protected Flow getFlowById(int id) {
+		if (id < 0 || id >= list__id__flow.size()) {
+			return null;
+		}
+		return list__id__flow.get(id);
+	}
+
 	/**
 	 * Finds all the flows that cross at least one server on the path p.
 	 *
@@ -773,7 +986,7 @@ public class ServerGraph {
 		}
 		Set<Flow> result = new HashSet<Flow>();
 		// All the flows that start at the first server of the path p are potential candidates.
-		Set<Flow> flows_source_p = getFlows(p.getSource());
+		Set<Flow> flows_source_p = getFlowSet(p.getSource());
 		for(Flow f : flows_source_p){
 			if(f.getPath().equals(p)){
 				result.add(f);
@@ -797,7 +1010,7 @@ public class ServerGraph {
 
 		Set<Flow> set_set_flows;
 		for (Server s : p.getServers()) {
-			set_set_flows = getFlows(s); // No need to create another new instance of HashMap
+			set_set_flows = getFlowSet(s).copy(); // No need to create another new instance of HashMap
 			set_set_flows.removeAll(excluded_flows);
 			map__server__set_flows.put(s, set_set_flows);
 		}
@@ -988,9 +1201,9 @@ public class ServerGraph {
 		for ( Entry<Pair<Server,Path>,Set<Flow>> entry : starting_set.entrySet() ) {
 			
 			flows_on_turn_grouped.clear(); // Reusing this set reference works because the getDifference below creates a new set to return.
-			for( Turn on_t : getInTurns(  entry.getKey().getFirst() ) ) {
+			for( Turn on_t : getInTurnSet(  entry.getKey().getFirst() ) ) {
 				
-				flows_on_t = SetUtils.getIntersection( getFlows( on_t ), entry.getValue() );
+				flows_on_t = SetUtils.getIntersection( getFlowSet( on_t ), entry.getValue() );
 				if( !flows_on_t.isEmpty() ) {
 					results_set.put( new Pair<Turn,Path>( on_t, entry.getKey().getSecond() ), flows_on_t );
 					flows_on_turn_grouped.addAll( new HashSet<Flow>( flows_on_t ) );
@@ -1019,7 +1232,7 @@ public class ServerGraph {
 	 * @return An aggregate arrival curve.
 	 */
 	public ArrivalCurve getSourceFlowArrivalCurve(Server source) {
-		return getSourceFlowArrivalCurve(source, getSourceFlows(source));
+		return getSourceFlowArrivalCurve(source, getSourceFlowSet(source));
 	}
 
 	/**
@@ -1187,11 +1400,11 @@ public class ServerGraph {
 		servers_iteration.remove(path_source);
 
 		// Default for first server
-		Set<Flow> flows_joining = getFlows(path_source);
+		Set<Flow> flows_joining = getFlowSet(path_source).copy();
 		map__server__joining_flows.put(path_source, flows_joining);
 
 		for (Server s : servers_iteration) {
-			flows_joining = SetUtils.getDifference(getFlows(s), getFlows(path.getPrecedingTurn(s)));
+			flows_joining = SetUtils.getDifference(getFlowSet(s), getFlowSet(path.getPrecedingTurn(s)));
 
 			// Results in an empty set if there a no joining flow at server s
 			map__server__joining_flows.put(s, flows_joining);
@@ -1210,11 +1423,11 @@ public class ServerGraph {
 
 		for (Server s : servers_iteration) {
 			// Results in an empty set if there a no joining flow at server s
-			map__server__leaving_flows.put(s, SetUtils.getDifference(getFlows(s), getFlows(path.getSucceedingTurn(s))));
+			map__server__leaving_flows.put(s, SetUtils.getDifference(getFlowSet(s), getFlowSet(path.getSucceedingTurn(s))));
 		}
 
 		// Default for last server
-		map__server__leaving_flows.put(path_sink, getFlows(path_sink));
+		map__server__leaving_flows.put(path_sink, getFlowSet(path_sink).copy());
 
 		return map__server__leaving_flows;
 	}
@@ -1319,7 +1532,7 @@ public class ServerGraph {
 		for (int i = common_dest_index_f - 1; i >= 0; i--) { // -1 excludes server_common_dest
 			Server split_candidate = f_path.getServers().get(i);
 
-			if (getFlows(split_candidate).containsAll(flows_of_interest)) {
+			if (getFlowSet(split_candidate).containsAll(flows_of_interest)) {
 				split = split_candidate;
 			} else {
 				break;
@@ -1352,7 +1565,7 @@ public class ServerGraph {
 		for (int i = common_dest_index_f - 1; i >= 0; i--) { // -1 excludes server_common_dest
 			Server split_candidate = f_path.getServers().get(i);
 
-			if (getFlows(split_candidate).containsAll(flows_of_interest)) {
+			if (getFlowSet(split_candidate).containsAll(flows_of_interest)) {
 				split = split_candidate;
 			} else {
 				break;
@@ -0,0 +1,464 @@
+/*
+ * This file is part of the Deterministic Network Calculator (DNC).
+ *
+ * Copyright (C) 2019+ The DNC contributors
+ *
+ * http://networkcalculus.org
+ *
+ *
+ * The Deterministic Network Calculator (DNC) is free software;
+ * you can redistribute it and/or modify it under the terms of the 
+ * GNU Lesser General Public License as published by the Free Software Foundation; 
+ * either version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ */
+
+package org.networkcalculus.dnc.network.server_graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Frozen, compact index of a server graph for analysis-time queries.
+ * <p>
+ * Servers, turns and flows are numbered densely in the order of their ids.
+ * The flows crossing a server, the flows originating in a server, the flows crossing a turn 
+ * as well as the in- and outturns of a server are stored in compressed sparse row (CSR) format, 
+ * i.e., one int array with the concatenated rows of element indices and one array with the rows' offsets.
+ * Rows are sorted by index and contiguous in memory, an incidence takes one int.
+ * <p>
+ * The index is an addition to the server graph's maps and flow sets, not a replacement: 
+ * they remain the structures for modifications and for the set operations of the analyses. 
+ * Its benefit is the dense numbering for analyses that work on arrays, e.g., the network-wide total flow analysis. 
+ * The server graph only keeps the index softly reachable, see {@link ServerGraph#getIndex()}.
+ * <p>
+ * The index does not reflect modifications of the server graph after its creation, 
+ * see {@link #isCurrent()} and {@link ServerGraph#getIndex()}.
+ */
+public final class ServerGraphIndex {
+	private final ServerGraph server_graph;
+	private final long server_graph_version;
+
+	private final Server[] servers;
+	private final Turn[] turns;
+	private final Flow[] flows;
+
+	// Map from an element's id to its index, -1 if the id is not in use.
+	private final int[] server_id__index;
+	private final int[] turn_id__index;
+	private final int[] flow_id__index;
+
+	private final int[] turn_source;
+	private final int[] turn_dest;
+
+	private final int[] server_flows_offsets;
+	private final int[] server_flows;
+	private final int[] server_source_flows_offsets;
+	private final int[] server_source_flows;
+	private final int[] turn_flows_offsets;
+	private final int[] turn_flows;
+	private final int[] server_in_turns_offsets;
+	private final int[] server_in_turns;
+	private final int[] server_out_turns_offsets;
+	private final int[] server_out_turns;
+
+	protected ServerGraphIndex(ServerGraph server_graph, long server_graph_version) {
+		this.server_graph = server_graph;
+		this.server_graph_version = server_graph_version;
+
+		servers = server_graph.getServerSet().toArray(new Server[0]);
+		Arrays.sort(servers, Comparator.comparingInt(Server::getId));
+		turns = server_graph.getTurnSet().toArray(new Turn[0]);
+		Arrays.sort(turns, Comparator.comparingInt(Turn::getId));
+		flows = server_graph.getFlowSet().toArray(new Flow[0]);
+		Arrays.sort(flows, Comparator.comparingInt(Flow::getId));
+
+		server_id__index = new int[servers.length == 0 ? 0 : servers[servers.length - 1].getId() + 1];
+		Arrays.fill(server_id__index, -1);
+		for (int i = 0; i < servers.length; i++) {
+			server_id__index[servers[i].getId()] = i;
+		}
+		turn_id__index = new int[turns.length == 0 ? 0 : turns[turns.length - 1].getId() + 1];
+		Arrays.fill(turn_id__index, -1);
+		for (int i = 0; i < turns.length; i++) {
+			turn_id__index[turns[i].getId()] = i;
+		}
+		flow_id__index = new int[flows.length == 0 ? 0 : flows[flows.length - 1].getId() + 1];
+		Arrays.fill(flow_id__index, -1);
+		for (int i = 0; i < flows.length; i++) {
+			flow_id__index[flows[i].getId()] = i;
+		}
+
+		// Adjacency. Turns are visited in index order, thus, rows are sorted.
+		turn_source = new int[turns.length];
+		turn_dest = new int[turns.length];
+		server_in_turns_offsets = new int[servers.length + 1];
+		server_out_turns_offsets = new int[servers.length + 1];
+		for (int t = 0; t < turns.length; t++) {
+			turn_source[t] = indexOf(turns[t].getSource());
+			turn_dest[t] = indexOf(turns[t].getDest());
+			server_in_turns_offsets[turn_dest[t] + 1]++;
+			server_out_turns_offsets[turn_source[t] + 1]++;
+		}
+		prefixSums(server_in_turns_offsets);
+		prefixSums(server_out_turns_offsets);
+		server_in_turns = new int[turns.length];
+		server_out_turns = new int[turns.length];
+		int[] server_in_turns_fill = Arrays.copyOf(server_in_turns_offsets, servers.length);
+		int[] server_out_turns_fill = Arrays.copyOf(server_out_turns_offsets, servers.length);
+		for (int t = 0; t < turns.length; t++) {
+			server_in_turns[server_in_turns_fill[turn_dest[t]]++] = t;
+			server_out_turns[server_out_turns_fill[turn_source[t]]++] = t;
+		}
+
+		// Flow incidences. First pass counts, second pass fills the rows.
+		// Flows are visited in index order, thus, rows are sorted 
+		// and a flow crossing a server twice is detected by the row's last entry.
+		server_flows_offsets = new int[servers.length + 1];
+		server_source_flows_offsets = new int[servers.length + 1];
+		turn_flows_offsets = new int[turns.length + 1];
+		int[] server_last_flow = new int[servers.length];
+		int[] turn_last_flow = new int[turns.length];
+		Arrays.fill(server_last_flow, -1);
+		Arrays.fill(turn_last_flow, -1);
+		for (int f = 0; f < flows.length; f++) {
+			Path path = flows[f].getPath();
+			server_source_flows_offsets[indexOf(path.getSource()) + 1]++;
+			for (int i = 0; i < path.numServers(); i++) {
+				int s = indexOf(path.getServer(i));
+				if (server_last_flow[s] != f) {
+					server_last_flow[s] = f;
+					server_flows_offsets[s + 1]++;
+				}
+			}
+			for (int i = 0; i < path.numTurns(); i++) {
+				int t = indexOf(path.getTurn(i));
+				if (turn_last_flow[t] != f) {
+					turn_last_flow[t] = f;
+					turn_flows_offsets[t + 1]++;
+				}
+			}
+		}
+		prefixSums(server_flows_offsets);
+		prefixSums(server_source_flows_offsets);
+		prefixSums(turn_flows_offsets);
+
+		server_flows = new int[server_flows_offsets[servers.length]];
+		server_source_flows = new int[server_source_flows_offsets[servers.length]];
+		turn_flows = new int[turn_flows_offsets[turns.length]];
+		int[] server_flows_fill = Arrays.copyOf(server_flows_offsets, servers.length);
+		int[] server_source_flows_fill = Arrays.copyOf(server_source_flows_offsets, servers.length);
+		int[] turn_flows_fill = Arrays.copyOf(turn_flows_offsets, turns.length);
+		Arrays.fill(server_last_flow, -1);
+		Arrays.fill(turn_last_flow, -1);
+		for (int f = 0; f < flows.length; f++) {
+			Path path = flows[f].getPath();
+			server_source_flows[server_source_flows_fill[indexOf(path.getSource())]++] = f;
+			for (int i = 0; i < path.numServers(); i++) {
+				int s = indexOf(path.getServer(i));
+				if (server_last_flow[s] != f) {
+					server_last_flow[s] = f;
+					server_flows[server_flows_fill[s]++] = f;
+				}
+			}
+			for (int i = 0; i < path.numTurns(); i++) {
+				int t = indexOf(path.getTurn(i));
+				if (turn_last_flow[t] != f) {
+					turn_last_flow[t] = f;
+					turn_flows[turn_flows_fill[t]++] = f;
+				}
+			}
+		}
+	}
+
+	private static void prefixSums(int[] offsets) {
+		for (int i = 1; i < offsets.length; i++) {
+			offsets[i] += offsets[i - 1];
+		}
+	}
+
+	public ServerGraph getServerGraph() {
+		return server_graph;
+	}
+
+	/**
+	 * @return True if the server graph was not modified since the creation of this index.
+	 */
+	public boolean isCurrent() {
+		return server_graph.getVersion() == server_graph_version;
+	}
+
+	// --------------------------------------------------------------------------------------------
+	// Elements and their indices
+	// --------------------------------------------------------------------------------------------
+	public int numServers() {
+		return servers.length;
+	}
+
+	public int numTurns() {
+		return turns.length;
+	}
+
+	public int numFlows() {
+		return flows.length;
+	}
+
+	public Server getServer(int server_index) {
+		return servers[server_index];
+	}
+
+	public Turn getTurn(int turn_index) {
+		return turns[turn_index];
+	}
+
+	public Flow getFlow(int flow_index) {
+		return flows[flow_index];
+	}
+
+	/**
+	 * @param s
+	 *            The server.
+	 * @return The server's index, -1 if it is not part of the index.
+	 */
+	public int indexOf(Server s) {
+		int id = s.getId();
+		if (id < 0 || id >= server_id__index.length) {
+			return -1;
+		}
+		int index = server_id__index[id];
+		return index != -1 && servers[index] == s ? index : -1;
+	}
+
+	/**
+	 * @param t
+	 *            The turn.
+	 * @return The turn's index, -1 if it is not part of the index.
+	 */
+	public int indexOf(Turn t) {
+		int id = t.getId();
+		if (id < 0 || id >= turn_id__index.length) {
+			return -1;
+		}
+		int index = turn_id__index[id];
+		return index != -1 && turns[index] == t ? index : -1;
+	}
+
+	/**
+	 * @param f
+	 *            The flow.
+	 * @return The flow's index, -1 if it is not part of the index.
+	 */
+	public int indexOf(Flow f) {
+		int id = f.getId();
+		if (id < 0 || id >= flow_id__index.length) {
+			return -1;
+		}
+		int index = flow_id__index[id];
+		return index != -1 && flows[index] == f ? index : -1;
+	}
+
+	// --------------------------------------------------------------------------------------------
+	// Index-based queries
+	// --------------------------------------------------------------------------------------------
+	public int getTurnSource(int turn_index) {
+		return turn_source[turn_index];
+	}
+
+	public int getTurnDest(int turn_index) {
+		return turn_dest[turn_index];
+	}
+
+	public int inDegree(int server_index) {
+		return server_in_turns_offsets[server_index + 1] - server_in_turns_offsets[server_index];
+	}
+
+	public int getInTurn(int server_index, int i) {
+		return server_in_turns[server_in_turns_offsets[server_index] + i];
+	}
+
+	public int outDegree(int server_index) {
+		return server_out_turns_offsets[server_index + 1] - server_out_turns_offsets[server_index];
+	}
+
+	public int getOutTurn(int server_index, int i) {
+		return server_out_turns[server_out_turns_offsets[server_index] + i];
+	}
+
+	public int numFlowsAtServer(int server_index) {
+		return server_flows_offsets[server_index + 1] - server_flows_offsets[server_index];
+	}
+
+	public int getFlowAtServer(int server_index, int i) {
+		return server_flows[server_flows_offsets[server_index] + i];
+	}
+
+	public int numSourceFlowsAtServer(int server_index) {
+		return server_source_flows_offsets[server_index + 1] - server_source_flows_offsets[server_index];
+	}
+
+	public int getSourceFlowAtServer(int server_index, int i) {
+		return server_source_flows[server_source_flows_offsets[server_index] + i];
+	}
+
+	public int numFlowsAtTurn(int turn_index) {
+		return turn_flows_offsets[turn_index + 1] - turn_flows_offsets[turn_index];
+	}
+
+	public int getFlowAtTurn(int turn_index, int i) {
+		return turn_flows[turn_flows_offsets[turn_index] + i];
+	}
+
+	/**
+	 * Kahn's algorithm on the turns, ties are broken by index.
+	 *
+	 * @return The server indices in topological order, i.e., every server succeeds all its predecessors.
+	 * @throws Exception
+	 *             The server graph is not feed-forward.
+	 */
+	public int[] getTopologicalOrder() throws Exception {
+		int[] in_degrees = new int[servers.length];
+		int[] order = new int[servers.length];
+		int num_ordered = 0;
+		for (int s = 0; s < servers.length; s++) {
+			in_degrees[s] = inDegree(s);
+			if (in_degrees[s] == 0) {
+				order[num_ordered++] = s;
+			}
+		}
+		// The order array doubles as the queue of servers whose predecessors are all ordered.
+		for (int next = 0; next < num_ordered; next++) {
+			int s = order[next];
+			for (int i = server_out_turns_offsets[s]; i < server_out_turns_offsets[s + 1]; i++) {
+				int dest = turn_dest[server_out_turns[i]];
+				if (--in_degrees[dest] == 0) {
+					order[num_ordered++] = dest;
+				}
+			}
+		}
+		if (num_ordered != servers.length) {
+			throw new Exception("The server graph is not feed-forward, no topological order exists.");
+		}
+		return order;
+	}
+
+	/**
+	 * Binary search in the server's row.
+	 *
+	 * @param server_index
+	 *            The server's index.
+	 * @param flow_index
+	 *            The flow's index.
+	 * @return True if the flow crosses the server.
+	 */
+	public boolean crosses(int server_index, int flow_index) {
+		return Arrays.binarySearch(server_flows, server_flows_offsets[server_index],
+				server_flows_offsets[server_index + 1], flow_index) >= 0;
+	}
+
+	// --------------------------------------------------------------------------------------------
+	// Object views
+	//
+	// Read-only lists on the rows, they do not copy the elements.
+	// --------------------------------------------------------------------------------------------
+	public List<Flow> getFlows(Server s) {
+		int server_index = checkedIndexOf(s);
+		return new Row<Flow>(flows, server_flows, server_flows_offsets[server_index], server_flows_offsets[server_index + 1]);
+	}
+
+	public List<Flow> getSourceFlows(Server s) {
+		int server_index = checkedIndexOf(s);
+		return new Row<Flow>(flows, server_source_flows, server_source_flows_offsets[server_index], server_source_flows_offsets[server_index + 1]);
+	}
+
+	public List<Flow> getFlows(Turn t) {
+		int turn_index = indexOf(t);
+		if (turn_index == -1) {
+			throw new IllegalArgumentException("Turn " + t + " is not part of the index.");
+		}
+		return new Row<Flow>(flows, turn_flows, turn_flows_offsets[turn_index], turn_flows_offsets[turn_index + 1]);
+	}
+
+	public List<Turn> getInTurns(Server s) {
+		int server_index = checkedIndexOf(s);
+		return new Row<Turn>(turns, server_in_turns, server_in_turns_offsets[server_index], server_in_turns_offsets[server_index + 1]);
+	}
+
+	public List<Turn> getOutTurns(Server s) {
+		int server_index = checkedIndexOf(s);
+		return new Row<Turn>(turns, server_out_turns, server_out_turns_offsets[server_index], server_out_turns_offsets[server_index + 1]);
+	}
+
+	/**
+	 * @param server_index
+	 *            The server's index.
+	 * @return A modifiable set of the flows crossing the server, for set operations with other flow sets.
+	 */
+	public FlowSet createFlowSet(int server_index) {
+		FlowSet flow_set = server_graph.createFlowSet();
+		for (int i = server_flows_offsets[server_index]; i < server_flows_offsets[server_index + 1]; i++) {
+			flow_set.add(flows[server_flows[i]]);
+		}
+		return flow_set;
+	}
+
+	private int checkedIndexOf(Server s) {
+		int server_index = indexOf(s);
+		if (server_index == -1) {
+			throw new IllegalArgumentException("Server " + s + " is not part of the index.");
+		}
+		return server_index;
+	}
+
+	private static final class Row<T> extends AbstractList<T> {
+		private final T[] elements;
+		private final int[] indices;
+		private final int from;
+		private final int to;
+
+		private Row(T[] elements, int[] indices, int from, int to) {
+			this.elements = elements;
+			this.indices = indices;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public T get(int i) {
+			if (i < 0 || i >= to - from) {
+				throw new IndexOutOfBoundsException("Index " + i + ", size " + (to - from));
+			}
+			return elements[indices[from + i]];
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuffer index_str = new StringBuffer();
+		index_str.append("ServerGraphIndex: ");
+		index_str.append(servers.length);
+		index_str.append(" servers, ");
+		index_str.append(turns.length);
+		index_str.append(" turns, ");
+		index_str.append(flows.length);
+		index_str.append(" flows, ");
+		index_str.append(server_flows.length);
+		index_str.append(" server-flow incidences");
+		return index_str.toString();
+	}
+}
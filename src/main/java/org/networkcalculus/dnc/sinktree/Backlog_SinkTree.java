@@ -41,22 +41,22 @@ public final class Backlog_SinkTree {
 		SinkTree_AffineCurves sink_tree_bound = new SinkTree_AffineCurves(tree);
 		ArrivalCurve arrivals_at_root = tree.getSourceFlowArrivalCurve(server);
 
-		for (Turn turn : tree.getInTurns(server)) {
+		for (Turn turn : tree.getInTurnSet(server)) {
 			switch (sink_tree_ab) {
 				case SINKTREE_AFFINE_HOMO:
 					arrivals_at_root = Curve.getUtils().add(arrivals_at_root, sink_tree_bound
-							.computeArrivalBoundHomogeneous(turn, tree.getFlows(turn), Flow.NULL_FLOW));
+							.computeArrivalBoundHomogeneous(turn, tree.getFlowSet(turn).copy(), Flow.NULL_FLOW));
 					continue; //implicit break
 	
 				case SINKTREE_AFFINE_DIRECT:
 					arrivals_at_root = Curve.getUtils().add(arrivals_at_root, sink_tree_bound
-							.computeArrivalBoundDirect(turn, tree.getFlows(turn), Flow.NULL_FLOW));
+							.computeArrivalBoundDirect(turn, tree.getFlowSet(turn).copy(), Flow.NULL_FLOW));
 					continue; //implicit break
 					
 				case SINKTREE_AFFINE_MINPLUS:
 				default:
 					arrivals_at_root = Curve.getUtils().add(arrivals_at_root, sink_tree_bound
-							.computeArrivalBoundMinPlusBackend(turn, tree.getFlows(turn), Flow.NULL_FLOW));
+							.computeArrivalBoundMinPlusBackend(turn, tree.getFlowSet(turn).copy(), Flow.NULL_FLOW));
 					continue; //implicit break
 			}
 		}
@@ -77,7 +77,7 @@ public class SinkTree_AffineCurves {
     public ArrivalCurve computeArrivalBoundMinPlusBackend(Turn turn, Set<Flow> f_xfcaller, Flow flow_of_interest)
             throws Exception {
         // Get flows of interest
-        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlows(turn));
+        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlowSet(turn));
         f_xfcaller_server.remove(flow_of_interest);
 
         if (f_xfcaller_server.isEmpty()) {
@@ -117,7 +117,7 @@ public class SinkTree_AffineCurves {
     public ArrivalCurve computeArrivalBoundDirect(Turn turn, Set<Flow> f_xfcaller, Flow flow_of_interest)
             throws Exception {
         // Get flows of interest
-        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlows(turn));
+        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlowSet(turn));
         f_xfcaller_server.remove(flow_of_interest);
         if (f_xfcaller_server.isEmpty()) {
             return Calculator.getInstance().getCurveFactory().createZeroArrivals();
@@ -175,7 +175,7 @@ public class SinkTree_AffineCurves {
             throws Exception {
 
         // Get flows of interest
-        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlows(turn));
+        Set<Flow> f_xfcaller_server = SetUtils.getIntersection(f_xfcaller, server_graph.getFlowSet(turn));
         f_xfcaller_server.remove(flow_of_interest);
         if (f_xfcaller_server.size() == 0) {
             return Calculator.getInstance().getCurveFactory().createZeroArrivals();
@@ -31,7 +31,10 @@ import java.util.Map;
 import java.util.Set;
 
 import org.networkcalculus.dnc.AnalysisConfig;
+import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
+import org.networkcalculus.dnc.network.server_graph.Flow;
+import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.dnc.network.server_graph.ServerGraph;
 import org.networkcalculus.num.Num;
@@ -40,11 +43,30 @@ public abstract class AbstractTandemAnalysis implements TandemAnalysis {
     protected ServerGraph server_graph;
     protected AnalysisConfig configuration;
     protected TandemAnalysisResults result;
+    protected Calculator calculator = Calculator.getInstance();
 
     public ServerGraph getServerGraph() {
         return server_graph;
     }
 
+    public Calculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Performs the analysis with this analysis' calculation context bound to the executing thread.
+     * All arrival bounds and curve operations derived on the way use this context 
+     * and the multiplexing enforcement of this analysis' configuration.
+     */
+    public void performAnalysis(Flow flow_of_interest, Path path) throws Exception {
+        calculator.withMultiplexingEnforcement(configuration.enforceMultiplexing()).call(() -> {
+            performAnalysisInContext(flow_of_interest, path);
+            return null;
+        });
+    }
+
+    protected abstract void performAnalysisInContext(Flow flow_of_interest, Path path) throws Exception;
+
     @Override
     public String toString() {
         return getClass().getSimpleName();
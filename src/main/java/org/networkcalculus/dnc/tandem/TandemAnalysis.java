@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.networkcalculus.dnc.AnalysisConfig;
+import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
@@ -107,4 +108,6 @@ public interface TandemAnalysis {
     String getServerAlphasMapString();
     
     ServerGraph getServerGraph();
+    
+    Calculator getCalculator();
 }
\ No newline at end of file
@@ -8,13 +8,13 @@ import org.networkcalculus.dnc.bounds.disco.pw_affine.LeftOverService_Disco_PwAf
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.ServiceCurve;
-import org.networkcalculus.dnc.curves.disco.pw_affine.Curve_Disco_PwAffine;
 import org.networkcalculus.dnc.feedforward.ArrivalBoundDispatchFIFO;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.dnc.network.server_graph.ServerGraph;
 import org.networkcalculus.dnc.tandem.AbstractTandemAnalysis;
+import org.networkcalculus.dnc.tandem.fifo.LUDBOPT.LUDB_LP;
 import org.networkcalculus.dnc.tandem.fifo.NestedTandemAnalysis;
 import org.networkcalculus.dnc.tandem.fifo.NonNestedTandemAnalysis;
 import org.networkcalculus.dnc.tandem.fifo.TNode;
@@ -30,6 +30,8 @@ import org.networkcalculus.num.Num;
 public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
     private final boolean checkStabilityConstraint = false;
 
+    private LUDB_LP ludb_lp = new LUDB_LP(); // solves the LPs of all LUDB-FF tandem analyses performed by this analysis
+
     public FIFOTandemAnalysis(ServerGraph server_graph ) {
         super.server_graph = server_graph;
         super.result = new FIFOTandemAnalysisResults();
@@ -44,6 +46,21 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
         configuration.enforceMultiplexing(AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO);
     }
 
+    public FIFOTandemAnalysis(ServerGraph server_graph, AnalysisConfig configuration, Calculator calculator) {
+        super.server_graph = server_graph;
+        super.result = new FIFOTandemAnalysisResults();
+        this.configuration = configuration;
+        configuration.enforceMultiplexing(AnalysisConfig.MultiplexingEnforcement.GLOBAL_FIFO);
+        super.calculator = calculator;
+    }
+
+    /**
+     * @return The LUDB-FF LP solving of this analysis, e.g., to retrieve its statistics.
+     */
+    public LUDB_LP getLUDB_LP() {
+        return ludb_lp;
+    }
+
     /**
      * Performs a FIFO analysis for the <code>flow_of_interest</code>.
      *
@@ -54,14 +71,14 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
         performAnalysis( flow_of_interest, flow_of_interest.getPath() );
     }
 
-    public void performAnalysis( Flow flow_of_interest, Path path ) throws Exception
+    protected void performAnalysisInContext( Flow flow_of_interest, Path path ) throws Exception
     {
         // Some analysis (especially LUDB-FF) might return wrong results if the stability constraint is not fulfilled or exits with an error
         if(checkStabilityConstraint)
         {
-            for(Server server : server_graph.getServers())
+            for(Server server : server_graph.getServerSet())
             {
-                Set<Flow> flows = server_graph.getFlows(server);
+                Set<Flow> flows = server_graph.getFlowSet(server);
 
                 Num rate_sum = Num.getFactory(Calculator.getInstance().getNumBackend()).getZero();
 
@@ -191,13 +208,14 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                 {
                     // Nested, at least one crossflow has path as subpath, solve for "best" output bound
                     NestedTandemAnalysis tandem_analysis_crossflow_w_path_as_subpath = new NestedTandemAnalysis(path, crossflow_substitutes.get(path), new HashSet<>(crossflow_substitutes.values()), configuration);
+                    tandem_analysis_crossflow_w_path_as_subpath.setLUDB_LP(ludb_lp);
                     ServiceCurve sc_crossflow_w_path_as_subpath = tandem_analysis_crossflow_w_path_as_subpath.getServiceCurve();
 
                     ArrivalCurve ac = crossflow_substitutes.get(path).getArrivalCurve();
                     ServiceCurve sc = sc_crossflow_w_path_as_subpath;
                     Num burst = ac.getBurst();
 
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+                    Curve curve = sc;
 
                     Num theta_curr_lb = curve.f_inv(burst);
                     return LeftOverService_Disco_PwAffine.fifoMux(sc, ac, theta_curr_lb);
@@ -221,9 +239,11 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     all_flow_substitutes.add(flow_substitute_foi_w_crossflow);
 
                     NestedTandemAnalysis tandem_analysis = new NestedTandemAnalysis(path, flow_substitute_foi_w_crossflow, all_flow_substitutes, configuration);
+
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     ServiceCurve sc_lo_foi_w_crossflow = tandem_analysis.getServiceCurve();
                     Num burst = flow_substitute_foi_w_crossflow.getArrivalCurve().getBurst();
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc_lo_foi_w_crossflow;
+                    Curve curve = sc_lo_foi_w_crossflow;
                     Num theta = curve.f_inv(burst);
                     return LeftOverService_Disco_PwAffine.fifoMux(sc_lo_foi_w_crossflow, ac_crossflow_substitutes_path_as_subpath, theta);
                 }
@@ -237,6 +257,7 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     all_flow_substitutes.addAll(crossflow_substitutes.values());
                     all_flow_substitutes.add(foi_substitute);
                     NestedTandemAnalysis tandem_analysis = new NestedTandemAnalysis(path, foi_substitute, all_flow_substitutes, configuration);
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     TNode root = tandem_analysis.onlyComputeNestingTree();
                     ArrayList<TNode> foi_children = root.getChildren();
                     ServiceCurve leftover = Curve.getFactory().createZeroDelayInfiniteBurst();
@@ -262,13 +283,15 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                             }
 
                             NestedTandemAnalysis tandem_analysis_child = new NestedTandemAnalysis(foi_child_flow.getPath(), foi_child_flow, flows_nested_into_foi_child, configuration);
+
+                            tandem_analysis_child.setLUDB_LP(ludb_lp);
                             ServiceCurve beta_lo_child = tandem_analysis_child.getServiceCurve();
 
                             ArrivalCurve ac = foi_child_flow.getArrivalCurve();
                             ServiceCurve sc = beta_lo_child;
                             Num burst = ac.getBurst();
 
-                            Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+                            Curve curve = sc;
 
                             Num theta_curr_lb = curve.f_inv(burst);
                             ServiceCurve subtandem_foi_lo = LeftOverService_Disco_PwAffine.fifoMux(beta_lo_child, foi_child_flow.getArrivalCurve(), theta_curr_lb);
@@ -283,6 +306,7 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     all_flow_substitutes.addAll(crossflow_substitutes.values());
                     all_flow_substitutes.add(foi_substitute);
                     NestedTandemAnalysis tandem_analysis = new NestedTandemAnalysis(path, foi_substitute, all_flow_substitutes, configuration);
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     return tandem_analysis.getServiceCurve();
                 }
             }
@@ -296,12 +320,13 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     // Non nested, at least one crossflow has path as subpath, solve for "best" output bound
                     // yes the flag has to be set to solve_for_output_bound_opt == false because we do the analysis with the crossflows that have path as subpath as flow of interest (and use the respective left-over to get a left-over for the flows_of_interest)
                     NonNestedTandemAnalysis tandem_analysis_crossflow_w_path_as_subpath = new NonNestedTandemAnalysis(server_graph, configuration, path, crossflow_substitutes.get(path), new ArrayList<>(crossflow_substitutes.values()), crossflows_subpath_grouped, false);
+                    tandem_analysis_crossflow_w_path_as_subpath.setLUDB_LP(ludb_lp);
                     ServiceCurve sc_crossflow_w_path_as_subpath = tandem_analysis_crossflow_w_path_as_subpath.getServiceCurve();
                     ArrivalCurve ac = crossflow_substitutes.get(path).getArrivalCurve();
                     ServiceCurve sc = sc_crossflow_w_path_as_subpath;
                     Num burst = ac.getBurst();
 
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+                    Curve curve = sc;
 
                     Num theta_curr_lb = curve.f_inv(burst);
                     return LeftOverService_Disco_PwAffine.fifoMux(sc, ac, theta_curr_lb);
@@ -333,9 +358,11 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     crossflows_subpath_grouped_minus_crossflow_w_path.remove(path);
 
                     NonNestedTandemAnalysis tandem_analysis = new NonNestedTandemAnalysis(server_graph, configuration, path, flow_substitute_foi_w_crossflow, all_flow_substitutes, crossflows_subpath_grouped_minus_crossflow_w_path, false);
+
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     ServiceCurve sc_lo_foi_w_crossflow = tandem_analysis.getServiceCurve();
                     Num burst = flow_substitute_foi_w_crossflow.getArrivalCurve().getBurst();
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc_lo_foi_w_crossflow;
+                    Curve curve = sc_lo_foi_w_crossflow;
                     Num theta = curve.f_inv(burst);
                     return LeftOverService_Disco_PwAffine.fifoMux(sc_lo_foi_w_crossflow, ac_crossflow_substitutes_path_as_subpath, theta);
                 }
@@ -348,6 +375,7 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     all_flow_substitutes.addAll(crossflow_substitutes.values());
                     all_flow_substitutes.add(foi_substitute);
                     NonNestedTandemAnalysis tandem_analysis  = new NonNestedTandemAnalysis(server_graph, configuration, path, foi_substitute, all_flow_substitutes, crossflows_subpath_grouped, true);
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     return tandem_analysis.getServiceCurve();
                 }
 
@@ -357,6 +385,7 @@ public class FIFOTandemAnalysis extends AbstractTandemAnalysis {
                     all_flow_substitutes.addAll(crossflow_substitutes.values());
                     all_flow_substitutes.add(foi_substitute);
                     NonNestedTandemAnalysis tandem_analysis  = new NonNestedTandemAnalysis(server_graph, configuration, path, foi_substitute, all_flow_substitutes, crossflows_subpath_grouped, false);
+                    tandem_analysis.setLUDB_LP(ludb_lp);
                     return tandem_analysis.getServiceCurve();
                 }
             }
@@ -28,14 +28,17 @@
 
 package org.networkcalculus.dnc.tandem.analyses;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.math3.util.Pair;
 import org.networkcalculus.dnc.AlgDncBackend_DNC_Affine;
@@ -57,6 +60,36 @@ import org.networkcalculus.dnc.tandem.AbstractTandemAnalysis;
 import org.networkcalculus.num.Num;
 
 public class PmooAnalysis extends AbstractTandemAnalysis {
+    // Combinations of token buckets and rate latency curves searched sequentially by a fork-join task.
+    private static final long PMOO_COMBINATIONS_PER_TASK = 1024;
+
+    // Flow prolongation: interference patterns held in memory to derive their left-over betas concurrently.
+    private static final int INTERFERENCE_PATTERNS_PER_BATCH = 64;
+    // Interference patterns with cached left-over betas per analysis, least recently used ones are evicted first.
+    private static final int INTERFERENCE_PATTERNS_CACHED = 1024;
+
+    // The left-over betas of an interference pattern and the arrival bounds of its cross-flow substitutes.
+    private static class XtxSubpathBetas {
+        private final Set<ServiceCurve> betas_e2e;
+        private final Map<Server, Set<ArrivalCurve>> map__server__alphas;
+
+        private XtxSubpathBetas(Set<ServiceCurve> betas_e2e, Map<Server, Set<ArrivalCurve>> map__server__alphas) {
+            this.betas_e2e = betas_e2e;
+            this.map__server__alphas = map__server__alphas;
+        }
+    }
+
+    // Keyed by the tandem and the interference pattern on it.
+    private final Map<Pair<Path, Map<Path, Set<Flow>>>, XtxSubpathBetas> map__interference_pattern__betas =
+            new LinkedHashMap<Pair<Path, Map<Path, Set<Flow>>>, XtxSubpathBetas>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Pair<Path, Map<Path, Set<Flow>>>, XtxSubpathBetas> eldest) {
+                    return size() > INTERFERENCE_PATTERNS_CACHED;
+                }
+            };
+
     @SuppressWarnings("unused")
     private PmooAnalysis() {
     }
@@ -72,6 +105,13 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
         super.configuration = configuration;
         super.result = new PmooResults();
     }
+
+    public PmooAnalysis(ServerGraph server_graph, AnalysisConfig configuration, Calculator calculator) {
+        super.server_graph = server_graph;
+        super.configuration = configuration;
+        super.result = new PmooResults();
+        super.calculator = calculator;
+    }
     
     public static ServiceCurve getServiceCurve(Path path, List<Flow> cross_flow_substitutes) {
     	if( Calculator.getInstance().getDncBackend() == AlgDncBackend_DNC_Affine.DISCO_AFFINE) {
@@ -150,6 +190,10 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
      * rate latency curves, and calls <code>computePartialPMOOServiceCurve()</code>
      * for each combination. The total PMOO service curve is the maximum of all
      * partial service curves.
+     * <p>
+     * Large combination spaces are split across fork-join tasks. Partial service curves
+     * that are below another partial service curve do not contribute to the maximum, 
+     * they are dropped before computing it.
      *
      * @param path                   The Path traversed for which a PMOO left-over service curve will
      *                               be computed.
@@ -158,70 +202,130 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
      * @return The PMOO service curve
      */
     public static ServiceCurve getServiceCurve_ConPwAffine(Path path, List<Flow> cross_flow_substitutes) {
-        // Create a flow-->tb_iter map
-        Map<Flow, Integer> flow_tb_iter_map = new HashMap<Flow, Integer>();
-        for (Flow f : cross_flow_substitutes) {
-            flow_tb_iter_map.put(f, Integer.valueOf(0));
+        // A combination is a mixed radix number, the flows' token buckets are its lower digits
+        int number_flows = cross_flow_substitutes.size();
+        int[] flow_tb_counts = new int[number_flows];
+        long number_combinations = 1;
+        for (int i = 0; i < number_flows; i++) {
+            flow_tb_counts[i] = cross_flow_substitutes.get(i).getArrivalCurve().getTB_ComponentCount();
+            number_combinations = Math.multiplyExact(number_combinations, flow_tb_counts[i]);
         }
-        // Create a list of rl_iters
         int number_servers = path.getServers().size();
         ServiceCurve[] service_curves = new ServiceCurve[number_servers];
-        int[] server_rl_iters = new int[number_servers];
         int[] server_rl_counts = new int[number_servers];
         int i = 0;
         for (Server server : path.getServers()) {
             ServiceCurve service_curve = server.getServiceCurve();
             service_curves[i] = service_curve;
-            server_rl_iters[i] = 0;
             server_rl_counts[i] = service_curve.getRL_ComponentCount();
+            number_combinations = Math.multiplyExact(number_combinations, server_rl_counts[i]);
             i++;
         }
 
+        PartialPMOOServiceCurvesTask task = new PartialPMOOServiceCurvesTask(Calculator.getInstance(), path, service_curves,
+                cross_flow_substitutes, flow_tb_counts, server_rl_counts, 0, number_combinations);
+        List<ServiceCurve> betas = number_combinations <= PMOO_COMBINATIONS_PER_TASK ? task.computeSequentially() : task.invoke();
+
         ServiceCurve beta_total = Curve_ConstantPool.ZERO_SERVICE_CURVE.get();
+        for (ServiceCurve beta : betas) {
+            beta_total = Curve.getUtils().max(beta_total, beta);
+        }
+        return beta_total;
+    }
 
-        boolean more_combinations = true;
-        while (more_combinations) {
-            // Compute service curve for this combination
-            ServiceCurve beta = computePartialPMOOServiceCurve(path, service_curves, cross_flow_substitutes,
-                    flow_tb_iter_map, server_rl_iters);
-            if (!beta.equals(Curve_ConstantPool.ZERO_SERVICE_CURVE.get())) {
-                beta_total = Curve.getUtils().max(beta_total, beta);
-            }
+    /**
+     * Computes the partial PMOO service curves of a range of combinations 
+     * and returns the ones not below another one, ordered by combination.
+     */
+    private static class PartialPMOOServiceCurvesTask extends RecursiveTask<List<ServiceCurve>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Calculator calculator;
+        private final Path path;
+        private final ServiceCurve[] service_curves;
+        private final List<Flow> cross_flow_substitutes;
+        private final int[] flow_tb_counts;
+        private final int[] server_rl_counts;
+        private final long from;
+        private final long to;
+
+        private PartialPMOOServiceCurvesTask(Calculator calculator, Path path, ServiceCurve[] service_curves,
+                                             List<Flow> cross_flow_substitutes, int[] flow_tb_counts, int[] server_rl_counts,
+                                             long from, long to) {
+            this.calculator = calculator;
+            this.path = path;
+            this.service_curves = service_curves;
+            this.cross_flow_substitutes = cross_flow_substitutes;
+            this.flow_tb_counts = flow_tb_counts;
+            this.server_rl_counts = server_rl_counts;
+            this.from = from;
+            this.to = to;
+        }
 
-            // First check whether there are more combinations of flow TBs
-            more_combinations = false;
-            Flow f;
-            ArrivalCurve f_bound;
-            for (Entry<Flow, Integer> entry : flow_tb_iter_map.entrySet()) {
-                f = entry.getKey();
-                f_bound = f.getArrivalCurve();
-
-                i = flow_tb_iter_map.get(f).intValue();
-                if (i + 1 < f_bound.getTB_ComponentCount()) {
-                    flow_tb_iter_map.put(f, Integer.valueOf(i + 1));
-                    more_combinations = true;
-                    break;
-                } else {
-                    flow_tb_iter_map.put(f, Integer.valueOf(0));
+        @Override
+        protected List<ServiceCurve> compute() {
+            if (to - from <= PMOO_COMBINATIONS_PER_TASK) {
+                // Worker threads do not see the caller's calculation context, it needs to be bound to them explicitly.
+                try {
+                    return calculator.call(() -> computeSequentially());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
                 }
             }
 
-            // If not, check whether there are more combinations of server RLs
-            if (!more_combinations) {
-                for (i = 0; i < server_rl_iters.length; i++) {
-                    int j = server_rl_iters[i];
-                    if (j + 1 < server_rl_counts[i]) {
-                        server_rl_iters[i] = j;
-                        more_combinations = true;
-                        break;
-                    } else {
-                        server_rl_iters[i] = 0;
-                    }
+            long middle = from + (to - from) / 2;
+            PartialPMOOServiceCurvesTask lower = new PartialPMOOServiceCurvesTask(calculator, path, service_curves,
+                    cross_flow_substitutes, flow_tb_counts, server_rl_counts, from, middle);
+            PartialPMOOServiceCurvesTask upper = new PartialPMOOServiceCurvesTask(calculator, path, service_curves,
+                    cross_flow_substitutes, flow_tb_counts, server_rl_counts, middle, to);
+            lower.fork();
+            List<ServiceCurve> betas = upper.compute();
+            List<ServiceCurve> betas_lower = lower.join();
+
+            for (ServiceCurve beta : betas) {
+                addIfNotDominated(betas_lower, beta);
+            }
+            return betas_lower;
+        }
+
+        private List<ServiceCurve> computeSequentially() {
+            List<ServiceCurve> betas = new LinkedList<ServiceCurve>();
+
+            Map<Flow, Integer> flow_tb_iter_map = new HashMap<Flow, Integer>();
+            int[] server_rl_iters = new int[server_rl_counts.length];
+            for (long combination = from; combination < to; combination++) {
+                long digits = combination;
+                for (int i = 0; i < flow_tb_counts.length; i++) {
+                    flow_tb_iter_map.put(cross_flow_substitutes.get(i), Integer.valueOf((int) (digits % flow_tb_counts[i])));
+                    digits /= flow_tb_counts[i];
+                }
+                for (int i = 0; i < server_rl_counts.length; i++) {
+                    server_rl_iters[i] = (int) (digits % server_rl_counts[i]);
+                    digits /= server_rl_counts[i];
+                }
+
+                ServiceCurve beta = computePartialPMOOServiceCurve(path, service_curves, cross_flow_substitutes,
+                        flow_tb_iter_map, server_rl_iters);
+                if (!beta.equals(Curve_ConstantPool.ZERO_SERVICE_CURVE.get())) {
+                    addIfNotDominated(betas, beta);
                 }
             }
+            return betas;
         }
 
-        return beta_total;
+        // Partial service curves are rate latency curves: a curve is below another one if its rate is not larger 
+        // and its latency is not smaller. Of equal curves, the earlier one is kept.
+        private static void addIfNotDominated(List<ServiceCurve> betas, ServiceCurve beta) {
+            Num rate = beta.getUltAffineRate();
+            Num latency = beta.getLatency();
+            for (ServiceCurve beta_kept : betas) {
+                if (beta_kept.getUltAffineRate().geq(rate) && beta_kept.getLatency().leq(latency)) {
+                    return;
+                }
+            }
+            betas.removeIf(beta_kept -> rate.geq(beta_kept.getUltAffineRate()) && latency.leq(beta_kept.getLatency()));
+            betas.add(beta);
+        }
     }
 
     /**
@@ -335,7 +439,7 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
         performAnalysis(flow_of_interest, flow_of_interest.getPath());
     }
 
-    public void performAnalysis(Flow flow_of_interest, Path path) throws Exception {
+    protected void performAnalysisInContext(Flow flow_of_interest, Path path) throws Exception {
         if (configuration.enforceMultiplexing() == MultiplexingEnforcement.GLOBAL_FIFO) {
             throw new Exception("PMOO analysis is not available for FIFO multiplexing nodes");
         }
@@ -396,131 +500,125 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
             return xtxSubpathBetas(flow_of_interest, path, xtx_subpath_grouped_original);
         }
 
-        // Create the set of cross-flow groupings, starting from the one for unprolonged
-        // flows.
-        Set<Map<Path, Set<Flow>>> xtx_subpath_grouped_incl_prolongation = new HashSet<Map<Path, Set<Flow>>>();
-        xtx_subpath_grouped_incl_prolongation.add(xtx_subpath_grouped_original);
+        // Interference patterns are generated one after another, each one is the original grouping with some cross-flows 
+        // moved to a prolonged subpath. Their left-over betas are derived in batches, i.e., only a batch is held in memory.
+        Set<ServiceCurve> betas_e2e = Collections.synchronizedSet(new HashSet<ServiceCurve>());
+        List<Map<Path, Set<Flow>>> interference_patterns_batch = new ArrayList<Map<Path, Set<Flow>>>(INTERFERENCE_PATTERNS_PER_BATCH);
+
+        enumerateInterferencePatterns(flow_of_interest, path, new ArrayList<Entry<Set<Flow>, LinkedList<Path>>>(prolongations.entrySet()), 0,
+                xtx_subpath_grouped_original, interference_patterns_batch, betas_e2e);
+        deriveInterferencePatternBetas(flow_of_interest, path, interference_patterns_batch, betas_e2e);
+
+        if (betas_e2e.isEmpty()) {
+            betas_e2e.add(Curve_ConstantPool.ZERO_SERVICE_CURVE.get());
+        }
+        return betas_e2e;
+    }
 
-        // General way it works:
-        // Permutations of all alternatives (see the code below ):
-        // - iterate over all the sets above
-        // - iterate over the results set
-        // - merge into a temporary results set (prevents concurrent modification
-        // exception)
-        // - replace results set with temporary one
-        // - start over with the outer iteration
+    /**
+     * Generates the interference patterns depth-first: every cross-flow group in <code>prolongations</code>
+     * either stays on its original subpath or is moved to one of its prolonged subpaths.
+     * The groups are disjoint, thus, every pattern is generated once.
+     * Completed patterns are added to the batch, the batch's left-over betas are derived once it is full.
+     */
+    private void enumerateInterferencePatterns(Flow flow_of_interest, Path path, List<Entry<Set<Flow>, LinkedList<Path>>> prolongations, int index,
+                                               Map<Path, Set<Flow>> interference_pattern, List<Map<Path, Set<Flow>>> interference_patterns_batch,
+                                               Set<ServiceCurve> betas_e2e) throws Exception {
+        if (index == prolongations.size()) {
+            interference_patterns_batch.add(interference_pattern);
+            if (interference_patterns_batch.size() == INTERFERENCE_PATTERNS_PER_BATCH) {
+                deriveInterferencePatternBetas(flow_of_interest, path, interference_patterns_batch, betas_e2e);
+            }
+            return;
+        }
 
-        // Move the individual cross flows around the xtx groups.
-        for (Entry<Set<Flow>, LinkedList<Path>> xf_prolongations : prolongations.entrySet()) {
+        Entry<Set<Flow>, LinkedList<Path>> xf_prolongations = prolongations.get(index);
+        LinkedList<Path> prolongable_paths = xf_prolongations.getValue();
+        if (prolongable_paths.size() == 1) {
+            throw new Exception("Something strange went wrong during flow prolongation");
+        }
 
-            LinkedList<Path> prolongable_paths = xf_prolongations.getValue();
-            if (prolongable_paths.size() == 1) {
-                throw new Exception("Something strange went wrong during flow prolongation");
+        // The flows stay on their original path.
+        enumerateInterferencePatterns(flow_of_interest, path, prolongations, index + 1, 
+                interference_pattern, interference_patterns_batch, betas_e2e);
+
+        Set<Flow> xfs = xf_prolongations.getKey();
+        Path common_path_old = prolongable_paths.getFirst(); // Original path needs to be always first.
+
+        // Every moving is defined by a prolonged flow aggregate's path.
+        // Start counting at 1 because the first element (at position 0) is the original
+        // interference path.
+        for (int i = 1; i <= prolongable_paths.size() - 1; i++) {
+            Map<Path, Set<Flow>> interference_pattern_new = prolong(interference_pattern, xfs, common_path_old, prolongable_paths.get(i));
+            if (interference_pattern_new != null) {
+                enumerateInterferencePatterns(flow_of_interest, path, prolongations, index + 1, 
+                        interference_pattern_new, interference_patterns_batch, betas_e2e);
             }
+        }
+    }
+
+    /**
+     * @return A new interference pattern with the flows <code>xfs</code> moved from <code>common_path_old</code> to <code>common_path_new</code>, 
+     *          null if the flows have already been moved or there is no aggregation potential on <code>common_path_new</code>.
+     */
+    private Map<Path, Set<Flow>> prolong(Map<Path, Set<Flow>> interference_pattern, Set<Flow> xfs, Path common_path_old, Path common_path_new) throws Exception {
+        // Patterns are not modified after their creation, so the new one only copies the two mappings of interest
+        // and shares the sets of flows with the given one otherwise.
+        Map<Path, Set<Flow>> interference_pattern_new = new HashMap<Path, Set<Flow>>(interference_pattern);
+
+        Set<Flow> value_flows_old = new HashSet<Flow>(interference_pattern.get(common_path_old));
+        if (!value_flows_old.removeAll(xfs)) { // The flows have already been moved -> skip this one.
+            return null;
+        }
+        interference_pattern_new.put(common_path_old, value_flows_old);
 
-            Set<Flow> xfs = xf_prolongations.getKey();
-            Path common_path_old = prolongable_paths.getFirst(); // Original path needs to be always first.
-            Path common_path_new;
-            Server subpaths_src;
-
-            // Every moving is defined by a prolonged flow aggregate's path.
-            // Start counting at 1 because the first element (at position 0) is the original
-            // interference path.
-            for (int i = 1; i <= prolongable_paths.size() - 1; i++) {
-                common_path_new = prolongable_paths.get(i);
-
-                // Each potential move of a flow generates a new set of xtx_subpath_groupings .
-                // They are merged into a temporary results set to prevent concurrent
-                // modification exceptions.
-                // Yes, we need a set of mappings because each mapping will be a unique
-                // interference patter no derive a left-over beta for.
-                Set<Map<Path, Set<Flow>>> xtx_subpath_grouped_incl_prolongation_tmp = new HashSet<Map<Path, Set<Flow>>>();
-
-                // At the beginning, only the original interference pattern is in here.
-                for (Map<Path, Set<Flow>> interference_pattern : xtx_subpath_grouped_incl_prolongation) { 
-                    // Prevent the original from getting lost because its sink is not part of
-                    // xf_prolongations's Server list.
-                    xtx_subpath_grouped_incl_prolongation_tmp.add(interference_pattern);
-
-                    // The general idea is to copy the map and modify the two mappings of interest only.
-                    // Yet, the copy we need is deeper than constructing a new map or using clone()-functionality.
-                    // We need a new map where 
-                    // a) the key can be the same path object as in to old map and
-                    // b) the value is a new map with the old flow objects.
-                    // Constructing this copy will require a loop -- the following loop we use for
-                    // an "in situ" modification we need.
-                    Map<Path, Set<Flow>> interference_pattern_new = new HashMap<Path, Set<Flow>>();
-                    boolean add = true;
-                    for (Entry<Path, Set<Flow>> interference_entry : interference_pattern.entrySet()) {
-
-                        Path key_path = interference_entry.getKey();
-                        Set<Flow> value_flows = new HashSet<Flow>(interference_entry.getValue());
-
-                        if (key_path.equals(common_path_old)) {
-                            if (!value_flows.removeAll(xfs)) { // The flows have already been moved -> skip this one.
-                                add = false;
-                                continue;
-                            }
-                            interference_pattern_new.put(key_path, value_flows);
-                        } else if (key_path.equals(common_path_new)) {
-                            if (value_flows.isEmpty()) { // Prolonging to an empty set will not cause aggregation
-                                // effects.
-                                add = false;
-                                continue;
-                            }
-
-                            boolean aggr_potential = false;
-                            subpaths_src = common_path_new.getSource();
-                            Turn inturn_xfs = xfs.iterator().next().getPrecedingTurn(subpaths_src);
-                            Turn inturn_subpath_flows;
-                            for (Flow f : value_flows) {
-                            	try {
-                                    inturn_subpath_flows = f.getPrecedingTurn(subpaths_src);
-                                    if (inturn_subpath_flows.equals(inturn_xfs)) {
-                                        aggr_potential = true;
-                                        continue;
-                                    }
-                                // There's an exception thrown by getPrecedingTurn if f is originating in subpaths_src
-                                } catch (Exception e) {
-                                } 
-                            }
-
-                            if (!aggr_potential) {
-                                add = false;
-                                continue;
-                            }
-
-                            value_flows.addAll(xfs);
-                            interference_pattern_new.put(key_path, value_flows);
-                        } else {
-                            interference_pattern_new.put(key_path, value_flows);
-                        }
-                    }
-
-                    if (add) {
-                        xtx_subpath_grouped_incl_prolongation_tmp.add(interference_pattern_new);
-                    }
+        Set<Flow> value_flows_new = interference_pattern.get(common_path_new);
+        if (value_flows_new == null || value_flows_new.isEmpty()) { // Prolonging to an empty set will not cause aggregation effects.
+            return null;
+        }
+
+        boolean aggr_potential = false;
+        Server subpaths_src = common_path_new.getSource();
+        Turn inturn_xfs = xfs.iterator().next().getPrecedingTurn(subpaths_src);
+        Turn inturn_subpath_flows;
+        for (Flow f : value_flows_new) {
+        	try {
+                inturn_subpath_flows = f.getPrecedingTurn(subpaths_src);
+                if (inturn_subpath_flows.equals(inturn_xfs)) {
+                    aggr_potential = true;
+                    break;
                 }
-                xtx_subpath_grouped_incl_prolongation = xtx_subpath_grouped_incl_prolongation_tmp;
-            }
+            // There's an exception thrown by getPrecedingTurn if f is originating in subpaths_src
+            } catch (Exception e) {
+            } 
         }
 
-        // Next, get the left-over betas for every prolongation variant.
-        Set<ServiceCurve> betas_e2e = Collections.synchronizedSet(new HashSet<ServiceCurve>());
+        if (!aggr_potential) {
+            return null;
+        }
+
+        value_flows_new = new HashSet<Flow>(value_flows_new);
+        value_flows_new.addAll(xfs);
+        interference_pattern_new.put(common_path_new, value_flows_new);
+
+        return interference_pattern_new;
+    }
 
-        xtx_subpath_grouped_incl_prolongation.parallelStream().forEach(xtx_subpath_grouped -> {
+    // Derives the left-over betas of the batch's interference patterns concurrently and clears the batch.
+    private void deriveInterferencePatternBetas(Flow flow_of_interest, Path path, List<Map<Path, Set<Flow>>> interference_patterns_batch, 
+                                                Set<ServiceCurve> betas_e2e) {
+        // Worker threads of the parallel stream do not see the caller's calculation context, 
+        // it needs to be bound to them explicitly.
+        final Calculator calculator_caller = Calculator.getInstance();
+        interference_patterns_batch.parallelStream().forEach(xtx_subpath_grouped -> {
             try {
-                betas_e2e.addAll(xtxSubpathBetas(flow_of_interest, path, xtx_subpath_grouped));
+                betas_e2e.addAll(calculator_caller.call(() -> xtxSubpathBetas(flow_of_interest, path, xtx_subpath_grouped)));
             } catch (Exception e) {
                 System.out.println();
                 e.printStackTrace();
             }
         });
-
-        if (betas_e2e.isEmpty()) {
-            betas_e2e.add(Curve_ConstantPool.ZERO_SERVICE_CURVE.get());
-        }
-        return betas_e2e;
+        interference_patterns_batch.clear();
     }
 
     private Map<Set<Flow>, LinkedList<Path>> getProlongationsToSubpaths(Path path,
@@ -639,7 +737,40 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
 
     private Set<ServiceCurve> xtxSubpathBetas(Flow flow_of_interest, Path path,
                                               Map<Path, Set<Flow>> xtx_subpath_grouped) throws Exception {
+        Pair<Path, Map<Path, Set<Flow>>> interference_pattern = new Pair<Path, Map<Path, Set<Flow>>>(path, xtx_subpath_grouped);
+        XtxSubpathBetas xtx_subpath_betas;
+        synchronized (map__interference_pattern__betas) {
+            xtx_subpath_betas = map__interference_pattern__betas.get(interference_pattern);
+        }
+        if (xtx_subpath_betas == null) {
+            xtx_subpath_betas = deriveXtxSubpathBetas(path, xtx_subpath_grouped);
+            synchronized (map__interference_pattern__betas) {
+                map__interference_pattern__betas.put(interference_pattern, xtx_subpath_betas);
+            }
+        }
+
+        synchronized (result.map__server__alphas) {
+            for (Entry<Server, Set<ArrivalCurve>> entry : xtx_subpath_betas.map__server__alphas.entrySet()) {
+                if (result.map__server__alphas.get(entry.getKey()) == null) {
+                    result.map__server__alphas.put(entry.getKey(), new HashSet<ArrivalCurve>(entry.getValue()));
+                } else {
+                    result.map__server__alphas.get(entry.getKey()).addAll(entry.getValue());
+                }
+            }
+        }
+
+        // Callers may modify the curves, the cached ones are not handed out.
+        Set<ServiceCurve> betas_e2e = new HashSet<ServiceCurve>();
+        for (ServiceCurve beta_e2e : xtx_subpath_betas.betas_e2e) {
+            betas_e2e.add(beta_e2e.copy());
+        }
+        return betas_e2e;
+    }
+
+    // Does not depend on the flow of interest, see the arrival bounding below.
+    private XtxSubpathBetas deriveXtxSubpathBetas(Path path, Map<Path, Set<Flow>> xtx_subpath_grouped) throws Exception {
         Set<ServiceCurve> betas_e2e = new HashSet<ServiceCurve>();
+        Map<Server, Set<ArrivalCurve>> map__server__alphas = new HashMap<Server, Set<ArrivalCurve>>();
 
         // Derive the cross-flow substitutes with their arrival bound
         Set<List<Flow>> cross_flow_substitutes_set = new HashSet<List<Flow>>();
@@ -676,8 +807,6 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
             arrival_bounds_turn_permutations.clear();
             List<Flow> flow_list_tmp = new LinkedList<Flow>();
             for (ArrivalCurve alpha : alphas_xf_group) {
-            	Curve.getUtils().beautify(alpha);
-
                 for (List<Flow> f_subst_list : cross_flow_substitutes_set) {
                     // The new list of cross-flow substitutes = old list plus a new one with one of
                     // the derived arrival bounds.
@@ -696,10 +825,10 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
             cross_flow_substitutes_set.addAll(arrival_bounds_turn_permutations);
             arrival_bounds_turn_permutations.clear();
 
-            if (result.map__server__alphas.get(entry.getKey().getSource()) == null) {
-                result.map__server__alphas.put(entry.getKey().getSource(), alphas_xf_group);
+            if (map__server__alphas.get(entry.getKey().getSource()) == null) {
+                map__server__alphas.put(entry.getKey().getSource(), new HashSet<ArrivalCurve>(alphas_xf_group));
             } else {
-                result.map__server__alphas.get(entry.getKey().getSource()).addAll(alphas_xf_group);
+                map__server__alphas.get(entry.getKey().getSource()).addAll(alphas_xf_group);
             }
         }
 
@@ -716,7 +845,7 @@ public class PmooAnalysis extends AbstractTandemAnalysis {
         if (betas_e2e.isEmpty()) {
             betas_e2e.add(Curve_ConstantPool.ZERO_SERVICE_CURVE.get());
         }
-        return betas_e2e;
+        return new XtxSubpathBetas(betas_e2e, map__server__alphas);
     }
 
     public Set<ServiceCurve> getLeftOverServiceCurves() {
@@ -43,6 +43,7 @@ import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.Curve_ConstantPool;
 import org.networkcalculus.dnc.curves.ServiceCurve;
 import org.networkcalculus.dnc.feedforward.ArrivalBoundDispatch;
+import org.networkcalculus.dnc.feedforward.PersistentCurveCache;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
@@ -69,6 +70,13 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
         super.result = new SeparateFlowResults();
     }
 
+    public SeparateFlowAnalysis(ServerGraph server_graph, AnalysisConfig configuration, Calculator calculator) {
+        super.server_graph = server_graph;
+        super.configuration = configuration;
+        super.result = new SeparateFlowResults();
+        super.calculator = calculator;
+    }
+
     /**
      * Performs a separated flow analysis for the <code>flow_of_interest</code>.
      * <p>
@@ -91,7 +99,7 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
         performAnalysis(flow_of_interest, path_foi.getSubPath(server, server));
     }
 
-    public void performAnalysis(Flow flow_of_interest, Path path) throws Exception {
+    protected void performAnalysisInContext(Flow flow_of_interest, Path path) throws Exception {
         result = tandemAnalysis(server_graph, flow_of_interest, path, Collections.singleton(flow_of_interest), configuration);
 
         Num delay_bound__beta_e2e;
@@ -139,7 +147,7 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
 
         for (Server server : path.getServers()) {
             // Find the set of flows that interfere, either already on or coming off the common_subpath.
-            Set<Flow> f_xxfcaller_server = server_graph.getFlows(server);
+            Set<Flow> f_xxfcaller_server = server_graph.getFlowSet(server).copy();
             f_xxfcaller_server.removeAll(flows_to_serve);   // We compute their beta l.o.
             f_xxfcaller_server.remove(flow_of_interest);    // If present, it has lowest priority.
 
@@ -154,7 +162,7 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
             }
 
             // The interfering flows originating at the current server.
-            f_xxfcaller_server_src = server_graph.getSourceFlows(server);
+            f_xxfcaller_server_src = server_graph.getSourceFlowSet(server).copy();
             f_xxfcaller_server_src.remove(flow_of_interest);
             f_xxfcaller_server_src.removeAll(flows_to_serve);
 
@@ -189,7 +197,7 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
                     Path foi_path = flow_of_interest.getPath();
                     if( foi_path.getServers().contains(server) && !foi_path.isSource(server) ) {
                         turn_from_prev_s = server_graph.findTurn(foi_path.getPrecedingServer(server), server);
-                        f_xxfcaller_server_onpath = SetUtils.getIntersection(f_xxfcaller_server, server_graph.getFlows(turn_from_prev_s));
+                        f_xxfcaller_server_onpath = SetUtils.getIntersection(f_xxfcaller_server, server_graph.getFlowSet(turn_from_prev_s));
                     }
                 }
 
@@ -230,7 +238,7 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
                 }
 
                 // Calculate the left-over service curve for the flow of interest
-                betas_lo_server = Calculator.getInstance().getDncBackend().getBoundingCurves().leftOverService(configuration, server, alpha_xfois);
+                betas_lo_server = leftOverService(configuration, server, alpha_xfois);
                 result.map__server__alphas.put(server, alpha_xfois);
             }
             ((SeparateFlowResults) result).map__server__betas_lo.put(server, betas_lo_server);
@@ -244,6 +252,21 @@ public class SeparateFlowAnalysis extends AbstractTandemAnalysis {
 
 
 
+    private static Set<ServiceCurve> leftOverService(AnalysisConfig configuration, Server server, Set<ArrivalCurve> alpha_xfois) throws Exception {
+        PersistentCurveCache persistent_cache = ArrivalBoundDispatch.getPersistentCache();
+        if (persistent_cache == null || !configuration.useArrivalBoundsCache()) {
+            return Calculator.getInstance().getDncBackend().getBoundingCurves().leftOverService(configuration, server, alpha_xfois);
+        }
+
+        String content = PersistentCurveCache.leftOverServiceContent(configuration, server, alpha_xfois);
+        Set<ServiceCurve> betas_lo_server = persistent_cache.loadServiceCurves(content);
+        if (betas_lo_server == null) {
+            betas_lo_server = Calculator.getInstance().getDncBackend().getBoundingCurves().leftOverService(configuration, server, alpha_xfois);
+            persistent_cache.storeServiceCurves(content, betas_lo_server);
+        }
+        return betas_lo_server;
+    }
+
     public Set<ServiceCurve> getLeftOverServiceCurves() {
         return ((SeparateFlowResults) result).betas_e2e;
     }
@@ -26,13 +26,18 @@
 
 package org.networkcalculus.dnc.tandem.analyses;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.math3.util.Pair;
 
@@ -41,7 +46,6 @@ import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.dnc.AnalysisConfig.Multiplexing;
 import org.networkcalculus.dnc.AnalysisConfig.MultiplexingEnforcement;
 import org.networkcalculus.dnc.curves.ArrivalCurve;
-import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.Curve_ConstantPool;
 import org.networkcalculus.dnc.curves.ServiceCurve;
 import org.networkcalculus.dnc.feedforward.ArrivalBoundDispatch;
@@ -54,9 +58,28 @@ import org.networkcalculus.dnc.tandem.AbstractTandemAnalysis;
 import org.networkcalculus.num.Num;
 
 public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
+	// Sub-path combinations of at most this many servers are searched sequentially.
+	private static final int SUB_PATH_COMBINATIONS_SEQUENTIAL_SERVERS = 6;
+	// Relative margin a lower bound of a prefix needs to exceed the current minimum by to prune the prefix.
+	private static final double PRUNING_MARGIN = 1e-9;
+	
+	// Memo of the analysis running on the current thread, shared with the tandem matching arrival bounds it triggers.
+	private static final ThreadLocal<SubTandemMemo> bound_sub_tandem_memo = new ThreadLocal<SubTandemMemo>();
+	
+	// Left-over service curves of the sub-tandems analyzed, renewed with every analysis.
+	private SubTandemMemo sub_tandem_memo = null;
+	
 	@SuppressWarnings("unused")
 	private TandemMatchingAnalysis() {}
 
+	/**
+	 * Combinations of sub-paths that cannot improve the delay bound or the backlog bound of the flow of interest are pruned. 
+	 * The left-over service curves are those that attain the delay bound or the backlog bound, the server alphas map holds 
+	 * the arrival bounds of the sub-tandems of their combinations. Use {@link #getServiceCurves(Flow, Path, Set)} for 
+	 * the curves of all combinations.
+	 * 
+	 * @return The end-to-end left-over service curves attaining the bounds of the last analysis.
+	 */
 	public Set<ServiceCurve> getLeftOverServiceCurves() {
 		return ((TandemMatchingResults) result).betas_e2e;
 	}
@@ -72,6 +95,13 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
         super.configuration = configuration;
 		super.result = new TandemMatchingResults();
 	}
+
+	public TandemMatchingAnalysis(ServerGraph server_graph, AnalysisConfig configuration, Calculator calculator) {
+        super.server_graph = server_graph;
+        super.configuration = configuration;
+		super.result = new TandemMatchingResults();
+		super.calculator = calculator;
+	}
 	
 	/**
 	 * Performs a Tandem Matching Analysis for the <code>flow_of_interest</code>.
@@ -84,7 +114,7 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 		performAnalysis( flow_of_interest, flow_of_interest.getPath() );
 	}
 
-	public void performAnalysis( Flow flow_of_interest, Path path ) throws Exception
+	protected void performAnalysisInContext( Flow flow_of_interest, Path path ) throws Exception
 	{
 		if( configuration.enforceMultiplexing() == MultiplexingEnforcement.GLOBAL_FIFO )
 		{
@@ -99,7 +129,12 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 			}
 		}
 		
-		((TandemMatchingResults) result).betas_e2e = getServiceCurves( flow_of_interest, path, Collections.singleton( flow_of_interest ) );
+		// Sub-path combinations that cannot improve the delay bound or the backlog bound are pruned.
+		synchronized( this ) {
+			sub_tandem_memo = new SubTandemMemo( server_graph, configuration );
+		}
+		((TandemMatchingResults) result).betas_e2e = sub_tandem_memo.call( () -> 
+				getServiceCurves( flow_of_interest, path, Collections.singleton( flow_of_interest ), flow_of_interest.getArrivalCurve() ) );
 
 		Num delay_bound__beta_e2e;
 		Num backlog_bound__beta_e2e;
@@ -181,27 +216,298 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 		return sub_path_combinations;
 	}
 	
+	/**
+	 * @return The end-to-end left-over service curves of all combinations of sub-paths of <code>path</code>.
+	 */
 	public Set<ServiceCurve> getServiceCurves( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve ) throws Exception
 	{
-		// Brute-force: Iterate over all binary combinations
-		List<List<Path>> sub_path_combinations = getAllSubPathCombinations( path );
-
-		Set<ServiceCurve> betas_e2e = new HashSet<ServiceCurve>();
-		for ( List<Path> combination : sub_path_combinations ) {					// Every sub_path_combination
-			Set<ServiceCurve> betas_e2e_combination = new HashSet<ServiceCurve>();	// will have a set of end-to-end left-over service curves
-			for ( Path sub_path : combination ) {									// computed as the convolution of its partial left-over service curves.
-				betas_e2e_combination = Calculator.getInstance().getMinPlus().convolve( 
-						betas_e2e_combination, getSubTandemServiceCurves( flow_of_interest, sub_path, new HashSet<Flow>( flows_to_serve ) ));
+		return getServiceCurves( flow_of_interest, path, flows_to_serve, null );
+	}
+	
+	/**
+	 * Enumerates the combinations of sub-paths depth-first, i.e., cut by cut, instead of materializing all of them.
+	 * Every combination's set of end-to-end left-over service curves is the convolution of its partial left-over service curves, 
+	 * prefixes shared by combinations are convolved once.
+	 * 
+	 * With an arrival curve, a prefix is pruned if it cannot improve the delay bound or the backlog bound for this arrival curve: 
+	 * the service left over on the remaining servers is at most their service curve. Which prefixes are pruned depends on the order 
+	 * the combinations are evaluated in, so only the curves attaining the minimal bounds are returned, they are found in any order. 
+	 * The server alphas map is extended by the arrival bounds of their combinations' sub-tandems, and by those of all sub-tandems 
+	 * without an arrival curve.
+	 * 
+	 * @param arrival_curve	The arrival curve to prune for, null to return the curves of all combinations.
+	 */
+	private Set<ServiceCurve> getServiceCurves( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve, ArrivalCurve arrival_curve ) throws Exception
+	{
+		SubPathCombinationSearch search = new SubPathCombinationSearch( flow_of_interest, path, flows_to_serve, arrival_curve );
+		
+		SubPathCombinationTask task = new SubPathCombinationTask( search, 0, new HashSet<ServiceCurve>(), new LinkedList<SubTandemServiceCurves>() );
+		if( search.servers.size() <= SUB_PATH_COMBINATIONS_SEQUENTIAL_SERVERS ) {
+			task.search();
+		} else {
+			task.invoke();
+		}
+		
+		if( search.exception != null ) {
+			throw search.exception;
+		}
+		if( arrival_curve != null ) {
+			search.retainMinimalCombinations();
+		}
+		return new HashSet<ServiceCurve>( search.betas_e2e );
+	}
+	
+	// Shared state of a search over the combinations of sub-paths.
+	private class SubPathCombinationSearch {
+		private final Calculator calculator = Calculator.getInstance();
+		private final SubTandemMemo sub_tandem_memo = getSubTandemMemo();
+		
+		private final Flow flow_of_interest;
+		private final Path path;
+		private final Set<Flow> flows_to_serve;
+		private final List<Server> servers;
+		
+		// Null if not pruning.
+		private final ArrivalCurve arrival_curve;
+		// Service curve of the servers from the index to the path's sink, i.e., an upper bound on the service left over there.
+		private final ServiceCurve[] betas_remaining_servers;
+		// Bounds of the evaluated combinations.
+		private double delay_bound_min = Double.POSITIVE_INFINITY;
+		private double backlog_bound_min = Double.POSITIVE_INFINITY;
+		
+		private final Set<ServiceCurve> betas_e2e = Collections.synchronizedSet( new HashSet<ServiceCurve>() );
+		// Evaluated combinations if pruning, their curves are added to betas_e2e once the minima are final.
+		private final List<SubPathCombination> combinations = Collections.synchronizedList( new ArrayList<SubPathCombination>() );
+		private volatile Exception exception = null;
+		
+		private SubPathCombinationSearch( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve, ArrivalCurve arrival_curve ) throws Exception {
+			this.flow_of_interest = flow_of_interest;
+			this.path = path;
+			this.flows_to_serve = flows_to_serve;
+			this.servers = new ArrayList<Server>( path.getServers() );
+			this.arrival_curve = arrival_curve;
+			
+			if( arrival_curve == null ) {
+				betas_remaining_servers = null;
+			} else {
+				betas_remaining_servers = new ServiceCurve[servers.size()];
+				for( int i = 1; i < servers.size(); i++ ) {
+					betas_remaining_servers[i] = path.getSubPath( servers.get( i ), path.getSink() ).getServiceCurve();
+				}
+			}
+		}
+		
+		private Path getSubPath( int from, int to ) throws Exception {
+			if( from == 0 && to == servers.size() - 1 ) {
+				return path;
+			}
+			// from and to are inclusive!
+			return path.getSubPath( servers.get( from ), servers.get( to ) );
+		}
+		
+		private void addCombination( Set<ServiceCurve> betas_e2e_combination, List<SubTandemServiceCurves> sub_tandems ) throws Exception {
+			if( arrival_curve == null ) {
+				betas_e2e.addAll( betas_e2e_combination );
+				return;
+			}
+			
+			SubPathCombination combination = new SubPathCombination( betas_e2e_combination, sub_tandems );
+			for( int i = 0; i < combination.betas_e2e.size(); i++ ) {
+				combination.delay_bounds[i] = Calculator.getInstance().getDncBackend().getBounds().delayFIFO( arrival_curve, combination.betas_e2e.get( i ) ).doubleValue();
+				combination.backlog_bounds[i] = Calculator.getInstance().getDncBackend().getBounds().backlog( arrival_curve, combination.betas_e2e.get( i ) ).doubleValue();
+				synchronized( this ) {
+					delay_bound_min = Math.min( delay_bound_min, combination.delay_bounds[i] );
+					backlog_bound_min = Math.min( backlog_bound_min, combination.backlog_bounds[i] );
+				}
+			}
+			combinations.add( combination );
+		}
+		
+		/**
+		 * A curve within the pruning margin of the final minimum has no prefix exceeding the minimum known when the prefix was checked, 
+		 * i.e., it is evaluated whichever combinations were pruned. Keeps the search's result independent of the evaluation order.
+		 */
+		private void retainMinimalCombinations() {
+			double delay_bound_max = delay_bound_min + PRUNING_MARGIN * Math.abs( delay_bound_min );
+			double backlog_bound_max = backlog_bound_min + PRUNING_MARGIN * Math.abs( backlog_bound_min );
+			
+			for( SubPathCombination combination : combinations ) {
+				boolean retained = false;
+				for( int i = 0; i < combination.betas_e2e.size(); i++ ) {
+					if( combination.delay_bounds[i] <= delay_bound_max || combination.backlog_bounds[i] <= backlog_bound_max ) {
+						betas_e2e.add( combination.betas_e2e.get( i ) );
+						retained = true;
+					}
+				}
+				if( retained ) {
+					for( SubTandemServiceCurves sub_tandem : combination.sub_tandems ) {
+						addServerAlphas( sub_tandem );
+					}
+				}
+			}
+		}
+		
+		/**
+		 * @param servers_covered			The number of servers covered by the prefix.
+		 * @param betas_e2e_prefix			The prefix's left-over service curves.
+		 * @return True if no combination starting with the prefix can improve the delay bound or the backlog bound.
+		 */
+		private boolean isDominated( int servers_covered, Set<ServiceCurve> betas_e2e_prefix ) throws Exception {
+			if( arrival_curve == null ) {
+				return false;
+			}
+			
+			double delay_bound_min_prefix = Double.POSITIVE_INFINITY;
+			double backlog_bound_min_prefix = Double.POSITIVE_INFINITY;
+			for( ServiceCurve beta_e2e_prefix : betas_e2e_prefix ) {
+				ServiceCurve beta_e2e_max = Calculator.getInstance().getMinPlus().convolve( beta_e2e_prefix, betas_remaining_servers[servers_covered] );
+				delay_bound_min_prefix = Math.min( delay_bound_min_prefix, 
+						Calculator.getInstance().getDncBackend().getBounds().delayFIFO( arrival_curve, beta_e2e_max ).doubleValue() );
+				backlog_bound_min_prefix = Math.min( backlog_bound_min_prefix, 
+						Calculator.getInstance().getDncBackend().getBounds().backlog( arrival_curve, beta_e2e_max ).doubleValue() );
+			}
+			
+			// The margin keeps rounding in the lower bounds from pruning combinations that match the current minimum.
+			synchronized( this ) {
+				return delay_bound_min_prefix > delay_bound_min + PRUNING_MARGIN * Math.abs( delay_bound_min )
+						&& backlog_bound_min_prefix > backlog_bound_min + PRUNING_MARGIN * Math.abs( backlog_bound_min );
 			}
-			betas_e2e.addAll( betas_e2e_combination );
 		}
-
-		return betas_e2e;
 	}
 	
+	// Curves of a combination of sub-paths with their bounds for the search's arrival curve, and the combination's sub-tandems.
+	private static class SubPathCombination {
+		private final List<ServiceCurve> betas_e2e;
+		private final List<SubTandemServiceCurves> sub_tandems;
+		private final double[] delay_bounds;
+		private final double[] backlog_bounds;
+		
+		private SubPathCombination( Set<ServiceCurve> betas_e2e, List<SubTandemServiceCurves> sub_tandems ) {
+			this.betas_e2e = new ArrayList<ServiceCurve>( betas_e2e );
+			this.sub_tandems = sub_tandems;
+			this.delay_bounds = new double[this.betas_e2e.size()];
+			this.backlog_bounds = new double[this.betas_e2e.size()];
+		}
+	}
+	
+	/**
+	 * Extends a prefix of sub-paths covering the servers before <code>from</code> by every sub-path starting at <code>from</code>.
+	 * Extensions of long remainders are searched by tasks of their own.
+	 */
+	private class SubPathCombinationTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final SubPathCombinationSearch search;
+		private final int from;
+		private final Set<ServiceCurve> betas_e2e_prefix;
+		private final List<SubTandemServiceCurves> sub_tandems_prefix;
+		
+		private SubPathCombinationTask( SubPathCombinationSearch search, int from, Set<ServiceCurve> betas_e2e_prefix, List<SubTandemServiceCurves> sub_tandems_prefix ) {
+			this.search = search;
+			this.from = from;
+			this.betas_e2e_prefix = betas_e2e_prefix;
+			this.sub_tandems_prefix = sub_tandems_prefix;
+		}
+		
+		@Override
+		protected void compute() {
+			// Worker threads do not see the caller's calculation context and memo, they need to be bound to them explicitly.
+			try {
+				search.calculator.call( () -> search.sub_tandem_memo.call( () -> {
+					search();
+					return null;
+				} ) );
+			} catch ( Exception e ) {
+				search.exception = e;
+			}
+		}
+		
+		private void search() throws Exception {
+			if( search.exception != null ) {
+				return;
+			}
+			
+			int number_servers = search.servers.size();
+			boolean fork = number_servers - from > SUB_PATH_COMBINATIONS_SEQUENTIAL_SERVERS;
+			List<SubPathCombinationTask> tasks = new LinkedList<SubPathCombinationTask>();
+			
+			for( int to = from; to < number_servers; to++ ) {
+				SubTandemServiceCurves sub_tandem = getSubTandem( search.flow_of_interest, search.getSubPath( from, to ), search.flows_to_serve );
+				Set<ServiceCurve> betas_e2e_combination = Calculator.getInstance().getMinPlus().convolve( betas_e2e_prefix, new HashSet<ServiceCurve>( sub_tandem.betas ) );
+				
+				// Without pruning, all sub-tandems contribute their arrival bounds.
+				List<SubTandemServiceCurves> sub_tandems_combination = null;
+				if( search.arrival_curve == null ) {
+					addServerAlphas( sub_tandem );
+				} else {
+					sub_tandems_combination = new LinkedList<SubTandemServiceCurves>( sub_tandems_prefix );
+					sub_tandems_combination.add( sub_tandem );
+				}
+				
+				if( to == number_servers - 1 ) {
+					search.addCombination( betas_e2e_combination, sub_tandems_combination );
+				} else if( !search.isDominated( to + 1, betas_e2e_combination ) ) {
+					SubPathCombinationTask task = new SubPathCombinationTask( search, to + 1, betas_e2e_combination, sub_tandems_combination );
+					if( fork ) {
+						tasks.add( task );
+					} else {
+						task.search();
+					}
+				}
+			}
+			
+			if( !tasks.isEmpty() ) {
+				invokeAll( tasks );
+			}
+		}
+	}
 	
+	
+	/**
+	 * The same sub-tandem is part of many combinations of sub-paths. Its left-over service curves are derived once per analysis, 
+	 * tandem matching arrival bounds derived during the analysis share them.
+	 */
 	public Set<ServiceCurve> getSubTandemServiceCurves( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve ) throws Exception {
+		SubTandemServiceCurves sub_tandem_betas = getSubTandem( flow_of_interest, path, flows_to_serve );
+		addServerAlphas( sub_tandem_betas );
+		
+		return new HashSet<ServiceCurve>( sub_tandem_betas.betas );
+	}
+	
+	private SubTandemServiceCurves getSubTandem( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve ) throws Exception {
+		SubTandemMemo memo = getSubTandemMemo();
+		Pair<Pair<Path,Flow>,Set<Flow>> sub_tandem = new Pair<Pair<Path,Flow>,Set<Flow>>( 
+				new Pair<Path,Flow>( path, flow_of_interest ), new HashSet<Flow>( flows_to_serve ) );
+		
+		SubTandemServiceCurves sub_tandem_betas = memo.map__sub_tandem__betas.get( sub_tandem );
+		if( sub_tandem_betas == null ) {
+			sub_tandem_betas = deriveSubTandemServiceCurves( flow_of_interest, path, flows_to_serve );
+			
+			// Another task may have derived the same curves in the meantime.
+			SubTandemServiceCurves sub_tandem_betas_known = memo.map__sub_tandem__betas.putIfAbsent( sub_tandem, sub_tandem_betas );
+			if( sub_tandem_betas_known != null ) {
+				sub_tandem_betas = sub_tandem_betas_known;
+			}
+		}
+		return sub_tandem_betas;
+	}
+	
+	private void addServerAlphas( SubTandemServiceCurves sub_tandem_betas ) {
+		// Sub-tandems are analyzed concurrently, see getServiceCurves.
+		synchronized( result.map__server__alphas ) {
+			for( Entry<Server,Set<ArrivalCurve>> server_alphas : sub_tandem_betas.map__server__alphas.entrySet() ) {
+				if ( result.map__server__alphas.get( server_alphas.getKey() ) == null ) {
+					result.map__server__alphas.put( server_alphas.getKey(), new HashSet<ArrivalCurve>( server_alphas.getValue() ) );
+				} else {
+					result.map__server__alphas.get( server_alphas.getKey() ).addAll( server_alphas.getValue() );
+				}
+			}
+		}
+	}
+	
+	private SubTandemServiceCurves deriveSubTandemServiceCurves( Flow flow_of_interest, Path path, Set<Flow> flows_to_serve ) throws Exception {
 		Set<ServiceCurve> betas_e2e = new HashSet<ServiceCurve>();
+		Map<Server,Set<ArrivalCurve>> map__server__alphas = new HashMap<Server,Set<ArrivalCurve>>();
 		
 		// Get cross-flows grouped as needed for the PMOO left-over service curve
 		Set<Flow> flows_of_lower_priority = new HashSet<Flow>( flows_to_serve );
@@ -212,7 +518,7 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 		Map<Pair<Turn,Path>,Set<Flow>> xtx_subpath_grouped = server_graph.groupFlowsPerInturnSubPath( path, cross_flows );
 		
 		if( xtx_subpath_grouped.isEmpty() ) {
-			return new HashSet<ServiceCurve>( Collections.singleton( path.getServiceCurve() ) );
+			return new SubTandemServiceCurves( Collections.singleton( path.getServiceCurve() ), map__server__alphas );
 		}
 		
 		// Derive the cross-flow substitutes with their arrival bound
@@ -259,8 +565,6 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 			arrival_bounds_turn_permutations.clear();
  			List<Flow> flow_list_tmp = new LinkedList<Flow>();
  			for( ArrivalCurve alpha : alphas_xf_group ) {
- 				Curve.getUtils().beautify(alpha);
-	 			
 	 			for( List<Flow> f_subst_list : cross_flow_substitutes_set ) {
 	 				// The new list of cross-flow substitutes = old list plus a new one with one of the derived arrival bounds. 
 	 				flow_list_tmp.clear();
@@ -276,10 +580,10 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 			cross_flow_substitutes_set.addAll( arrival_bounds_turn_permutations );
 			arrival_bounds_turn_permutations.clear();
 			
-			if ( result.map__server__alphas.get( path_src ) == null ) {
-				result.map__server__alphas.put( path_src, alphas_xf_group );
+			if ( map__server__alphas.get( path_src ) == null ) {
+				map__server__alphas.put( path_src, new HashSet<ArrivalCurve>( alphas_xf_group ) );
 			} else {
-				result.map__server__alphas.get( path_src ).addAll( alphas_xf_group );
+				map__server__alphas.get( path_src ).addAll( alphas_xf_group );
 			}
 		}
 		
@@ -296,6 +600,65 @@ public class TandemMatchingAnalysis extends AbstractTandemAnalysis {
 		if( betas_e2e.isEmpty() ) {
 			betas_e2e.add( Curve_ConstantPool.ZERO_SERVICE_CURVE.get() );
 		}
-		return betas_e2e;
+		return new SubTandemServiceCurves( betas_e2e, map__server__alphas );
+	}
+	
+	// The memo bound to the current thread if it belongs to an analysis of the same server graph and configuration, this analysis' memo otherwise.
+	private SubTandemMemo getSubTandemMemo() {
+		SubTandemMemo memo = bound_sub_tandem_memo.get();
+		if( memo != null && memo.server_graph == server_graph && memo.configuration == configuration ) {
+			return memo;
+		}
+		
+		synchronized( this ) {
+			if( sub_tandem_memo == null ) {
+				sub_tandem_memo = new SubTandemMemo( server_graph, configuration );
+			}
+			return sub_tandem_memo;
+		}
+	}
+	
+	// Left-over service curves of a sub-tandem and the arrival bounds of its cross-flow substitutes.
+	private static class SubTandemServiceCurves {
+		private final Set<ServiceCurve> betas;
+		private final Map<Server,Set<ArrivalCurve>> map__server__alphas;
+		
+		private SubTandemServiceCurves( Set<ServiceCurve> betas, Map<Server,Set<ArrivalCurve>> map__server__alphas ) {
+			this.betas = new HashSet<ServiceCurve>( betas );
+			this.map__server__alphas = map__server__alphas;
+		}
+	}
+	
+	// Sub-tandems keyed by their path, flow of interest and flows to serve.
+	private static class SubTandemMemo {
+		private final ServerGraph server_graph;
+		private final AnalysisConfig configuration;
+		
+		private final Map<Pair<Pair<Path,Flow>,Set<Flow>>,SubTandemServiceCurves> map__sub_tandem__betas = 
+				new ConcurrentHashMap<Pair<Pair<Path,Flow>,Set<Flow>>,SubTandemServiceCurves>();
+		
+		private SubTandemMemo( ServerGraph server_graph, AnalysisConfig configuration ) {
+			this.server_graph = server_graph;
+			this.configuration = configuration;
+		}
+		
+		// Binds this memo to the current thread for the duration of the task, the previously bound memo is restored afterwards.
+		private <T> T call( Callable<T> task ) throws Exception {
+			SubTandemMemo previous = bound_sub_tandem_memo.get();
+			if( previous == this ) {
+				return task.call();
+			}
+			
+			bound_sub_tandem_memo.set( this );
+			try {
+				return task.call();
+			} finally {
+				if( previous == null ) {
+					bound_sub_tandem_memo.remove();
+				} else {
+					bound_sub_tandem_memo.set( previous );
+				}
+			}
+		}
 	}
 }
\ No newline at end of file
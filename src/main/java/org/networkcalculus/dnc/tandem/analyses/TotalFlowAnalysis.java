@@ -28,6 +28,8 @@
 
 package org.networkcalculus.dnc.tandem.analyses;
 
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -45,10 +47,20 @@ import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.dnc.network.server_graph.ServerGraph;
+import org.networkcalculus.dnc.network.server_graph.ServerGraphIndex;
 import org.networkcalculus.dnc.tandem.AbstractTandemAnalysis;
 import org.networkcalculus.num.Num;
 
 public class TotalFlowAnalysis extends AbstractTandemAnalysis {
+    // The bounds at a server do not depend on the flow of interest.
+    // The network-wide analysis derives them once per server, together with the server's state version.
+    // They remain valid until the state of the server or of a server upstream of it changes.
+    private Map<Server, Pair<Num,Num>> map__server__min_D_B = new HashMap<Server, Pair<Num,Num>>();
+    private Map<Server, Long> map__server__state_version = new HashMap<Server, Long>();
+    // The index and the configuration of the last network-wide analysis, null if there is none.
+    private ServerGraphIndex network_index;
+    private AnalysisConfig network_configuration;
+
     @SuppressWarnings("unused")
     private TotalFlowAnalysis() {
     }
@@ -65,16 +77,30 @@ public class TotalFlowAnalysis extends AbstractTandemAnalysis {
         super.result = new TotalFlowResults();
     }
 
+    public TotalFlowAnalysis(ServerGraph server_graph, AnalysisConfig configuration, Calculator calculator) {
+        super.server_graph = server_graph;
+        super.configuration = configuration;
+        super.result = new TotalFlowResults();
+        super.calculator = calculator;
+    }
+
     public void performAnalysis(Flow flow_of_interest) throws Exception {
         performAnalysis(flow_of_interest, flow_of_interest.getPath());
     }
 
-    public void performAnalysis(Flow flow_of_interest, Path path) throws Exception {
+    protected void performAnalysisInContext(Flow flow_of_interest, Path path) throws Exception {
         Num delay_bound = Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
         Num backlog_bound = Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
 
+        boolean network_bounds_current = isNetworkAnalysisCurrent();
         for (Server server : path.getServers()) {
-            Pair<Num,Num> min_D_B = deriveBoundsAtServer(server);
+            Pair<Num,Num> min_D_B = null;
+            if (network_bounds_current) {
+                min_D_B = map__server__min_D_B.get(server);
+            }
+            if (min_D_B == null) {
+                min_D_B = deriveBoundsAtServer(server);
+            }
 
             delay_bound = Num.getUtils(Calculator.getInstance().getNumBackend()).add(delay_bound, min_D_B.getFirst());
             backlog_bound = Num.getUtils(Calculator.getInstance().getNumBackend()).max(backlog_bound, min_D_B.getSecond());
@@ -84,6 +110,129 @@ public class TotalFlowAnalysis extends AbstractTandemAnalysis {
         ((TotalFlowResults) result).setBacklogBound(backlog_bound);
     }
 
+    /**
+     * Network-wide TFA: derives the bounds at every server exactly once.
+     * Servers are visited in topological order, i.e., the arrival bounds of upstream servers
+     * are derived before the downstream ones and can be taken from the arrival bound cache if enabled.
+     * The bounds of every flow are the sum of the delay bounds and the maximum of the backlog bounds
+     * at the servers on its path, see {@link #getFlowDelayBoundMap()} and {@link #getFlowBacklogBoundMap()}.
+     * <p>
+     * Subsequent calls of {@link #performAnalysis(Flow)} reuse the bounds at the servers
+     * until the server graph is modified.
+     * <p>
+     * Repeated network-wide analyses are incremental: the bounds are only rederived at servers
+     * whose state version changed since the last network-wide analysis (see {@link Server#getStateVersion()})
+     * and at the servers downstream of them. Only the flows crossing these servers get new bounds.
+     * E.g., after adding a flow, only the servers on its path and downstream of it are analyzed again.
+     * A changed configuration causes a complete analysis.
+     *
+     * @throws Exception
+     *             The server graph is not feed-forward or the analysis failed.
+     */
+    public void performNetworkAnalysis() throws Exception {
+        calculator.withMultiplexingEnforcement(configuration.enforceMultiplexing()).call(() -> {
+            performNetworkAnalysisInContext();
+            return null;
+        });
+    }
+
+    private void performNetworkAnalysisInContext() throws Exception {
+        ServerGraphIndex index = server_graph.getIndex();
+        TotalFlowResults tfa_result = (TotalFlowResults) result;
+
+        boolean incremental = network_configuration != null && network_configuration.equals(configuration);
+        if (!incremental) {
+            map__server__min_D_B.clear();
+            map__server__state_version.clear();
+            tfa_result.map__flow__delay_bound.clear();
+            tfa_result.map__flow__backlog_bound.clear();
+        }
+        ServerGraphIndex index_previous = network_index;
+        network_index = null;
+        network_configuration = null;
+
+        // A server's bounds are rederived if its state changed or if the bounds at a predecessor were rederived.
+        // The state versions are only stored after the sweep completed, a failed sweep discards all bounds.
+        boolean[] server_changed = new boolean[index.numServers()];
+        Map<Server, Long> map__server__state_version_new = new HashMap<Server, Long>();
+        BitSet flows_changed = new BitSet(index.numFlows());
+        boolean sweep_complete = false;
+        try {
+            for (int server_index : index.getTopologicalOrder()) {
+                Server server = index.getServer(server_index);
+                long state_version = server.getStateVersion();
+
+                Long state_version_previous = map__server__state_version.get(server);
+                boolean changed = state_version_previous == null || state_version_previous.longValue() != state_version;
+                for (int i = 0; !changed && i < index.inDegree(server_index); i++) {
+                    changed = server_changed[index.getTurnSource(index.getInTurn(server_index, i))];
+                }
+                if (!changed) {
+                    continue;
+                }
+
+                server_changed[server_index] = true;
+                map__server__min_D_B.put(server, deriveBoundsAtServer(server));
+                map__server__state_version_new.put(server, state_version);
+                for (int i = 0; i < index.numFlowsAtServer(server_index); i++) {
+                    flows_changed.set(index.getFlowAtServer(server_index, i));
+                }
+            }
+            sweep_complete = true;
+        } finally {
+            if (!sweep_complete) {
+                map__server__min_D_B.clear();
+                map__server__state_version.clear();
+                tfa_result.map__flow__delay_bound.clear();
+                tfa_result.map__flow__backlog_bound.clear();
+            }
+        }
+        map__server__state_version.putAll(map__server__state_version_new);
+
+        // Forget about removed servers and flows.
+        if (index != index_previous) {
+            map__server__min_D_B.keySet().removeIf(server -> index.indexOf(server) == -1);
+            map__server__state_version.keySet().removeIf(server -> index.indexOf(server) == -1);
+            tfa_result.map__flow__delay_bound.keySet().removeIf(flow -> index.indexOf(flow) == -1);
+            tfa_result.map__flow__backlog_bound.keySet().removeIf(flow -> index.indexOf(flow) == -1);
+        }
+
+        for (int flow_index = flows_changed.nextSetBit(0); flow_index >= 0; flow_index = flows_changed.nextSetBit(flow_index + 1)) {
+            Flow flow = index.getFlow(flow_index);
+            Path path = flow.getPath();
+
+            Num delay_bound = Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
+            Num backlog_bound = Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
+            for (int i = 0; i < path.numServers(); i++) {
+                Pair<Num,Num> min_D_B = map__server__min_D_B.get(path.getServer(i));
+
+                delay_bound = Num.getUtils(Calculator.getInstance().getNumBackend()).add(delay_bound, min_D_B.getFirst());
+                backlog_bound = Num.getUtils(Calculator.getInstance().getNumBackend()).max(backlog_bound, min_D_B.getSecond());
+            }
+            tfa_result.map__flow__delay_bound.put(flow, delay_bound);
+            tfa_result.map__flow__backlog_bound.put(flow, backlog_bound);
+        }
+
+        network_index = index;
+        network_configuration = configuration.copy();
+    }
+
+    /**
+     * @return True if the bounds of the last network-wide analysis are still valid,
+     *          i.e., neither the server graph nor the configuration were modified since.
+     */
+    public boolean isNetworkAnalysisCurrent() {
+        if (network_index == null || !network_index.isCurrent() || !network_configuration.equals(configuration)) {
+            return false;
+        }
+        for (Map.Entry<Server, Long> server_state_version : map__server__state_version.entrySet()) {
+            if (server_state_version.getKey().getStateVersion() != server_state_version.getValue().longValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Pair<Num,Num> deriveBoundsAtServer(Server server) throws Exception {
         // Here's the difference to SFA:
         // TFA needs the arrival bound of all flows at the server, including the flow of
@@ -113,7 +262,7 @@ public class TotalFlowAnalysis extends AbstractTandemAnalysis {
 
             // Is this a single flow, i.e., does fifo per micro flow hold?
             boolean fifo_per_micro_flow = false;
-            if (server_graph.getFlows(server).size() == 1) {
+            if (server_graph.getFlowSet(server).size() == 1) {
                 fifo_per_micro_flow = true;
             }
 
@@ -154,4 +303,18 @@ public class TotalFlowAnalysis extends AbstractTandemAnalysis {
     public String getServerBacklogBoundMapString() {
         return ((TotalFlowResults) result).getServerBacklogBoundMapString();
     }
+
+    /**
+     * @return Mapping from every flow to its delay bound, derived by {@link #performNetworkAnalysis()}.
+     */
+    public Map<Flow, Num> getFlowDelayBoundMap() {
+        return ((TotalFlowResults) result).map__flow__delay_bound;
+    }
+
+    /**
+     * @return Mapping from every flow to its backlog bound, derived by {@link #performNetworkAnalysis()}.
+     */
+    public Map<Flow, Num> getFlowBacklogBoundMap() {
+        return ((TotalFlowResults) result).map__flow__backlog_bound;
+    }
 }
\ No newline at end of file
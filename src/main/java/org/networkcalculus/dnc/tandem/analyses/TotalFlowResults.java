@@ -34,6 +34,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.networkcalculus.dnc.curves.ArrivalCurve;
+import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.dnc.tandem.TandemAnalysisResults;
 import org.networkcalculus.num.Num;
@@ -42,10 +43,16 @@ public class TotalFlowResults extends TandemAnalysisResults {
     protected Map<Server, Set<Num>> map__server__D_server;
     protected Map<Server, Set<Num>> map__server__B_server;
 
+    // Filled by the network-wide analysis only.
+    protected Map<Flow, Num> map__flow__delay_bound;
+    protected Map<Flow, Num> map__flow__backlog_bound;
+
     protected TotalFlowResults() {
         super();
         map__server__D_server = new HashMap<Server, Set<Num>>();
         map__server__B_server = new HashMap<Server, Set<Num>>();
+        map__flow__delay_bound = new HashMap<Flow, Num>();
+        map__flow__backlog_bound = new HashMap<Flow, Num>();
     }
 
     protected TotalFlowResults(Num delay_bound, Map<Server, Set<Num>> map__server__D_server, Num backlog_bound,
@@ -55,6 +62,8 @@ public class TotalFlowResults extends TandemAnalysisResults {
 
         this.map__server__D_server = map__server__D_server;
         this.map__server__B_server = map__server__B_server;
+        this.map__flow__delay_bound = new HashMap<Flow, Num>();
+        this.map__flow__backlog_bound = new HashMap<Flow, Num>();
     }
 
     public String getServerDelayBoundMapString() {
@@ -6,95 +6,139 @@ import org.networkcalculus.dnc.Calculator;
 import org.networkcalculus.num.Num;
 
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
+import org.networkcalculus.dnc.linear_constraints.LinearProgram;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramCache;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolution;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolver;
+import org.networkcalculus.dnc.linear_constraints.LinearProgramSolverPool;
+import org.networkcalculus.dnc.linear_constraints.Relation;
+
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Creates and solves the LPs of the LUDB analysis. An instance belongs to one analysis and collects its statistics,
+ * it can be shared by the nested analyses of a non-nested one. Independent LPs are solved concurrently.
+ *
  * @author Alexander Scheffler
  */
 public class LUDB_LP {
     static boolean check_constant_constraints=true; //enables pre-filtering of infeasible constraints;
-    static int fileId = 0;
-    public static long cplex_time = 0;
-    public static long terms_simplify_time = 0; // total time which our method takes to simplify the expressions (all expressions simplified so far)
-    private static final boolean keepLPsOnDrive = false;
 
-    public  static Pair<Double, Map<Integer, Double>> simplify_first_then_save_and_solve_lp_w_cplex(Expression_LUDB delay_term, List<Expression_LUDB> constraints, int number_vars) throws Exception {
+    private final LinearProgramSolverPool solver_pool;
+    private final LongAdder terms_simplify_time = new LongAdder(); // total time which our method takes to simplify the expressions (all expressions simplified so far)
 
+    /**
+     * Uses the LP solver, parallelism and cache set in {@link AnalysisConfig#getLinearProgramSolver()}, {@link AnalysisConfig#lp_solver_parallelism}
+     * and {@link AnalysisConfig#lp_cache}.
+     */
+    public LUDB_LP() {
+        this(AnalysisConfig.getLinearProgramSolver(), AnalysisConfig.lp_solver_parallelism, AnalysisConfig.lp_cache);
+    }
 
-        long start = System.nanoTime();
-        Pair<Num, Map<Integer, Num>> pair_delay = delay_term.simplifyExpression();
-        long end = System.nanoTime();
-        long duration = end- start;
-        terms_simplify_time = terms_simplify_time + duration;
+    public LUDB_LP(LinearProgramSolver solver, int parallelism) {
+        this(solver, parallelism, null);
+    }
 
-        Num minus_one = Num.getUtils(Calculator.getInstance().getNumBackend()).create(-1);
+    /**
+     * @param cache The solutions of LPs, programs that only differ in the numbering of the s-variables or the order of the constraints
+     *              are solved once. Null disables caching.
+     */
+    public LUDB_LP(LinearProgramSolver solver, int parallelism, LinearProgramCache cache) {
+        solver_pool = new LinearProgramSolverPool(solver, parallelism, cache);
+    }
 
-        fileId++;
-        File file_lp = new File(AnalysisConfig.path_to_lp_dir + "lp_" + fileId );
-        Writer w_lp = new OutputStreamWriter(new FileOutputStream(file_lp), StandardCharsets.UTF_8);
-        PrintWriter pw_lp = new PrintWriter(w_lp);
-        pw_lp.println("Minimize");
+    /**
+     * Minimizes the delay term subject to the constraints.
+     * The LP is built in memory, it only gets written to the drive if the solver requires that.
+     *
+     * @return The minimal delay and the optimal setting of the variables s_0 to s_{number_vars - 1},
+     *          a NaN delay if the LP is infeasible.
+     */
+    public Pair<Double, Map<Integer, Double>> simplify_first_then_solve_lp(Expression_LUDB delay_term, List<Expression_LUDB> constraints, int number_vars) throws Exception {
+        return simplify_first_then_solve_lps(Collections.singletonList(new Pair<>(delay_term, constraints)), number_vars).get(0);
+    }
 
-        StringBuffer delay_str_buffer = new StringBuffer();
+    /**
+     * Minimizes the delay terms subject to their constraints, the LPs are solved concurrently.
+     *
+     * @return Per LP in the given order: the minimal delay and the optimal setting of the variables s_0 to s_{number_vars - 1},
+     *          a NaN delay if the LP is infeasible.
+     */
+    public List<Pair<Double, Map<Integer, Double>>> simplify_first_then_solve_lps(List<Pair<Expression_LUDB, List<Expression_LUDB>>> delay_compositions, int number_vars) throws Exception {
+        // The simplification depends on the calling thread's calculation context, thus, only the solving is done concurrently
+        List<LinearProgram> lps = new ArrayList<>();
+        List<Map<Integer, Integer>> maps__var_id__lp_var = new ArrayList<>();
+        for (Pair<Expression_LUDB, List<Expression_LUDB>> delay_composition : delay_compositions) {
+            Map<Integer, Integer> map__var_id__lp_var = new HashMap<>();
+            lps.add(simplify_first_then_create_lp(delay_composition.getFirst(), delay_composition.getSecond(), map__var_id__lp_var));
+            maps__var_id__lp_var.add(map__var_id__lp_var);
+        }
 
-        Num constant_of_objective = pair_delay.getFirst();
-        Map<Integer, Num> var_coeffs_map = pair_delay.getSecond();
+        List<LinearProgram> lps_to_solve = new ArrayList<>();
+        for (LinearProgram lp : lps) {
+            if (lp != null) {
+                lps_to_solve.add(lp);
+            }
+        }
+        Iterator<LinearProgramSolution> solutions_iter = solver_pool.solveAll(lps_to_solve).iterator();
+
+        List<Pair<Double, Map<Integer, Double>>> results = new ArrayList<>(lps.size());
+        for (int i = 0; i < lps.size(); i++) {
+            Map<Integer, Double> opt_s_values = new HashMap<>();
+            if (lps.get(i) == null) {
+                // Pre-filtered as infeasible
+                results.add(new Pair<>(Double.NaN, opt_s_values));
+                continue;
+            }
 
-        for(int var_id : var_coeffs_map.keySet())
-        {
-            Num var_coeff = var_coeffs_map.get(var_id);
-            if(var_coeff.geqZero())
-            {
-                if (delay_str_buffer.length() == 0) {
-                    delay_str_buffer.append(var_coeff + " s_" + var_id);
-                } else {
-                    delay_str_buffer.append(" + " + var_coeff + " s_" + var_id);
-                }
+            LinearProgramSolution solution = solutions_iter.next();
+            if (!solution.isOptimal()) {
+                results.add(new Pair<>(Double.NaN, opt_s_values));
+                continue;
             }
-            else{
-                if (delay_str_buffer.length() == 0) {
-                    delay_str_buffer.append("- " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, var_coeff)) + " s_" + var_id);
-                } else {
-                    delay_str_buffer.append(" - " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, var_coeff)) + " s_" + var_id);
-                }
+            for (int id = 0; id < number_vars; id++) {
+                // Vars that do not occur in the LP are set to 0
+                Integer var = maps__var_id__lp_var.get(i).get(id);
+                opt_s_values.put(id, var == null ? 0.0 : solution.getValue(var));
             }
+            results.add(new Pair<>(solution.getObjectiveValue(), opt_s_values));
         }
+        return results;
+    }
 
+    // Returns null if a constraint that only holds constants is violated, i.e., the LP is infeasible
+    private LinearProgram simplify_first_then_create_lp(Expression_LUDB delay_term, List<Expression_LUDB> constraints, Map<Integer, Integer> map__var_id__lp_var) throws Exception {
 
 
-        // costant term has to come last in the lp format...
-        if (constant_of_objective.geqZero()) {
-            if (delay_str_buffer.length() == 0) {
-                delay_str_buffer.append(constant_of_objective);
-            } else {
-                delay_str_buffer.append(" + " + constant_of_objective);
-            }
-        } else {
-            if (delay_str_buffer.length() == 0) {
-                delay_str_buffer.append("- " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, constant_of_objective)));
-            } else {
-                delay_str_buffer.append(" - " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, constant_of_objective)));
-            }
-        }
+        long start = System.nanoTime();
+        Pair<Num, Map<Integer, Num>> pair_delay = delay_term.simplifyExpression();
+        long end = System.nanoTime();
+        long duration = end- start;
+        terms_simplify_time.add(duration);
 
+        LinearProgram lp = new LinearProgram(false);
 
-        pw_lp.println(delay_str_buffer.toString());
-        pw_lp.println("Subject To");
+        Num constant_of_objective = pair_delay.getFirst();
+        Map<Integer, Num> var_coeffs_map = pair_delay.getSecond();
+
+        for(int var_id : var_coeffs_map.keySet())
+        {
+            lp.addObjectiveTerm(getLpVariable(lp, map__var_id__lp_var, var_id), var_coeffs_map.get(var_id).doubleValue());
+        }
+        lp.setObjectiveConstant(constant_of_objective.doubleValue());
 
-        // We have to adhere to the cplex lp file format restrictions:
-        // * The left-side of the inequality is not allowed to hold constant(s) => Put the constant to the right-side (compute a new constant: r_constant - l_constant)
-        // * The right-side of the inequality is not allowed to hold variables  => Put the vars of the right-side with their coefficients to the left-side (swap algebraic sign) -- we added code that also considers that the same variable could be on both sides
-        // * In case both sides only hold constants, we use the pseudo-variable c_0 which represents 0 and put it on the left side and compute the new constant for the right side as mentioned above -- for this we will add 0 <= c_0 <= 0 to the bounds section
-        // in the end (even if we do not use it -- cplex just gives a warning in that case which we then simply ignore)
+        // All constraints are of the form left >= right:
+        // * The vars of the right-side are put to the left side with swapped algebraic sign, the LP merges the terms of a variable occurring on both sides
+        // * The constants of the left-side are put to the right side (compute a new constant: r_constant - l_constant)
+        // * In case both sides only hold constants, the constraint has no variables and solely decides about the feasibility of the LP
 
         for (Expression_LUDB constraint : constraints) {
             start = System.nanoTime();
             Pair pair_constraint = constraint.simplifyConstraint();
             end = System.nanoTime();
             duration = end- start;
-            terms_simplify_time = terms_simplify_time + duration;
+            terms_simplify_time.add(duration);
 
             Pair<Num, Map<Integer, Num>> constraint_left_side = (Pair<Num, Map<Integer, Num>>) pair_constraint.getFirst();
             Pair<Num, Map<Integer, Num>> constraint_right_side = (Pair<Num, Map<Integer, Num>>) pair_constraint.getSecond();
@@ -109,206 +153,63 @@ public class LUDB_LP {
 
             Num constant_new = Num.getUtils(Calculator.getInstance().getNumBackend()).sub(constant_right, constant_left);
 
-            List<Integer> common_var_ids = new ArrayList<>();
-            for (int i : var_coeffs_left_map.keySet())
-            {
-                if(var_coeffs_right_map.containsKey(i))
-                {
-                    common_var_ids.add(i);
-                }
+            int[] lp_vars = new int[var_coeffs_left_map.size() + var_coeffs_right_map.size()];
+            double[] coefficients = new double[lp_vars.length];
+            int i = 0;
+            for (int var_id : var_coeffs_left_map.keySet()) {
+                lp_vars[i] = getLpVariable(lp, map__var_id__lp_var, var_id);
+                coefficients[i] = var_coeffs_left_map.get(var_id).doubleValue();
+                i++;
             }
-
-            for (Integer id_common : common_var_ids) {
-                Num var_coeff_common_left = var_coeffs_left_map.get(id_common);
-                Num var_coeff_common_right = var_coeffs_right_map.get(id_common);
-                Num var_coeff_common_left_new = Num.getUtils(Calculator.getInstance().getNumBackend()).sub(var_coeff_common_left, var_coeff_common_right);
-                var_coeffs_left_map.put(id_common, var_coeff_common_left_new);
+            for (int var_id : var_coeffs_right_map.keySet()) {
+                lp_vars[i] = getLpVariable(lp, map__var_id__lp_var, var_id);
+                coefficients[i] = -var_coeffs_right_map.get(var_id).doubleValue();
+                i++;
             }
 
+            // Duplicates are dropped, a constraint that only holds constants is kept by the LP if it is violated
+            lp.addConstraint(lp_vars, coefficients, Relation.GE, constant_new.doubleValue());
 
-            // Test for special case (both sides only hold constants)
-            boolean constant_case = true;
-
-            for(int i : var_coeffs_left_map.keySet())
-            {
-                if(!var_coeffs_left_map.get(i).eqZero())
-                {
-                    constant_case = false;
-                    break;
-                }
+            if (check_constant_constraints && lp.isTriviallyInfeasible()) {
+                // The constraint is violated. Hence, we can safely return the current LP as infeasible.
+                return null;
             }
-
-            if(constant_case)
-            {
-                for(int i : var_coeffs_right_map.keySet())
-                {
-                    if(!common_var_ids.contains(i)) {
-                        if (!var_coeffs_right_map.get(i).eqZero())
-                        {
-                            constant_case = false;
-                            break;
-                        }
-                    }
-                    // else: already in the updated left expression
-                }
-            }
-
-
-
-            StringBuffer constraint_str_buffer = new StringBuffer();
-            if (constant_case) {
-                // The geq constraint was simplified and only constant terms are left
-                constraint_str_buffer.append("c_0 >= " + constant_new);
-                if (check_constant_constraints) {
-                    double constant = Double.parseDouble(constant_new.toString());
-                    if (constant > 0) {
-                        // The constraint is violated. Hence, we can safely return the current LP as infeasible.
-                        Double result = Double.NaN;
-                        Map<Integer, Double>opt_s_values = new HashMap<>();
-                        if(!keepLPsOnDrive)
-                        {
-                            file_lp.delete();
-                        }
-                        return new Pair<>(result, opt_s_values);
-                    }
-                }
-            } else {
-                // We have at least one variable with a non-zero coefficient
-
-                for (int var_id : var_coeffs_left_map.keySet()) {
-                    Num coeff_left_new = var_coeffs_left_map.get(var_id);
-                    if (!coeff_left_new.eqZero()) {
-
-                        if (coeff_left_new.geqZero()) {
-                            if (constraint_str_buffer.length() == 0) {
-                                constraint_str_buffer.append(coeff_left_new + " s_" + var_id);
-                            } else {
-                                constraint_str_buffer.append(" + " + coeff_left_new + " s_" + var_id);
-                            }
-                        } else {
-                            if (constraint_str_buffer.length() == 0) {
-                                constraint_str_buffer.append("- " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, coeff_left_new)) + " s_" + var_id);
-                            } else {
-                                constraint_str_buffer.append(" - " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, coeff_left_new)) + " s_" + var_id);
-                            }
-
-                        }
-                    }
-                }
-
-
-                for (int var_id : var_coeffs_right_map.keySet()) {
-                    Num coeff_right = var_coeffs_right_map.get(var_id);
-                    if (!coeff_right.eqZero()) {
-
-                        coeff_right = Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, coeff_right); // swap algebraic sign bc we will put coeff_right * var_right to the left side
-
-
-                        if (!common_var_ids.contains(var_id)) {
-                            if (coeff_right.geqZero()) {
-                                if (constraint_str_buffer.length() == 0) {
-                                    constraint_str_buffer.append(coeff_right + " s_" + var_id);
-                                } else {
-                                    constraint_str_buffer.append(" + " + coeff_right + " s_" + var_id);
-                                }
-                            } else {
-                                if (constraint_str_buffer.length() == 0) {
-                                    constraint_str_buffer.append("- " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, coeff_right)) + " s_" + var_id);
-                                } else {
-                                    constraint_str_buffer.append(" - " + (Num.getUtils(Calculator.getInstance().getNumBackend()).mult(minus_one, coeff_right)) + " s_" + var_id);
-                                }
-
-                            }
-                        }
-                        // else: already handled by var_coeffs_left
-                    }
-                }
-                constraint_str_buffer.append(" >= " + constant_new);
-            }
-
-            pw_lp.println(constraint_str_buffer.toString());
         }
+        return lp;
+    }
 
-        pw_lp.println("Bounds");
-        pw_lp.println("0 <= c_0 <= 0");
-        pw_lp.println("End");
-        pw_lp.flush();
-        pw_lp.close();
-
-
-        long start_cplex_time = System.nanoTime();
-        InputStream terminal_output_cplex;
-        Process process_cplex;
-
-        ProcessBuilder pb_cplex = new ProcessBuilder("./cplex", "-c", "read", AnalysisConfig.path_to_lp_dir  + "lp_" + fileId , "lp", "optimize", "Display solution variables -", "quit");
-        pb_cplex.directory(new File(AnalysisConfig.path_to_cplex));
-
-        process_cplex = pb_cplex.start();
-
-        terminal_output_cplex = process_cplex.getInputStream();
-
-
-        Pair<Double, Map<Integer, Double>> result_cplex_pair = cplexDelayAndVarOpt(terminal_output_cplex, number_vars);
-
-
-        long end_cplex_time = System.nanoTime();
-        long duration_cplex_time_current_interval = end_cplex_time - start_cplex_time;
-        cplex_time = cplex_time + duration_cplex_time_current_interval;
-
-        if(!keepLPsOnDrive)
-        {
-            file_lp.delete();
+    private static int getLpVariable(LinearProgram lp, Map<Integer, Integer> map__var_id__lp_var, int var_id) {
+        Integer lp_var = map__var_id__lp_var.get(var_id);
+        if (lp_var == null) {
+            lp_var = lp.getVariable("s_" + var_id);
+            map__var_id__lp_var.put(var_id, lp_var);
         }
-        return result_cplex_pair;
+        return lp_var;
     }
 
-    private static Pair<Double, Map<Integer, Double>> cplexDelayAndVarOpt(InputStream inputStream, int number_vars) throws IOException {
-        BufferedReader br = null;
+    /**
+     * @return The number of LPs passed to the solver, LPs pre-filtered as infeasible or answered by the cache are not counted.
+     */
+    public long getNumSolvedLPs() {
+        return solver_pool.getNumSolved();
+    }
 
-        Double result = Double.NaN;
+    /**
+     * @return The time spent in the LP solver in nanoseconds, summed over all solver threads.
+     */
+    public long getSolverTime() {
+        return solver_pool.getSolvingTime();
+    }
 
-        Map<Integer, Double>opt_s_values = new HashMap<>();
-        br = new BufferedReader(new InputStreamReader(inputStream));
-        String line = null;
-        while ((line = br.readLine()) != null) {
-            if (line.contains("Infeasible")) {
-                break;
-            }
+    /**
+     * @return The time spent simplifying the expressions in nanoseconds.
+     */
+    public long getTermsSimplifyTime() {
+        return terms_simplify_time.sum();
+    }
 
-            if (line.contains("Objective = ")) {
-                try {
-                    result = Double.parseDouble(line.substring(line.indexOf("Objective =") + 12));
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    result = Double.NaN;
-                }
-            }
-            if (line.startsWith("s_")) {
-                String[] splited = line.split("\\s+");
-                String var_name = splited[0];
-                String[] var_name_splitted = var_name.split("s_");
-                int var_id = Integer.parseInt(var_name_splitted[1]);
-                Double var_value_opt = Double.parseDouble(splited[1]);
-                opt_s_values.put(var_id, var_value_opt);
-            }
-        }
-        if(opt_s_values.size() != number_vars && !result.equals(Double.NaN))
-        {
-            // have to set some vars specifically to zero (cplex outputs with "Display solution variables -" the vars with their optimal setting if
-            // that setting is != 0; it justs outputs that all the other vars are set to 0)
-            for(int i = 0; i < number_vars; i++)
-            {
-                if(!opt_s_values.containsKey(i))
-                {
-                    // have to explicitly list s_i* = 0
-                    opt_s_values.put(i, 0.0);
-                }
-            }
-        }
-        // else{  // all vars found or infeasible: nothing to do }
-        return new Pair<>(result, opt_s_values);
+    @Override
+    public String toString() {
+        return "LUDB LPs: " + solver_pool + ", simplify time: " + getTermsSimplifyTime() / 1000000 + "ms";
     }
 }
-
-
-
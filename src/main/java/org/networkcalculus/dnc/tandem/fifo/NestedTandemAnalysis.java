@@ -9,7 +9,6 @@ import org.networkcalculus.dnc.bounds.disco.pw_affine.LeftOverService_Disco_PwAf
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.ServiceCurve;
-import org.networkcalculus.dnc.curves.disco.pw_affine.Curve_Disco_PwAffine;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
@@ -36,7 +35,7 @@ public class NestedTandemAnalysis {
     // represents the nesting tree of the given non-nested tandem
     private TNode nestingTree;
 
-    private static boolean compute_flows_without_foi_ordered = false; // don't change
+    private boolean compute_flows_without_foi_ordered = false; // don't change, per analysis since the sets of cuts of a non-nested tandem are analyzed concurrently
 
     private static final boolean flows_without_foi_ordered_tree = true; // don't change, same order as bottom up call order in tree (like in the construction of the nesting tree)
 
@@ -56,6 +55,7 @@ public class NestedTandemAnalysis {
     private final ArrayList<Flow> crossflowList = new ArrayList(); // mapping of id to Flow for LP computation (LUDB) (index coincides with id)
     private double curr_min_delay_ludb; // for the on the run version (i.e. the one that does not compute all decompositions a priori)
     private Map<Integer, Double> curr_best_s_setting; //  curr_lb + s <=> theta (note that s >= 0!) [s from LUDB paper fifo l.o. theorem, theta is free parameter in the general fifo left over theorem]
+    private LUDB_LP ludb_lp = new LUDB_LP(); // solves the LPs, replaced by the one of the enclosing analysis to share it
     /////////////////// /////////////////// ///////
 
     private Map<Flow, Num> lb_thetas_global_min_so_far;
@@ -121,6 +121,14 @@ public class NestedTandemAnalysis {
         }
     }
 
+    public LUDB_LP getLUDB_LP() {
+        return ludb_lp;
+    }
+
+    public void setLUDB_LP(LUDB_LP ludb_lp) {
+        this.ludb_lp = ludb_lp;
+    }
+
     public Num performAnalysis() throws Exception {
         ServiceCurve foi_leftover_sc = getServiceCurve();
         return Calculator.getInstance().getDncBackend().getBounds().delayFIFO(foi.getArrivalCurve(), foi_leftover_sc);
@@ -225,7 +233,7 @@ public class NestedTandemAnalysis {
                         ServiceCurve sc = child.getLeftover();
                         Num burst = ac.getBurst();
 
-                        Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+                        Curve curve = sc;
                         flow_theta = curve.f_inv(burst);
 
 
@@ -697,9 +705,13 @@ public class NestedTandemAnalysis {
             Num foi_burst = foi.getArrivalCurve().getBurst();
             Expression_LUDB foi_burst_exp = new Expression_LUDB(foi_burst);
 
+            // The LPs of the different stages are independent, they are solved concurrently
+            List<Pair<Expression_LUDB, List<Expression_LUDB>>> delay_compositions = new ArrayList<>();
             for (int j = -1; j < foi_nr_stages; j++) {
-                Pair<Expression_LUDB, List<Expression_LUDB>> delay_composition_j = getDelayLPDecomposition(foi_curve, foi_constraints, foi_burst_exp, j);
-                Pair<Double, Map<Integer, Double>> result_cplex_pair = LUDB_LP.simplify_first_then_save_and_solve_lp_w_cplex(delay_composition_j.getFirst(), delay_composition_j.getSecond(), crossflowList.size());
+                delay_compositions.add(getDelayLPDecomposition(foi_curve, foi_constraints, foi_burst_exp, j));
+            }
+            List<Pair<Double, Map<Integer, Double>>> result_cplex_pairs = ludb_lp.simplify_first_then_solve_lps(delay_compositions, crossflowList.size());
+            for (Pair<Double, Map<Integer, Double>> result_cplex_pair : result_cplex_pairs) {
                 double result_tmp = result_cplex_pair.getFirst();
                 // we know that the map is empty anyways
                 if (result_tmp < delay) {
@@ -775,16 +787,20 @@ public class NestedTandemAnalysis {
         int nr_stages = curr_flow_curve_stages.size();
 
 
+        // Only put k to the map if it is feasible for curr_flow, i.e., we compute the LUDB for the curr_flow with k.
+        // The recursion below does not alter curr_flow's curve and constraints, so the feasibility LPs of all k are solved concurrently up front.
+        List<Expression_LUDB> curr_flow_constraints = curr_flow_node.getCurrentConstraints();
+        Num curr_flow_burst = curr_flow.getArrivalCurve().getBurst();
+        Expression_LUDB curr_flow_burst_exp = new Expression_LUDB(curr_flow_burst);
+        List<Pair<Expression_LUDB, List<Expression_LUDB>>> curr_flow_delay_compositions = new ArrayList<>();
+        for (int k = -1; k < nr_stages; k++) {
+            curr_flow_delay_compositions.add(getDelayLPDecomposition(curr_flow_curve, curr_flow_constraints, curr_flow_burst_exp, k));
+        }
+        List<Pair<Double, Map<Integer, Double>>> result_curr_flow_cplex_pairs = ludb_lp.simplify_first_then_solve_lps(curr_flow_delay_compositions, crossflowList.size());
+
         // if k == -1, we select the null term as max
         for (int k = -1; k < nr_stages; k++) {
-            // Only put k to the map if it is feasible for curr_flow, i.e., we compute the LUDB for the curr_flow with k
-            // if (!use_cache) {
-            List<Expression_LUDB> curr_flow_constraints = curr_flow_node.getCurrentConstraints();
-            Num curr_flow_burst = curr_flow.getArrivalCurve().getBurst();
-            Expression_LUDB curr_flow_burst_exp = new Expression_LUDB(curr_flow_burst);
-            Pair<Expression_LUDB, List<Expression_LUDB>> curr_flow_delay_composition_k = getDelayLPDecomposition(curr_flow_curve, curr_flow_constraints, curr_flow_burst_exp, k);
-            Pair<Double, Map<Integer, Double>> result_curr_flow_cplex_pair = LUDB_LP.simplify_first_then_save_and_solve_lp_w_cplex(curr_flow_delay_composition_k.getFirst(), curr_flow_delay_composition_k.getSecond(), crossflowList.size());
-            Double result_curr_flow_delay_k = result_curr_flow_cplex_pair.getFirst();
+            Double result_curr_flow_delay_k = result_curr_flow_cplex_pairs.get(k + 1).getFirst();
 
 
             if (result_curr_flow_delay_k.equals(Double.NaN)) {
@@ -817,10 +833,13 @@ public class NestedTandemAnalysis {
                 Expression_LUDB foi_burst_exp = new Expression_LUDB(foi_burst);
 
 
+                List<Pair<Expression_LUDB, List<Expression_LUDB>>> delay_compositions = new ArrayList<>();
                 for (int j = -1; j < foi_nr_stages; j++) {
-
-                    Pair<Expression_LUDB, List<Expression_LUDB>> delay_composition_j = getDelayLPDecomposition(foi_curve, foi_constraints, foi_burst_exp, j);
-                    Pair<Double, Map<Integer, Double>> result_cplex_pair = LUDB_LP.simplify_first_then_save_and_solve_lp_w_cplex(delay_composition_j.getFirst(), delay_composition_j.getSecond(), crossflowList.size());
+                    delay_compositions.add(getDelayLPDecomposition(foi_curve, foi_constraints, foi_burst_exp, j));
+                }
+                List<Pair<Double, Map<Integer, Double>>> result_cplex_pairs = ludb_lp.simplify_first_then_solve_lps(delay_compositions, crossflowList.size());
+                // Keep the order of the sequential search: the first of equal delays wins
+                for (Pair<Double, Map<Integer, Double>> result_cplex_pair : result_cplex_pairs) {
                     double result_tmp = result_cplex_pair.getFirst();
 
                     if (result_tmp < curr_min_delay_ludb) {
@@ -1095,7 +1114,7 @@ public class NestedTandemAnalysis {
                     ServiceCurve sc = child.getLeftover();
                     Num burst = ac.getBurst(); // We assume that all rates of the ac are smaller than all the rates of the sc (ignoring the null-rates of course)
 
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc;
+                    Curve curve = sc;
                     Num curr_lb = curve.f_inv(burst);
 
                     // use a theta from the map "thetas"
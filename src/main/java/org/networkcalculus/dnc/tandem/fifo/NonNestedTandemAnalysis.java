@@ -1,6 +1,8 @@
 package org.networkcalculus.dnc.tandem.fifo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -8,6 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.commons.math3.util.Pair;
 import org.networkcalculus.dnc.AnalysisConfig;
@@ -16,12 +19,12 @@ import org.networkcalculus.dnc.bounds.disco.pw_affine.LeftOverService_Disco_PwAf
 import org.networkcalculus.dnc.curves.ArrivalCurve;
 import org.networkcalculus.dnc.curves.Curve;
 import org.networkcalculus.dnc.curves.ServiceCurve;
-import org.networkcalculus.dnc.curves.disco.pw_affine.Curve_Disco_PwAffine;
 import org.networkcalculus.dnc.feedforward.ArrivalBoundDispatchFIFO;
 import org.networkcalculus.dnc.network.server_graph.Flow;
 import org.networkcalculus.dnc.network.server_graph.Path;
 import org.networkcalculus.dnc.network.server_graph.Server;
 import org.networkcalculus.dnc.network.server_graph.ServerGraph;
+import org.networkcalculus.dnc.tandem.fifo.LUDBOPT.LUDB_LP;
 import org.networkcalculus.num.Num;
 
 /**
@@ -39,14 +42,14 @@ public class NonNestedTandemAnalysis {
     private final ArrayList<Flow> flows;
     // entry (i,j) contains "the" flow (i,j) if it exists, otherwise null
     private Flow[][] flowMatrix;
-    // matrix shows which flow dependencies are severed by cutting at the respective node (= row), order of flow dependencies is the same as in the list
-    private boolean[][] dependencyMatrix;
+    // matrix shows which flow dependencies are severed by cutting at the respective node (= row), bit i of a row refers to the i-th flow dependency in the list
+    private BitSet[] dependencyMatrix;
     // list of interdependent flows
     private ArrayList<Pair> flowDependencies;
-    // valid sets of cuts --- every set of cuts in vsc severs all flow dependencies
-    private ArrayList<ArrayList<Integer>> vsc;
+    // valid sets of cuts --- every set of cuts in vsc severs all flow dependencies, bit x of a set of cuts is set if it cuts at node x
+    private ArrayList<BitSet> vsc;
     // primary sets of cuts --- vsc \ "unnecessary" sets of cuts (if there is a set of cuts with one cut less and the other cuts are the same)
-    private ArrayList<ArrayList<Integer>> psc;
+    private ArrayList<BitSet> psc;
     // number of nodes on the foi path
     private int num;
     // local enumeration of servers
@@ -57,12 +60,11 @@ public class NonNestedTandemAnalysis {
     // the actual cross-flows (not the substitutes)
     private final Map<Path,Set<Flow>> xtx_subpath_grouped;
     private Map<Flow, Set<Flow>> xtx_substitutes_to_actual_flows;
-    private Map<Path, ArrivalCurve> foi_arrival_bound_at_subtandem;
-    // current subtandems of one set of cuts
-    private ArrayList<Path> curr_subtandems;
 
     private final boolean solve_for_output_opt;
 
+    private LUDB_LP ludb_lp = new LUDB_LP(); // shared by the nested analyses, replaced by the one of the enclosing analysis
+
 
     // flows need to include flow_of_interest
     // flows are flow substitutes (dummy flows) --- flow_of_interest can be real flow though
@@ -78,6 +80,14 @@ public class NonNestedTandemAnalysis {
         computeSubstitutesToActualFlows();
     }
 
+    public LUDB_LP getLUDB_LP() {
+        return ludb_lp;
+    }
+
+    public void setLUDB_LP(LUDB_LP ludb_lp) {
+        this.ludb_lp = ludb_lp;
+    }
+
     private void computeSubstitutesToActualFlows()
     {
         Set<Flow> crossflows = new HashSet<Flow>(flows);
@@ -152,7 +162,11 @@ public class NonNestedTandemAnalysis {
         }
 
         // dependency matrix, all entries initially false
-        dependencyMatrix = new boolean[num][flowDependencies.size()];
+        dependencyMatrix = new BitSet[num];
+        for(int i = 0; i < num; i++)
+        {
+            dependencyMatrix[i] = new BitSet(flowDependencies.size());
+        }
         for(Pair flow_dependency : flowDependencies)
         {
             Flow f1 = (Flow) flow_dependency.getFirst();
@@ -164,15 +178,14 @@ public class NonNestedTandemAnalysis {
             // dependency is resolved by cutting at any node in [source_2, sink_1 + 1]
             for(int i=source_2; i <= sink_1 + 1; i++)
             {
-                dependencyMatrix[i][column_index] = true;
+                dependencyMatrix[i].set(column_index);
             }
         }
         computeValidSetsOfCutsInit();
         computePrimarySetsOfCuts();
 
-
-
-        ArrayList<ArrayList<Integer>> sc_min_cuts = new ArrayList<>();
+        // the sets of cuts are evaluated concurrently, the minimum is taken in the order of psc
+        List<Pair> psc_delays_and_leftovers = computeDelaysandLeftOversForPSC();
 
         if(!solve_for_output_opt)
         {
@@ -180,10 +193,7 @@ public class NonNestedTandemAnalysis {
             Num min_delay = Num.getFactory(Calculator.getInstance().getNumBackend()).getPositiveInfinity();
             ServiceCurve left_over_with_min_delay = Curve.getFactory().createZeroService();
 
-            for(ArrayList<Integer> sc : psc) {
-                // reset for every set of cuts
-                foi_arrival_bound_at_subtandem = new HashMap<Path, ArrivalCurve>();
-                Pair pair = computeDelayandLeftOverForSC(sc);
+            for(Pair pair : psc_delays_and_leftovers) {
                 Num delay = (Num) pair.getFirst();
                 ServiceCurve leftover = (ServiceCurve) pair.getSecond();
 
@@ -200,10 +210,7 @@ public class NonNestedTandemAnalysis {
             // compute latency for every sc in psc and return the left over service curve with min latency
             Num min_latency = Num.getFactory(Calculator.getInstance().getNumBackend()).getPositiveInfinity();
             ServiceCurve left_over_with_min_latency = Curve.getFactory().createZeroService();
-            for(ArrayList<Integer> sc : psc) {
-                foi_arrival_bound_at_subtandem = new HashMap<Path, ArrivalCurve>();
-                Pair pair = computeDelayandLeftOverForSC(sc);
-
+            for(Pair pair : psc_delays_and_leftovers) {
                 ServiceCurve leftover = (ServiceCurve) pair.getSecond();
                 Num latency = leftover.getLatency();
 
@@ -216,26 +223,54 @@ public class NonNestedTandemAnalysis {
         }
     }
 
-    private Pair computeDelayandLeftOverForSC(ArrayList<Integer> sc) throws Exception {
+    // Evaluates every set of cuts in psc concurrently, the results are in the order of psc
+    private List<Pair> computeDelaysandLeftOversForPSC() throws Exception
+    {
+        Pair[] psc_delays_and_leftovers = new Pair[psc.size()];
+        Exception[] psc_exceptions = new Exception[psc.size()];
+
+        // Worker threads of the parallel stream do not see the caller's calculation context,
+        // it needs to be bound to them explicitly.
+        final Calculator calculator_caller = Calculator.getInstance();
+        IntStream.range(0, psc.size()).parallel().forEach(i -> {
+            try {
+                psc_delays_and_leftovers[i] = calculator_caller.call(() -> computeDelayandLeftOverForSC(psc.get(i)));
+            } catch (Exception e) {
+                psc_exceptions[i] = e;
+            }
+        });
+
+        // same exception as in a serial evaluation
+        for(Exception e : psc_exceptions)
+        {
+            if(e != null)
+            {
+                throw e;
+            }
+        }
+        return Arrays.asList(psc_delays_and_leftovers);
+    }
+
+    private Pair computeDelayandLeftOverForSC(BitSet sc) throws Exception {
 
         Num delay_sc = Num.getFactory(Calculator.getInstance().getNumBackend()).createZero();
         // neutral element concerning convolution
         ServiceCurve leftover_sc = Curve.getFactory().createZeroDelayInfiniteBurst();
         // create and store subtandems for this set of cuts
         // sc.size >= 1 (otherwise it would be a nested tandem)
+        int[] cuts = sc.stream().toArray();
         ArrayList<Path> subtandems = new ArrayList<>();
         try {
-            Path first_subtandem = foi_path.getSubPath(foi.getSource(), foi_path.getPrecedingServer(server_numbers_reversed_map.get(sc.get(0))));
+            Path first_subtandem = foi_path.getSubPath(foi.getSource(), foi_path.getPrecedingServer(server_numbers_reversed_map.get(cuts[0])));
             subtandems.add(first_subtandem);
-            foi_arrival_bound_at_subtandem.put(first_subtandem, foi.getArrivalCurve());
-            for (int i = 0; i < sc.size(); i++) {
-                Server from = server_numbers_reversed_map.get(sc.get(i));
-                if (i + 1 == sc.size()) {
+            for (int i = 0; i < cuts.length; i++) {
+                Server from = server_numbers_reversed_map.get(cuts[i]);
+                if (i + 1 == cuts.length) {
                     // we don't store the sink of foi in sc
                     Server to = foi.getSink();
                     subtandems.add(foi_path.getSubPath(from, to));
                 } else {
-                    Server to = foi_path.getPrecedingServer(server_numbers_reversed_map.get(sc.get(i + 1)));
+                    Server to = foi_path.getPrecedingServer(server_numbers_reversed_map.get(cuts[i + 1]));
                     subtandems.add(foi_path.getSubPath(from, to));
                 }
             }
@@ -243,9 +278,6 @@ public class NonNestedTandemAnalysis {
             e.printStackTrace();
         }
 
-        // reset for every set of cuts
-        curr_subtandems = new ArrayList<>(subtandems);
-
         // Basically STA: Cut, compute arrival bounds for crossflows at each cut but do a single nested tandem analysis over the whole tandem afterwards
         HashMap<Path, Set<Flow>> subtandem_to_xf_substitutes = new HashMap();
         Set<Flow> all_xf_substitutes = new HashSet<>();
@@ -261,13 +293,17 @@ public class NonNestedTandemAnalysis {
         all_xf_substitutes.add(foi_substitute);
         if(!solve_for_output_opt)
         {
-            leftover_sc = new NestedTandemAnalysis(foi.getPath(), foi_substitute, all_xf_substitutes).getServiceCurve();
+            NestedTandemAnalysis ludb_nested = new NestedTandemAnalysis(foi.getPath(), foi_substitute, all_xf_substitutes);
+            ludb_nested.setLUDB_LP(ludb_lp);
+            leftover_sc = ludb_nested.getServiceCurve();
             delay_sc = Calculator.getInstance().getDncBackend().getBounds().delayFIFO(foi_substitute.getArrivalCurve(), leftover_sc);
         }
 
         else{
 
             NestedTandemAnalysis ludb_nested = new NestedTandemAnalysis( foi.getPath(), foi_substitute, all_xf_substitutes, configuration);
+
+            ludb_nested.setLUDB_LP(ludb_lp);
             TNode root = ludb_nested.onlyComputeNestingTree();
             ArrayList<TNode> foi_children = root.getChildren();
             leftover_sc = Curve.getFactory().createZeroDelayInfiniteBurst();
@@ -299,13 +335,16 @@ public class NonNestedTandemAnalysis {
 
 
                     NestedTandemAnalysis ludb_nested_child = new NestedTandemAnalysis( foi_child_flow.getPath(), foi_child_flow, flows_nested_into_foi_child, configuration);
+
+
+                    ludb_nested_child.setLUDB_LP(ludb_lp);
                     ServiceCurve beta_lo_child = ludb_nested_child.getServiceCurve();
 
                     ArrivalCurve ac = foi_child_flow.getArrivalCurve();
                     ServiceCurve sc_foi_child = beta_lo_child;
                     Num burst = ac.getBurst();
 
-                    Curve_Disco_PwAffine curve = (Curve_Disco_PwAffine) sc_foi_child;
+                    Curve curve = sc_foi_child;
 
                     Num theta_curr_lb = curve.f_inv(burst);
                     ServiceCurve subtandem_foi_lo = LeftOverService_Disco_PwAffine.fifoMux(beta_lo_child, foi_child_flow.getArrivalCurve(), theta_curr_lb);
@@ -430,71 +469,48 @@ public class NonNestedTandemAnalysis {
 
     private void computeValidSetsOfCutsInit()
     {
-        vsc = new ArrayList<ArrayList<Integer>>();
+        vsc = new ArrayList<BitSet>();
         // node 1 (servernumber 0) is always in the cut implicitly --- we don't store it though due to check "{k-1, k-2} isSubset curr_set_of_cuts"
         for(int x = 1; x < num; x++)
         {
             // check if we can "ignore" x, i.e. if x does not resolve any dependencies at all
             // dependencies resolved by a cut at node x
-            ArrayList<Pair> curr_dependencies = new ArrayList<Pair>();
-            boolean[] x_row = dependencyMatrix[x];
-            // assume x_row.length >= 1 (since we have at least one flow dependency)
-            boolean containsAll = true;
-            for(int i = 0; i < x_row.length; i++)
-            {
-                if(x_row[i])
-                {
-                    // dependencyMatrix and flowDependencies have the same order of dependencies!
-                    curr_dependencies.add(flowDependencies.get(i));
-                }
-                else
-                {
-                    containsAll = false;
-                }
-            }
-
-            if(curr_dependencies.size()==0)
+            BitSet curr_dependencies = (BitSet) dependencyMatrix[x].clone();
+            if(curr_dependencies.isEmpty())
             {
                 continue;
             }
 
             // did not skip node x
-            ArrayList<Integer> x_list = new ArrayList<Integer>();
-            x_list.add(x);
+            BitSet x_set = new BitSet(num);
+            x_set.set(x);
 
-            if(containsAll)
+            // assume flowDependencies.size() >= 1 (since we have at least one flow dependency)
+            if(curr_dependencies.cardinality() == flowDependencies.size())
             {
                 // no need to add further nodes to the cut since node x severs all dependencies, so further nodes in the cut would worsen the result
-                vsc.add(x_list);
+                vsc.add(x_set);
             }
 
             else
             {
-                computeValidSetsOfCuts(x_list,  curr_dependencies, x);
+                computeValidSetsOfCuts(x_set,  curr_dependencies, x);
             }
 
         }
     }
 
-    // Note: Dependencies in curr_dependencies are stored in an arbitrary fashion (unlike flowDependencies and dependencyMatrix)
-    private void computeValidSetsOfCuts(ArrayList<Integer> curr_set_of_cuts, ArrayList<Pair> curr_dependencies, int x)
+    // Note: Sets of cuts and dependencies are bit masks, bit k of curr_set_of_cuts refers to node k and bit i of curr_dependencies to the i-th dependency in flowDependencies
+    private void computeValidSetsOfCuts(BitSet curr_set_of_cuts, BitSet curr_dependencies, int x)
     {
         // k >= x + 1 >= 2 => can check "{k-1, k-2} isSubset curr_set_of_cuts". Note that we don't store node 1 (servernr 0) in curr_set_of_cuts because in general,
         // we still have to consider cutting at node 2 (servernr 1) and node 3 (servernr 2).
         for(int k = x+1; k < num; k++)
         {
-            // check if D_k isSubset curr_dependencies
-            boolean[] k_row = dependencyMatrix[k];
-            ArrayList<Pair> k_dependencies = new ArrayList<Pair>();
-            for(int i = 0; i < k_row.length; i++)
-            {
-                if(k_row[i])
-                {
-                    // dependencyMatrix and flowDependencies have the same order of dependencies!
-                    k_dependencies.add(flowDependencies.get(i));
-                }
-            }
-            if(curr_dependencies.containsAll(k_dependencies) || (curr_set_of_cuts.contains(k-2) && curr_set_of_cuts.contains(k-1)))
+            // check if D_k isSubset curr_dependencies, i.e. if node k does not resolve "new" dependencies
+            BitSet k_dependencies_new = (BitSet) dependencyMatrix[k].clone();
+            k_dependencies_new.andNot(curr_dependencies);
+            if(k_dependencies_new.isEmpty() || (curr_set_of_cuts.get(k-2) && curr_set_of_cuts.get(k-1)))
             {
                 // "k_dependencies isSubset curr_dependencies": no need to add node k to curr_set_of_cuts since it does not resolve "new" dependencies
                 // "{k-1, k-2} isSubset curr_set_of_cuts": no cutting at three succeeding nodes
@@ -502,21 +518,14 @@ public class NonNestedTandemAnalysis {
             }
 
             // did not skip node k
-            ArrayList<Integer> curr_set_of_cuts_new = (ArrayList<Integer>)curr_set_of_cuts.clone();
+            BitSet curr_set_of_cuts_new = (BitSet) curr_set_of_cuts.clone();
             // add node k to curr_set_of_cuts_new
-            curr_set_of_cuts_new.add(k);
-            ArrayList<Pair> curr_dependencies_new = (ArrayList<Pair>)curr_dependencies.clone();
-
+            curr_set_of_cuts_new.set(k);
             // add k_dependencies to curr_dependencies_new
-            for(Pair k_dependency : k_dependencies)
-            {
-                if(!curr_dependencies_new.contains(k_dependency))
-                {
-                    curr_dependencies_new.add(k_dependency);
-                }
-            }
+            BitSet curr_dependencies_new = (BitSet) curr_dependencies.clone();
+            curr_dependencies_new.or(k_dependencies_new);
 
-            if(curr_dependencies_new.containsAll(flowDependencies))
+            if(curr_dependencies_new.cardinality() == flowDependencies.size())
             {
                 // set of (curr_dependencies_new) = set of (flowDependencies), so curr_set_of_cuts_new resolves all flow dependencies
                 // add curr_set_of_cuts_new to the valid sets of cuts list
@@ -533,26 +542,27 @@ public class NonNestedTandemAnalysis {
 
     private void computePrimarySetsOfCuts()
     {
-        ArrayList<ArrayList<Integer>> to_delete = new ArrayList<ArrayList<Integer>>();
+        // the valid sets of cuts for constant time validity checks
+        HashSet<BitSet> vsc_memo = new HashSet<BitSet>(vsc);
+        psc = new ArrayList<BitSet>();
 
-        for(ArrayList<Integer> list : vsc)
+        for(BitSet set_of_cuts : vsc)
         {
-            for(Integer x : list)
+            boolean is_primary = true;
+            for(int x = set_of_cuts.nextSetBit(0); x >= 0 && is_primary; x = set_of_cuts.nextSetBit(x + 1))
             {
-                ArrayList<Integer> list_without_x = (ArrayList<Integer>) list.clone();
-                list_without_x.remove(x);
-                if(vsc.contains(list_without_x))
+                BitSet set_of_cuts_without_x = (BitSet) set_of_cuts.clone();
+                set_of_cuts_without_x.clear(x);
+                if(vsc_memo.contains(set_of_cuts_without_x))
                 {
-                    to_delete.add(list);
+                    is_primary = false;
                 }
             }
-        }
-
-        psc = (ArrayList<ArrayList<Integer>>) vsc.clone();
 
-        for(ArrayList<Integer> list_to_delete : to_delete)
-        {
-            psc.remove(list_to_delete);
+            if(is_primary)
+            {
+                psc.add(set_of_cuts);
+            }
         }
     }
 }
\ No newline at end of file
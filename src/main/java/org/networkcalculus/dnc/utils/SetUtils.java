@@ -31,9 +31,15 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import org.networkcalculus.dnc.network.server_graph.FlowSet;
+
 /**
  * A tiny collection of convenience methods useful in dealing with sets but not
  * provided directly by Java's set classes.
+ * <p>
+ * The generic variants return HashSets that can hold any flow, e.g., dummy flows.
+ * The FlowSet variants, and the union of two FlowSets of the same server graph,
+ * return FlowSets such that further operations on them remain bit operations.
  */
 public final class SetUtils {
     /**
@@ -51,6 +57,20 @@ public final class SetUtils {
         return result;
     }
 
+    /**
+     * Returns the set difference between the flow set <code>s1</code> and the set
+     * <code>s2</code>.
+     *
+     * @param s1  A flow set.
+     * @param s2  Another flow set.
+     * @return The difference set, it can only hold flows of <code>s1</code>'s server graph.
+     */
+    public static FlowSet getDifference(FlowSet s1, FlowSet s2) {
+        FlowSet result = s1.copy();
+        result.removeAll(s2);
+        return result;
+    }
+
     /**
      * Returns the intersection of set <code>s1</code> and set <code>s2</code>.
      * Returns an empty set if the intersection is empty, i.e., does not return
@@ -70,6 +90,21 @@ public final class SetUtils {
         return result;
     }
 
+    /**
+     * Returns the intersection of flow set <code>s1</code> and flow set <code>s2</code>.
+     * Returns an empty set if the intersection is empty, i.e., does not return
+     * null.
+     *
+     * @param s1  A flow set.
+     * @param s2  Another flow set.
+     * @return The intersection set, it can only hold flows of <code>s1</code>'s server graph.
+     */
+    public static FlowSet getIntersection(FlowSet s1, FlowSet s2) {
+        FlowSet result = s1.copy();
+        result.retainAll(s2);
+        return result;
+    }
+
     /**
      * Returns the intersection of all sets contained in the list <code>sets</code>.
      *
@@ -81,7 +116,7 @@ public final class SetUtils {
         Set<T> result = new HashSet<T>();
         Iterator<Set<T>> iter = sets.iterator();
         if (iter.hasNext()) {
-            result.addAll(iter.next());
+            result = copy(iter.next());
             for (; iter.hasNext(); ) {
                 result.retainAll((Set<T>) iter.next());
             }
@@ -98,7 +133,14 @@ public final class SetUtils {
      * @return The union set.
      */
     public static <T> Set<T> getUnion(Set<T> s1, Set<T> s2) {
-        Set<T> result = new HashSet<T>(s1);
+        Set<T> result;
+        if (s1 instanceof FlowSet && s2 instanceof FlowSet
+                && ((FlowSet) s1).getServerGraph() == ((FlowSet) s2).getServerGraph()) {
+            result = copy(s1);
+        } else {
+            // The other set may contain flows that a FlowSet cannot hold, e.g., dummy flows.
+            result = new HashSet<T>(s1);
+        }
         result.addAll(s2);
         return result;
     }
@@ -117,4 +159,12 @@ public final class SetUtils {
         }
         return result;
     }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Set<T> copy(Set<T> s) {
+        if (s instanceof FlowSet) {
+            return (Set<T>) ((FlowSet) s).copy();
+        }
+        return new HashSet<T>(s);
+    }
 }